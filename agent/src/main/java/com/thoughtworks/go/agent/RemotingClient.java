@@ -28,6 +28,7 @@ import com.thoughtworks.go.remote.Serialization;
 import com.thoughtworks.go.remote.request.*;
 import com.thoughtworks.go.remote.work.Work;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.http.HttpResponse;
 import org.apache.http.NoHttpResponseException;
 import org.apache.http.StatusLine;
@@ -54,17 +55,24 @@ public class RemotingClient implements BuildRepositoryRemote {
     private static final Logger LOG = LoggerFactory.getLogger(RemotingClient.class);
     private static final String UUID_HEADER = "X-Agent-GUID";
     private static final String AUTH_HEADER = "Authorization";
+    private static final String WORK_WAIT_HEADER = "X-Agent-Work-Wait";
     private static final Gson GSON = Serialization.instance();
 
     private final GoAgentServerHttpClient client;
     private final DefaultAgentRegistry agent;
     private final URLService urls;
+    private final long workWaitMillis;
 
     @Autowired
     public RemotingClient(GoAgentServerHttpClient client, DefaultAgentRegistry agent, URLService urls) {
+        this(client, agent, urls, new SystemEnvironment().getAgentWorkLongPollWaitInMillis());
+    }
+
+    RemotingClient(GoAgentServerHttpClient client, DefaultAgentRegistry agent, URLService urls, long workWaitMillis) {
         this.client = client;
         this.agent = agent;
         this.urls = urls;
+        this.workWaitMillis = workWaitMillis;
     }
 
     @Override
@@ -74,7 +82,12 @@ public class RemotingClient implements BuildRepositoryRemote {
 
     @Override
     public Work getWork(AgentRuntimeInfo info) {
-        return GSON.fromJson(post("get_work", new GetWorkRequest(info)), Work.class);
+        // the server holds on to the request until there is work for this agent, or the wait is over
+        HttpRequestBase request = postRequestFor("get_work", new GetWorkRequest(info));
+        if (workWaitMillis > 0) {
+            request.setHeader(WORK_WAIT_HEADER, String.valueOf(workWaitMillis));
+        }
+        return GSON.fromJson(execute(request, "get_work"), Work.class);
     }
 
     @Override
@@ -104,11 +117,12 @@ public class RemotingClient implements BuildRepositoryRemote {
     }
 
     private String post(final String action, final AgentRequest payload) {
+        return execute(postRequestFor(action, payload), action);
+    }
+
+    private String execute(final HttpRequestBase request, final String action) {
         try {
-            try (CloseableHttpResponse response = client.execute(
-                    injectCredentials(
-                            postRequestFor(action, payload)
-                    ))) {
+            try (CloseableHttpResponse response = client.execute(injectCredentials(request))) {
                 validateResponse(response, action);
                 return readBodyAsString(response);
             }
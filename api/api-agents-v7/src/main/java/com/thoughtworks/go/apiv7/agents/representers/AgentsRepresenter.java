@@ -32,7 +32,8 @@ public class AgentsRepresenter {
                         .addLink("self", Routes.AgentsAPI.BASE)
                         .addAbsoluteLink("doc", Routes.AgentsAPI.DOC))
                 .addChild("_embedded", embeddedWriter -> embeddedWriter.addChildList("agents",
-                        agentsWriter -> agentToEnvironments.forEach((agent, env) -> agentsWriter.addChild(agentWriter -> AgentRepresenter.toJSON(agentWriter, agent, env, securityService, username))))
+                        agentsWriter -> agentsWriter.addChildren(agentToEnvironments.entrySet().iterator(),
+                                (agentWriter, agentToEnvironment) -> AgentRepresenter.toJSON(agentWriter, agentToEnvironment.getKey(), agentToEnvironment.getValue(), securityService, username)))
                 );
     }
 }
@@ -246,4 +246,13 @@ class AgentsRepresenterTest {
 
     assertThatJson(json).isEqualTo(expectedJson)
   }
+
+  @Test
+  void 'should represent no agents as an empty list'() {
+    def json = toObjectString({
+      AgentsRepresenter.toJSON(it, new LinkedHashMap<AgentInstance, Collection<EnvironmentConfig>>(), securityService, new Username("bob"))
+    })
+
+    assertThatJson(json).node("_embedded.agents").isEqualTo([])
+  }
 }
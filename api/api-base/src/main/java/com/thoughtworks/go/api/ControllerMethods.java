@@ -88,12 +88,12 @@ public interface ControllerMethods {
     }
 
     default String writerForTopLevelObject(Request request, Response response, Consumer<OutputWriter> consumer) throws IOException {
-        new JsonOutputWriter(response.raw().getWriter(), RequestContext.requestContext(request)).forTopLevelObject(consumer);
+        new JsonOutputWriter(response.raw().getOutputStream(), RequestContext.requestContext(request)).forTopLevelObject(consumer);
         return NOTHING;
     }
 
     default String writerForTopLevelArray(Request request, Response response, Consumer<OutputListWriter> consumer) throws IOException {
-        new JsonOutputWriter(response.raw().getWriter(), RequestContext.requestContext(request)).forTopLevelArray(consumer);
+        new JsonOutputWriter(response.raw().getOutputStream(), RequestContext.requestContext(request)).forTopLevelArray(consumer);
         return NOTHING;
     }
 
@@ -273,6 +273,39 @@ class JsonOutputWriterTest {
     ])
   }
 
+  @Test
+  void 'should stream UTF-8 straight to an output stream'() {
+    def result = new ByteArrayOutputStream()
+
+    new JsonOutputWriter(result, new TestRequestContext()).forTopLevelObject { writer ->
+      writer.add("key", "välüe ✓")
+      writer.addChildList("list", ["value1", "value2"])
+    }
+
+    assertThat(fromJSON(result.toString("UTF-8"))).isEqualTo([key: "välüe ✓", list: ["value1", "value2"]])
+  }
+
+  @Test
+  void 'should add a child for each item a cursor gives'() {
+    def result = new StringWriter()
+    def cursor = ["value1", "value2", "value3"].iterator()
+
+    new JsonOutputWriter(result, new TestRequestContext()).forTopLevelObject { writer ->
+      writer.addChildList("parent") { listWriter ->
+        listWriter.addChildren(cursor) { childWriter, item -> childWriter.add("key", item) }
+      }
+    }
+
+    assertThat(fromJSON(result.toString())).isEqualTo([
+      parent: [
+        [key: "value1"],
+        [key: "value2"],
+        [key: "value3"]
+      ]
+    ])
+    assertThat(cursor.hasNext()).isFalse()
+  }
+
   def assertInvalidJSONOutput(Closure closure) {
     def result = new StringWriter()
 
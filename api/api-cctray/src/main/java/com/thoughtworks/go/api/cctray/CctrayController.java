@@ -35,7 +35,7 @@ import java.net.HttpURLConnection;
 import static spark.Spark.*;
 
 @Component
-public class CctrayController implements SparkSpringController, SparkController {
+public class CctrayController implements SparkSpringController, SparkController, ControllerMethods {
 
     private static final String ACCESS_DENIED_XML_RESPONSE = """
             <access-denied>
@@ -64,18 +64,20 @@ public class CctrayController implements SparkSpringController, SparkController
     }
 
     public String index(Request req, Response res) throws IOException {
+        String siteUrlPrefix = siteUrlPrefix(req);
+        String username = currentUsername().getUsername().toString();
+
+        String etag = ccTrayService.etag(siteUrlPrefix, username);
+        if (fresh(req, etag)) {
+            setEtagHeader(res, etag);
+            return notModified(res);
+        }
+
         OutputStreamWriter appendable = new OutputStreamWriter(res.raw().getOutputStream());
-        ccTrayService.renderCCTrayXML(siteUrlPrefix(req), currentUsername().getUsername().toString(), appendable, etag -> setEtagHeader(res, etag));
+        ccTrayService.renderCCTrayXML(siteUrlPrefix, username, appendable, renderedEtag -> setEtagHeader(res, renderedEtag));
         appendable.flush();
         // because we've streamed the ccontent already.
-        return ControllerMethods.NOTHING;
-    }
-
-    private void setEtagHeader(Response res, String value) {
-        if (value == null) {
-            return;
-        }
-        res.header("ETag", '"' + value + '"');
+        return NOTHING;
     }
 
     private String siteUrlPrefix(Request req) {
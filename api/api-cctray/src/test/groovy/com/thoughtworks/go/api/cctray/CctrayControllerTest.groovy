@@ -96,6 +96,21 @@ class CctrayControllerTest implements SecurityServiceTrait, ControllerTrait<Cctr
           .hasContentType("application/xml")
           .hasBody("blah!")
       }
+
+      @Test
+      void 'should render 304 without rendering the XML if etag matches'() {
+        enableSecurity()
+        loginAsUser()
+        when(ccTrayService.etag("http://test.host/go", currentUsernameString())).thenReturn("some-etag")
+
+        get("/cctray.xml", ['if-none-match': '"some-etag"'])
+
+        assertThatResponse()
+          .isNotModified()
+          .hasEtag('"some-etag"')
+          .hasContentType("application/xml")
+        verify(ccTrayService, never()).renderCCTrayXML(any(), any(), any(), any())
+      }
     }
   }
 }
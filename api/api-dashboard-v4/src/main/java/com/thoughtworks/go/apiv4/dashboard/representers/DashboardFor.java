@@ -19,8 +19,8 @@ import com.thoughtworks.go.server.dashboard.DashboardGroup;
 import com.thoughtworks.go.server.dashboard.GoDashboardPipeline;
 import com.thoughtworks.go.server.domain.Username;
 
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class DashboardFor {
     private final List<? extends DashboardGroup> pipelineGroups;
@@ -43,8 +43,9 @@ public class DashboardFor {
         return environments;
     }
 
-    public List<GoDashboardPipeline> getPipelines() {
-        return pipelineGroups.stream().flatMap(group -> group.allPipelines().stream()).collect(Collectors.toList());
+    /* Walks the pipelines of each group in turn, so that they are never collected into one list. */
+    public Iterator<GoDashboardPipeline> pipelines() {
+        return pipelineGroups.stream().flatMap(group -> group.allPipelines().stream()).iterator();
     }
 
     public Username getUsername() {
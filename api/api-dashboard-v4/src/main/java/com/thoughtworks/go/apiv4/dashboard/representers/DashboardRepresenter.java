@@ -31,7 +31,7 @@ public class DashboardRepresenter {
 
                         .addChildList("environments", listWriter -> dashboardFor.getEnvironments().forEach(group -> listWriter.addChild(childItemWriter -> DashboardGroupRepresenter.toJSON(childItemWriter, group, dashboardFor.getUsername()))))
 
-                        .addChildList("pipelines", listWriter -> dashboardFor.getPipelines()
-                                    .forEach(pipeline -> listWriter.addChild(childItemWriter -> PipelineRepresenter.toJSON(childItemWriter, pipeline, dashboardFor.getUsername())))));
+                        .addChildList("pipelines", listWriter -> listWriter.addChildren(dashboardFor.pipelines(),
+                                    (childItemWriter, pipeline) -> PipelineRepresenter.toJSON(childItemWriter, pipeline, dashboardFor.getUsername()))));
     }
 }
@@ -79,4 +79,38 @@ class DashboardRepresenterTest {
 
     assertThat(actualJson._personalization).isEqualTo(personalizationEtag)
   }
+
+  @Test
+  void 'renders the pipelines of every group in turn, skipping groups without any'() {
+    def user = new Username(new CaseInsensitiveString(SecureRandom.hex()))
+    def permissions = new Permissions(Everyone.INSTANCE, Everyone.INSTANCE, Everyone.INSTANCE, EveryonePermission.INSTANCE)
+
+    def group1 = new GoDashboardPipelineGroup('group1', permissions, true)
+    def emptyGroup = new GoDashboardPipelineGroup('empty', permissions, true)
+    def group2 = new GoDashboardPipelineGroup('group2', permissions, true)
+
+    def pipeline1 = GoDashboardPipelineMother.dashboardPipeline('pipeline1')
+    def pipeline2 = GoDashboardPipelineMother.dashboardPipeline('pipeline2')
+
+    group1.addPipeline(pipeline1)
+    group2.addPipeline(pipeline2)
+
+    def actualJson = toObject({
+      DashboardRepresenter.toJSON(it, new DashboardFor([group1, emptyGroup, group2], [], user, "sha256hash"))
+    })
+
+    assertThatJson(actualJson._embedded.pipelines).isEqualTo([
+      toObject({ PipelineRepresenter.toJSON(it, pipeline1, user) }),
+      toObject({ PipelineRepresenter.toJSON(it, pipeline2, user) }),
+    ])
+  }
+
+  @Test
+  void 'renders no pipelines when there are no groups'() {
+    def actualJson = toObject({
+      DashboardRepresenter.toJSON(it, new DashboardFor([], [], new Username("bob"), "sha256hash"))
+    })
+
+    assertThatJson(actualJson._embedded.pipelines).isEqualTo([])
+  }
 }
@@ -37,6 +37,9 @@ import static spark.Spark.*;
 
 @Component
 public class InternalAgentControllerV1 extends ApiController implements SparkSpringController {
+    // agents which can wait for work say for how long, in milliseconds
+    private static final String WORK_WAIT_HEADER = "X-Agent-Work-Wait";
+
     private final BuildRepositoryMessageProducer buildRepositoryMessageProducer;
 
     @Autowired
@@ -128,11 +131,26 @@ public class InternalAgentControllerV1 extends ApiController implements SparkSpr
         GetWorkRequest workRequest = GetWorkRequestRepresenter.fromJSON(request.body());
         ensureAgentIsMakingARequestForItself(workRequest, request);
 
-        Work work = buildRepositoryMessageProducer.getWork(workRequest.getAgentRuntimeInfo());
+        long waitMillis = workWaitMillis(request);
+        Work work = waitMillis > 0
+                ? buildRepositoryMessageProducer.getWork(workRequest.getAgentRuntimeInfo(), waitMillis)
+                : buildRepositoryMessageProducer.getWork(workRequest.getAgentRuntimeInfo());
 
         return WorkRepresenter.toJSON(work);
     }
 
+    private long workWaitMillis(Request request) {
+        String wait = request.headers(WORK_WAIT_HEADER);
+        if (wait == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(wait.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     public void ensureAgentIsMakingARequestForItself(AgentRequest agentRequest, Request request) {
         String uuidInRuntimeInfo = agentRequest.getAgentRuntimeInfo().getUUId();
         String uuidInRequest = request.headers("X-Agent-GUID");
@@ -335,6 +335,29 @@ class InternalAgentControllerV1Test implements ControllerTrait<InternalAgentCont
               .hasBodyContaining(WorkRepresenter.toJSON(new NoWork()))
     }
 
+    @Test
+    void 'should wait for work when the agent asks to'() {
+      def agent = new Agent("uuid", "localhost", "176.19.4.1")
+      def runtimeInfo = AgentRuntimeInfo.fromAgent(agent.getAgentIdentifier(), AgentRuntimeStatus.Idle, currentWorkingDirectory(),
+              "20.1.0", "20.9.0", () -> "Mac OS X")
+
+      when(buildRepositoryMessageProducer.getWork(runtimeInfo, 20000L)).thenReturn(new NoWork())
+
+      def headers = [
+              'accept'           : controller.mimeType,
+              'content-type'     : 'application/json',
+              'X-Agent-GUID'     : 'uuid',
+              'X-Agent-Work-Wait': '20000'
+      ]
+      postWithApiHeader(controller.controllerPath("/get_work"), headers, GetWorkRequestRepresenter.toJSON(
+              new GetWorkRequest(runtimeInfo)))
+
+      assertThatResponse()
+              .isOk()
+              .hasBodyContaining(WorkRepresenter.toJSON(new NoWork()))
+      verify(buildRepositoryMessageProducer).getWork(runtimeInfo, 20000L)
+    }
+
     @Test
     void 'ensure agent is making a request for itself'() {
       def agent = new Agent("different_agent_uuid", "localhost", "176.19.4.1")
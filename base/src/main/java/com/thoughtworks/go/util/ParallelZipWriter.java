@@ -0,0 +1,370 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.util;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Understands writing a zip while deflating its contents on a pool of threads.
+ * <p>
+ * Files are read once, in order, on the calling thread, which computes their CRC and MD5 as it goes and hands them out
+ * to the pool in chunks. Each chunk is deflated on its own, primed with the end of the chunk before it, and ends on a
+ * byte boundary, so that the chunks written one after the other make up the deflated contents of the file. Entries are
+ * written with their sizes and CRC after their contents, the way {@link java.util.zip.ZipOutputStream} does, so that
+ * nothing needs to be known about a file before it is read. Zip64 records are written when sizes, offsets or the
+ * number of entries need them.
+ */
+class ParallelZipWriter implements ZipWriter {
+    static final int CHUNK_SIZE = 256 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int ZIP64_END = 0x06064b50;
+    private static final int ZIP64_END_LOCATOR = 0x07064b50;
+    private static final int END = 0x06054b50;
+    // sizes and CRC follow the contents, and names are in UTF-8
+    private static final int FLAGS = 0x0008 | 0x0800;
+    private static final int DEFLATED = 8;
+
+    private final OutputStream out;
+    private final int level;
+    private final ExecutorService pool;
+    private final int maxPending;
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private final List<Entry> entries = new ArrayList<>();
+    private long written;
+
+    ParallelZipWriter(OutputStream destination, int level, ExecutorService pool, int maxPending) {
+        this.out = new BufferedOutputStream(destination);
+        this.level = level;
+        this.pool = pool;
+        this.maxPending = maxPending;
+    }
+
+    @Override
+    public void putDirectory(String name) throws IOException {
+        Entry entry = startEntry(name, System.currentTimeMillis());
+        addChunk(entry, new byte[0], null, Deflater.DEFAULT_COMPRESSION, true);
+        finishEntry(entry);
+    }
+
+    @Override
+    public String putFile(String name, File file, boolean alreadyCompressed) throws IOException {
+        int entryLevel = alreadyCompressed ? Deflater.NO_COMPRESSION : level;
+        MessageDigest md5 = md5();
+        Entry entry = startEntry(name, file.lastModified());
+        try (InputStream inputStream = new FileInputStream(file)) {
+            byte[] previous = null;
+            byte[] chunk = inputStream.readNBytes(CHUNK_SIZE);
+            while (true) {
+                entry.crc.update(chunk);
+                md5.update(chunk);
+                entry.size += chunk.length;
+
+                byte[] next = chunk.length < CHUNK_SIZE ? new byte[0] : inputStream.readNBytes(CHUNK_SIZE);
+                boolean last = next.length == 0;
+                addChunk(entry, chunk, previous, entryLevel, last);
+                if (last) {
+                    break;
+                }
+                previous = chunk;
+                chunk = next;
+            }
+        }
+        finishEntry(entry);
+        return HexFormat.of().formatHex(md5.digest());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (out) {
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+            writeCentralDirectory();
+            out.flush();
+        } finally {
+            pending.forEach(Pending::cancel);
+        }
+    }
+
+    static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Entry startEntry(String name, long time) throws IOException {
+        Entry entry = new Entry(name.getBytes(UTF_8), dosTime(time));
+        entries.add(entry);
+        enqueue(() -> writeLocalHeader(entry));
+        return entry;
+    }
+
+    private void addChunk(Entry entry, byte[] chunk, byte[] previous, int chunkLevel, boolean last) throws IOException {
+        Future<byte[]> deflated = pool.submit(() -> deflate(chunk, previous, chunkLevel, last));
+        enqueue(new Pending() {
+            @Override
+            public void write() throws IOException {
+                byte[] bytes = resultOf(deflated);
+                out.write(bytes);
+                written += bytes.length;
+                entry.compressedSize += bytes.length;
+            }
+
+            @Override
+            public void cancel() {
+                deflated.cancel(true);
+            }
+        });
+    }
+
+    private void finishEntry(Entry entry) throws IOException {
+        enqueue(() -> writeDataDescriptor(entry));
+    }
+
+    private void enqueue(Pending next) throws IOException {
+        pending.add(next);
+        while (pending.size() > maxPending) {
+            writeNext();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        pending.remove().write();
+    }
+
+    private static byte[] deflate(byte[] chunk, byte[] previous, int level, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (previous != null) {
+                int dictionaryLength = Math.min(DICTIONARY_SIZE, previous.length);
+                deflater.setDictionary(previous, previous.length - dictionaryLength, dictionaryLength);
+            }
+            deflater.setInput(chunk);
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream(chunk.length / 2 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflated.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                // ends the chunk on a byte boundary, without ending the deflated stream, so the next chunk can follow it
+                int length;
+                do {
+                    length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    deflated.write(buffer, 0, length);
+                } while (length == buffer.length);
+            }
+            return deflated.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] resultOf(Future<byte[]> deflated) throws IOException {
+        try {
+            return deflated.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while deflating zip entry");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to deflate zip entry", e.getCause());
+        }
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        entry.offset = written;
+        writeInt(LOCAL_HEADER);
+        writeShort(20);
+        writeShort(FLAGS);
+        writeShort(DEFLATED);
+        writeInt(entry.dosTime);
+        // CRC and sizes are in the data descriptor
+        writeInt(0);
+        writeInt(0);
+        writeInt(0);
+        writeShort(entry.name.length);
+        writeShort(0);
+        writeBytes(entry.name);
+    }
+
+    private void writeDataDescriptor(Entry entry) throws IOException {
+        writeInt(DATA_DESCRIPTOR);
+        writeInt(entry.crc.getValue());
+        if (entry.compressedSize >= ZIP64_MAGIC || entry.size >= ZIP64_MAGIC) {
+            writeLong(entry.compressedSize);
+            writeLong(entry.size);
+        } else {
+            writeInt(entry.compressedSize);
+            writeInt(entry.size);
+        }
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long centralDirectoryOffset = written;
+        for (Entry entry : entries) {
+            writeCentralHeader(entry);
+        }
+        long centralDirectoryLength = written - centralDirectoryOffset;
+
+        boolean zip64 = entries.size() >= ZIP64_MAGIC_COUNT || centralDirectoryOffset >= ZIP64_MAGIC || centralDirectoryLength >= ZIP64_MAGIC;
+        if (zip64) {
+            long zip64EndOffset = written;
+            writeInt(ZIP64_END);
+            writeLong(44);
+            writeShort(45);
+            writeShort(45);
+            writeInt(0);
+            writeInt(0);
+            writeLong(entries.size());
+            writeLong(entries.size());
+            writeLong(centralDirectoryLength);
+            writeLong(centralDirectoryOffset);
+
+            writeInt(ZIP64_END_LOCATOR);
+            writeInt(0);
+            writeLong(zip64EndOffset);
+            writeInt(1);
+        }
+
+        int count = Math.min(entries.size(), ZIP64_MAGIC_COUNT);
+        writeInt(END);
+        writeShort(0);
+        writeShort(0);
+        writeShort(count);
+        writeShort(count);
+        writeInt(Math.min(centralDirectoryLength, ZIP64_MAGIC));
+        writeInt(Math.min(centralDirectoryOffset, ZIP64_MAGIC));
+        writeShort(0);
+    }
+
+    private void writeCentralHeader(Entry entry) throws IOException {
+        boolean zip64Size = entry.size >= ZIP64_MAGIC;
+        boolean zip64CompressedSize = entry.compressedSize >= ZIP64_MAGIC;
+        boolean zip64Offset = entry.offset >= ZIP64_MAGIC;
+        int zip64Fields = (zip64Size ? 1 : 0) + (zip64CompressedSize ? 1 : 0) + (zip64Offset ? 1 : 0);
+        int version = zip64Fields > 0 ? 45 : 20;
+
+        writeInt(CENTRAL_HEADER);
+        writeShort(version);
+        writeShort(version);
+        writeShort(FLAGS);
+        writeShort(DEFLATED);
+        writeInt(entry.dosTime);
+        writeInt(entry.crc.getValue());
+        writeInt(zip64CompressedSize ? ZIP64_MAGIC : entry.compressedSize);
+        writeInt(zip64Size ? ZIP64_MAGIC : entry.size);
+        writeShort(entry.name.length);
+        writeShort(zip64Fields > 0 ? 4 + 8 * zip64Fields : 0);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeInt(0);
+        writeInt(zip64Offset ? ZIP64_MAGIC : entry.offset);
+        writeBytes(entry.name);
+        if (zip64Fields > 0) {
+            writeShort(0x0001);
+            writeShort(8 * zip64Fields);
+            if (zip64Size) {
+                writeLong(entry.size);
+            }
+            if (zip64CompressedSize) {
+                writeLong(entry.compressedSize);
+            }
+            if (zip64Offset) {
+                writeLong(entry.offset);
+            }
+        }
+    }
+
+    private static long dosTime(long time) {
+        LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        int year = Math.min(Math.max(dateTime.getYear(), 1980), 2107);
+        if (year != dateTime.getYear()) {
+            dateTime = LocalDateTime.of(year, 1, 1, 0, 0);
+        }
+        return ((long) (year - 1980) << 25)
+                | ((long) dateTime.getMonthValue() << 21)
+                | ((long) dateTime.getDayOfMonth() << 16)
+                | ((long) dateTime.getHour() << 11)
+                | ((long) dateTime.getMinute() << 5)
+                | ((long) dateTime.getSecond() >> 1);
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+        written += 2;
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xFFFF));
+        writeShort((int) ((value >>> 16) & 0xFFFF));
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt(value & ZIP64_MAGIC);
+        writeInt(value >>> 32);
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        out.write(bytes);
+        written += bytes.length;
+    }
+
+    private interface Pending {
+        void write() throws IOException;
+
+        default void cancel() {
+        }
+    }
+
+    private static class Entry {
+        private final byte[] name;
+        private final long dosTime;
+        private final CRC32 crc = new CRC32();
+        private long size;
+        private long compressedSize;
+        private long offset;
+
+        private Entry(byte[] name, long dosTime) {
+            this.name = name;
+            this.dosTime = dosTime;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.util;
+
+import java.io.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Understands writing a zip on the calling thread, deflating one entry at a time.
+ */
+class SerialZipWriter implements ZipWriter {
+    private final ZipOutputStream zip;
+    private final int level;
+
+    SerialZipWriter(OutputStream destination, int level) {
+        this.zip = new ZipOutputStream(new BufferedOutputStream(destination));
+        this.level = level;
+        zip.setLevel(level);
+    }
+
+    @Override
+    public void putDirectory(String name) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+    }
+
+    @Override
+    public String putFile(String name, File file, boolean alreadyCompressed) throws IOException {
+        MessageDigest md5 = ParallelZipWriter.md5();
+        try (InputStream inputStream = new DigestInputStream(new BufferedInputStream(new FileInputStream(file)), md5)) {
+            ZipEntry zipEntry = new ZipEntry(name);
+            zipEntry.setTime(file.lastModified());
+            zip.setLevel(alreadyCompressed ? Deflater.NO_COMPRESSION : level);
+            zip.putNextEntry(zipEntry);
+            inputStream.transferTo(zip);
+        }
+        return HexFormat.of().formatHex(md5.digest());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (zip) {
+            zip.flush();
+        }
+    }
+}
@@ -129,6 +129,12 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     public static final GoSystemProperty<Boolean> GO_SERVER_SESSION_COOKIE_SECURE = new GoBooleanSystemProperty("go.sessioncookie.secure", false);
     public static final GoSystemProperty<String> AGENT_EXTRA_PROPERTIES = new GoStringSystemProperty("gocd.agent.extra.properties", "");
     public static final GoSystemProperty<Long> JMS_LISTENER_BACKOFF_TIME_IN_MILLIS = new GoLongSystemProperty("go.jms.listener.backoff.time.in.milliseconds", SECONDS.toMillis(5));
+    public static final GoSystemProperty<Boolean> IN_MEMORY_MESSAGING = new GoBooleanSystemProperty("go.messaging.in.memory", false);
+    public static final GoSystemProperty<Integer> IN_MEMORY_MESSAGING_CAPACITY = new GoIntSystemProperty("go.messaging.in.memory.capacity", 10000);
+    public static final GoSystemProperty<Boolean> QUEUE_WORKER_POOLS = new GoBooleanSystemProperty("go.queue.worker.pools", false);
+    public static final GoSystemProperty<Integer> QUEUE_WORKER_POOL_CAPACITY = new GoIntSystemProperty("go.queue.worker.pool.capacity", 1000);
+    public static final GoSystemProperty<Integer> MULTIPLEXING_QUEUE_CAPACITY = new GoIntSystemProperty("go.multiplexing.queue.capacity", 0);
+    public static final GoSystemProperty<String> MULTIPLEXING_QUEUE_OVERFLOW_POLICY = new GoStringSystemProperty("go.multiplexing.queue.overflow.policy", "BLOCK");
 
     public static final GoSystemProperty<Integer> GO_SERVER_AUTHORIZATION_EXTENSION_CALLS_CACHE_TIMEOUT_IN_SECONDS = new GoIntSystemProperty("go.server.authorization.extension.calls.cache.timeout.in.secs", 60);
 
@@ -145,6 +151,7 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     public static final GoSystemProperty<Long> GO_CONFIG_REPO_GC_EXPIRE_IN_HOURS = new GoLongSystemProperty("go.config.repo.gc.expire", 24L);
     public static final GoSystemProperty<Long> GO_CONFIG_REPO_GC_LOOSE_OBJECT_WARNING_THRESHOLD = new GoLongSystemProperty("go.config.repo.gc.warning.looseobject.threshold", 10000L);
     public static final GoSystemProperty<Boolean> GO_CONFIG_REPO_PERIODIC_GC = new GoBooleanSystemProperty("go.config.repo.gc.periodic", false);
+    public static final GoSystemProperty<Boolean> GO_CONFIG_VALIDATION_INCREMENTAL = new GoBooleanSystemProperty("go.config.validation.incremental", true);
 
     public static final GoSystemProperty<String> GO_UPDATE_SERVER_PUBLIC_KEY_FILE_NAME = new GoStringSystemProperty("go.update.server.public.key.file.name", "go_update_server.pub");
     public static final GoSystemProperty<String> GO_UPDATE_SERVER_URL = new GoStringSystemProperty("go.update.server.url", "https://update.gocd.org/channels/supported/latest.json");
@@ -162,6 +169,9 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     public static final GoSystemProperty<Boolean> GO_API_WITH_SAFE_MODE = new GoBooleanSystemProperty("go.api.with.safe.mode", true);
     public static final GoSystemProperty<Integer> MAX_PENDING_AGENTS_ALLOWED = new GoIntSystemProperty("max.pending.agents.allowed", 100);
     public static final GoSystemProperty<Boolean> CHECK_AND_REMOVE_DUPLICATE_MODIFICATIONS = new GoBooleanSystemProperty("go.modifications.removeDuplicates", true);
+    public static final GoSystemProperty<Boolean> MODIFICATIONS_BATCH_INSERT = new GoBooleanSystemProperty("go.modifications.batch.insert", false);
+    public static final GoSystemProperty<Integer> MODIFICATIONS_BATCH_SIZE = new GoIntSystemProperty("go.modifications.batch.size", 1000);
+    public static final GoSystemProperty<Boolean> REVISION_SEARCH_INDEX = new GoBooleanSystemProperty("go.revision.search.index", true);
     public static final GoSystemProperty<Boolean> GO_DIAGNOSTICS_MODE = new GoBooleanSystemProperty("go.diagnostics.mode", false);
 
     public static final GoSystemProperty<Integer> DEPENDENCY_MATERIAL_UPDATE_LISTENERS = new GoIntSystemProperty("dependency.material.check.threads", 3);
@@ -173,7 +183,10 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
     public static final GoSystemProperty<Long> REAUTHENTICATION_TIME_INTERVAL_IN_MILLIS = new GoLongSystemProperty("go.security.reauthentication.interval", MINUTES.toMillis(30));
     public static final GoSystemProperty<Boolean> CONSOLE_OUT_TO_STDOUT = new GoBooleanSystemProperty("go.console.stdout", false);
     private static final GoSystemProperty<String> CONSOLE_LOG_CHARSET = new GoStringSystemProperty("go.console.log.charset", "utf-8");
+    public static final GoSystemProperty<Boolean> CONSOLE_LOG_BYTE_STREAMING = new GoBooleanSystemProperty("go.console.log.byte.streaming", true);
+    public static final GoSystemProperty<Boolean> CONSOLE_LOG_SHARED_TAILING = new GoBooleanSystemProperty("go.console.log.shared.tailing", true);
     public static final GoSystemProperty<Integer> CONSOLE_LOG_MAX_LINE_LENGTH = new GoIntSystemProperty("go.console.log.max.line.length", 1_000_000);
+    public static final GoSystemProperty<Boolean> CONSOLE_PUBLISH_COMPRESSION = new GoBooleanSystemProperty("go.console.publish.compression", true);
     private static final GoSystemProperty<Boolean> AGENT_STATUS_API_ENABLED = new GoBooleanSystemProperty("go.agent.status.api.enabled", true);
     private static final GoSystemProperty<String> AGENT_STATUS_API_BIND_HOST = new GoStringSystemProperty("go.agent.status.api.bind.host", "localhost");
     private static final GoSystemProperty<Integer> AGENT_STATUS_API_BIND_PORT = new GoIntSystemProperty("go.agent.status.api.bind.port", 8152);
@@ -197,6 +210,18 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
 
     public static final GoSystemProperty<Boolean> INITIALIZE_CONFIG_REPOSITORIES_ON_STARTUP = new GoBooleanSystemProperty("gocd.initialize.config.repositories.on.startup", true);
 
+    public static final GoSystemProperty<Boolean> BUILD_ASSIGNMENT_EVENT_DRIVEN = new GoBooleanSystemProperty("gocd.build.assignment.event.driven", false);
+    public static final GoSystemProperty<Long> BUILD_ASSIGNMENT_RECONCILIATION_INTERVAL_IN_MILLIS = new GoLongSystemProperty("gocd.build.assignment.reconciliation.interval", MINUTES.toMillis(1));
+    public static final GoSystemProperty<Integer> WORK_ASSIGNMENT_LONG_POLL_MAX_AGENTS = new GoIntSystemProperty("gocd.work.assignment.long.poll.max.agents", 50);
+    public static final GoSystemProperty<Long> WORK_ASSIGNMENT_LONG_POLL_MAX_WAIT_IN_MILLIS = new GoLongSystemProperty("gocd.work.assignment.long.poll.max.wait", SECONDS.toMillis(30));
+    private static final long WORK_ASSIGNMENT_LONG_POLL_IDLE_TIMEOUT_MARGIN_IN_MILLIS = SECONDS.toMillis(5);
+    public static final GoSystemProperty<Long> AGENT_WORK_LONG_POLL_WAIT_IN_MILLIS = new GoLongSystemProperty("go.agent.work.long.poll.wait", SECONDS.toMillis(20));
+    public static final GoSystemProperty<Boolean> DASHBOARD_BULK_LOAD = new GoBooleanSystemProperty("gocd.dashboard.bulk.load", false);
+    public static final GoSystemProperty<Integer> DASHBOARD_LOADER_PARALLELISM = new GoIntSystemProperty("gocd.dashboard.loader.parallelism", Math.min(4, Runtime.getRuntime().availableProcessors()));
+    public static final GoSystemProperty<Integer> ARTIFACT_ZIP_THREADS = new GoIntSystemProperty("go.artifact.zip.threads", Math.min(4, Runtime.getRuntime().availableProcessors()));
+    public static final GoSystemProperty<Integer> ARTIFACT_UPLOAD_THREADS = new GoIntSystemProperty("go.artifact.upload.threads", Math.min(4, Runtime.getRuntime().availableProcessors()));
+    public static final GoSystemProperty<Integer> ARTIFACT_UPLOAD_QUEUE_SIZE = new GoIntSystemProperty("go.artifact.upload.queue.size", 200);
+
     private static final Map<String, String> GIT_ALLOW_PROTOCOL = Map.of(
         "GIT_ALLOW_PROTOCOL",
         System.getenv("GIT_ALLOW_PROTOCOL") == null ? "http:https:ssh:git:file:rsync" : System.getenv("GIT_ALLOW_PROTOCOL")
@@ -528,6 +553,34 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
         return consoleLogCharset;
     }
 
+    public boolean isConsolePublishCompressionEnabled() {
+        return CONSOLE_PUBLISH_COMPRESSION.getValue();
+    }
+
+    public boolean isConsoleLogByteStreamingEnabled() {
+        return CONSOLE_LOG_BYTE_STREAMING.getValue();
+    }
+
+    public boolean isConsoleLogSharedTailingEnabled() {
+        return CONSOLE_LOG_SHARED_TAILING.getValue();
+    }
+
+    public boolean isQueueWorkerPoolsEnabled() {
+        return QUEUE_WORKER_POOLS.getValue();
+    }
+
+    public int getQueueWorkerPoolCapacity() {
+        return QUEUE_WORKER_POOL_CAPACITY.getValue();
+    }
+
+    public int getMultiplexingQueueCapacity() {
+        return MULTIPLEXING_QUEUE_CAPACITY.getValue();
+    }
+
+    public String getMultiplexingQueueOverflowPolicy() {
+        return MULTIPLEXING_QUEUE_OVERFLOW_POLICY.getValue();
+    }
+
     public static Integer getGoServerAuthorizationExtensionCallsCacheTimeoutInSeconds() {
         return GO_SERVER_AUTHORIZATION_EXTENSION_CALLS_CACHE_TIMEOUT_IN_SECONDS.getValue();
     }
@@ -672,6 +725,45 @@ public class SystemEnvironment implements Serializable, ConfigDirProvider {
         return SECONDS.toMillis(PLUGIN_LOCATION_MONITOR_INTERVAL_IN_SECONDS.getValue());
     }
 
+    public boolean isBuildAssignmentEventDriven() {
+        return BUILD_ASSIGNMENT_EVENT_DRIVEN.getValue();
+    }
+
+    public long getBuildAssignmentReconciliationIntervalInMillis() {
+        return BUILD_ASSIGNMENT_RECONCILIATION_INTERVAL_IN_MILLIS.getValue();
+    }
+
+    public int getWorkAssignmentLongPollMaxAgents() {
+        return WORK_ASSIGNMENT_LONG_POLL_MAX_AGENTS.getValue();
+    }
+
+    /* Capped below the idle timeout of the server's connector, so that Jetty never closes a connection an agent is waiting on. */
+    public long getWorkAssignmentLongPollMaxWaitInMillis() {
+        long idleTimeout = GO_SERVER_CONNECTION_IDLE_TIMEOUT_IN_MILLIS.getValue();
+        long belowIdleTimeout = Math.max(0, idleTimeout - Math.min(WORK_ASSIGNMENT_LONG_POLL_IDLE_TIMEOUT_MARGIN_IN_MILLIS, idleTimeout / 2));
+        return Math.min(WORK_ASSIGNMENT_LONG_POLL_MAX_WAIT_IN_MILLIS.getValue(), belowIdleTimeout);
+    }
+
+    public long getAgentWorkLongPollWaitInMillis() {
+        return AGENT_WORK_LONG_POLL_WAIT_IN_MILLIS.getValue();
+    }
+
+    public boolean isDashboardBulkLoadEnabled() {
+        return DASHBOARD_BULK_LOAD.getValue();
+    }
+
+    public int getDashboardLoaderParallelism() {
+        return Math.max(1, DASHBOARD_LOADER_PARALLELISM.getValue());
+    }
+
+    public int getArtifactUploadThreads() {
+        return Math.max(1, ARTIFACT_UPLOAD_THREADS.getValue());
+    }
+
+    public int getArtifactUploadQueueSize() {
+        return Math.max(1, ARTIFACT_UPLOAD_QUEUE_SIZE.getValue());
+    }
+
     public static abstract class GoSystemProperty<T> {
         private final String propertyName;
         protected T defaultValue;
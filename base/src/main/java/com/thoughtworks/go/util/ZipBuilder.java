@@ -15,13 +15,12 @@
  */
 package com.thoughtworks.go.util;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.zip.ZipOutputStream;
 
 public class ZipBuilder {
     private final int level;
@@ -29,6 +28,7 @@ public class ZipBuilder {
     private final OutputStream destinationStream;
     private final boolean excludeRootDir;
     private final Map<String, File> toAdd = new HashMap<>();
+    private final Map<String, String> md5s = new LinkedHashMap<>();
 
     public ZipBuilder(ZipUtil zipUtil, int level, OutputStream destinationStream, boolean excludeRootDir) {
         this.zipUtil = zipUtil;
@@ -43,14 +43,17 @@ public class ZipBuilder {
     }
 
     public void done() throws IOException {
-        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(destinationStream))) {
-            zip.setLevel(level);
+        try (ZipWriter zip = zipUtil.writerFor(destinationStream, level)) {
             for (Map.Entry<String, File> zipDirToSourceFileEntry : toAdd.entrySet()) {
                 File sourceFileToZip = zipDirToSourceFileEntry.getValue();
                 String destinationFolder = zipDirToSourceFileEntry.getKey();
-                zipUtil.addToZip(new ZipPath(destinationFolder), sourceFileToZip, zip, excludeRootDir);
+                zipUtil.addToZip(new ZipPath(destinationFolder), sourceFileToZip, zip, excludeRootDir, md5s);
             }
-            zip.flush();
         }
     }
+
+    /* The MD5 of each file zipped, by its name inside the zip. */
+    public Map<String, String> md5s() {
+        return md5s;
+    }
 }
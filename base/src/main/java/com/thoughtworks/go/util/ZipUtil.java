@@ -19,21 +19,48 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 public class ZipUtil {
     private static final Logger LOGGER = LoggerFactory.getLogger(ZipUtil.class);
-    private ZipEntryHandler zipEntryHandler = null;
+    // deflating these again takes time and saves next to nothing, so they are stored as they are
+    private static final Set<String> ALREADY_COMPRESSED_EXTENSIONS = Set.of(
+            "zip", "jar", "war", "ear", "apk", "nupkg", "whl", "gem",
+            "gz", "tgz", "bz2", "tbz2", "xz", "txz", "zst", "lz4", "7z", "rar",
+            "deb", "rpm", "dmg", "msi",
+            "png", "jpg", "jpeg", "gif", "webp", "mp3", "mp4", "mov", "mkv", "webm",
+            "docx", "xlsx", "pptx", "odt", "ods", "odp");
+    private static final ConcurrentMap<Integer, ExecutorService> COMPRESSION_POOLS = new ConcurrentHashMap<>();
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final ZipEntryHandler zipEntryHandler;
+    private final int compressionThreads;
 
     public ZipUtil() {
+        this(null);
     }
 
     public ZipUtil(ZipEntryHandler zipEntryHandler) {
+        this(zipEntryHandler, SystemEnvironment.ARTIFACT_ZIP_THREADS.getValue());
+    }
+
+    ZipUtil(ZipEntryHandler zipEntryHandler, int compressionThreads) {
         this.zipEntryHandler = zipEntryHandler;
+        this.compressionThreads = compressionThreads;
     }
 
     public File zip(File source, File destZipFile, int level) throws IOException {
@@ -58,44 +85,68 @@ public class ZipUtil {
         new ZipBuilder(this, level, output, excludeRootDir).add("", file).done();
     }
 
-    private void addFolderToZip(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+    /* Zips the source like zip does, giving the MD5 of each file in it by its name inside the zip, computed while zipping it. */
+    public Map<String, String> zipWithMd5s(File source, File destZipFile, int level) throws IOException {
+        ZipBuilder zipBuilder = new ZipBuilder(this, level, new FileOutputStream(destZipFile), false).add("", source);
+        zipBuilder.done();
+        return zipBuilder.md5s();
+    }
+
+    ZipWriter writerFor(OutputStream destination, int level) {
+        if (compressionThreads <= 1) {
+            return new SerialZipWriter(destination, level);
+        }
+        return new ParallelZipWriter(destination, level, compressionPool(), 4 * compressionThreads);
+    }
+
+    private ExecutorService compressionPool() {
+        return COMPRESSION_POOLS.computeIfAbsent(compressionThreads, threads -> Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "zip-compression-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    private void addFolderToZip(ZipPath path, File source, ZipWriter zip, boolean excludeRootDir, Map<String, String> md5s) throws IOException {
         ZipPath newPath = path.with(source);
         if (source.isFile()) {
-            addToZip(newPath, source, zip, false);
+            addToZip(newPath, source, zip, false, md5s);
         } else {
-            addDirectory(path, source, zip, excludeRootDir);
+            addDirectory(path, source, zip, excludeRootDir, md5s);
         }
     }
 
-    private void addDirectory(ZipPath path, File source, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+    private void addDirectory(ZipPath path, File source, ZipWriter zip, boolean excludeRootDir, Map<String, String> md5s) throws IOException {
         if (excludeRootDir) {
-            addDirContents(path, source, zip);
+            addDirContents(path, source, zip, md5s);
             return;
         }
         ZipPath newPath = path.with(source);
-        zip.putNextEntry(newPath.asZipEntryDirectory());
-        addDirContents(newPath, source, zip);
+        zip.putDirectory(newPath.asZipEntryDirectory().getName());
+        addDirContents(newPath, source, zip, md5s);
     }
 
-    private void addDirContents(ZipPath path, File source, ZipOutputStream zip) throws IOException {
+    private void addDirContents(ZipPath path, File source, ZipWriter zip, Map<String, String> md5s) throws IOException {
         for (File file : source.listFiles()) {
-            addToZip(path, file, zip, false);
+            addToZip(path, file, zip, false, md5s);
         }
     }
 
-    void addToZip(ZipPath path, File srcFile, ZipOutputStream zip, boolean excludeRootDir) throws IOException {
+    void addToZip(ZipPath path, File srcFile, ZipWriter zip, boolean excludeRootDir, Map<String, String> md5s) throws IOException {
         if (srcFile.isDirectory()) {
-            addFolderToZip(path, srcFile, zip, excludeRootDir);
+            addFolderToZip(path, srcFile, zip, excludeRootDir, md5s);
         } else {
-            try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(srcFile))) {
-                ZipEntry zipEntry = path.with(srcFile).asZipEntry();
-                zipEntry.setTime(srcFile.lastModified());
-                zip.putNextEntry(zipEntry);
-                inputStream.transferTo(zip);
-            }
+            String name = path.with(srcFile).asZipEntry().getName();
+            md5s.put(name, zip.putFile(name, srcFile, isAlreadyCompressed(srcFile)));
         }
     }
 
+    private static boolean isAlreadyCompressed(File file) {
+        String name = file.getName();
+        int extension = name.lastIndexOf('.');
+        return extension >= 0 && ALREADY_COMPRESSED_EXTENSIONS.contains(name.substring(extension + 1).toLowerCase(Locale.ROOT));
+    }
+
     private void bombIfZipEntryPathContainsDirectoryTraversalCharacters(String filepath) {
         if (filepath.contains("..")) {
             throw new IllegalPathException(String.format("File %s is outside extraction target directory", filepath));
@@ -128,14 +179,17 @@ public class ZipUtil {
         }
         try {
             FileUtil.mkdirsParentQuietly(outputFile);
-            try (FileOutputStream os = new FileOutputStream(outputFile)) {
-                entryInputStream.transferTo(os);
-                if (zipEntryHandler != null) {
-                    try (FileInputStream stream = new FileInputStream(outputFile)) {
-                        zipEntryHandler.handleEntry(entry, stream);
-                    }
+            if (zipEntryHandler == null) {
+                try (FileOutputStream os = new FileOutputStream(outputFile)) {
+                    entryInputStream.transferTo(os);
                 }
+                return;
+            }
+            MessageDigest md5 = ParallelZipWriter.md5();
+            try (OutputStream os = new DigestOutputStream(new FileOutputStream(outputFile), md5)) {
+                entryInputStream.transferTo(os);
             }
+            zipEntryHandler.handleEntry(entry, HexFormat.of().formatHex(md5.digest()));
         } catch (IOException e) {
             LOGGER.error("Failed to unzip file [{}] to directory [{}]", entryName, toDir.getAbsolutePath(), e);
             throw e;
@@ -166,7 +220,8 @@ public class ZipUtil {
     }
 
     public interface ZipEntryHandler {
-        void handleEntry(ZipEntry entry, InputStream stream) throws IOException;
+        /* Called with each file extracted and the MD5 of its contents, computed while it was extracted. */
+        void handleEntry(ZipEntry entry, String md5) throws IOException;
     }
 
 }
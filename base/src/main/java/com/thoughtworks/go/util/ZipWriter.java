@@ -0,0 +1,30 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Understands writing the entries of a zip, one after the other.
+ */
+interface ZipWriter extends Closeable {
+    void putDirectory(String name) throws IOException;
+
+    /* Adds the file, stored rather than deflated when it is already compressed. Gives the MD5 of its contents. */
+    String putFile(String name, File file, boolean alreadyCompressed) throws IOException;
+}
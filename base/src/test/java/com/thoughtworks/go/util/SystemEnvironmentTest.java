@@ -360,4 +360,20 @@ class SystemEnvironmentTest {
         System.setProperty("go.config.repo.gc.periodic", "some-value");
         assertThat(new SystemEnvironment().get(SystemEnvironment.GO_CONFIG_REPO_PERIODIC_GC)).isFalse();
     }
+
+    @Test
+    void shouldCapTheWorkAssignmentLongPollWaitBelowTheConnectionIdleTimeout() {
+        try {
+            assertThat(systemEnvironment.getWorkAssignmentLongPollMaxWaitInMillis()).isEqualTo(25_000L);
+
+            System.setProperty("gocd.work.assignment.long.poll.max.wait", "10000");
+            assertThat(systemEnvironment.getWorkAssignmentLongPollMaxWaitInMillis()).isEqualTo(10_000L);
+
+            System.setProperty("idle.timeout", "4000");
+            assertThat(systemEnvironment.getWorkAssignmentLongPollMaxWaitInMillis()).isEqualTo(2_000L);
+        } finally {
+            System.clearProperty("gocd.work.assignment.long.poll.max.wait");
+            System.clearProperty("idle.timeout");
+        }
+    }
 }
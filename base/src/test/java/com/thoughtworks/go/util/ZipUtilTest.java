@@ -28,6 +28,9 @@ import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -221,6 +224,59 @@ public class ZipUtilTest {
         }
     }
 
+    @Test
+    void shouldZipInParallelAndUnzipIt() throws Exception {
+        byte[] largeFile = new byte[2 * ParallelZipWriter.CHUNK_SIZE + 17];
+        new Random(42).nextBytes(largeFile);
+        File large = new File(childDir1, "_large.bin");
+        Files.write(large.toPath(), largeFile);
+        File alreadyCompressed = new File(childDir1, "_archive.jar");
+        Files.write(alreadyCompressed.toPath(), largeFile);
+        File empty = new File(srcDir, "_empty");
+        Files.createFile(empty.toPath());
+        file1.setLastModified(1297989100000L);
+
+        zipFile = new ZipUtil(null, 4).zip(srcDir, createFileInTempDir(), Deflater.DEFAULT_COMPRESSION);
+
+        try (ZipFile actualZip = new ZipFile(zipFile)) {
+            assertThat(actualZip.getEntry("_test1/_file1").getTime()).isEqualTo(1297989100000L);
+            assertThat(actualZip.getEntry("_test1/_emptyDir/").isDirectory()).isTrue();
+        }
+        assertContent(zipFile, "_test1/_file1", "_file1");
+        assertContent(zipFile, "_test1/_child1/_file2", "_file2");
+        assertContent(zipFile, "_test1/_empty", "");
+
+        zipUtil.unzip(zipFile, destDir);
+        File baseDir = new File(destDir, srcDir.getName());
+        assertIsDirectory(new File(baseDir, emptyDir.getName()));
+        assertThat(Files.readAllBytes(new File(baseDir, "_child1/_large.bin").toPath())).isEqualTo(largeFile);
+        assertThat(Files.readAllBytes(new File(baseDir, "_child1/_archive.jar").toPath())).isEqualTo(largeFile);
+        assertThat(new File(baseDir, "_empty").length()).isZero();
+    }
+
+    @Test
+    void shouldGiveTheMd5OfEachFileZippedByItsNameInsideTheZip() throws Exception {
+        for (ZipUtil zipUtil : List.of(new ZipUtil(null, 1), new ZipUtil(null, 4))) {
+            Map<String, String> md5s = zipUtil.zipWithMd5s(srcDir, tempDir.resolve(UUID.randomUUID() + ".zip").toFile(), Deflater.BEST_SPEED);
+
+            assertThat(md5s).isEqualTo(Map.of(
+                    "_test1/_file1", md5Of("_file1"),
+                    "_test1/_child1/_file2", md5Of("_file2")));
+        }
+    }
+
+    @Test
+    void shouldHandEachFileExtractedToTheEntryHandlerWithTheMd5OfItsContents() throws Exception {
+        zipFile = zipUtil.zip(srcDir, createFileInTempDir(), Deflater.DEFAULT_COMPRESSION);
+        Map<String, String> handled = new HashMap<>();
+
+        new ZipUtil((entry, md5) -> handled.put(entry.getName(), md5)).unzip(zipFile, destDir);
+
+        assertThat(handled).isEqualTo(Map.of(
+                "_test1/_file1", md5Of("_file1"),
+                "_test1/_child1/_file2", md5Of("_file2")));
+    }
+
     @Test
     void shouldThrowUpWhileTryingToUnzipIfAnyOfTheFilePathsInArchiveHasAPathContainingDotDotSlashPath() throws URISyntaxException, IOException {
         try {
@@ -257,6 +313,10 @@ public class ZipUtilTest {
         }
     }
 
+    private static String md5Of(String content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(content.getBytes(UTF_8)));
+    }
+
     private void assertIsDirectory(File file) {
         assertThat(file.exists()).as("File " + file.getPath() + " should exist").isTrue();
         assertThat(file.isDirectory()).as("File " + file.getPath() + " should be a directory").isTrue();
@@ -0,0 +1,177 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.domain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams a console log file as raw bytes, without decoding it into lines. Only the line breaks are looked at, so the
+ * file can be resumed from a line number and chunks always end on a line (and so, a character) boundary. It relies on
+ * the console log charset encoding a line feed as the single byte <code>'\n'</code>, as all ASCII compatible ones do.
+ */
+public class ConsoleByteStreamer implements AutoCloseable {
+    private final Path path;
+    private final ByteBuffer buffer;
+    private FileChannel channel;
+    private long linesToSkip;
+    private long position;
+    private long bytesConsumed = 0L;
+
+    public ConsoleByteStreamer(Path path, long startingLine, int bufferSize) {
+        this(path, Math.max(startingLine, 0L), 0L, ByteBuffer.allocate(bufferSize));
+    }
+
+    private ConsoleByteStreamer(Path path, long linesToSkip, long position, ByteBuffer buffer) {
+        this.path = path;
+        this.linesToSkip = linesToSkip;
+        this.position = position;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Closes this streamer and returns one which carries on from the same place, possibly in another file. Used when a
+     * console log is moved to its final location once a job completes.
+     */
+    public ConsoleByteStreamer continueFrom(Path newPath) {
+        close();
+        ConsoleByteStreamer streamer = new ConsoleByteStreamer(newPath, linesToSkip, position, buffer);
+        streamer.bytesConsumed = bytesConsumed;
+        return streamer;
+    }
+
+    /**
+     * Hands every complete line written since the last invocation to the consumer, in chunks of at most the buffer size.
+     * The chunk is only valid until the consumer returns, as the buffer behind it is reused.
+     *
+     * @param untilEndOfFile also hand over a trailing partial line, when nothing more is going to be written
+     * @return the number of bytes streamed by this invocation
+     * @throws IOException if the file does not exist or is otherwise not readable
+     */
+    public long stream(ChunkConsumer consumer, boolean untilEndOfFile) throws IOException {
+        return stream(consumer, untilEndOfFile, Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #stream(ChunkConsumer, boolean)}, but stops once at least <code>maxBytes</code> have been streamed,
+     * leaving the rest for the next invocation.
+     */
+    public long stream(ChunkConsumer consumer, boolean untilEndOfFile, long maxBytes) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+        if (!skipLines()) {
+            return 0L;
+        }
+
+        long bytesStreamed = 0L;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+
+            int length = lengthUpToLastLineBreak(buffer.array(), read);
+            int chunkLength = length;
+            if (length == 0) {
+                // a line longer than the buffer has to be split regardless; otherwise, wait for it to be completed
+                boolean lineIsLongerThanBuffer = read == buffer.capacity();
+                if (!untilEndOfFile && !lineIsLongerThanBuffer) {
+                    break;
+                }
+                length = chunkLength = read;
+                if (!lineIsLongerThanBuffer) {
+                    // terminate the last line, the same way ConsoleStreamer does
+                    buffer.array()[chunkLength++] = '\n';
+                }
+            }
+
+            consumer.accept(ByteBuffer.wrap(buffer.array(), 0, chunkLength));
+            position += length;
+            bytesStreamed += length;
+            if (bytesStreamed >= maxBytes) {
+                break;
+            }
+        }
+
+        bytesConsumed += bytesStreamed;
+        return bytesStreamed;
+    }
+
+    public long totalBytesConsumed() {
+        return bytesConsumed;
+    }
+
+    /**
+     * The offset in the file up to which it has been streamed. While a chunk is being consumed, this is where the chunk
+     * starts.
+     */
+    public long position() {
+        return position;
+    }
+
+    public boolean isAtStartingLine() {
+        return linesToSkip == 0;
+    }
+
+    @Override
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+        channel = null;
+    }
+
+    private boolean skipLines() throws IOException {
+        while (linesToSkip > 0) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return false;
+            }
+            byte[] bytes = buffer.array();
+            int i = 0;
+            while (i < read && linesToSkip > 0) {
+                if (bytes[i++] == '\n') {
+                    linesToSkip--;
+                }
+            }
+            position += i;
+        }
+        return true;
+    }
+
+    private static int lengthUpToLastLineBreak(byte[] bytes, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(ByteBuffer chunk) throws IOException;
+    }
+}
@@ -18,7 +18,6 @@ package com.thoughtworks.go.domain;
 import com.thoughtworks.go.util.ZipUtil;
 import com.thoughtworks.go.validation.ChecksumValidator;
 import com.thoughtworks.go.work.GoPublisher;
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,9 +55,9 @@ public class DirHandler implements FetchHandler {
             LOG.info("[Agent Fetch Artifact] Downloading from '{}' to '{}'. Will read from Socket stream to compute MD5 and write to file", srcFile, destOnAgent.getAbsolutePath());
 
             long before = System.currentTimeMillis();
-            new ZipUtil((entry, entryStream) -> {
+            new ZipUtil((entry, md5) -> {
                 LOG.info("[Agent Fetch Artifact] Downloading a directory from '{}' to '{}'. Handling the entry: '{}'", srcFile, destOnAgent.getAbsolutePath(), entry.getName());
-                new ChecksumValidator(artifactMd5Checksums).validate(getSrcFilePath(entry), DigestUtils.md5Hex(entryStream), checksumValidationPublisher);
+                new ChecksumValidator(artifactMd5Checksums).validate(getSrcFilePath(entry), md5, checksumValidationPublisher);
             }).unzip(zipInputStream, destOnAgent);
             LOG.info("[Agent Fetch Artifact] Downloading a directory from '{}' to '{}'. Took: {}ms", srcFile, destOnAgent.getAbsolutePath(), System.currentTimeMillis() - before);
         }
@@ -27,7 +27,6 @@ import com.thoughtworks.go.util.FileUtil;
 import com.thoughtworks.go.util.SystemTimeClock;
 import com.thoughtworks.go.util.ZipUtil;
 import com.thoughtworks.go.work.DefaultGoPublisher;
-import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -38,11 +37,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.nio.charset.Charset;
-import java.util.Collection;
+import java.util.Map;
 import java.util.Properties;
 import java.util.zip.Deflater;
 
@@ -82,7 +80,7 @@ public class GoArtifactsManipulator {
 
                 tmpDir = FileUtil.createTempFolder();
                 File dataToUpload = new File(tmpDir, source.getName() + ".zip");
-                zipUtil.zip(source, dataToUpload, Deflater.BEST_SPEED);
+                Map<String, String> md5s = zipUtil.zipWithMd5s(source, dataToUpload, Deflater.BEST_SPEED);
 
                 long size;
                 if (source.isDirectory()) {
@@ -96,7 +94,7 @@ public class GoArtifactsManipulator {
                 String normalizedDestPath = FilenameUtils.separatorsToUnix(destPath);
                 String url = urlService.getUploadUrlOfAgent(jobIdentifier, normalizedDestPath, publishingAttempts);
 
-                int statusCode = httpService.upload(url, size, dataToUpload, artifactChecksums(source, normalizedDestPath));
+                int statusCode = httpService.upload(url, size, dataToUpload, artifactChecksums(md5s, normalizedDestPath));
 
                 if (statusCode == HttpURLConnection.HTTP_ENTITY_TOO_LARGE) {
                     String message = String.format("Artifact upload for file %s (Size: %s) was denied by the server. This usually happens when server runs out of disk space.",
@@ -122,37 +120,13 @@ public class GoArtifactsManipulator {
         throw new RuntimeException(lastException);
     }
 
-    private Properties artifactChecksums(File source, String destPath) throws IOException {
-        if (source.isDirectory()) {
-            return computeChecksumForContentsOfDirectory(source, destPath);
-        }
-
-        Properties properties;
-        try (FileInputStream inputStream = new FileInputStream(source)) {
-            properties = computeChecksumForFile(source.getName(), DigestUtils.md5Hex(inputStream), destPath);
-        }
-        return properties;
-    }
-
-    private Properties computeChecksumForContentsOfDirectory(File directory, String destPath) throws IOException {
-        Collection<File> fileStructure = FileUtils.listFiles(directory, null, true);
+    /* The md5s were computed while zipping, by the names of the files inside the zip, which are relative to the parent of the source. */
+    private Properties artifactChecksums(Map<String, String> md5s, String destPath) {
         Properties checksumProperties = new Properties();
-        for (File file : fileStructure) {
-            String filePath = Strings.CS.removeStart(file.getAbsolutePath(), directory.getParentFile().getAbsolutePath());
-            try (FileInputStream inputStream = new FileInputStream(file)) {
-                checksumProperties.setProperty(getEffectiveFileName(destPath, FilenameUtils.separatorsToUnix(filePath)), DigestUtils.md5Hex(inputStream));
-            }
-        }
+        md5s.forEach((fileName, md5) -> checksumProperties.setProperty(getEffectiveFileName(destPath, fileName), md5));
         return checksumProperties;
     }
 
-    private Properties computeChecksumForFile(String sourceName, String md5, String destPath) {
-        String effectiveFileName = getEffectiveFileName(destPath, sourceName);
-        Properties properties = new Properties();
-        properties.setProperty(effectiveFileName, md5);
-        return properties;
-    }
-
     private String getEffectiveFileName(String computedDestPath, String filePath) {
         File artifactDest = computedDestPath.isEmpty() ? new File(filePath) : new File(computedDestPath, filePath);
         return removeLeadingSlash(artifactDest);
@@ -189,6 +163,6 @@ public class GoArtifactsManipulator {
     public ConsoleOutputTransmitter createConsoleOutputTransmitter(JobIdentifier jobIdentifier,
                                                                    AgentIdentifier agentIdentifier, Charset consoleLogCharset) {
         String consoleUrl = urlService.getUploadUrlOfAgent(jobIdentifier, getConsoleOutputFolderAndFileNameUrl());
-        return new ConsoleOutputTransmitter(new RemoteConsoleAppender(consoleUrl, httpService, consoleLogCharset));
+        return new ConsoleOutputTransmitter(new RemoteConsoleAppender(consoleUrl, httpService, consoleLogCharset), consoleLogCharset);
     }
 }
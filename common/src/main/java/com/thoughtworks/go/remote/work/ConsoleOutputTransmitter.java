@@ -17,35 +17,79 @@ package com.thoughtworks.go.remote.work;
 
 import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.command.TaggedStreamConsumer;
-import org.apache.commons.collections4.queue.CircularFifoQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
-import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
+/**
+ * Understands collecting the console output of a job and sending it to the server periodically.
+ * <p>
+ * Lines are encoded and prefixed with their tag and time as they are consumed, into one buffer. When the server can't
+ * keep up and the buffer grows beyond {@link #SPILL_THRESHOLD_IN_BYTES}, it is moved to a file instead of dropping
+ * lines, and the files are sent ahead of the buffer once the server catches up.
+ */
 public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Runnable {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleOutputTransmitter.class);
+    static final int SPILL_THRESHOLD_IN_BYTES = 1024 * 1024;
 
-    private final CircularFifoQueue<String> buffer = new CircularFifoQueue<>(10 * 1024); // maximum 10k lines
     private final ConsoleAppender consoleAppender;
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm:ss.SSS");
+    private final Charset charset;
     private final ScheduledThreadPoolExecutor executor;
+    private final int spillThresholdInBytes;
+    private final Timestamp timestamp;
+    private final Map<String, byte[]> encodedTags = new HashMap<>();
+    private final byte[] space;
+    private final byte[] newline;
+    private final boolean asciiCompatible;
+
+    private final Object bufferLock = new Object();
+    private byte[] buffer = new byte[8 * 1024];
+    private int bufferSize = 0;
+    private File spillFile;
+    private OutputStream spillStream;
+
+    private final Object flushLock = new Object();
+    private final Deque<File> unsent = new ArrayDeque<>();
 
     public ConsoleOutputTransmitter(ConsoleAppender consoleAppender) {
-        this(consoleAppender, new SystemEnvironment().getConsolePublishInterval(), new ScheduledThreadPoolExecutor(1));
+        this(consoleAppender, UTF_8);
+    }
+
+    public ConsoleOutputTransmitter(ConsoleAppender consoleAppender, Charset charset) {
+        this(consoleAppender, charset, new SystemEnvironment().getConsolePublishInterval(), new ScheduledThreadPoolExecutor(1), SPILL_THRESHOLD_IN_BYTES, System::currentTimeMillis);
     }
 
     ConsoleOutputTransmitter(ConsoleAppender consoleAppender, Integer consolePublishInterval,
                                        ScheduledThreadPoolExecutor scheduledThreadPoolExecutor) {
+        this(consoleAppender, UTF_8, consolePublishInterval, scheduledThreadPoolExecutor, SPILL_THRESHOLD_IN_BYTES, System::currentTimeMillis);
+    }
+
+    ConsoleOutputTransmitter(ConsoleAppender consoleAppender, Charset charset, Integer consolePublishInterval,
+                             ScheduledThreadPoolExecutor scheduledThreadPoolExecutor, int spillThresholdInBytes, LongSupplier clock) {
         this.consoleAppender = consoleAppender;
+        this.charset = charset;
+        this.spillThresholdInBytes = spillThresholdInBytes;
+        this.space = " ".getBytes(charset);
+        this.newline = "\n".getBytes(charset);
+        this.asciiCompatible = Arrays.equals("0123456789:.".getBytes(charset), "0123456789:.".getBytes(US_ASCII));
+        this.timestamp = new Timestamp(clock);
         this.executor = scheduledThreadPoolExecutor;
         executor.scheduleAtFixedRate(this, 0L, consolePublishInterval, TimeUnit.SECONDS);
     }
@@ -57,12 +101,55 @@ public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Run
 
     @Override
     public void taggedConsumeLine(String tag, String line) {
-        synchronized (buffer) {
-            if (null == tag) tag = "  ";
-            String date = dateFormat.format(new Date());
-            String prepend = format("%s|%s", tag, date);
-            String multilineJoin = "\n" + prepend + " ";
-            buffer.add(format("%s %s", prepend, line).replaceAll("\n", multilineJoin));
+        synchronized (bufferLock) {
+            byte[] prefix = encodedTags.computeIfAbsent(null == tag ? "  " : tag, t -> (t + "|").getBytes(charset));
+            byte[] time = asciiCompatible ? timestamp.now() : new String(timestamp.now(), US_ASCII).getBytes(charset);
+
+            // every line of a multi-line entry gets the same prefix
+            int start = 0;
+            do {
+                int end = line.indexOf('\n', start);
+                String part = end == -1 ? line.substring(start) : line.substring(start, end);
+                write(prefix);
+                write(time);
+                write(space);
+                write(part.getBytes(charset));
+                write(newline);
+                start = end + 1;
+                if (end == -1) {
+                    break;
+                }
+            } while (true);
+
+            if (bufferSize >= spillThresholdInBytes) {
+                spill();
+            }
+        }
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, bufferSize, bytes.length);
+        bufferSize += bytes.length;
+    }
+
+    private void ensureCapacity(int more) {
+        if (bufferSize + more > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, bufferSize + more));
+        }
+    }
+
+    private void spill() {
+        try {
+            if (spillStream == null) {
+                spillFile = Files.createTempFile("console-", ".log").toFile();
+                spillStream = new BufferedOutputStream(new FileOutputStream(spillFile));
+            }
+            spillStream.write(buffer, 0, bufferSize);
+            bufferSize = 0;
+        } catch (IOException e) {
+            // keep it in memory then, and try again when more output comes in
+            LOGGER.warn("Could not move console output to {}", spillFile, e);
         }
     }
 
@@ -76,36 +163,120 @@ public final class ConsoleOutputTransmitter implements TaggedStreamConsumer, Run
     }
 
     public void flushToServer() {
-        if (buffer.isEmpty()) {
-            return;
-        }
-
-        List<String> sent = new ArrayList<>();
-        try {
-            synchronized (buffer) {
-                while (!buffer.isEmpty()) {
-                    sent.add(buffer.remove());
+        synchronized (flushLock) {
+            byte[] pending;
+            synchronized (bufferLock) {
+                if (spillStream != null) {
+                    closeQuietly(spillStream);
+                    unsent.add(spillFile);
+                    spillStream = null;
+                    spillFile = null;
                 }
+                pending = Arrays.copyOf(buffer, bufferSize);
+                bufferSize = 0;
             }
-            StringBuilder result = new StringBuilder();
-            for (Object string : sent) {
-                result.append(string);
-                result.append("\n");
+            if (unsent.isEmpty() && pending.length == 0) {
+                return;
             }
-            consoleAppender.append(result.toString());
-        } catch (IOException e) {
-            LOGGER.warn("Could not send console output to server", e);
-            synchronized (buffer) {
-                sent.addAll(buffer);
-                buffer.clear();
-                buffer.addAll(sent);
+
+            try {
+                while (!unsent.isEmpty()) {
+                    File file = unsent.peek();
+                    try (InputStream content = new BufferedInputStream(new FileInputStream(file))) {
+                        send(content, file.length());
+                    }
+                    unsent.remove();
+                    deleteQuietly(file);
+                }
+                if (pending.length > 0) {
+                    send(new ByteArrayInputStream(pending), pending.length);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Could not send console output to server", e);
+                keepUnsent(pending);
             }
         }
     }
 
+    private void send(InputStream content, long length) throws IOException {
+        if (consoleAppender instanceof StreamingConsoleAppender) {
+            ((StreamingConsoleAppender) consoleAppender).append(content, length);
+        } else {
+            consoleAppender.append(new String(content.readAllBytes(), charset));
+        }
+    }
+
+    private void keepUnsent(byte[] pending) {
+        if (pending.length == 0) {
+            return;
+        }
+        try {
+            File file = Files.createTempFile("console-", ".log").toFile();
+            Files.write(file.toPath(), pending);
+            unsent.add(file);
+        } catch (IOException e) {
+            LOGGER.warn("Could not keep {} bytes of console output to send later, they are lost", pending.length, e);
+        }
+    }
+
     @Override
     public void stop() {
         flushToServer();
         executor.shutdown();
+        synchronized (flushLock) {
+            if (!unsent.isEmpty()) {
+                LOGGER.warn("Could not send {} file(s) of console output to server before stopping", unsent.size());
+            }
+            unsent.forEach(ConsoleOutputTransmitter::deleteQuietly);
+            unsent.clear();
+        }
+    }
+
+    private static void closeQuietly(OutputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close console output file", e);
+        }
+    }
+
+    private static void deleteQuietly(File file) {
+        if (!file.delete()) {
+            LOGGER.debug("Could not delete {}", file);
+        }
+    }
+
+    /**
+     * Understands the time of day, as HH:mm:ss.SSS, formatting it only when the second changes.
+     */
+    private static class Timestamp {
+        private final LongSupplier clock;
+        private final byte[] formatted = "00:00:00.000".getBytes(US_ASCII);
+        private long second = Long.MIN_VALUE;
+
+        private Timestamp(LongSupplier clock) {
+            this.clock = clock;
+        }
+
+        private byte[] now() {
+            long millis = clock.getAsLong();
+            long currentSecond = Math.floorDiv(millis, 1000);
+            if (currentSecond != second) {
+                second = currentSecond;
+                LocalTime time = LocalTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+                digits(0, 2, time.getHour());
+                digits(3, 2, time.getMinute());
+                digits(6, 2, time.getSecond());
+            }
+            digits(9, 3, (int) Math.floorMod(millis, 1000));
+            return formatted;
+        }
+
+        private void digits(int offset, int length, int value) {
+            for (int i = offset + length - 1; i >= offset; i--) {
+                formatted[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+        }
     }
 }
@@ -16,27 +16,39 @@
 package com.thoughtworks.go.remote.work;
 
 import com.thoughtworks.go.agent.HttpService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.entity.GzipCompressingEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 
-public class RemoteConsoleAppender implements ConsoleAppender {
+public class RemoteConsoleAppender implements StreamingConsoleAppender {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RemoteConsoleAppender.class);
 
     private String consoleUri;
     private HttpService httpService;
     private final Charset charset;
+    private final boolean compress;
 
     public RemoteConsoleAppender(String consoleUri, HttpService httpService, Charset charset) {
+        this(consoleUri, httpService, charset, new SystemEnvironment().isConsolePublishCompressionEnabled());
+    }
+
+    public RemoteConsoleAppender(String consoleUri, HttpService httpService, Charset charset, boolean compress) {
         this.consoleUri = consoleUri;
         this.httpService = httpService;
         this.charset = charset;
+        this.compress = compress;
     }
 
     @Override
@@ -54,4 +66,24 @@ public class RemoteConsoleAppender implements ConsoleAppender {
             putMethod.releaseConnection();
         }
     }
+
+    /**
+     * Streams the content, which must be encoded in the charset of this appender, gzipped on the way when compression
+     * is on. The size header still carries the uncompressed length, which is what the server ends up storing.
+     */
+    @Override
+    public void append(InputStream content, long length) throws IOException {
+        HttpPut putMethod = new HttpPut(consoleUri);
+        try {
+            LOGGER.debug("Appending {} bytes of console to URL -> {}", length, consoleUri);
+            HttpEntity entity = new InputStreamEntity(content, length, ContentType.TEXT_PLAIN.withCharset(charset));
+            putMethod.setEntity(compress ? new GzipCompressingEntity(entity) : entity);
+            HttpService.setSizeHeader(putMethod, length);
+            try (CloseableHttpResponse response = httpService.execute(putMethod)) {
+                LOGGER.debug("Got {}", response.getStatusLine().getStatusCode());
+            }
+        } finally {
+            putMethod.releaseConnection();
+        }
+    }
 }
@@ -0,0 +1,27 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.remote.work;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A {@link ConsoleAppender} which can send console output that is already encoded, reading it as it goes, rather than
+ * having it decoded into one string first.
+ */
+public interface StreamingConsoleAppender extends ConsoleAppender {
+    void append(InputStream content, long length) throws IOException;
+}
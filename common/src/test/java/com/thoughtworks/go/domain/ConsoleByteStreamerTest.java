@@ -0,0 +1,112 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsoleByteStreamerTest {
+    @Test
+    public void streamSendsCompleteLinesOnly() throws Exception {
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        try (ConsoleByteStreamer console = new ConsoleByteStreamer(makeConsoleFile("first\r\nsecond\nthi").toPath(), 0L, 1024)) {
+            assertEquals(14L, console.stream(chunk -> actual.write(chunk.array(), chunk.position(), chunk.remaining()), false));
+            assertEquals("first\r\nsecond\n", actual.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void streamSendsTrailingPartialLineWithALineBreakUntilEndOfFile() throws Exception {
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        try (ConsoleByteStreamer console = new ConsoleByteStreamer(makeConsoleFile("first\nsecond").toPath(), 0L, 1024)) {
+            console.stream(chunk -> actual.write(chunk.array(), chunk.position(), chunk.remaining()), true);
+            assertEquals("first\nsecond\n", actual.toString(StandardCharsets.UTF_8));
+            assertEquals(12L, console.totalBytesConsumed());
+        }
+    }
+
+    @Test
+    public void streamSkipsToStartLineAndPicksUpAppendedContent() throws Exception {
+        File file = makeConsoleFile("first\nsec");
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        try (ConsoleByteStreamer console = new ConsoleByteStreamer(file.toPath(), 2L, 1024)) {
+            assertEquals(0L, console.stream(chunk -> actual.write(chunk.array(), chunk.position(), chunk.remaining()), false));
+
+            Files.write(file.toPath(), "ond\nthird\n".getBytes(), StandardOpenOption.APPEND);
+            console.stream(chunk -> actual.write(chunk.array(), chunk.position(), chunk.remaining()), false);
+            assertEquals("third\n", actual.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void streamSplitsLinesLongerThanTheBuffer() throws Exception {
+        List<String> chunks = new ArrayList<>();
+
+        try (ConsoleByteStreamer console = new ConsoleByteStreamer(makeConsoleFile("abcdefgh\nij\n").toPath(), 0L, 4)) {
+            console.stream(chunk -> chunks.add(new String(chunk.array(), chunk.position(), chunk.remaining())), false);
+            assertEquals(List.of("abcd", "efgh", "\nij\n"), chunks);
+        }
+    }
+
+    @Test
+    public void streamStopsOnceTheGivenNumberOfBytesHaveBeenStreamed() throws Exception {
+        List<String> chunks = new ArrayList<>();
+
+        try (ConsoleByteStreamer console = new ConsoleByteStreamer(makeConsoleFile("ab\ncd\nef\n").toPath(), 0L, 4)) {
+            assertEquals(3L, console.stream(chunk -> chunks.add(new String(chunk.array(), chunk.position(), chunk.remaining())), false, 2L));
+            assertEquals(List.of("ab\n"), chunks);
+
+            assertEquals(6L, console.stream(chunk -> chunks.add(new String(chunk.array(), chunk.position(), chunk.remaining())), false, 10L));
+            assertEquals(List.of("ab\n", "cd\n", "ef\n"), chunks);
+        }
+    }
+
+    @Test
+    public void continueFromCarriesOnAtTheSamePositionInAnotherFile() throws Exception {
+        File temporary = makeConsoleFile("first\nsec");
+        File moved = makeConsoleFile("first\nsecond\nthird");
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        ConsoleByteStreamer console = new ConsoleByteStreamer(temporary.toPath(), 0L, 1024);
+        console.stream(chunk -> actual.write(chunk.array(), chunk.position(), chunk.remaining()), false);
+        try (ConsoleByteStreamer continued = console.continueFrom(moved.toPath())) {
+            continued.stream(chunk -> actual.write(chunk.array(), chunk.position(), chunk.remaining()), true);
+            assertEquals("first\nsecond\nthird\n", actual.toString(StandardCharsets.UTF_8));
+            assertEquals(18L, continued.totalBytesConsumed());
+        }
+    }
+
+    private File makeConsoleFile(String content) throws IOException {
+        File console = File.createTempFile("console", ".log");
+        console.deleteOnExit();
+
+        Files.write(console.toPath(), content.getBytes());
+        return console;
+    }
+}
@@ -24,8 +24,15 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
@@ -68,4 +75,64 @@ public class ConsoleOutputTransmitterTest {
 
         verify(consoleAppender, never()).append(any(String.class));
     }
+
+    @Test
+    public void shouldPrefixEveryLineOfAnEntryWithItsTagAndTime() throws Exception {
+        long time = LocalDate.now().atTime(13, 4, 5, 67_000_000).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        RecordingAppender appender = new RecordingAppender();
+        ConsoleOutputTransmitter transmitter = new ConsoleOutputTransmitter(appender, UTF_8, 0, mock(ScheduledThreadPoolExecutor.class), 1024, () -> time);
+
+        transmitter.taggedConsumeLine("##", "first\nsecond");
+        transmitter.consumeLine("plain");
+        transmitter.flushToServer();
+
+        assertThat(appender.received()).isEqualTo("##|13:04:05.067 first\n##|13:04:05.067 second\n  |13:04:05.067 plain\n");
+    }
+
+    @Test
+    public void shouldKeepOutputInFilesInsteadOfDroppingItWhileTheServerIsUnavailable() throws Exception {
+        RecordingAppender appender = new RecordingAppender();
+        ConsoleOutputTransmitter transmitter = new ConsoleOutputTransmitter(appender, UTF_8, 0, mock(ScheduledThreadPoolExecutor.class), 100, System::currentTimeMillis);
+
+        for (int i = 0; i < 20_000; i++) {
+            transmitter.consumeLine("line " + i);
+        }
+        appender.failing = true;
+        transmitter.flushToServer();
+        for (int i = 20_000; i < 30_000; i++) {
+            transmitter.consumeLine("line " + i);
+        }
+        appender.failing = false;
+        transmitter.flushToServer();
+
+        String[] lines = appender.received().split("\n");
+        assertThat(lines).hasSize(30_000);
+        for (int i = 0; i < lines.length; i++) {
+            assertThat(lines[i]).endsWith(" line " + i);
+        }
+    }
+
+    private static class RecordingAppender implements StreamingConsoleAppender {
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private boolean failing = false;
+
+        @Override
+        public void append(String content) {
+            throw new UnsupportedOperationException("should be streamed");
+        }
+
+        @Override
+        public void append(InputStream content, long length) throws IOException {
+            if (failing) {
+                throw new IOException("server unavailable");
+            }
+            byte[] bytes = content.readAllBytes();
+            assertThat(bytes).hasSize((int) length);
+            received.write(bytes);
+        }
+
+        private String received() {
+            return received.toString(UTF_8);
+        }
+    }
 }
@@ -46,6 +46,7 @@ import javax.annotation.PostConstruct;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 import static com.thoughtworks.go.config.exceptions.EntityType.Pipeline;
 import static com.thoughtworks.go.config.exceptions.EntityType.Template;
@@ -1225,8 +1226,13 @@ public class BasicCruiseConfig implements CruiseConfig {
 
     @Override
     public List<ConfigErrors> validateAfterPreprocess() {
+        return validateAfterPreprocess(validatable -> false);
+    }
+
+    @Override
+    public List<ConfigErrors> validateAfterPreprocess(Predicate<Validatable> skipSubtree) {
         final List<ConfigErrors> allErrors = new ArrayList<>();
-        new GoConfigGraphWalker(this).walk(new ErrorCollectingHandler(allErrors) {
+        new GoConfigGraphWalker(this, skipSubtree).walk(new ErrorCollectingHandler(allErrors) {
             @Override
             public void handleValidation(Validatable validatable, ValidationContext context) {
                 validatable.validate(context);
@@ -33,6 +33,7 @@ import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * Understands the configuration for cruise
@@ -213,6 +214,9 @@ public interface CruiseConfig extends Validatable, ConfigOriginTraceable {
 
     List<ConfigErrors> validateAfterPreprocess();
 
+    /* Validates everything except the subtrees under the nodes matching skipSubtree. */
+    List<ConfigErrors> validateAfterPreprocess(Predicate<Validatable> skipSubtree);
+
     void copyErrorsTo(CruiseConfig to);
 
     PipelineConfigs findGroupOfPipeline(PipelineConfig pipelineConfig);
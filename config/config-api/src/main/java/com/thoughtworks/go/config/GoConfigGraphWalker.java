@@ -23,12 +23,14 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * Understands visits all the nodes in the cruise config once using Java reflection
  */
 public class GoConfigGraphWalker {
     private final Validatable rootValidatable;
+    private final Predicate<Validatable> skipSubtree;
     private final ClassAttributeCache.FieldCache fieldCache = new ClassAttributeCache.FieldCache();
     private final ClassAttributeCache.AssignableCache canAssignToValidatableCache = new ClassAttributeCache.AssignableCache();
     private final ClassAttributeCache.AssignableCache canAssignToCollectionCache = new ClassAttributeCache.AssignableCache();
@@ -66,7 +68,13 @@ public class GoConfigGraphWalker {
     }
 
     public GoConfigGraphWalker(Validatable rootValidatable) {
+        this(rootValidatable, validatable -> false);
+    }
+
+    /* Nodes matching skipSubtree are not visited, and neither is anything under them. */
+    public GoConfigGraphWalker(Validatable rootValidatable, Predicate<Validatable> skipSubtree) {
         this.rootValidatable = rootValidatable;
+        this.skipSubtree = skipSubtree;
     }
 
     public void walk(Handler handler) {
@@ -80,6 +88,9 @@ public class GoConfigGraphWalker {
         }
         if (canAssignToValidatableCache.valuesFor(new AbstractMap.SimpleEntry<>(Validatable.class, current.getClass()))) {
             Validatable validatable = (Validatable) current;
+            if (skipSubtree.test(validatable)) {
+                return;
+            }
             handler.handle(validatable, context);
             context = context.withParent(validatable);
         }
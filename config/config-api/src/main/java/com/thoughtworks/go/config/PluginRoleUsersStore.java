@@ -42,6 +42,17 @@ public class PluginRoleUsersStore {
         return pluginRoleConfig == null ? Collections.emptyList() : new ArrayList<>(roleToUsersMappings.getOrDefault(pluginRoleConfig, Collections.emptySet()));
     }
 
+    public Set<PluginRoleConfig> rolesOf(String username) {
+        final RoleUser roleUser = new RoleUser(username);
+        Set<PluginRoleConfig> roles = new HashSet<>();
+        roleToUsersMappings.forEach((role, users) -> {
+            if (users.contains(roleUser)) {
+                roles.add(role);
+            }
+        });
+        return roles;
+    }
+
     public void removePluginRolesNotIn(List<PluginRoleConfig> pluginRoles) {
         for (PluginRoleConfig pluginRole : pluginRoles()) {
             if (!pluginRoles.contains(pluginRole)) {
@@ -79,4 +79,15 @@ public class PluginRoleUsersStoreTest {
         assertThat(pluginRoleUsersStore.usersInRole(pluginRoleSpaceTiger)).hasSize(0);
         assertThat(pluginRoleUsersStore.usersInRole(pluginRoleBlackBird)).hasSize(1);
     }
+
+    @Test
+    public void rolesOf_ShouldGiveThePluginRolesAGivenUserIsIn() {
+        PluginRoleConfig pluginRoleSpaceTiger = new PluginRoleConfig("spacetiger", "ldap");
+        PluginRoleConfig pluginRoleBlackBird = new PluginRoleConfig("blackbird", "ldap");
+        pluginRoleUsersStore.assignRole("wing-commander", pluginRoleSpaceTiger);
+        pluginRoleUsersStore.assignRole("bob", pluginRoleBlackBird);
+
+        assertThat(pluginRoleUsersStore.rolesOf("Wing-Commander")).containsExactly(pluginRoleSpaceTiger);
+        assertThat(pluginRoleUsersStore.rolesOf("alice")).isEmpty();
+    }
 }
@@ -37,6 +37,7 @@ import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static com.thoughtworks.go.config.parser.GoConfigClassLoader.classParser;
 
@@ -56,6 +57,7 @@ public class MagicalGoConfigXmlLoader {
     private static final GoConfigCloner CLONER = new GoConfigCloner();
     private final ConfigElementImplementationRegistry registry;
     private final ConfigCache configCache;
+    private final IncrementalConfigValidation incrementalValidation = new IncrementalConfigValidation();
 
     public MagicalGoConfigXmlLoader(ConfigCache configCache, ConfigElementImplementationRegistry registry) {
         this.configCache = configCache;
@@ -122,7 +124,7 @@ public class MagicalGoConfigXmlLoader {
 
     public CruiseConfig validateCruiseConfig(CruiseConfig config) {
         LOGGER.debug("[Config Save] In validateCruiseConfig: Starting.");
-        List<ConfigErrors> allErrors = validate(config);
+        List<ConfigErrors> allErrors = systemEnvironment.get(SystemEnvironment.GO_CONFIG_VALIDATION_INCREMENTAL) ? validateIncrementally(config) : validate(config);
         if (!allErrors.isEmpty()) {
             throw config.isLocal()
                 ? new GoConfigInvalidException(config, allErrors)
@@ -138,6 +140,27 @@ public class MagicalGoConfigXmlLoader {
         return config;
     }
 
+    /*
+     * Validates only the pipelines and templates which changed since the last valid config, when nothing they are
+     * validated against changed either. Errors left on the skipped ones by the validation of others are still collected.
+     * What was last validated is remembered by each loader, so only the loaders which are kept around benefit.
+     */
+    private List<ConfigErrors> validateIncrementally(CruiseConfig config) {
+        preprocess(config);
+        IncrementalConfigValidation.Snapshot snapshot = incrementalValidation.snapshotOf(config);
+        Set<Validatable> unchanged = incrementalValidation.unchangedSubtrees(snapshot);
+        LOGGER.debug("[Config Validation] Skipping {} unchanged pipelines and templates.", unchanged.size());
+
+        List<ConfigErrors> allErrors = new ArrayList<>(config.validateAfterPreprocess(unchanged::contains));
+        for (Validatable subtree : unchanged) {
+            allErrors.addAll(ErrorCollector.getAllErrors(subtree));
+        }
+        if (allErrors.isEmpty()) {
+            incrementalValidation.validated(snapshot);
+        }
+        return allErrors;
+    }
+
     private Element parseInputStream(InputStream inputStream) throws Exception {
         Element rootElement = XmlUtils.buildValidatedXmlDocument(inputStream, GoConfigSchema.getCurrentSchema()).getRootElement();
         validateDom(rootElement, registry);
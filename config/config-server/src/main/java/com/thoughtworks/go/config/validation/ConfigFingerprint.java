@@ -0,0 +1,178 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config.validation;
+
+import com.thoughtworks.go.config.BasicCruiseConfig;
+import com.thoughtworks.go.config.IgnoreTraversal;
+import com.thoughtworks.go.domain.ConfigErrors;
+import com.thoughtworks.go.security.GoCipher;
+import org.apache.commons.codec.binary.Hex;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Understands summarising a part of the config as a digest of everything in it, so that whether it has changed can be
+ * told without keeping a copy of it around.
+ * <p>
+ * Config objects are walked through all their fields, the way they are cloned. Errors, ciphers and derived caches are
+ * left out, since they are not part of what was configured.
+ */
+public class ConfigFingerprint {
+    private static final List<Class<?>> LEFT_OUT = new ArrayList<>(List.of(ConfigErrors.class, GoCipher.class));
+    private static final ConcurrentMap<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<>();
+
+    static {
+        LEFT_OUT.addAll(List.of(BasicCruiseConfig.DO_NOT_CLONE_CLASSES));
+    }
+
+    private final MessageDigest digest;
+    private final Predicate<Object> opaque;
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public ConfigFingerprint() {
+        this(object -> false);
+    }
+
+    /* Objects matching opaque are left out, along with everything under them. */
+    public ConfigFingerprint(Predicate<Object> opaque) {
+        this.opaque = opaque;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static String of(Object object) {
+        return new ConfigFingerprint().add(object).value();
+    }
+
+    public ConfigFingerprint add(Object object) {
+        walk(object);
+        return this;
+    }
+
+    public String value() {
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    private void walk(Object object) {
+        if (object == null) {
+            write("null");
+            return;
+        }
+        if (opaque.test(object)) {
+            write("opaque");
+            return;
+        }
+
+        Class<?> type = object.getClass();
+        if (object instanceof CharSequence || object instanceof Number || object instanceof Boolean || object instanceof Character || object instanceof Enum) {
+            write(type.getSimpleName());
+            write(object.toString());
+            return;
+        }
+        if (!visited.add(object)) {
+            // walked already, elsewhere in this part of the config
+            write("seen");
+            return;
+        }
+
+        write(type.getName());
+        if (type.isArray()) {
+            int length = Array.getLength(object);
+            write(String.valueOf(length));
+            for (int i = 0; i < length; i++) {
+                walk(Array.get(object, i));
+            }
+            return;
+        }
+        if (object instanceof Map<?, ?> map) {
+            write(String.valueOf(map.size()));
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                walk(entry.getKey());
+                walk(entry.getValue());
+            }
+        }
+        if (object instanceof Collection<?> collection) {
+            write(String.valueOf(collection.size()));
+            for (Object element : collection) {
+                walk(element);
+            }
+        }
+        if (!type.getName().startsWith("com.thoughtworks")) {
+            if (!(object instanceof Map || object instanceof Collection)) {
+                write(object.toString());
+            }
+            return;
+        }
+
+        for (Field field : fieldsOf(type)) {
+            Object value;
+            try {
+                value = field.get(object);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+            if (value != null && isLeftOut(value)) {
+                continue;
+            }
+            write(field.getName());
+            walk(value);
+        }
+    }
+
+    private static boolean isLeftOut(Object value) {
+        for (Class<?> leftOut : LEFT_OUT) {
+            if (leftOut.isInstance(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Field> fieldsOf(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, klass -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> current = klass; current != null && current.getName().startsWith("com.thoughtworks"); current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isAnnotationPresent(IgnoreTraversal.class)) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+            return fields;
+        });
+    }
+
+    private void write(String token) {
+        digest.update(token.getBytes(UTF_8));
+        digest.update((byte) 0);
+    }
+}
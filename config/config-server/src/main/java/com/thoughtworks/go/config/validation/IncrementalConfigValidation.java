@@ -0,0 +1,186 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config.validation;
+
+import com.thoughtworks.go.config.*;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.config.remote.ConfigOrigin;
+import com.thoughtworks.go.domain.materials.MaterialConfig;
+import com.thoughtworks.go.plugin.access.artifact.ArtifactMetadataStore;
+import com.thoughtworks.go.plugin.access.authorization.AuthorizationMetadataStore;
+import com.thoughtworks.go.plugin.access.common.MetadataStore;
+import com.thoughtworks.go.plugin.access.config.PluginPreferenceStore;
+import com.thoughtworks.go.plugin.access.configrepo.ConfigRepoMetadataStore;
+import com.thoughtworks.go.plugin.access.elastic.ElasticAgentMetadataStore;
+import com.thoughtworks.go.plugin.access.packagematerial.PackageMetadataStore;
+import com.thoughtworks.go.plugin.access.packagematerial.RepositoryMetadataStore;
+import com.thoughtworks.go.plugin.access.pluggabletask.PluggableTaskConfigStore;
+import com.thoughtworks.go.plugin.access.scm.SCMMetadataStore;
+import com.thoughtworks.go.plugin.access.secrets.SecretsMetadataStore;
+import com.thoughtworks.go.plugin.domain.common.PluginInfo;
+
+import java.util.*;
+
+/**
+ * Understands remembering which pipelines and templates were part of a valid config, so that validating a later
+ * config can skip the ones which have not changed since.
+ * <p>
+ * A pipeline or template is only skipped when everything else it could be validated against is the same as well:
+ * the config outside of pipelines and templates, and the shape of all pipelines - their groups, origins, templates,
+ * stages, jobs, artifacts and dependencies. A change to any of those means everything is validated again.
+ * <p>
+ * Tasks, materials and artifacts which use plugins are validated against what those plugins told the server about
+ * themselves, so loading, unloading or reloading any plugin means everything is validated again too.
+ */
+public class IncrementalConfigValidation {
+    private String lastContext;
+    private List<Object> lastPlugins = List.of();
+    private Set<String> lastSubtrees = Set.of();
+
+    public Snapshot snapshotOf(CruiseConfig preprocessedConfig) {
+        Map<Validatable, String> subtrees = new IdentityHashMap<>();
+        for (PipelineConfig pipelineConfig : preprocessedConfig.getAllPipelineConfigs()) {
+            subtrees.put(pipelineConfig, ConfigFingerprint.of(pipelineConfig));
+        }
+        for (PipelineTemplateConfig templateConfig : preprocessedConfig.getTemplates()) {
+            subtrees.put(templateConfig, ConfigFingerprint.of(templateConfig));
+        }
+        return new Snapshot(contextOf(preprocessedConfig), pluginsLoaded(), subtrees);
+    }
+
+    /* The pipelines and templates which are the same as in the config last validated, along with what they depend on. */
+    public synchronized Set<Validatable> unchangedSubtrees(Snapshot snapshot) {
+        Set<Validatable> unchanged = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (!snapshot.context.equals(lastContext) || !isSame(snapshot.plugins, lastPlugins)) {
+            return unchanged;
+        }
+        snapshot.subtrees.forEach((subtree, fingerprint) -> {
+            if (lastSubtrees.contains(fingerprint)) {
+                unchanged.add(subtree);
+            }
+        });
+        return unchanged;
+    }
+
+    public synchronized void validated(Snapshot snapshot) {
+        lastContext = snapshot.context;
+        lastPlugins = snapshot.plugins;
+        lastSubtrees = new HashSet<>(snapshot.subtrees.values());
+    }
+
+    public synchronized void clear() {
+        lastContext = null;
+        lastPlugins = List.of();
+        lastSubtrees = Set.of();
+    }
+
+    private static String contextOf(CruiseConfig config) {
+        ConfigFingerprint context = new ConfigFingerprint(object -> object instanceof PipelineConfig || object instanceof PipelineTemplateConfig)
+                .add(config.server())
+                .add(config.getElasticConfig())
+                .add(config.getPackageRepositories())
+                .add(config.getSCMs())
+                .add(config.getConfigRepos())
+                .add(config.getArtifactStores())
+                .add(config.getSecretConfigs())
+                .add(config.getEnvironments())
+                .add(config.getGroups());
+
+        for (PipelineConfigs group : config.getGroups()) {
+            context.add(group.getGroup());
+            for (PipelineConfig pipelineConfig : group) {
+                context.add(pipelineConfig.name()).add(pipelineConfig.getTemplateName()).add(isLocal(pipelineConfig.getOrigin()));
+                for (MaterialConfig materialConfig : pipelineConfig.materialConfigs()) {
+                    if (materialConfig instanceof DependencyMaterialConfig dependency) {
+                        context.add(dependency.getPipelineName()).add(dependency.getStageName());
+                    }
+                }
+                addStages(context, pipelineConfig);
+            }
+        }
+        for (PipelineTemplateConfig templateConfig : config.getTemplates()) {
+            context.add(templateConfig.name());
+            addStages(context, templateConfig);
+        }
+        return context.value();
+    }
+
+    /*
+     * What each plugin told the server about itself, in the order of the stores and plugin ids. A plugin which is
+     * reloaded replaces these with new objects, even when it tells the same, so they are compared by identity.
+     */
+    private static List<Object> pluginsLoaded() {
+        List<Object> plugins = new ArrayList<>();
+        for (PluginPreferenceStore<?> store : List.of(PluggableTaskConfigStore.store(), SCMMetadataStore.getInstance(),
+                PackageMetadataStore.getInstance(), RepositoryMetadataStore.getInstance())) {
+            for (String pluginId : new TreeSet<>(store.pluginIds())) {
+                plugins.add(pluginId);
+                plugins.add(store.preferenceFor(pluginId));
+            }
+        }
+        for (MetadataStore<?> store : List.of(ArtifactMetadataStore.instance(), ElasticAgentMetadataStore.instance(),
+                AuthorizationMetadataStore.instance(), SecretsMetadataStore.instance(), ConfigRepoMetadataStore.instance())) {
+            Map<String, PluginInfo> pluginInfos = new TreeMap<>();
+            for (PluginInfo pluginInfo : store.allPluginInfos()) {
+                pluginInfos.put(pluginInfo.getDescriptor().id(), pluginInfo);
+            }
+            pluginInfos.forEach((pluginId, pluginInfo) -> {
+                plugins.add(pluginId);
+                plugins.add(pluginInfo);
+            });
+        }
+        return plugins;
+    }
+
+    private static boolean isSame(List<Object> plugins, List<Object> lastPlugins) {
+        if (plugins.size() != lastPlugins.size()) {
+            return false;
+        }
+        for (int i = 0; i < plugins.size(); i++) {
+            Object plugin = plugins.get(i);
+            if (plugin instanceof String ? !plugin.equals(lastPlugins.get(i)) : plugin != lastPlugins.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addStages(ConfigFingerprint context, List<StageConfig> stages) {
+        context.add(stages.size());
+        for (StageConfig stageConfig : stages) {
+            context.add(stageConfig.name());
+            for (JobConfig jobConfig : stageConfig.getJobs()) {
+                context.add(jobConfig.name()).add(jobConfig.artifactTypeConfigs());
+            }
+        }
+    }
+
+    private static boolean isLocal(ConfigOrigin origin) {
+        return origin == null || origin.isLocal();
+    }
+
+    public static class Snapshot {
+        private final String context;
+        private final List<Object> plugins;
+        private final Map<Validatable, String> subtrees;
+
+        private Snapshot(String context, List<Object> plugins, Map<Validatable, String> subtrees) {
+            this.context = context;
+            this.plugins = plugins;
+            this.subtrees = subtrees;
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.*;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.jetbrains.annotations.NotNull;
@@ -74,6 +75,7 @@ public class ConfigRepository {
     private final File workingDir;
     private final Git git;
     private final Repository gitRepo;
+    private final ConfigRevisionIndex revisionIndex;
 
     @Autowired
     public ConfigRepository(SystemEnvironment systemEnvironment) throws IOException {
@@ -83,6 +85,7 @@ public class ConfigRepository {
         gitRepo = new FileRepositoryBuilder().setGitDir(configRepoDir).build();
         updateWithDefaults(gitRepo.getConfig());
         git = new Git(gitRepo);
+        revisionIndex = new ConfigRevisionIndex(gitRepo, REFS_MASTER);
     }
 
     private void updateWithDefaults(StoredConfig config) {
@@ -130,6 +133,7 @@ public class ConfigRepository {
                 public void run() throws Exception {
                     addCommand.addFilepattern(CRUISE_CONFIG_XML).call();
                     git.commit().setAuthor(rev.getUsername(), COMMIT_EMAIL).setMessage(rev.getComment()).call();
+                    updateRevisionIndex();
                 }
             });
         } catch (Exception e) {
@@ -160,25 +164,66 @@ public class ConfigRepository {
     public RevCommit getRevCommitForMd5(String md5) throws GitAPIException {
         Assert.notNull(md5, "md5 is required");
 
-        final String expectedPart = GoConfigRevision.Fragment.md5.represent(GoConfigRevision.esc(md5));
-        for (RevCommit revision : revisions()) {
-            String message = revision.getFullMessage();
-            if (message.endsWith(expectedPart)) {
-                return revision;
+        if (isRevisionIndexUsable()) {
+            ObjectId commit = revisionIndex.commitForMd5(GoConfigRevision.esc(md5));
+            if (commit != null) {
+                return parseCommit(commit);
+            }
+        } else {
+            final String expectedPart = GoConfigRevision.Fragment.md5.represent(GoConfigRevision.esc(md5));
+            for (RevCommit revision : revisions()) {
+                String message = revision.getFullMessage();
+                if (message.endsWith(expectedPart)) {
+                    return revision;
+                }
             }
         }
         throw new IllegalArgumentException(String.format("There is no config version corresponding to md5: '%s'", md5));
     }
 
     RevCommit getRevCommitForCommitSHA(String commitSHA) throws GitAPIException {
-        for (RevCommit revision : revisions()) {
-            if (revision.getName().equals(commitSHA)) {
-                return revision;
+        if (isRevisionIndexUsable()) {
+            if (ObjectId.isId(commitSHA) && revisionIndex.contains(ObjectId.fromString(commitSHA))) {
+                return parseCommit(ObjectId.fromString(commitSHA));
+            }
+        } else {
+            for (RevCommit revision : revisions()) {
+                if (revision.getName().equals(commitSHA)) {
+                    return revision;
+                }
             }
         }
         throw new IllegalArgumentException(String.format("There is no commit corresponding to SHA: '%s'", commitSHA));
     }
 
+    /* The index only knows of master, other branches are checked out during a merge. */
+    private boolean isRevisionIndexUsable() {
+        try {
+            return REFS_MASTER.equals(gitRepo.getFullBranch()) && updateRevisionIndex();
+        } catch (IOException e) {
+            LOGGER.warn("[CONFIG REPOSITORY] Could not find the current branch, looking through the history instead", e);
+            return false;
+        }
+    }
+
+    private boolean updateRevisionIndex() {
+        try {
+            return revisionIndex.update();
+        } catch (IOException e) {
+            LOGGER.warn("[CONFIG REPOSITORY] Could not update the revision index, looking through the history instead", e);
+            return false;
+        }
+    }
+
+    private RevCommit parseCommit(ObjectId commit) {
+        try (RevWalk walk = new RevWalk(gitRepo)) {
+            return walk.parseCommit(commit);
+        } catch (IOException e) {
+            LOGGER.error("Could not read commit {} from the config repository found at path '{}'", commit.name(), workingDir.getAbsolutePath(), e);
+            throw new RuntimeException("Error while reading a commit from the config repository.", e);
+        }
+    }
+
     public GoConfigRevision getCurrentRevision() {
         return doLocked(() -> {
             RevCommit revision;
@@ -0,0 +1,188 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.service;
+
+import com.thoughtworks.go.domain.GoConfigRevision;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.eclipse.jgit.lib.Constants.OBJECT_ID_STRING_LENGTH;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Understands finding commits on master of the config repository, by the md5 of the config they checked in or by their
+ * SHA, without walking the history every time.
+ * <p>
+ * The index is kept in a file in the git directory, which commits are appended to as they are indexed. Commits made
+ * after the last indexed one, by this server or otherwise, are indexed when it is next used. When the last indexed
+ * commit is no longer in the history of the branch, or the file cannot be read, the index is rebuilt from the whole
+ * history.
+ */
+class ConfigRevisionIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigRevisionIndex.class);
+
+    static final String INDEX_FILE = "gocd-revision-index";
+    private static final String MD5_PREFIX = GoConfigRevision.Fragment.md5.represent("");
+
+    private final Repository gitRepo;
+    private final String branch;
+    private final Path indexFile;
+
+    private Map<String, ObjectId> commitsByMd5;
+    private Set<ObjectId> commits;
+    private ObjectId indexedUpTo;
+
+    ConfigRevisionIndex(Repository gitRepo, String branch) {
+        this.gitRepo = gitRepo;
+        this.branch = branch;
+        this.indexFile = new File(gitRepo.getDirectory(), INDEX_FILE).toPath();
+    }
+
+    /* Brings the index up-to-date with the branch. False when the branch has no commits yet. */
+    synchronized boolean update() throws IOException {
+        Ref ref = gitRepo.exactRef(branch);
+        if (ref == null) {
+            return false;
+        }
+        if (commits == null) {
+            load();
+        }
+
+        ObjectId head = ref.getObjectId();
+        if (head.equals(indexedUpTo)) {
+            return true;
+        }
+
+        boolean incremental = indexedUpTo != null && isInHistoryOf(indexedUpTo, head);
+        if (!incremental) {
+            LOGGER.info("[CONFIG REPOSITORY] Building the revision index of {}", branch);
+            commitsByMd5 = new HashMap<>();
+            commits = new HashSet<>();
+        }
+
+        List<RevCommit> newer = new ArrayList<>();
+        try (RevWalk walk = new RevWalk(gitRepo)) {
+            walk.markStart(walk.parseCommit(head));
+            if (incremental) {
+                walk.markUninteresting(walk.parseCommit(indexedUpTo));
+            }
+            walk.forEach(newer::add);
+        }
+        // oldest first, so that the latest commit of an md5 wins, the way walking the history from the head finds it
+        Collections.reverse(newer);
+        try (BufferedWriter writer = incremental ? appendTo(indexFile) : Files.newBufferedWriter(tempFile(), UTF_8)) {
+            for (RevCommit commit : newer) {
+                String md5 = md5Of(commit.getFullMessage());
+                add(commit.copy(), md5);
+                writer.write(commit.name());
+                if (md5 != null) {
+                    writer.write(' ');
+                    writer.write(md5);
+                }
+                writer.newLine();
+            }
+        }
+        if (!incremental) {
+            Files.move(tempFile(), indexFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        }
+        indexedUpTo = head.copy();
+        return true;
+    }
+
+    /* The latest commit checking in the config with this (escaped) md5, or null. */
+    synchronized ObjectId commitForMd5(String escapedMd5) {
+        return commitsByMd5 == null ? null : commitsByMd5.get(escapedMd5);
+    }
+
+    synchronized boolean contains(ObjectId commit) {
+        return commits != null && commits.contains(commit);
+    }
+
+    private boolean isInHistoryOf(ObjectId commit, ObjectId head) throws IOException {
+        try (RevWalk walk = new RevWalk(gitRepo)) {
+            return walk.isMergedInto(walk.parseCommit(commit), walk.parseCommit(head));
+        } catch (MissingObjectException | IncorrectObjectTypeException e) {
+            return false;
+        }
+    }
+
+    private static String md5Of(String message) {
+        int index = message.lastIndexOf(MD5_PREFIX);
+        if (index < 0) {
+            return null;
+        }
+        String md5 = message.substring(index + MD5_PREFIX.length());
+        // not a message written by the server, and no md5 could be looked up by it
+        return md5.contains("\n") || md5.contains("\r") ? null : md5;
+    }
+
+    private void add(ObjectId commit, String md5) {
+        commits.add(commit);
+        if (md5 != null) {
+            commitsByMd5.put(md5, commit);
+        }
+    }
+
+    /* Each line is a commit on the branch and the md5 it checked in, if any, oldest first. The last one is the head. */
+    private void load() {
+        commitsByMd5 = new HashMap<>();
+        commits = new HashSet<>();
+        indexedUpTo = null;
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(indexFile, UTF_8)) {
+            ObjectId last = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                last = ObjectId.fromString(line.substring(0, OBJECT_ID_STRING_LENGTH));
+                add(last, line.length() > OBJECT_ID_STRING_LENGTH ? line.substring(OBJECT_ID_STRING_LENGTH + 1) : null);
+            }
+            indexedUpTo = last;
+        } catch (Exception e) {
+            LOGGER.warn("[CONFIG REPOSITORY] Could not read the revision index at {}, it will be rebuilt", indexFile, e);
+            commitsByMd5.clear();
+            commits.clear();
+        }
+    }
+
+    private Path tempFile() {
+        return indexFile.resolveSibling(INDEX_FILE + ".tmp");
+    }
+
+    private static BufferedWriter appendTo(Path file) throws IOException {
+        return Files.newBufferedWriter(file, UTF_8, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.config.validation;
+
+import com.thoughtworks.go.config.BasicCruiseConfig;
+import com.thoughtworks.go.config.BasicEnvironmentConfig;
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.PipelineConfig;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.helper.GoConfigMother;
+import com.thoughtworks.go.plugin.access.pluggabletask.PluggableTaskConfigStore;
+import com.thoughtworks.go.plugin.access.pluggabletask.TaskPreference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class IncrementalConfigValidationTest {
+    private IncrementalConfigValidation incrementalValidation;
+    private BasicCruiseConfig validConfig;
+
+    @BeforeEach
+    void setUp() {
+        incrementalValidation = new IncrementalConfigValidation();
+        validConfig = GoConfigMother.configWithPipelines("up42", "down42");
+    }
+
+    @AfterEach
+    void tearDown() {
+        PluggableTaskConfigStore.store().clear();
+    }
+
+    @Test
+    void shouldNotSkipAnythingBeforeAConfigHasBeenValidated() {
+        assertThat(incrementalValidation.unchangedSubtrees(incrementalValidation.snapshotOf(validConfig))).isEmpty();
+    }
+
+    @Test
+    void shouldSkipPipelinesWhichHaveNotChangedSinceTheLastValidConfig() {
+        incrementalValidation.validated(incrementalValidation.snapshotOf(validConfig));
+
+        BasicCruiseConfig config = GoConfigMother.deepClone(validConfig);
+        pipeline(config, "down42").setLabelTemplate("${COUNT}-down");
+
+        assertThat(incrementalValidation.unchangedSubtrees(incrementalValidation.snapshotOf(config)))
+                .containsExactly(pipeline(config, "up42"));
+    }
+
+    @Test
+    void shouldNotSkipAnythingWhenDependenciesBetweenPipelinesChange() {
+        incrementalValidation.validated(incrementalValidation.snapshotOf(validConfig));
+
+        BasicCruiseConfig config = GoConfigMother.deepClone(validConfig);
+        pipeline(config, "down42").addMaterialConfig(new DependencyMaterialConfig(new CaseInsensitiveString("up42"), new CaseInsensitiveString("stage")));
+
+        assertThat(incrementalValidation.unchangedSubtrees(incrementalValidation.snapshotOf(config))).isEmpty();
+    }
+
+    @Test
+    void shouldNotSkipAnythingWhenConfigOutsideOfPipelinesChanges() {
+        incrementalValidation.validated(incrementalValidation.snapshotOf(validConfig));
+
+        BasicCruiseConfig config = GoConfigMother.deepClone(validConfig);
+        config.addEnvironment(new BasicEnvironmentConfig(new CaseInsensitiveString("uat")));
+
+        assertThat(incrementalValidation.unchangedSubtrees(incrementalValidation.snapshotOf(config))).isEmpty();
+    }
+
+    @Test
+    void shouldNotSkipAnythingWhenAPluginIsLoadedOrReloaded() {
+        incrementalValidation.validated(incrementalValidation.snapshotOf(validConfig));
+        BasicCruiseConfig config = GoConfigMother.deepClone(validConfig);
+
+        PluggableTaskConfigStore.store().setPreferenceFor("curl.plugin", mock(TaskPreference.class));
+        assertThat(incrementalValidation.unchangedSubtrees(incrementalValidation.snapshotOf(config))).isEmpty();
+
+        incrementalValidation.validated(incrementalValidation.snapshotOf(config));
+        assertThat(incrementalValidation.unchangedSubtrees(incrementalValidation.snapshotOf(config))).hasSize(2);
+
+        PluggableTaskConfigStore.store().setPreferenceFor("curl.plugin", mock(TaskPreference.class));
+        assertThat(incrementalValidation.unchangedSubtrees(incrementalValidation.snapshotOf(config))).isEmpty();
+    }
+
+    private PipelineConfig pipeline(BasicCruiseConfig config, String name) {
+        return config.pipelineConfigByName(new CaseInsensitiveString(name));
+    }
+}
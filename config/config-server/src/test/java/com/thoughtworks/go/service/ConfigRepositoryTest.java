@@ -38,11 +38,14 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -441,6 +444,71 @@ public class ConfigRepositoryTest {
         assertThat(configRepo.commitCountOnMaster()).isEqualTo(2L);
     }
 
+    @Test
+    public void shouldFindTheLatestCommitOfAnMd5CheckedInMoreThanOnce() throws Exception {
+        configRepo.checkin(goConfigRevision("v1", "md5-1"));
+        configRepo.checkin(goConfigRevision("v2", "md5-2"));
+        configRepo.checkin(goConfigRevision("v1", "md5-1"));
+
+        assertThat(configRepo.getRevCommitForMd5("md5-1")).isEqualTo(configRepo.getCurrentRevCommit());
+    }
+
+    @Test
+    public void shouldFindRevisionsCheckedInBeforeTheRepositoryWasOpened() throws Exception {
+        configRepo.checkin(goConfigRevision("v1", "md5-1"));
+        configRepo.checkin(goConfigRevision("v2", "md5-2"));
+        String firstCommitSHA = configRepo.getCommits(10, 0).get(1).getCommitSHA();
+
+        ConfigRepository reopened = new ConfigRepository(systemEnvironment);
+        reopened.initialize();
+        reopened.checkin(goConfigRevision("v3", "md5-3"));
+
+        assertThat(reopened.getRevision("md5-1").getContent()).isEqualTo("v1");
+        assertThat(reopened.getRevision("md5-3").getContent()).isEqualTo("v3");
+        assertThat(reopened.getRevCommitForCommitSHA(firstCommitSHA).getName()).isEqualTo(firstCommitSHA);
+        reopened.getGitRepo().close();
+    }
+
+    @Test
+    public void shouldRebuildTheRevisionIndexWhenItCannotBeRead() throws Exception {
+        configRepo.checkin(goConfigRevision("v1", "md5-1"));
+        configRepo.checkin(goConfigRevision("v2", "md5-2"));
+        File index = new File(configRepo.getGitRepo().getDirectory(), ConfigRevisionIndex.INDEX_FILE);
+        Files.writeString(index.toPath(), "not an index", UTF_8);
+
+        ConfigRepository reopened = new ConfigRepository(systemEnvironment);
+        reopened.initialize();
+
+        assertThat(reopened.getRevision("md5-1").getContent()).isEqualTo("v1");
+        assertThat(reopened.getRevision("md5-2").getContent()).isEqualTo("v2");
+        reopened.getGitRepo().close();
+    }
+
+    @Test
+    public void shouldFindRevisionsCommittedWithoutGoingThroughTheRepository() throws Exception {
+        configRepo.checkin(goConfigRevision("v1", "md5-1"));
+        configRepo.getRevision("md5-1");
+
+        GoConfigRevision revision = goConfigRevision("v2", "md5-2");
+        Files.writeString(new File(systemEnvironment.getConfigRepoDir(), "cruise-config.xml").toPath(), revision.getContent(), UTF_8);
+        configRepoRawGit.add().addFilepattern("cruise-config.xml").call();
+        configRepoRawGit.commit().setMessage(revision.getComment()).call();
+
+        assertThat(configRepo.getRevision("md5-2").getContent()).isEqualTo("v2");
+    }
+
+    @Test
+    public void shouldNotFindRevisionsOnlyCheckedInToOtherBranches() throws Exception {
+        configRepo.checkin(goConfigRevision("v1", "md5-1"));
+        configRepo.createBranch("branch1", configRepo.getCurrentRevCommit());
+        configRepo.checkinToBranch("branch1", goConfigRevision("v2", "md5-2"));
+        configRepo.cleanAndResetToMaster();
+
+        assertThatThrownBy(() -> configRepo.getRevision("md5-2"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("There is no config version corresponding to md5: 'md5-2'");
+    }
+
     @Test
     public void shouldStripTillLastOccurrenceOfGivenString() {
         assertThat(ConfigRepository.stripTillLastOccurrenceOf("HelloWorld@@\\nfoobar\\nquux@@keep_this", "@@")).isEqualTo("keep_this");
@@ -21,7 +21,6 @@ import java.io.Serializable;
 
 public class ModifiedFile extends PersistentObject implements Serializable {
 
-    @SuppressWarnings("PMD.UnusedPrivateField") // used by hibernate
     private long modificationId;
 
     private String fileName;
@@ -43,6 +42,10 @@ public class ModifiedFile extends PersistentObject implements Serializable {
         this.modificationId = modificationId;
     }
 
+    public long getModificationId() {
+        return modificationId;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (!(o instanceof ModifiedFile mod)) {
@@ -77,6 +80,10 @@ public class ModifiedFile extends PersistentObject implements Serializable {
         return fileName;
     }
 
+    public String getFolderName() {
+        return folderName;
+    }
+
     public ModifiedAction getAction() {
         return action;
     }
@@ -27,17 +27,24 @@ import com.thoughtworks.go.server.domain.StageStatusListener;
 import com.thoughtworks.go.server.initializers.Initializer;
 import com.thoughtworks.go.server.messaging.MultiplexingQueueProcessor;
 import com.thoughtworks.go.server.messaging.MultiplexingQueueProcessor.Action;
+import com.thoughtworks.go.server.messaging.MultiplexingQueueProcessors;
 import com.thoughtworks.go.server.service.GoConfigService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /* Listens to all activity that is needed to keep CCTray updated and sets it up for processing.
+ *
+ * A later change to the whole config, or to a pipeline's config, replaces a pending one. Job and stage changes are not
+ * coalesced, since each of them carries the state it updates CCTray with.
  */
 @Component
 public class CcTrayActivityListener implements Initializer, JobStatusListener, StageStatusListener, ConfigChangedListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(CcTrayActivityListener.class);
+    private static final Object WHOLE_CONFIG = "whole config";
     private final GoConfigService goConfigService;
     private final CcTrayJobStatusChangeHandler jobStatusChangeHandler;
     private final CcTrayStageStatusChangeHandler stageStatusChangeHandler;
@@ -48,13 +55,13 @@ public class CcTrayActivityListener implements Initializer, JobStatusListener, S
     @Autowired
     public CcTrayActivityListener(GoConfigService goConfigService, CcTrayJobStatusChangeHandler jobStatusChangeHandler,
                                   CcTrayStageStatusChangeHandler stageStatusChangeHandler,
-                                  CcTrayConfigChangeHandler configChangeHandler) {
+                                  CcTrayConfigChangeHandler configChangeHandler, MultiplexingQueueProcessors multiplexingQueueProcessors) {
         this.goConfigService = goConfigService;
         this.jobStatusChangeHandler = jobStatusChangeHandler;
         this.stageStatusChangeHandler = stageStatusChangeHandler;
         this.configChangeHandler = configChangeHandler;
 
-        this.processor = new MultiplexingQueueProcessor("CCTray");
+        this.processor = multiplexingQueueProcessors.create("CCTray");
     }
 
     @Override
@@ -83,6 +90,16 @@ public class CcTrayActivityListener implements Initializer, JobStatusListener, S
                     public String description() {
                         return "security_config changed";
                     }
+
+                    @Override
+                    public String kind() {
+                        return "security config";
+                    }
+
+                    @Override
+                    public Object coalescingKey() {
+                        return WHOLE_CONFIG;
+                    }
                 });
             }
         };
@@ -104,6 +121,11 @@ public class CcTrayActivityListener implements Initializer, JobStatusListener, S
             public String description() {
                 return "job: " + job;
             }
+
+            @Override
+            public String kind() {
+                return "job";
+            }
         });
     }
 
@@ -122,6 +144,11 @@ public class CcTrayActivityListener implements Initializer, JobStatusListener, S
             public String description() {
                 return "stage: " + stage;
             }
+
+            @Override
+            public String kind() {
+                return "stage";
+            }
         });
     }
 
@@ -137,6 +164,16 @@ public class CcTrayActivityListener implements Initializer, JobStatusListener, S
             public String description() {
                 return "config change";
             }
+
+            @Override
+            public String kind() {
+                return "config change";
+            }
+
+            @Override
+            public Object coalescingKey() {
+                return WHOLE_CONFIG;
+            }
         });
     }
 
@@ -154,6 +191,16 @@ public class CcTrayActivityListener implements Initializer, JobStatusListener, S
                     public String description() {
                         return "pipeline config: " + pipelineConfig;
                     }
+
+                    @Override
+                    public String kind() {
+                        return "pipeline config";
+                    }
+
+                    @Override
+                    public Object coalescingKey() {
+                        return List.of("pipeline config", pipelineConfig.name());
+                    }
                 });
             }
         };
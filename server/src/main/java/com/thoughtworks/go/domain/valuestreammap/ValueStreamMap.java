@@ -24,6 +24,7 @@ import com.thoughtworks.go.server.presentation.models.ValueStreamMapPresentation
 import com.thoughtworks.go.server.valuestreammap.CrossingMinimization;
 import com.thoughtworks.go.server.valuestreammap.DummyNodeCreation;
 import com.thoughtworks.go.server.valuestreammap.LevelAssignment;
+import com.thoughtworks.go.server.valuestreammap.ValueStreamMapLayoutCache;
 
 import java.util.*;
 
@@ -137,6 +138,11 @@ public class ValueStreamMap {
         return new ValueStreamMapPresentationModel(currentPipeline, currentMaterial, nodeLevelMap.nodesAtEachLevel());
     }
 
+    public ValueStreamMapPresentationModel presentationModel(ValueStreamMapLayoutCache layouts) {
+        NodeLevelMap nodeLevelMap = layouts.layOut(this);
+        return new ValueStreamMapPresentationModel(currentPipeline, currentMaterial, nodeLevelMap.nodesAtEachLevel());
+    }
+
     public boolean hasCycle() {
         Set<Node> verifiedNodes = new HashSet<>();
         Set<CaseInsensitiveString> nodesInPath = new HashSet<>();
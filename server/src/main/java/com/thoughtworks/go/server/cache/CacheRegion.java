@@ -0,0 +1,178 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Understands caching one kind of value apart from everything else in the {@link GoCache}, with a bound of its own, so
+ * that busy kinds of values cannot evict the entries of quieter ones.
+ * <p>
+ * Only one thread loads a missing value at a time. Other threads asking for the same key meanwhile wait for that load
+ * rather than going to the database themselves, and no lock is taken on the key, so keys need not be interned. A value
+ * removed while it is being loaded is not stored once the load finishes. Changes made through {@link #update} are made
+ * one at a time for each key, and only hold up changes of the same key. Like the rest of the {@link GoCache}, nothing is
+ * stored while a transaction is active, and nothing is served once a transaction has asked the cache to stop serving.
+ */
+public class CacheRegion<K, V> {
+    private final String name;
+    private final int maxEntries;
+    private final GoCache goCache;
+    private final Map<K, V> entries;
+    private final SingleFlight<K, V> singleFlight = new SingleFlight<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadTimeInNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    CacheRegion(String name, int maxEntries, GoCache goCache) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.goCache = goCache;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > CacheRegion.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public V get(K key) {
+        if (!goCache.isServing()) {
+            return null;
+        }
+        V value;
+        synchronized (entries) {
+            value = entries.get(key);
+        }
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        if (!goCache.isStoring()) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, value);
+        }
+    }
+
+    /**
+     * Gives the cached value for the key, or loads and caches it when there is none. A loader which gives null is
+     * asked again next time, so missing things should be given as a null object if they are to be cached.
+     */
+    public V getOrLoad(K key, Supplier<V> loader) {
+        if (!goCache.isServing()) {
+            return loader.get();
+        }
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        if (!goCache.isStoring()) {
+            return timed(loader);
+        }
+
+        return singleFlight.load(key, () -> {
+            synchronized (entries) {
+                return entries.get(key);
+            }
+        }, () -> timed(loader), loaded -> {
+            synchronized (entries) {
+                entries.put(key, loaded);
+            }
+        });
+    }
+
+    /**
+     * Makes a change to whatever the key is cached from, while no other change of the same key is being made, and then
+     * removes the key so that the changed value is loaded next time.
+     */
+    public void update(K key, Runnable change) {
+        singleFlight.exclusively(key, () -> {
+            change.run();
+            remove(key);
+        });
+    }
+
+    public void remove(K key) {
+        singleFlight.invalidate(key);
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void clear() {
+        singleFlight.invalidateAll();
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public Map<String, Object> statistics() {
+        LinkedHashMap<String, Object> json = new LinkedHashMap<>();
+        json.put("Maximum Entries", maxEntries);
+        json.put("Entries", size());
+        json.put("Hits", hits.sum());
+        json.put("Miss", misses.sum());
+        json.put("Loads", loads.sum());
+        json.put("Load Failures", loadFailures.sum());
+        long loadCount = loads.sum();
+        json.put("Average Load Time in milliseconds", loadCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(loadTimeInNanos.sum() / loadCount));
+        json.put("Eviction", evictions.sum());
+        return json;
+    }
+
+    private V timed(Supplier<V> loader) {
+        long start = System.nanoTime();
+        try {
+            V value = loader.get();
+            loads.increment();
+            return value;
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            throw e;
+        } finally {
+            loadTimeInNanos.add(System.nanoTime() - start);
+        }
+    }
+}
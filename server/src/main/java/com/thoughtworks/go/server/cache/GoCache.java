@@ -29,10 +29,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
 import javax.annotation.PreDestroy;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 
@@ -48,6 +48,8 @@ public class GoCache {
     private final TransactionSynchronizationManager transactionSynchronizationManager;
 
     private final Set<Class<? extends PersistentObject>> nullObjectClasses;
+    private final ConcurrentMap<String, CacheRegion<?, ?>> regions = new ConcurrentHashMap<>();
+    private final SingleFlight<String, Object> singleFlight = new SingleFlight<>();
 
     static class KeyList extends HashSet<String> {
     }
@@ -92,6 +94,27 @@ public class GoCache {
         }
     }
 
+    /**
+     * A region of this cache for one kind of value, made the first time it is asked for. Entries in a region are bounded
+     * by the region alone, and are not evicted to make room for anything else in the cache.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> CacheRegion<K, V> region(String name, int maxEntries) {
+        return (CacheRegion<K, V>) regions.computeIfAbsent(name, regionName -> new CacheRegion<>(regionName, maxEntries, this));
+    }
+
+    public Collection<CacheRegion<?, ?>> regions() {
+        return Collections.unmodifiableCollection(regions.values());
+    }
+
+    boolean isServing() {
+        return !doNotServeForTransaction();
+    }
+
+    boolean isStoring() {
+        return !transactionSynchronizationManager.isActualTransactionActive();
+    }
+
     public void put(String key, Object value) {
         logUnsavedPersistentObjectInteraction(value, "PersistentObject {} added to cache without an id.");
         if (transactionSynchronizationManager.isActualTransactionActive()) {
@@ -101,6 +124,41 @@ public class GoCache {
         ehCache.put(new Element(key, value));
     }
 
+    /**
+     * Gives the cached value for the key, or loads and caches it when there is none. Only one thread loads a key at a
+     * time, the others wait for it, and a key removed while it is being loaded is not stored. A loader which gives null
+     * is asked again next time.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, Supplier<T> loader) {
+        if (doNotServeForTransaction()) {
+            return loader.get();
+        }
+        T value = get(key);
+        if (value != null) {
+            return value;
+        }
+        if (transactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.get();
+        }
+        return (T) singleFlight.load(key, () -> get(key), loader::get, loaded -> put(key, loaded));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, String subKey, Supplier<T> loader) {
+        if (doNotServeForTransaction()) {
+            return loader.get();
+        }
+        T value = (T) get(key, subKey);
+        if (value != null) {
+            return value;
+        }
+        if (transactionSynchronizationManager.isActualTransactionActive()) {
+            return loader.get();
+        }
+        return (T) singleFlight.load(compositeKey(key, subKey), () -> get(key, subKey), loader::get, loaded -> put(key, subKey, loaded));
+    }
+
     @SuppressWarnings("unchecked")
     public List<String> getKeys() {
         return ehCache.getKeys();
@@ -144,10 +202,14 @@ public class GoCache {
     }
 
     public void clear() {
+        singleFlight.invalidateAll();
         ehCache.removeAll();
+        regions.values().forEach(CacheRegion::clear);
     }
 
     public boolean remove(String key) {
+        String subKeyPrefix = key + SUB_KEY_DELIMITER;
+        singleFlight.invalidateIf(loading -> loading.equals(key) || loading.startsWith(subKeyPrefix));
         synchronized (key.intern()) {
             Object value = getWithoutTransactionCheck(key);
             if (value instanceof KeyList) {
@@ -221,6 +283,7 @@ public class GoCache {
     }
 
     public void remove(String key, String subKey) {
+        singleFlight.invalidate(compositeKey(key, subKey));
         synchronized (key.intern()) {
             KeyList subKeys = subKeyFamily(key);
             if (subKeys == null) {
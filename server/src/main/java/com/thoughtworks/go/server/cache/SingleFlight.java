@@ -0,0 +1,125 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Understands loading a missing cache value once, however many threads ask for it at the same time, and changing what
+ * a key is cached from one thread at a time, without locking anything shared by other keys.
+ * <p>
+ * Threads asking for a key which is being loaded wait for that load. A key invalidated while it is being loaded is not
+ * stored once the load finishes, since what was loaded may already be out of date.
+ */
+class SingleFlight<K, V> {
+    private final ConcurrentMap<K, Load<V>> loading = new ConcurrentHashMap<>();
+    private final ConcurrentMap<K, KeyLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Gives what is cached for the key, or loads it and gives it to the store when there is nothing cached. A loader
+     * which gives null is asked again next time.
+     */
+    V load(K key, Supplier<V> cached, Supplier<V> loader, Consumer<V> store) {
+        Load<V> load = new Load<>();
+        Load<V> inProgress = loading.putIfAbsent(key, load);
+        if (inProgress != null) {
+            // a loader which asks for its own key again would otherwise wait on itself
+            return inProgress.owner == Thread.currentThread() ? loader.get() : inProgress.await();
+        }
+
+        try {
+            V value = cached.get();
+            if (value == null) {
+                value = loader.get();
+                V loaded = value;
+                loading.computeIfPresent(key, (k, current) -> {
+                    if (current == load && loaded != null) {
+                        store.accept(loaded);
+                    }
+                    return current;
+                });
+            }
+            load.result.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    /**
+     * Runs the change while no other change of the same key is running. Changes of other keys are not held up.
+     */
+    void exclusively(K key, Runnable change) {
+        KeyLock lock = locks.compute(key, (k, current) -> {
+            KeyLock keyLock = current == null ? new KeyLock() : current;
+            keyLock.users++;
+            return keyLock;
+        });
+        lock.lock();
+        try {
+            change.run();
+        } finally {
+            lock.unlock();
+            locks.computeIfPresent(key, (k, current) -> --current.users == 0 ? null : current);
+        }
+    }
+
+    void invalidate(K key) {
+        loading.remove(key);
+    }
+
+    void invalidateIf(Predicate<K> keys) {
+        loading.keySet().removeIf(keys);
+    }
+
+    void invalidateAll() {
+        loading.clear();
+    }
+
+    private static class Load<V> {
+        private final Thread owner = Thread.currentThread();
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+
+        private V await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static class KeyLock extends ReentrantLock {
+        // only changed while the map of locks is computing this key
+        private int users;
+    }
+}
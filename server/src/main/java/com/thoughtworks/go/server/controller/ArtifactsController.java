@@ -22,6 +22,8 @@ import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
 import com.thoughtworks.go.server.cache.ZipArtifactCache;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
 import com.thoughtworks.go.server.security.HeaderConstraint;
+import com.thoughtworks.go.server.service.ArtifactUpload;
+import com.thoughtworks.go.server.service.ArtifactUploadService;
 import com.thoughtworks.go.server.service.ArtifactsService;
 import com.thoughtworks.go.server.service.ConsoleActivityMonitor;
 import com.thoughtworks.go.server.service.ConsoleService;
@@ -44,14 +46,17 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.multipart.MultipartHttpServletRequest;
 import org.springframework.web.servlet.ModelAndView;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import static com.thoughtworks.go.util.ArtifactLogUtil.isConsoleOutput;
 import static com.thoughtworks.go.util.GoConstants.*;
@@ -66,14 +71,16 @@ public class ArtifactsController {
     private final ArtifactFolderViewFactory zipFolderViewFactory;
     private final Charset consoleLogCharset;
     private final ArtifactsService artifactsService;
+    private final ArtifactUploadService artifactUploadService;
     private final RestfulService restfulService;
     private final ConsoleService consoleService;
     private final HeaderConstraint headerConstraint;
 
     @Autowired
-    ArtifactsController(ArtifactsService artifactsService, RestfulService restfulService, ZipArtifactCache zipArtifactCache, JobInstanceDao jobInstanceDao,
+    ArtifactsController(ArtifactsService artifactsService, ArtifactUploadService artifactUploadService, RestfulService restfulService, ZipArtifactCache zipArtifactCache, JobInstanceDao jobInstanceDao,
                         ConsoleActivityMonitor consoleActivityMonitor, ConsoleService consoleService, SystemEnvironment systemEnvironment) {
         this.artifactsService = artifactsService;
+        this.artifactUploadService = artifactUploadService;
         this.restfulService = restfulService;
         this.jobInstanceDao = jobInstanceDao;
         this.consoleActivityMonitor = consoleActivityMonitor;
@@ -130,7 +137,8 @@ public class ArtifactsController {
                                      @RequestParam(value = "buildId", required = false) Long buildId,
                                      @RequestParam("filePath") String filePath,
                                      @RequestParam(value = "attempt", required = false) Integer attempt,
-                                     MultipartHttpServletRequest request) throws Exception {
+                                     MultipartHttpServletRequest request,
+                                     HttpServletResponse response) throws Exception {
         JobIdentifier jobIdentifier;
         if (!headerConstraint.isSatisfied(request)) {
             return ResponseCodeView.create(HttpServletResponse.SC_BAD_REQUEST, "Missing required header 'Confirm'");
@@ -157,32 +165,48 @@ public class ArtifactsController {
                 return FileModelAndView.invalidUploadRequest();
             }
 
-            boolean success = saveFile(convertedAttempt, artifact, multipartFile, shouldUnzipStream(multipartFile));
-
-            if (!success) {
-                return FileModelAndView.errorSavingFile(filePath);
+            MultipartFile checksumMultipartFile = getChecksumFile(request);
+            byte[] checksums = checksumMultipartFile == null ? null : checksumMultipartFile.getBytes();
+            File checksumFile = checksums == null ? null : checksumFile(jobIdentifier);
+            ArtifactUpload upload = new ArtifactUpload(filePath, artifact, shouldUnzipStream(multipartFile), convertedAttempt, multipartFile.getSize(), checksums);
+
+            // the request thread is let go while the upload is saved, when everything the request went through allows it.
+            // taking the response as an argument tells Spring it is handled here, so it renders no view of its own
+            if (request.isAsyncSupported()) {
+                AsyncContext asyncContext = request.startAsync(request, response);
+                asyncContext.setTimeout(0);
+                artifactUploadService.saveInBackground(upload, multipartFile, saved -> respond(asyncContext, uploaded(saved, filePath, checksumFile, checksums)));
+                return null;
             }
 
-            success = updateChecksumFile(request, jobIdentifier, filePath);
-
-            if (!success) {
-                return FileModelAndView.errorSavingChecksumFile(filePath);
-            }
-
-            return FileModelAndView.fileCreated(filePath);
+            return uploaded(artifactUploadService.save(upload, multipartFile), filePath, checksumFile, checksums);
 
         } catch (IllegalArtifactLocationException e) {
             return FileModelAndView.forbiddenUrl(filePath);
         }
     }
 
-    private boolean updateChecksumFile(MultipartHttpServletRequest request, JobIdentifier jobIdentifier, String filePath) throws IOException, IllegalArtifactLocationException {
-        MultipartFile checksumMultipartFile = getChecksumFile(request);
-        if (checksumMultipartFile != null) {
-            String checksumFilePath = String.format("%s/%s/%s", artifactsService.findArtifactRoot(jobIdentifier), ArtifactLogUtil.CRUISE_OUTPUT_FOLDER, ArtifactLogUtil.MD5_CHECKSUM_FILENAME);
-            File checksumFile = artifactsService.getArtifactLocation(checksumFilePath);
-            synchronized (checksumFilePath.intern()) {
-                return artifactsService.saveOrAppendFile(checksumFile, checksumMultipartFile.getInputStream());
+    private ModelAndView uploaded(boolean saved, String filePath, File checksumFile, byte[] checksums) {
+        if (!saved) {
+            return FileModelAndView.errorSavingFile(filePath);
+        }
+
+        if (!updateChecksumFile(checksumFile, checksums, filePath)) {
+            return FileModelAndView.errorSavingChecksumFile(filePath);
+        }
+
+        return FileModelAndView.fileCreated(filePath);
+    }
+
+    private File checksumFile(JobIdentifier jobIdentifier) throws IllegalArtifactLocationException {
+        String checksumFilePath = String.format("%s/%s/%s", artifactsService.findArtifactRoot(jobIdentifier), ArtifactLogUtil.CRUISE_OUTPUT_FOLDER, ArtifactLogUtil.MD5_CHECKSUM_FILENAME);
+        return artifactsService.getArtifactLocation(checksumFilePath);
+    }
+
+    private boolean updateChecksumFile(File checksumFile, byte[] checksums, String filePath) {
+        if (checksums != null) {
+            synchronized (checksumFile.getAbsolutePath().intern()) {
+                return artifactsService.saveOrAppendFile(checksumFile, new ByteArrayInputStream(checksums));
             }
         } else {
             LOGGER.warn("[Artifacts Upload] Checksum file not uploaded for artifact at path '{}'", filePath);
@@ -190,9 +214,13 @@ public class ArtifactsController {
         return true;
     }
 
-    private boolean saveFile(int convertedAttempt, File artifact, MultipartFile multipartFile, boolean shouldUnzip) throws IOException {
-        try (InputStream inputStream = multipartFile.getInputStream()) {
-            return artifactsService.saveFile(artifact, inputStream, shouldUnzip, convertedAttempt);
+    private void respond(AsyncContext asyncContext, ModelAndView modelAndView) {
+        try {
+            modelAndView.getView().render(modelAndView.getModel(), (HttpServletRequest) asyncContext.getRequest(), (HttpServletResponse) asyncContext.getResponse());
+        } catch (Exception e) {
+            LOGGER.error("[Artifacts Upload] Failed to respond to the upload", e);
+        } finally {
+            asyncContext.complete();
         }
     }
 
@@ -223,7 +251,7 @@ public class ArtifactsController {
         }
 
         if (isConsoleOutput(filePath)) {
-            return putConsoleOutput(jobIdentifier, request.getInputStream());
+            return putConsoleOutput(jobIdentifier, consoleOutputStream(request));
         } else {
             return putArtifact(jobIdentifier, filePath, request.getInputStream());
         }
@@ -309,6 +337,12 @@ public class ArtifactsController {
         return request.getFile(CHECKSUM_MULTIPART_FILENAME);
     }
 
+    /* agents send console output gzipped, unless told not to */
+    private InputStream consoleOutputStream(HttpServletRequest request) throws IOException {
+        InputStream inputStream = request.getInputStream();
+        return "gzip".equalsIgnoreCase(request.getHeader("Content-Encoding")) ? new GZIPInputStream(inputStream) : inputStream;
+    }
+
     private ModelAndView putConsoleOutput(final JobIdentifier jobIdentifier, final InputStream inputStream) throws Exception {
         File consoleLogFile = consoleService.consoleLogFile(jobIdentifier);
         boolean updated = consoleService.updateConsoleLog(consoleLogFile, inputStream);
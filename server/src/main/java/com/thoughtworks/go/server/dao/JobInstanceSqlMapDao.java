@@ -107,15 +107,8 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
 
     @Override
     public JobInstance buildByIdWithTransitions(long buildInstanceId) {
-        String cacheKey = cacheKeyForJobInstanceWithTransitions(buildInstanceId);
-        synchronized (cacheKey) {
-            JobInstance instance = goCache.get(cacheKey);
-            if (instance == null) {
-                instance = job(buildInstanceId, "buildByIdWithTransitions");
-                goCache.put(cacheKey, instance);
-            }
-            return cloner.deepClone(instance);
-        }
+        JobInstance instance = goCache.getOrLoad(cacheKeyForJobInstanceWithTransitions(buildInstanceId), () -> job(buildInstanceId, "buildByIdWithTransitions"));
+        return cloner.deepClone(instance);
     }
 
     String cacheKeyForJobInstanceWithTransitions(long jobId) {
@@ -155,43 +148,18 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
     }
 
     private ActiveJob getActiveJob(Long activeJobId) {
-        String activeJobKey = cacheKeyForActiveJob(activeJobId);
-        ActiveJob activeJob = goCache.get(activeJobKey);
-        if (activeJob == null) {
-            synchronized (activeJobKey) {
-                activeJob = goCache.get(activeJobKey);
-                if (activeJob == null) {
-                    activeJob = _getActiveJob(activeJobId);
-                    if (activeJob != null) { // could have changed to not active and consequently no match found
-                        cacheActiveJob(activeJob);
-                    }
-                }
-            }
-        }
-        return activeJob;//TODO: clone it, caller may mutate
+        // a job which is no longer active is not found, and so not cached
+        return goCache.getOrLoad(cacheKeyForActiveJob(activeJobId), () -> _getActiveJob(activeJobId));//TODO: clone it, caller may mutate
     }
 
     private List<Long> getActiveJobIds() {
-        String idsCacheKey = cacheKeyForActiveJobIds();
-        List<Long> activeJobIds = goCache.get(idsCacheKey);
-
-        synchronized (idsCacheKey) {
-            if (activeJobIds == null) {
-                activeJobIds = getSqlMapClientTemplate().queryForList("getActiveJobIds");
-                goCache.put(idsCacheKey, activeJobIds);
-            }
-        }
-        return activeJobIds;
+        return goCache.getOrLoad(cacheKeyForActiveJobIds(), () -> getSqlMapClientTemplate().queryForList("getActiveJobIds"));
     }
 
     private ActiveJob _getActiveJob(Long id) {
         return getSqlMapClientTemplate().queryForObject("getActiveJobById", arguments("id", id).asMap());
     }
 
-    private void cacheActiveJob(ActiveJob activeJob) {
-        goCache.put(cacheKeyForActiveJob(activeJob.getId()), cloner.deepClone(activeJob));//TODO: we should clone while serving the object out, and not while adding it to cache
-    }
-
     @Override
     public JobInstance mostRecentJobWithTransitions(JobIdentifier job) {
         return Optional.ofNullable(findOriginalJobIdentifier(job.getStageIdentifier(), job.getBuildName()))
@@ -271,25 +239,15 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
 
     @Override
     public JobIdentifier findOriginalJobIdentifier(StageIdentifier stageIdentifier, String jobName) {
-        String key = cacheKeyForOriginalJobIdentifier(stageIdentifier, jobName);
-
-        JobIdentifier jobIdentifier = goCache.get(key);
-        if (jobIdentifier == null) {
-            synchronized (key) {
-                jobIdentifier = goCache.get(key);
-                if (jobIdentifier == null) {
-                    Map<String, Object> params = arguments("pipelineName", stageIdentifier.getPipelineName()).
-                        and("pipelineCounter", stageIdentifier.getPipelineCounter()).
-                        and("stageName", stageIdentifier.getStageName()).
-                        and("stageCounter", Integer.parseInt(stageIdentifier.getStageCounter())).
-                        and("jobName", jobName).asMap();
-
-                    jobIdentifier = getSqlMapClientTemplate().queryForObject("findJobId", params);
-
-                    goCache.put(key, jobIdentifier);
-                }
-            }
-        }
+        JobIdentifier jobIdentifier = goCache.getOrLoad(cacheKeyForOriginalJobIdentifier(stageIdentifier, jobName), () -> {
+            Map<String, Object> params = arguments("pipelineName", stageIdentifier.getPipelineName()).
+                and("pipelineCounter", stageIdentifier.getPipelineCounter()).
+                and("stageName", stageIdentifier.getStageName()).
+                and("stageCounter", Integer.parseInt(stageIdentifier.getStageCounter())).
+                and("jobName", jobName).asMap();
+
+            return getSqlMapClientTemplate().queryForObject("findJobId", params);
+        });
 
         return cloner.deepClone(jobIdentifier);
     }
@@ -361,17 +319,10 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
             transactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
                 @Override
                 public void afterCommit() {
-                    // Methods not extracted in order to make synchronization visible.
-                    synchronized (cacheKeyForJobPlan(jobInstance.getId())) {
-                        removeCachedJobPlan(jobInstance);
-                    }
-                    synchronized (cacheKeyForActiveJobIds()) {
-                        goCache.remove(cacheKeyForActiveJobIds());
-                    }
-                    String activeJobKey = cacheKeyForActiveJob(jobInstance.getId());
-                    synchronized (activeJobKey) {
-                        goCache.remove(activeJobKey);
-                    }
+                    // a load of any of these which is still in progress is not cached once it finishes
+                    removeCachedJobPlan(jobInstance);
+                    goCache.remove(cacheKeyForActiveJobIds());
+                    goCache.remove(cacheKeyForActiveJob(jobInstance.getId()));
                     removeCachedJobInstance(jobInstance);
                 }
             });
@@ -384,10 +335,7 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
     }
 
     private void removeCachedJobInstance(JobInstance jobInstance) {
-        String cacheKeyOfJob = cacheKeyForJobInstanceWithTransitions(jobInstance.getId());
-        synchronized (cacheKeyOfJob) {
-            goCache.remove(cacheKeyOfJob);
-        }
+        goCache.remove(cacheKeyForJobInstanceWithTransitions(jobInstance.getId()));
     }
 
     private void removeCachedJobPlan(JobInstance jobInstance) {
@@ -535,17 +483,9 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
 
         List<JobPlan> plans = new ArrayList<>();
         for (Long jobId : jobIds) {
-            String cacheKey = cacheKeyForJobPlan(jobId);
-            synchronized (cacheKey) {
-                JobPlan jobPlan = goCache.get(cacheKey);
-                if (jobPlan == null) {
-                    jobPlan = _loadJobPlan(jobId);
-                }
-                if (jobPlan != null) {
-                    jobPlan = cloner.deepClone(jobPlan);
-                    goCache.put(cacheKey, jobPlan);
-                    plans.add(jobPlan);
-                }
+            JobPlan jobPlan = goCache.getOrLoad(cacheKeyForJobPlan(jobId), () -> _loadJobPlan(jobId));
+            if (jobPlan != null) {
+                plans.add(cloner.deepClone(jobPlan));
             }
         }
         return plans;
@@ -586,19 +526,7 @@ public class JobInstanceSqlMapDao extends SqlMapClientDaoSupport implements JobI
     }
 
     public JobStateTransition oldestBuild() {
-        String cacheKeyForOldestBuild = (JobInstanceSqlMapDao.class.getName() + "_oldestBuild").intern();
-        JobStateTransition oldestBuild = goCache.get(cacheKeyForOldestBuild);
-        if (oldestBuild == null) {
-            synchronized (cacheKeyForOldestBuild) {
-                oldestBuild = goCache.get(cacheKeyForOldestBuild);
-                if (oldestBuild == null) {
-                    oldestBuild = getSqlMapClientTemplate().queryForObject("oldestBuild", new Object());
-                    goCache.put(cacheKeyForOldestBuild, oldestBuild);
-                }
-                return oldestBuild;
-            }
-        }
-        return oldestBuild;
+        return goCache.getOrLoad(JobInstanceSqlMapDao.class.getName() + "_oldestBuild", () -> getSqlMapClientTemplate().queryForObject("oldestBuild", new Object()));
     }
 
     private void saveTransitions(JobInstance jobInstance) {
@@ -27,6 +27,7 @@ import com.thoughtworks.go.domain.materials.dependency.DependencyMaterialRevisio
 import com.thoughtworks.go.presentation.pipelinehistory.PipelineInstanceModel;
 import com.thoughtworks.go.presentation.pipelinehistory.PipelineInstanceModels;
 import com.thoughtworks.go.server.cache.CacheKeyGenerator;
+import com.thoughtworks.go.server.cache.CacheRegion;
 import com.thoughtworks.go.server.cache.GoCache;
 import com.thoughtworks.go.server.cache.LazyCache;
 import com.thoughtworks.go.server.database.Database;
@@ -72,6 +73,8 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initializer, PipelineDao, StageStatusListener {
     private static final Logger LOGGER = LoggerFactory.getLogger(PipelineSqlMapDao.class);
     private static final Marker FATAL = MarkerFactory.getMarker("FATAL");
+    static final String PAUSE_STATE_REGION = "pipelinePauseState";
+    static final int MAX_PAUSE_STATES = 10_000;
     private final LazyCache pipelineByBuildIdCache;
     private final CacheKeyGenerator cacheKeyGenerator;
     private StageDao stageDao;
@@ -211,23 +214,14 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
 
     @Override
     public BuildCause findBuildCauseOfPipelineByNameAndCounter(String name, int counter) {
-        String cacheKey = cacheKeyForBuildCauseByNameAndCounter(name, counter);
-        BuildCause buildCause = goCache.get(cacheKey);
-        if (buildCause == null) {
-            synchronized (cacheKey) {
-                buildCause = goCache.get(cacheKey);
-                if (buildCause == null) {
-                    Pipeline pipeline = findPipelineByNameAndCounter(name, counter);
-                    if (pipeline == null) {
-                        throw new RecordNotFoundException(String.format("Pipeline %s with counter %d was not found", name, counter));
-                    }
-                    loadMaterialRevisions(pipeline);
-                    buildCause = pipeline.getBuildCause();
-                    goCache.put(cacheKey, buildCause);
-                }
+        return goCache.getOrLoad(cacheKeyForBuildCauseByNameAndCounter(name, counter), () -> {
+            Pipeline pipeline = findPipelineByNameAndCounter(name, counter);
+            if (pipeline == null) {
+                throw new RecordNotFoundException(String.format("Pipeline %s with counter %d was not found", name, counter));
             }
-        }
-        return buildCause;
+            loadMaterialRevisions(pipeline);
+            return pipeline.getBuildCause();
+        });
     }
 
     String cacheKeyForBuildCauseByNameAndCounter(String name, int counter) {
@@ -243,10 +237,7 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
     protected void updateCachedLatestSuccessfulStage(Stage stage) {
         if (stage.passed()) {
             StageIdentifier identifier = stage.getIdentifier();
-            String cacheKey = latestSuccessfulStageCacheKey(identifier.getPipelineName(), identifier.getStageName());
-            synchronized (cacheKey) {
-                goCache.put(cacheKey, identifier);
-            }
+            goCache.put(latestSuccessfulStageCacheKey(identifier.getPipelineName(), identifier.getStageName()), identifier);
         }
     }
 
@@ -351,19 +342,9 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
     }
 
     private PipelineInstanceModel loadPipelineInstanceModelByNameAndCounter(String pipelineName, int pipelineCounter) {
-        String cacheKey = cacheKeyForPipelineHistoryByNameAndCounter(pipelineName, pipelineCounter);
-        PipelineInstanceModel instanceModel = goCache.get(cacheKey);
-        if (instanceModel == null) {
-            synchronized (cacheKey) {
-                instanceModel = goCache.get(cacheKey);
-                if (instanceModel == null) {
-                    instanceModel = getSqlMapClientTemplate().queryForObject("getPipelineHistoryByNameAndCounter",
-                            arguments("pipelineName", pipelineName).and("pipelineCounter", pipelineCounter).asMap());
-                    goCache.put(cacheKey, instanceModel);
-                }
-            }
-        }
-        return instanceModel;
+        return goCache.getOrLoad(cacheKeyForPipelineHistoryByNameAndCounter(pipelineName, pipelineCounter),
+                () -> getSqlMapClientTemplate().queryForObject("getPipelineHistoryByNameAndCounter",
+                        arguments("pipelineName", pipelineName).and("pipelineCounter", pipelineCounter).asMap()));
     }
 
     String cacheKeyForPipelineHistoryByNameAndCounter(String pipelineName, int pipelineCounter) {
@@ -522,21 +503,9 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
 
     @Override
     public PipelineInstanceModel loadHistory(long id) {
-        String cacheKey = pipelineHistoryCacheKey(id);
-        PipelineInstanceModel result = goCache.get(cacheKey);
-        if (result == null) {
-            synchronized (cacheKey) {
-                result = goCache.get(cacheKey);
-                if (result == null) {
-                    result = getSqlMapClientTemplate().queryForObject("getPipelineHistoryById", arguments("id", id).asMap());
-                    if (result == null) {
-                        return null;
-                    }
-                    goCache.put(cacheKey, result);
-                }
-            }
-        }
-        return cloner.deepClone(result);
+        PipelineInstanceModel result = goCache.getOrLoad(pipelineHistoryCacheKey(id),
+                () -> getSqlMapClientTemplate().queryForObject("getPipelineHistoryById", arguments("id", id).asMap()));
+        return result == null ? null : cloner.deepClone(result);
     }
 
     @Override
@@ -681,18 +650,7 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
 
     List<Long> findPipelineIds(String pipelineName, int limit, int offset) {
         if (wantLatestIdOnly(limit, offset)) {
-            String cacheKey = cacheKeyForLatestPipelineIdByPipelineName(pipelineName);
-            List<Long> ids = goCache.get(cacheKey);
-            if (ids == null) {
-                synchronized (cacheKey) {
-                    ids = goCache.get(cacheKey);
-                    if (ids == null) {
-                        ids = fetchPipelineIds(pipelineName, limit, offset);
-                        goCache.put(cacheKey, ids);
-                    }
-                }
-            }
-            return ids;
+            return goCache.getOrLoad(cacheKeyForLatestPipelineIdByPipelineName(pipelineName), () -> fetchPipelineIds(pipelineName, limit, offset));
         } //dont bother caching if looking for more than the latest, because limit and offset may changed
         return fetchPipelineIds(pipelineName, limit, offset);
     }
@@ -788,8 +746,7 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
     }
 
     public void pause(String pipelineName, String pauseCause, String pauseBy) {
-        String cacheKey = cacheKeyForPauseState(pipelineName);
-        synchronized (cacheKey) {
+        pauseStates().update(pipelineName.toLowerCase(), () -> {
             Map<String, Object> args = arguments("pipelineName", pipelineName).and("pauseCause", pauseCause).and("pauseBy", pauseBy).and("paused", true).and("pausedAt", timeProvider.currentTime()).asMap();
             PipelinePauseInfo pipelinePauseInfo = getSqlMapClientTemplate().queryForObject("getPipelinePauseState", pipelineName);
             if (pipelinePauseInfo == null) {
@@ -797,38 +754,34 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
             } else {
                 getSqlMapClientTemplate().update("updatePipelinePauseState", args);
             }
-            goCache.remove(cacheKey);
-        }
+        });
     }
 
     public void unpause(String pipelineName) {
-        String cacheKey = cacheKeyForPauseState(pipelineName);
-        synchronized (cacheKey) {
+        pauseStates().update(pipelineName.toLowerCase(), () -> {
             Map<String, Object> args = arguments("pipelineName", pipelineName).and("pauseCause", null).and("pauseBy", null).and("paused", false).and("pausedAt", null).asMap();
             getSqlMapClientTemplate().update("updatePipelinePauseState", args);
-            goCache.remove(cacheKey);
-        }
-
+        });
     }
 
     public PipelinePauseInfo pauseState(String pipelineName) {
-        String cacheKey = cacheKeyForPauseState(pipelineName);
-        PipelinePauseInfo result = goCache.get(cacheKey);
-        if (result == null) {
-            synchronized (cacheKey) {
-                result = goCache.get(cacheKey);
-                if (result == null) {
-                    result = getSqlMapClientTemplate().queryForObject("getPipelinePauseState", pipelineName);
-                    result = (result == null) ? PipelinePauseInfo.NULL : result;
-                    goCache.put(cacheKey, result);
-                }
-            }
-        }
-        return result;
+        return pauseStates().getOrLoad(pipelineName.toLowerCase(), () -> {
+            PipelinePauseInfo result = getSqlMapClientTemplate().queryForObject("getPipelinePauseState", pipelineName);
+            return (result == null) ? PipelinePauseInfo.NULL : result;
+        });
+    }
+
+    /* Pause states are kept apart from the rest of the cache, so that busier entries such as pipeline history cannot evict them. */
+    private CacheRegion<String, PipelinePauseInfo> pauseStates() {
+        return goCache.region(PAUSE_STATE_REGION, MAX_PAUSE_STATES);
     }
 
-    String cacheKeyForPauseState(String pipelineName) {
-        return cacheKeyGenerator.generate("cacheKeyForPauseState", pipelineName.toLowerCase());
+    /**
+     * Names of all the paused pipelines, read with a single query. Pause states are otherwise loaded and cached one
+     * pipeline at a time, which is slow when building state for every pipeline at once.
+     */
+    public List<String> pausedPipelineNames() {
+        return getSqlMapClientTemplate().queryForList("getPausedPipelineNames");
     }
 
     String cacheKeyForLatestPassedStage(long pipelineId, String stage) {
@@ -837,39 +790,20 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
 
     @Override
     public StageIdentifier latestPassedStageIdentifier(long pipelineId, String stage) {
-        String cacheKey = cacheKeyForLatestPassedStage(pipelineId, stage);
-        StageIdentifier result = goCache.get(cacheKey);
-        if (result == null) {
-            synchronized (cacheKey) {
-                result = goCache.get(cacheKey);
-                if (result == null) {
-                    result = getSqlMapClientTemplate().queryForObject("latestPassedStageForPipelineId", arguments("id", pipelineId).and("stage", stage).asMap());
-                    result = (result == null) ? StageIdentifier.NULL : result;
-                    goCache.put(cacheKey, result);
-                }
-            }
-        }
-        return result;
+        return goCache.getOrLoad(cacheKeyForLatestPassedStage(pipelineId, stage), () -> {
+            StageIdentifier result = getSqlMapClientTemplate().queryForObject("latestPassedStageForPipelineId", arguments("id", pipelineId).and("stage", stage).asMap());
+            return (result == null) ? StageIdentifier.NULL : result;
+        });
     }
 
     @Override
     public List<PipelineIdentifier> getPipelineInstancesTriggeredWithDependencyMaterial(String pipelineName,
                                                                                         PipelineIdentifier dependencyPipelineIdentifier) {
         String cacheKey = cacheKeyForPipelineInstancesTriggeredWithDependencyMaterial(pipelineName, dependencyPipelineIdentifier.getName(), dependencyPipelineIdentifier.getCounter());
-        List<PipelineIdentifier> pipelineIdentifiers = goCache.get(cacheKey);
-        if (pipelineIdentifiers == null) {
-            synchronized (cacheKey) {
-                pipelineIdentifiers = goCache.get(cacheKey);
-                if (pipelineIdentifiers == null) {
-                    pipelineIdentifiers = getSqlMapClientTemplate().queryForList("pipelineInstancesTriggeredOutOfDependencyMaterial",
-                            arguments("pipelineName", pipelineName).and("dependencyPipelineName", dependencyPipelineIdentifier.getName())
-                                    .and("stageLocator", dependencyPipelineIdentifier.getName() + "/" + dependencyPipelineIdentifier.getCounter() + "/%/%")
-                                    .asMap());
-                    goCache.put(cacheKey, pipelineIdentifiers);
-                }
-            }
-        }
-        return pipelineIdentifiers;
+        return goCache.getOrLoad(cacheKey, () -> getSqlMapClientTemplate().queryForList("pipelineInstancesTriggeredOutOfDependencyMaterial",
+                arguments("pipelineName", pipelineName).and("dependencyPipelineName", dependencyPipelineIdentifier.getName())
+                        .and("stageLocator", dependencyPipelineIdentifier.getName() + "/" + dependencyPipelineIdentifier.getCounter() + "/%/%")
+                        .asMap()));
     }
 
     @Override
@@ -877,18 +811,8 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
                                                                                         MaterialInstance materialInstance,
                                                                                         String revision) {
         String cacheKey = cacheKeyForPipelineInstancesTriggeredWithDependencyMaterial(pipelineName, materialInstance.getFingerprint(), revision);
-        List<PipelineIdentifier> pipelineIdentifiers = goCache.get(cacheKey);
-        if (pipelineIdentifiers == null) {
-            synchronized (cacheKey) {
-                pipelineIdentifiers = goCache.get(cacheKey);
-                if (pipelineIdentifiers == null) {
-                    pipelineIdentifiers = getSqlMapClientTemplate().queryForList("pipelineInstancesTriggeredOffOfMaterialRevision",
-                            arguments("pipelineName", pipelineName).and("materialId", materialInstance.getId()).and("materialRevision", revision).asMap());
-                    goCache.put(cacheKey, pipelineIdentifiers);
-                }
-            }
-        }
-        return pipelineIdentifiers;
+        return goCache.getOrLoad(cacheKey, () -> getSqlMapClientTemplate().queryForList("pipelineInstancesTriggeredOffOfMaterialRevision",
+                arguments("pipelineName", pipelineName).and("materialId", materialInstance.getId()).and("materialRevision", revision).asMap()));
     }
 
     @Override
@@ -954,18 +878,6 @@ public class PipelineSqlMapDao extends SqlMapClientDaoSupport implements Initial
     }
 
     private Map<CaseInsensitiveString, TreeSet<Long>> getAllActivePipelineNamesVsTheirInstanceIDs() {
-        String cacheKey = activePipelinesCacheKey();
-        Map<CaseInsensitiveString, TreeSet<Long>> result = goCache.get(cacheKey);
-        if (result == null) {
-            synchronized (cacheKey) {
-                result = goCache.get(cacheKey);
-                if (result == null) {
-                    List<PipelineInstanceModel> pipelines = getAllPIMs();
-                    result = groupPipelineInstanceIdsByPipelineName(pipelines);
-                    goCache.put(cacheKey, result);
-                }
-            }
-        }
-        return result;
+        return goCache.getOrLoad(activePipelinesCacheKey(), () -> groupPipelineInstanceIdsByPipelineName(getAllPIMs()));
     }
 }
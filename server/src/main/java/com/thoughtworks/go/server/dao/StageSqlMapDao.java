@@ -194,27 +194,17 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
 
     @Override
     public Stage findStageWithIdentifier(StageIdentifier identifier) {
-        String cacheKey = cacheKeyForStageIdentifier(identifier);
-        String cacheKeyForIdentifiers = cacheKeyForListOfStageIdentifiers(identifier);
-        synchronized (cacheKeyForIdentifiers) {
-            Stage stage = (Stage) goCache.get(cacheKeyForIdentifiers, cacheKey);
-            if (stage == null) {
-                IBatisUtil.IBatisArgument argument = IBatisUtil.arguments("pipelineName", identifier.getPipelineName())
-                    .and("pipelineCounter", identifier.getPipelineCounter())
-                    .and("stageName", identifier.getStageName())
-                    .and("stageCounter", Integer.parseInt(identifier.getStageCounter()));
-                if (identifier.getPipelineLabel() != null) {
-                    argument = argument.and("pipelineLabel", identifier.getPipelineLabel());
-                }
-                Map<String, Object> arguments = argument.asMap();
-                stage = getSqlMapClientTemplate().queryForObject("findStageWithJobsByIdentifier", arguments);
-                if (stage == null) {
-                    return new NullStage(identifier.getStageName());
-                }
-                goCache.put(cacheKeyForIdentifiers, cacheKey, stage);
+        Stage stage = goCache.getOrLoad(cacheKeyForListOfStageIdentifiers(identifier), cacheKeyForStageIdentifier(identifier), () -> {
+            IBatisUtil.IBatisArgument argument = IBatisUtil.arguments("pipelineName", identifier.getPipelineName())
+                .and("pipelineCounter", identifier.getPipelineCounter())
+                .and("stageName", identifier.getStageName())
+                .and("stageCounter", Integer.parseInt(identifier.getStageCounter()));
+            if (identifier.getPipelineLabel() != null) {
+                argument = argument.and("pipelineLabel", identifier.getPipelineLabel());
             }
-            return cloner.deepClone(stage);
-        }
+            return getSqlMapClientTemplate().queryForObject("findStageWithJobsByIdentifier", argument.asMap());
+        });
+        return stage == null ? new NullStage(identifier.getStageName()) : cloner.deepClone(stage);
     }
 
     String cacheKeyForListOfStageIdentifiers(StageIdentifier stageIdentifier) {
@@ -359,16 +349,11 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
 
     @Override
     public Stages getAllRunsOfStageForPipelineInstance(String pipelineName, Integer pipelineCounter, String stageName) {
-        String cacheKeyForAllStages = cacheKeyForAllStageOfPipeline(pipelineName, pipelineCounter, stageName);
-        synchronized (cacheKeyForAllStages) {
-            List<Stage> stages = goCache.get(cacheKeyForAllStages);
-            if (stages == null) {
-                Map<String, Object> toGet = arguments("pipelineName", pipelineName).and("pipelineCounter", pipelineCounter).and("stageName", stageName).asMap();
-                stages = getSqlMapClientTemplate().queryForList("getAllRunsOfStageForPipelineInstance", toGet);
-                goCache.put(cacheKeyForAllStages, stages);
-            }
-            return new Stages(cloner.deepClone(stages));
-        }
+        List<Stage> stages = goCache.getOrLoad(cacheKeyForAllStageOfPipeline(pipelineName, pipelineCounter, stageName), () -> {
+            Map<String, Object> toGet = arguments("pipelineName", pipelineName).and("pipelineCounter", pipelineCounter).and("stageName", stageName).asMap();
+            return getSqlMapClientTemplate().queryForList("getAllRunsOfStageForPipelineInstance", toGet);
+        });
+        return new Stages(cloner.deepClone(stages));
     }
 
     String cacheKeyForAllStageOfPipeline(String pipelineName, Integer pipelineCounter, String stageName) {
@@ -387,32 +372,15 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
 
     @Override
     public int getTotalStageCountForChart(String pipelineName, String stageName) {
-        String key = cacheKeyForStageCountForGraph(pipelineName, stageName);
-        Integer total = goCache.get(key);
-        if (total == null) {
-            synchronized (key) {
-                Map<String, Object> toGet = arguments("pipelineName", pipelineName).and("stageName", stageName).asMap();
-                total = getSqlMapClientTemplate().queryForObject("getTotalStageCountForChart", toGet);
-                goCache.put(key, total);
-            }
-        }
-        return total;
+        return goCache.<Integer>getOrLoad(cacheKeyForStageCountForGraph(pipelineName, stageName), () -> {
+            Map<String, Object> toGet = arguments("pipelineName", pipelineName).and("stageName", stageName).asMap();
+            return getSqlMapClientTemplate().queryForObject("getTotalStageCountForChart", toGet);
+        });
     }
 
     @Override
     public List<StageIdentity> findLatestStageInstances() {
-        String key = cacheKeyForLatestStageInstances();
-        List<StageIdentity> stageIdentities = goCache.get(key);
-        if (stageIdentities == null) {
-            synchronized (key) {
-                stageIdentities = goCache.get(key);
-                if (stageIdentities == null) {
-                    stageIdentities = getSqlMapClientTemplate().queryForList("latestStageInstances");
-                    goCache.put(key, stageIdentities);
-                }
-            }
-        }
-        return stageIdentities;
+        return goCache.getOrLoad(cacheKeyForLatestStageInstances(), () -> getSqlMapClientTemplate().queryForList("latestStageInstances"));
     }
 
 
@@ -501,7 +469,7 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
     }
 
     String mutexForStageHistory(String pipelineName, String stageName) {
-        return format("%s_stageHistoryMutex_%s_<>_%s", getClass().getName(), pipelineName, stageName).intern();
+        return format("%s_stageHistoryMutex_%s_<>_%s", getClass().getName(), pipelineName, stageName);
     }
 
     String cacheKeyForStageHistories(String pipelineName, String stageName) {
@@ -549,7 +517,7 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
     }
 
     String cacheKeyForStageOffset(Stage stage) {
-        return cacheKeyGenerator.generate("stageOffsetMap", stage.getIdentifier().getPipelineName(), stage.getIdentifier().getStageName()).intern();
+        return cacheKeyGenerator.generate("stageOffsetMap", stage.getIdentifier().getPipelineName(), stage.getIdentifier().getStageName());
     }
 
     @Override
@@ -600,21 +568,10 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
     }
 
     Long mostRecentId(String pipelineName, String stageName) {
-        String key = cacheKeyForMostRecentId(pipelineName, stageName);
-        Long id = goCache.get(key);
-        if (id != null) {
-            return id;
-        }
-        synchronized (key) {
-            id = goCache.get(key);
-            if (id != null) {
-                return id;
-            }
+        return goCache.getOrLoad(cacheKeyForMostRecentId(pipelineName, stageName), () -> {
             Map<String, Object> toGet = arguments("pipelineName", pipelineName).and("stageName", stageName).asMap();
-            id = getSqlMapClientTemplate().queryForObject("getMostRecentId", toGet);
-            goCache.put(key, id);
-        }
-        return id;
+            return getSqlMapClientTemplate().queryForObject("getMostRecentId", toGet);
+        });
     }
 
     @Override
@@ -631,21 +588,13 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
 
     @Override
     public Stage stageById(long id) {
-        String key = cacheKeyForStageById(id);
-        Stage stage = goCache.get(key);
-
-        if (stage == null) {
-            synchronized (key) {
-                stage = goCache.get(key);
-                if (stage == null) {
-                    stage = getSqlMapClientTemplate().queryForObject("getStageById", id);
-                    if (stage == null) {
-                        throw new DataRetrievalFailureException("Unable to load related stage data for id " + id);
-                    }
-                    goCache.put(key, stage);
-                }
+        Stage stage = goCache.getOrLoad(cacheKeyForStageById(id), () -> {
+            Stage loaded = getSqlMapClientTemplate().queryForObject("getStageById", id);
+            if (loaded == null) {
+                throw new DataRetrievalFailureException("Unable to load related stage data for id " + id);
             }
-        }
+            return loaded;
+        });
         return cloner.deepClone(stage);
     }
 
@@ -662,16 +611,10 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
 
     @Override
     public boolean isStageActive(String pipelineName, String stageName) {
-        String cacheKey = cacheKeyForPipelineAndStage(pipelineName, stageName);
-        synchronized (cacheKey) {
-            Boolean isActive = goCache.get(cacheKey);
-            if (isActive == null) {
-                final Map<String, Object> toGet = arguments("pipelineName", pipelineName).and("stageName", stageName).asMap();
-                isActive = !getSqlMapClientTemplate().queryForObject("isStageActive", toGet).equals(0);
-                goCache.put(cacheKey, isActive);
-            }
-            return isActive;
-        }
+        return goCache.<Boolean>getOrLoad(cacheKeyForPipelineAndStage(pipelineName, stageName), () -> {
+            final Map<String, Object> toGet = arguments("pipelineName", pipelineName).and("stageName", stageName).asMap();
+            return !getSqlMapClientTemplate().queryForObject("isStageActive", toGet).equals(0);
+        });
     }
 
     @Override
@@ -700,18 +643,10 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
 
     @Override
     public Stages findAllStagesFor(String pipelineName, int counter) {
-        String key = cacheKeyForPipelineAndCounter(pipelineName, counter);
-        List<Stage> stages = goCache.get(key);
-        if (stages == null) {
-            synchronized (key) {
-                stages = goCache.get(key);
-                if (stages == null) {
-                    Map<String, Object> params = arguments("pipelineName", pipelineName).and("pipelineCounter", counter).asMap();
-                    stages = getSqlMapClientTemplate().queryForList("getStagesByPipelineNameAndCounter", params);
-                    goCache.put(key, stages);
-                }
-            }
-        }
+        List<Stage> stages = goCache.getOrLoad(cacheKeyForPipelineAndCounter(pipelineName, counter), () -> {
+            Map<String, Object> params = arguments("pipelineName", pipelineName).and("pipelineCounter", counter).asMap();
+            return getSqlMapClientTemplate().queryForList("getStagesByPipelineNameAndCounter", params);
+        });
         return new Stages(stages);
     }
 
@@ -750,9 +685,7 @@ public class StageSqlMapDao extends SqlMapClientDaoSupport implements StageDao,
     }
 
     private void removeFromCache(String key) {
-        synchronized (key) {
-            goCache.remove(key);
-        }
+        goCache.remove(key);
     }
 
 
@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.dashboard;
 
+import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.config.CruiseConfig;
 import com.thoughtworks.go.config.PipelineConfig;
 import com.thoughtworks.go.config.PipelineConfigs;
@@ -28,6 +29,7 @@ import com.thoughtworks.go.server.domain.StageStatusListener;
 import com.thoughtworks.go.server.initializers.Initializer;
 import com.thoughtworks.go.server.messaging.MultiplexingQueueProcessor;
 import com.thoughtworks.go.server.messaging.MultiplexingQueueProcessor.Action;
+import com.thoughtworks.go.server.messaging.MultiplexingQueueProcessors;
 import com.thoughtworks.go.server.service.GoConfigService;
 import com.thoughtworks.go.server.service.PipelineLockService;
 import com.thoughtworks.go.server.service.PipelinePauseService;
@@ -35,11 +37,19 @@ import com.thoughtworks.go.server.service.StageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /* Listens to all activity that is needed to keep the dashboard updated and sets it up for processing.
+ *
+ * Pending updates which would redo the same work are coalesced: a later change to the whole config replaces a pending
+ * one, and a later stage, pause or lock change of a pipeline replaces a pending one of the same pipeline, since all of
+ * them reload that pipeline as it is when processed.
  */
 @Component
 public class GoDashboardActivityListener implements Initializer, ConfigChangedListener, PipelinePauseChangeListener,
         PipelineLockStatusChangeListener {
+    private static final Object ALL_PIPELINES = "all pipelines";
+
     private final GoConfigService goConfigService;
     private final StageService stageService;
     private final PipelinePauseService pipelinePauseService;
@@ -61,7 +71,8 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
                                        GoDashboardConfigChangeHandler configChangeHandler,
                                        GoDashboardPipelinePauseStatusChangeHandler pauseStatusChangeHandler,
                                        GoDashboardPipelineLockStatusChangeHandler lockStatusChangeHandler,
-                                       GoDashboardTemplateConfigChangeHandler templateConfigChangeHandler) {
+                                       GoDashboardTemplateConfigChangeHandler templateConfigChangeHandler,
+                                       MultiplexingQueueProcessors multiplexingQueueProcessors) {
         this.goConfigService = goConfigService;
         this.stageService = stageService;
         this.pipelinePauseService = pipelinePauseService;
@@ -73,7 +84,7 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
         this.lockStatusChangeHandler = lockStatusChangeHandler;
         this.templateConfigChangeHandler = templateConfigChangeHandler;
 
-        this.processor = new MultiplexingQueueProcessor("Dashboard");
+        this.processor = multiplexingQueueProcessors.create("Dashboard");
     }
 
     @Override
@@ -105,6 +116,16 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
             public String description() {
                 return "config change";
             }
+
+            @Override
+            public String kind() {
+                return "config change";
+            }
+
+            @Override
+            public Object coalescingKey() {
+                return ALL_PIPELINES;
+            }
         });
     }
 
@@ -122,6 +143,16 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
                     public String description() {
                         return "pipeline config: " + pipelineConfig;
                     }
+
+                    @Override
+                    public String kind() {
+                        return "pipeline config";
+                    }
+
+                    @Override
+                    public Object coalescingKey() {
+                        return List.of("pipeline config", pipelineConfig.name());
+                    }
                 });
             }
         };
@@ -141,6 +172,16 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
                     public String description() {
                         return "pipeline configs: " + pipelineConfigs;
                     }
+
+                    @Override
+                    public String kind() {
+                        return "pipeline configs";
+                    }
+
+                    @Override
+                    public Object coalescingKey() {
+                        return ALL_PIPELINES;
+                    }
                 });
             }
         };
@@ -160,6 +201,16 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
                     public String description() {
                         return "template config: " + templateConfig;
                     }
+
+                    @Override
+                    public String kind() {
+                        return "template config";
+                    }
+
+                    @Override
+                    public Object coalescingKey() {
+                        return List.of("template config", templateConfig.name());
+                    }
                 });
             }
         };
@@ -176,6 +227,16 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
             public String description() {
                 return "stage: " + stage;
             }
+
+            @Override
+            public String kind() {
+                return "stage";
+            }
+
+            @Override
+            public Object coalescingKey() {
+                return pipelineKey(stage.getIdentifier().getPipelineName());
+            }
         });
     }
 
@@ -193,6 +254,16 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
                     public String description() {
                         return "security_config changed";
                     }
+
+                    @Override
+                    public String kind() {
+                        return "security config";
+                    }
+
+                    @Override
+                    public Object coalescingKey() {
+                        return ALL_PIPELINES;
+                    }
                 });
             }
         };
@@ -210,6 +281,16 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
             public String description() {
                 return "pause event: " + event;
             }
+
+            @Override
+            public String kind() {
+                return "pause event";
+            }
+
+            @Override
+            public Object coalescingKey() {
+                return pipelineKey(event.pipelineName());
+            }
         });
     }
 
@@ -225,6 +306,20 @@ public class GoDashboardActivityListener implements Initializer, ConfigChangedLi
             public String description() {
                 return "lock event: " + event;
             }
+
+            @Override
+            public String kind() {
+                return "lock event";
+            }
+
+            @Override
+            public Object coalescingKey() {
+                return pipelineKey(event.pipelineName());
+            }
         });
     }
+
+    private static Object pipelineKey(String pipelineName) {
+        return List.of("pipeline", new CaseInsensitiveString(pipelineName));
+    }
 }
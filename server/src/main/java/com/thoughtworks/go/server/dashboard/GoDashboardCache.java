@@ -19,10 +19,8 @@ import com.thoughtworks.go.config.CaseInsensitiveString;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /* Understands how to cache dashboard statuses, for every pipeline. */
 @Component
@@ -31,31 +29,36 @@ public class GoDashboardCache {
     /**
      * Assumption: The put() and replaceAllEntriesInCacheWith() methods, which change this cache,
      * will always be called from the same thread (queueProcessor in GoDashboardActivityListener). Even get() will be.
-     * So, not surrounding it with a synchronizedMap. Also, uses {@link LinkedHashMap} to preserve insertion order. That
-     * order is not very important in this case, but it comes for free (almost) because of the map.
+     * So, not guarding it. Each change creates a new {@link PersistentHashMap} sharing almost all of its structure with
+     * the previous one, which is what lets every change publish a snapshot without copying all the pipelines.
      */
-    private final Map<CaseInsensitiveString, GoDashboardPipeline> cache = new LinkedHashMap<>();
+    private PersistentHashMap<CaseInsensitiveString, GoDashboardPipeline> cache = PersistentHashMap.empty();
+
+    private final List<GoDashboardCacheListener> listeners = new CopyOnWriteArrayList<>();
 
     private volatile GoDashboardPipelines dashboardPipelines;
 
     @Autowired
     public GoDashboardCache(TimeStampBasedCounter timeStampBasedCounter) {
         this.timeStampBasedCounter = timeStampBasedCounter;
-        dashboardPipelines = new GoDashboardPipelines(new HashMap<>(), timeStampBasedCounter);
+        dashboardPipelines = new GoDashboardPipelines(cache, timeStampBasedCounter);
     }
 
     public void put(GoDashboardPipeline pipeline) {
-        cache.put(pipeline.name(), pipeline);
+        cache = cache.put(pipeline.name(), pipeline);
         cacheHasChanged();
     }
 
     public void remove(CaseInsensitiveString pipelineName) {
-        cache.remove(pipelineName);
+        PersistentHashMap<CaseInsensitiveString, GoDashboardPipeline> withoutPipeline = cache.remove(pipelineName);
+        if (withoutPipeline != cache) {
+            cache = withoutPipeline;
+            cacheHasChanged();
+        }
     }
 
     public void replaceAllEntriesInCacheWith(List<GoDashboardPipeline> newPipelinesToCache) {
-        cache.clear();
-        cache.putAll(createMapFor(newPipelinesToCache));
+        cache = createMapFor(newPipelinesToCache);
         cacheHasChanged();
     }
 
@@ -63,14 +66,21 @@ public class GoDashboardCache {
         return dashboardPipelines;
     }
 
+    public void addListener(GoDashboardCacheListener listener) {
+        listeners.add(listener);
+    }
+
     private void cacheHasChanged() {
-        dashboardPipelines = new GoDashboardPipelines(new HashMap<>(cache), timeStampBasedCounter);
+        dashboardPipelines = new GoDashboardPipelines(cache, timeStampBasedCounter);
+        for (GoDashboardCacheListener listener : listeners) {
+            listener.cacheChanged(dashboardPipelines);
+        }
     }
 
-    private Map<CaseInsensitiveString, GoDashboardPipeline> createMapFor(List<GoDashboardPipeline> pipelines) {
-        Map<CaseInsensitiveString, GoDashboardPipeline> result = new LinkedHashMap<>();
+    private PersistentHashMap<CaseInsensitiveString, GoDashboardPipeline> createMapFor(List<GoDashboardPipeline> pipelines) {
+        PersistentHashMap<CaseInsensitiveString, GoDashboardPipeline> result = PersistentHashMap.empty();
         for (GoDashboardPipeline pipeline : pipelines) {
-            result.put(pipeline.name(), pipeline);
+            result = result.put(pipeline.name(), pipeline);
         }
         return result;
     }
@@ -0,0 +1,24 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.dashboard;
+
+/* Understands being told whenever the dashboard cache changes. */
+public interface GoDashboardCacheListener {
+    /**
+     * Called on the thread which changed the cache, so implementations should hand off any expensive work.
+     */
+    void cacheChanged(GoDashboardPipelines allEntries);
+}
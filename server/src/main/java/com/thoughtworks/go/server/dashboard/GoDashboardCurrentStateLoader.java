@@ -28,6 +28,7 @@ import com.thoughtworks.go.domain.PipelinePauseInfo;
 import com.thoughtworks.go.presentation.pipelinehistory.PipelineInstanceModel;
 import com.thoughtworks.go.presentation.pipelinehistory.PipelineInstanceModels;
 import com.thoughtworks.go.presentation.pipelinehistory.PipelineModel;
+import com.thoughtworks.go.presentation.pipelinehistory.StageInstanceModel;
 import com.thoughtworks.go.presentation.pipelinehistory.StageInstanceModels;
 import com.thoughtworks.go.server.dao.PipelineDao;
 import com.thoughtworks.go.server.scheduling.TriggerMonitor;
@@ -35,6 +36,8 @@ import com.thoughtworks.go.server.service.PipelineLockService;
 import com.thoughtworks.go.server.service.PipelinePauseService;
 import com.thoughtworks.go.server.service.PipelineUnlockApiService;
 import com.thoughtworks.go.server.service.SchedulingCheckerService;
+import com.thoughtworks.go.server.service.result.HttpOperationResult;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.collections4.SetUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,12 +45,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 import static com.thoughtworks.go.config.CaseInsensitiveString.str;
 import static com.thoughtworks.go.domain.buildcause.BuildCause.createWithEmptyModifications;
 import static com.thoughtworks.go.presentation.pipelinehistory.PipelineInstanceModel.createEmptyPipelineInstanceModel;
 import static com.thoughtworks.go.presentation.pipelinehistory.PipelineInstanceModel.createPreparingToSchedule;
 import static com.thoughtworks.go.presentation.pipelinehistory.PipelineInstanceModels.createPipelineInstanceModels;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /* Understands the current state of a pipeline, which is to be shown on the dashboard. */
 @Component
@@ -61,6 +67,9 @@ public class GoDashboardCurrentStateLoader {
     private final SchedulingCheckerService schedulingCheckerService;
     private final GoConfigPipelinePermissionsAuthority permissionsAuthority;
     private final TimeStampBasedCounter timeStampBasedCounter;
+    private final SystemEnvironment systemEnvironment;
+    private ForkJoinPool bulkLoadPool;
+    private volatile Map<String, Object> lastBulkLoadStatistics = Map.of();
     private boolean everLoadedCurrentState = false;
     private PipelineInstanceModels historyForDashboard = PipelineInstanceModels.createPipelineInstanceModels();
     private Set<CaseInsensitiveString> lastKnownPipelineNames = new HashSet<>();
@@ -69,7 +78,8 @@ public class GoDashboardCurrentStateLoader {
     public GoDashboardCurrentStateLoader(PipelineDao pipelineDao, TriggerMonitor triggerMonitor,
                                          PipelinePauseService pipelinePauseService, PipelineLockService pipelineLockService,
                                          PipelineUnlockApiService pipelineUnlockApiService, SchedulingCheckerService schedulingCheckerService,
-                                         GoConfigPipelinePermissionsAuthority permissionsAuthority, TimeStampBasedCounter timeStampBasedCounter) {
+                                         GoConfigPipelinePermissionsAuthority permissionsAuthority, TimeStampBasedCounter timeStampBasedCounter,
+                                         SystemEnvironment systemEnvironment) {
         this.pipelineDao = pipelineDao;
         this.triggerMonitor = triggerMonitor;
         this.pipelinePauseService = pipelinePauseService;
@@ -78,6 +88,7 @@ public class GoDashboardCurrentStateLoader {
         this.schedulingCheckerService = schedulingCheckerService;
         this.permissionsAuthority = permissionsAuthority;
         this.timeStampBasedCounter = timeStampBasedCounter;
+        this.systemEnvironment = systemEnvironment;
     }
 
     public List<GoDashboardPipeline> allPipelines(CruiseConfig config) {
@@ -101,22 +112,93 @@ public class GoDashboardCurrentStateLoader {
         LOGGER.debug("Loading permissions from authority");
         final Map<CaseInsensitiveString, Permissions> pipelinesAndTheirPermissions = permissionsAuthority.pipelinesAndTheirPermissions();
 
-        final List<GoDashboardPipeline> pipelines = new ArrayList<>(1024);
+        final List<PipelineInGroup> pipelinesToLoad = new ArrayList<>(1024);
+        config.accept((PipelineGroupVisitor) group -> group.accept(pipelineConfig -> pipelinesToLoad.add(new PipelineInGroup(pipelineConfig, group))));
 
         LOGGER.debug("Populating dashboard pipelines");
-        config.accept((PipelineGroupVisitor) group -> group.accept(pipelineConfig -> {
+        List<GoDashboardPipeline> pipelines = systemEnvironment.isDashboardBulkLoadEnabled()
+                ? loadInBulk(pipelinesToLoad, pipelinesAndTheirPermissions)
+                : loadOneByOne(pipelinesToLoad, pipelinesAndTheirPermissions);
+        LOGGER.debug("Done populating dashboard pipelines");
+        this.everLoadedCurrentState = true;
+        return pipelines;
+    }
+
+    private List<GoDashboardPipeline> loadOneByOne(List<PipelineInGroup> pipelinesToLoad, Map<CaseInsensitiveString, Permissions> pipelinesAndTheirPermissions) {
+        CurrentState currentState = new CurrentStateOfEachPipeline(historyForDashboard);
+        List<GoDashboardPipeline> pipelines = new ArrayList<>(pipelinesToLoad.size());
+        for (PipelineInGroup pipeline : pipelinesToLoad) {
             long start = System.currentTimeMillis();
-            Permissions permissions = permissionsFor(pipelineConfig, pipelinesAndTheirPermissions);
+            Permissions permissions = permissionsFor(pipeline.pipelineConfig, pipelinesAndTheirPermissions);
 
-            pipelines.add(createGoDashboardPipeline(pipelineConfig, permissions, historyForDashboard, group));
+            pipelines.add(createGoDashboardPipeline(pipeline.pipelineConfig, permissions, currentState, pipeline.group));
 
-            LOGGER.debug("It took {}ms to process pipeline {}", (System.currentTimeMillis() - start), pipelineConfig.getName());
-        }));
-        LOGGER.debug("Done populating dashboard pipelines");
-        this.everLoadedCurrentState = true;
+            LOGGER.debug("It took {}ms to process pipeline {}", (System.currentTimeMillis() - start), pipeline.pipelineConfig.getName());
+        }
         return pipelines;
     }
 
+    /**
+     * Fetches the pause and lock state of all pipelines, and what else decides whether they can be triggered, up front
+     * instead of asking for it pipeline by pipeline, and then builds the pipelines on a bounded pool. The order of the pipelines is the same as when loading one by one.
+     */
+    private List<GoDashboardPipeline> loadInBulk(List<PipelineInGroup> pipelinesToLoad, Map<CaseInsensitiveString, Permissions> pipelinesAndTheirPermissions) {
+        long start = System.nanoTime();
+        Set<CaseInsensitiveString> pausedPipelines = new HashSet<>(CaseInsensitiveString.list(pipelinePauseService.pausedPipelineNames()));
+        Set<CaseInsensitiveString> lockedPipelines = new HashSet<>(CaseInsensitiveString.list(pipelineLockService.lockedPipelines()));
+        Set<CaseInsensitiveString> pipelinesAboutToBeTriggered = schedulingCheckerService.pipelinesAboutToBeTriggered();
+        boolean canSchedule = schedulingCheckerService.canSchedule(new HttpOperationResult());
+        long statesLoadedAt = System.nanoTime();
+
+        CurrentState currentState = new BulkLoadedCurrentState(indexByPipelineName(historyForDashboard), pausedPipelines, lockedPipelines, pipelinesAboutToBeTriggered, canSchedule);
+        long historyIndexedAt = System.nanoTime();
+
+        List<GoDashboardPipeline> pipelines = bulkLoadPool().submit(() -> pipelinesToLoad.parallelStream()
+                .map(pipeline -> createGoDashboardPipeline(pipeline.pipelineConfig, permissionsFor(pipeline.pipelineConfig, pipelinesAndTheirPermissions), currentState, pipeline.group))
+                .toList()).join();
+        long builtAt = System.nanoTime();
+
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("Pipelines", pipelines.size());
+        statistics.put("Paused pipelines", pausedPipelines.size());
+        statistics.put("Locked pipelines", lockedPipelines.size());
+        statistics.put("Loading pause and lock states (ms)", NANOSECONDS.toMillis(statesLoadedAt - start));
+        statistics.put("Indexing history (ms)", NANOSECONDS.toMillis(historyIndexedAt - statesLoadedAt));
+        statistics.put("Building pipelines (ms)", NANOSECONDS.toMillis(builtAt - historyIndexedAt));
+        statistics.put("Total (ms)", NANOSECONDS.toMillis(builtAt - start));
+        lastBulkLoadStatistics = Collections.unmodifiableMap(statistics);
+        LOGGER.info("[Dashboard] Loaded {} pipelines in bulk: {}", pipelines.size(), statistics);
+
+        return new ArrayList<>(pipelines);
+    }
+
+    public Map<String, Object> loadStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("Mode", systemEnvironment.isDashboardBulkLoadEnabled() ? "Bulk" : "One pipeline at a time");
+        statistics.put("Parallelism", systemEnvironment.getDashboardLoaderParallelism());
+        statistics.put("Last bulk load", lastBulkLoadStatistics);
+        return statistics;
+    }
+
+    private ForkJoinPool bulkLoadPool() {
+        if (bulkLoadPool == null) {
+            bulkLoadPool = new ForkJoinPool(systemEnvironment.getDashboardLoaderParallelism(), pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("dashboard-loader-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+        return bulkLoadPool;
+    }
+
+    private Map<CaseInsensitiveString, PipelineInstanceModels> indexByPipelineName(PipelineInstanceModels history) {
+        Map<CaseInsensitiveString, PipelineInstanceModels> index = new HashMap<>();
+        for (PipelineInstanceModel instance : history) {
+            index.computeIfAbsent(new CaseInsensitiveString(instance.getName()), name -> createPipelineInstanceModels()).add(instance);
+        }
+        return index;
+    }
+
     public boolean hasEverLoadedCurrentState() {
         return everLoadedCurrentState;
     }
@@ -135,7 +217,7 @@ public class GoDashboardCurrentStateLoader {
         PipelineInstanceModels pipelineHistoryForDashboard = loadHistoryForPipelines(pipelineNames);
         syncHistoryForDashboard(pipelineHistoryForDashboard, pipelineConfig.name());
         Permissions permissions = permissionsAuthority.permissionsForPipeline(pipelineConfig.name());
-        return createGoDashboardPipeline(pipelineConfig, permissions, pipelineHistoryForDashboard, groupConfig);
+        return createGoDashboardPipeline(pipelineConfig, permissions, new CurrentStateOfEachPipeline(pipelineHistoryForDashboard), groupConfig);
     }
 
     private void syncHistoryForDashboard(PipelineInstanceModels pipelineHistoryForDashboard, final CaseInsensitiveString pipelineName) {
@@ -144,29 +226,29 @@ public class GoDashboardCurrentStateLoader {
         lastKnownPipelineNames.add(pipelineName);
     }
 
-    private GoDashboardPipeline createGoDashboardPipeline(PipelineConfig pipelineConfig, Permissions permissions, PipelineInstanceModels historyForDashboard, PipelineConfigs group) {
-        PipelineModel pipelineModel = pipelineModelFor(pipelineConfig, historyForDashboard);
+    private GoDashboardPipeline createGoDashboardPipeline(PipelineConfig pipelineConfig, Permissions permissions, CurrentState currentState, PipelineConfigs group) {
+        PipelineModel pipelineModel = pipelineModelFor(pipelineConfig, currentState);
         return new GoDashboardPipeline(pipelineModel, permissions, group.getGroup(), timeStampBasedCounter, pipelineConfig);
     }
 
-    private PipelineModel pipelineModelFor(PipelineConfig pipelineConfig, PipelineInstanceModels historyForDashboard) {
+    private PipelineModel pipelineModelFor(PipelineConfig pipelineConfig, CurrentState currentState) {
         String pipelineName = str(pipelineConfig.name());
 
-        PipelinePauseInfo pauseInfo = pipelinePauseService.pipelinePauseInfo(pipelineName);
-        boolean canBeForced = schedulingCheckerService.pipelineCanBeTriggeredManually(pipelineConfig);
+        PipelinePauseInfo pauseInfo = currentState.pauseInfo(pipelineConfig);
+        boolean canBeForced = currentState.canBeTriggeredManually(pipelineConfig);
 
         PipelineModel pipelineModel = new PipelineModel(pipelineName, canBeForced, true, pauseInfo);
         pipelineModel.updateAdministrability(pipelineConfig.isLocal());
 
-        pipelineModel.addPipelineInstances(instancesFor(pipelineConfig, historyForDashboard));
+        pipelineModel.addPipelineInstances(instancesFor(pipelineConfig, currentState));
         return pipelineModel;
     }
 
-    private PipelineInstanceModels instancesFor(PipelineConfig pipelineConfig, PipelineInstanceModels historyForDashboard) {
-        PipelineInstanceModels pims = findPIMsWithFallbacks(pipelineConfig, historyForDashboard);
+    private PipelineInstanceModels instancesFor(PipelineConfig pipelineConfig, CurrentState currentState) {
+        PipelineInstanceModels pims = findPIMsWithFallbacks(pipelineConfig, currentState);
 
-        boolean isCurrentlyLocked = pipelineLockService.isLocked(str(pipelineConfig.name()));
-        boolean isUnlockable = pipelineUnlockApiService.isUnlockable(str(pipelineConfig.name()));
+        boolean isCurrentlyLocked = currentState.isLocked(pipelineConfig);
+        boolean isUnlockable = currentState.isUnlockable(pipelineConfig);
 
         for (PipelineInstanceModel instanceModel : pims) {
             populateStagesWhichHaventRunFromConfig(instanceModel, pipelineConfig);
@@ -176,10 +258,10 @@ public class GoDashboardCurrentStateLoader {
         return pims;
     }
 
-    private PipelineInstanceModels findPIMsWithFallbacks(PipelineConfig pipelineConfig, PipelineInstanceModels historyForDashboard) {
+    private PipelineInstanceModels findPIMsWithFallbacks(PipelineConfig pipelineConfig, CurrentState currentState) {
         String pipelineName = str(pipelineConfig.name());
 
-        PipelineInstanceModels pipelinesToShow = historyForDashboard.findAll(pipelineName);
+        PipelineInstanceModels pipelinesToShow = currentState.history(pipelineConfig);
         if (!pipelinesToShow.isEmpty()) {
             return pipelinesToShow;
         }
@@ -218,4 +300,125 @@ public class GoDashboardCurrentStateLoader {
         lastKnownPipelineNames.remove(pipeline);
         historyForDashboard.removeIf(pipelineInstanceModel -> pipeline.equals(new CaseInsensitiveString(pipelineInstanceModel.getName())));
     }
+
+    private static class PipelineInGroup {
+        private final PipelineConfig pipelineConfig;
+        private final PipelineConfigs group;
+
+        private PipelineInGroup(PipelineConfig pipelineConfig, PipelineConfigs group) {
+            this.pipelineConfig = pipelineConfig;
+            this.group = group;
+        }
+    }
+
+    /* Understands where the current state of a pipeline, shown on its dashboard entry, comes from. */
+    private interface CurrentState {
+        PipelineInstanceModels history(PipelineConfig pipelineConfig);
+
+        PipelinePauseInfo pauseInfo(PipelineConfig pipelineConfig);
+
+        boolean isLocked(PipelineConfig pipelineConfig);
+
+        boolean isUnlockable(PipelineConfig pipelineConfig);
+
+        boolean canBeTriggeredManually(PipelineConfig pipelineConfig);
+    }
+
+    private class CurrentStateOfEachPipeline implements CurrentState {
+        private final PipelineInstanceModels history;
+
+        private CurrentStateOfEachPipeline(PipelineInstanceModels history) {
+            this.history = history;
+        }
+
+        @Override
+        public PipelineInstanceModels history(PipelineConfig pipelineConfig) {
+            return history.findAll(str(pipelineConfig.name()));
+        }
+
+        @Override
+        public PipelinePauseInfo pauseInfo(PipelineConfig pipelineConfig) {
+            return pipelinePauseService.pipelinePauseInfo(str(pipelineConfig.name()));
+        }
+
+        @Override
+        public boolean isLocked(PipelineConfig pipelineConfig) {
+            return pipelineLockService.isLocked(str(pipelineConfig.name()));
+        }
+
+        @Override
+        public boolean isUnlockable(PipelineConfig pipelineConfig) {
+            return pipelineUnlockApiService.isUnlockable(str(pipelineConfig.name()));
+        }
+
+        @Override
+        public boolean canBeTriggeredManually(PipelineConfig pipelineConfig) {
+            return schedulingCheckerService.pipelineCanBeTriggeredManually(pipelineConfig);
+        }
+    }
+
+    /**
+     * Only the few paused or locked pipelines need their details looked up; every other pipeline is known to be neither.
+     * Whether a pipeline can be triggered manually is worked out from what was loaded up front, with the same checks as
+     * {@link SchedulingCheckerService#pipelineCanBeTriggeredManually}. Its first stage is active when the history, which
+     * has every building pipeline in it, says so.
+     */
+    private class BulkLoadedCurrentState extends CurrentStateOfEachPipeline {
+        private final Map<CaseInsensitiveString, PipelineInstanceModels> historyByPipelineName;
+        private final Set<CaseInsensitiveString> pausedPipelines;
+        private final Set<CaseInsensitiveString> lockedPipelines;
+        private final Set<CaseInsensitiveString> pipelinesAboutToBeTriggered;
+        private final boolean canSchedule;
+
+        private BulkLoadedCurrentState(Map<CaseInsensitiveString, PipelineInstanceModels> historyByPipelineName,
+                                       Set<CaseInsensitiveString> pausedPipelines, Set<CaseInsensitiveString> lockedPipelines,
+                                       Set<CaseInsensitiveString> pipelinesAboutToBeTriggered, boolean canSchedule) {
+            super(createPipelineInstanceModels());
+            this.historyByPipelineName = historyByPipelineName;
+            this.pausedPipelines = pausedPipelines;
+            this.lockedPipelines = lockedPipelines;
+            this.pipelinesAboutToBeTriggered = pipelinesAboutToBeTriggered;
+            this.canSchedule = canSchedule;
+        }
+
+        @Override
+        public PipelineInstanceModels history(PipelineConfig pipelineConfig) {
+            return historyByPipelineName.getOrDefault(pipelineConfig.name(), createPipelineInstanceModels());
+        }
+
+        @Override
+        public PipelinePauseInfo pauseInfo(PipelineConfig pipelineConfig) {
+            return pausedPipelines.contains(pipelineConfig.name()) ? super.pauseInfo(pipelineConfig) : PipelinePauseInfo.notPaused();
+        }
+
+        @Override
+        public boolean isLocked(PipelineConfig pipelineConfig) {
+            return lockedPipelines.contains(pipelineConfig.name());
+        }
+
+        @Override
+        public boolean isUnlockable(PipelineConfig pipelineConfig) {
+            return isLocked(pipelineConfig) && super.isUnlockable(pipelineConfig);
+        }
+
+        @Override
+        public boolean canBeTriggeredManually(PipelineConfig pipelineConfig) {
+            return canSchedule
+                    && !pipelinesAboutToBeTriggered.contains(pipelineConfig.name())
+                    && !pausedPipelines.contains(pipelineConfig.name())
+                    && !isLocked(pipelineConfig)
+                    && !isFirstStageActive(pipelineConfig);
+        }
+
+        private boolean isFirstStageActive(PipelineConfig pipelineConfig) {
+            String firstStageName = str(pipelineConfig.getFirstStageConfig().name());
+            for (PipelineInstanceModel instance : history(pipelineConfig)) {
+                StageInstanceModel firstStage = instance.getStageHistory().byName(firstStageName);
+                if (firstStage != null && firstStage.getState().isActive()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 }
@@ -18,14 +18,18 @@ package com.thoughtworks.go.server.dashboard;
 import com.thoughtworks.go.config.CaseInsensitiveString;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public class GoDashboardPipelines {
-    private final Map<CaseInsensitiveString, GoDashboardPipeline> pipelines;
+    private final PersistentHashMap<CaseInsensitiveString, GoDashboardPipeline> pipelines;
     private final long lastUpdatedTimeStamp;
 
-    public GoDashboardPipelines(HashMap<CaseInsensitiveString, GoDashboardPipeline> pipelines, TimeStampBasedCounter timeStampBasedCounter) {
+    public GoDashboardPipelines(Map<CaseInsensitiveString, GoDashboardPipeline> pipelines, TimeStampBasedCounter timeStampBasedCounter) {
+        this(PersistentHashMap.from(pipelines), timeStampBasedCounter);
+    }
+
+    GoDashboardPipelines(PersistentHashMap<CaseInsensitiveString, GoDashboardPipeline> pipelines, TimeStampBasedCounter timeStampBasedCounter) {
         this.pipelines = pipelines;
         this.lastUpdatedTimeStamp = timeStampBasedCounter.getNext();
     }
@@ -45,5 +49,11 @@ public class GoDashboardPipelines {
     public boolean isEmpty() {
         return pipelines.isEmpty();
     }
-}
 
+    /**
+     * Reports the pipelines which were added or replaced, and the ones which were removed, since the previous snapshot.
+     */
+    public void changesSince(GoDashboardPipelines previous, Consumer<GoDashboardPipeline> changed, Consumer<GoDashboardPipeline> removed) {
+        pipelines.diff(previous.pipelines, changed, removed);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.dashboard;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.PluginRoleConfig;
+import com.thoughtworks.go.config.PluginRoleUsersStore;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Understands which pipelines on the dashboard each user can see, so that showing the dashboard to a user only needs to
+ * look at the pipelines they can see, rather than at the permissions of every pipeline.
+ * <p>
+ * What a user can see is worked out the first time they ask for it. After that, it is brought up-to-date with the
+ * dashboard cache whenever they ask again, by looking only at the pipelines which have changed since. Pipelines whose
+ * permissions and group have not changed are not checked again. The plugin roles a user was in are remembered along
+ * with it, and everything is worked out again once those change.
+ */
+@Component
+public class GoDashboardVisibility {
+    static final int MAX_USERS = 10_000;
+
+    private final Map<String, Visible> visibleToUsers = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Visible> eldest) {
+            return size() > MAX_USERS;
+        }
+    };
+
+    public Visible visibleTo(String username, GoDashboardPipelines pipelines) {
+        String key = username.toLowerCase();
+        Set<PluginRoleConfig> roles = PluginRoleUsersStore.instance().rolesOf(username);
+
+        Visible known;
+        synchronized (visibleToUsers) {
+            known = visibleToUsers.get(key);
+        }
+        if (known != null && known.pipelines == pipelines && known.roles.equals(roles)) {
+            return known;
+        }
+
+        Visible visible = known == null || !known.roles.equals(roles) ? Visible.of(username, roles, pipelines) : known.updatedTo(username, pipelines);
+        synchronized (visibleToUsers) {
+            Visible latest = visibleToUsers.get(key);
+            // another request by the same user may have got to a newer dashboard already
+            if (latest == null || latest.pipelines.lastUpdatedTimeStamp() <= pipelines.lastUpdatedTimeStamp()) {
+                visibleToUsers.put(key, visible);
+            }
+        }
+        return visible;
+    }
+
+    /* The pipelines a user can see, by their group, in one snapshot of the dashboard cache. Never changed once made. */
+    public static class Visible {
+        private final GoDashboardPipelines pipelines;
+        private final Set<PluginRoleConfig> roles;
+        private final Map<String, Set<CaseInsensitiveString>> byGroup;
+
+        private Visible(GoDashboardPipelines pipelines, Set<PluginRoleConfig> roles, Map<String, Set<CaseInsensitiveString>> byGroup) {
+            this.pipelines = pipelines;
+            this.roles = roles;
+            this.byGroup = byGroup;
+        }
+
+        private static Visible of(String username, Set<PluginRoleConfig> roles, GoDashboardPipelines pipelines) {
+            Map<String, Set<CaseInsensitiveString>> byGroup = new HashMap<>();
+            for (GoDashboardPipeline pipeline : pipelines.getPipelines()) {
+                if (pipeline.canBeViewedBy(username)) {
+                    byGroup.computeIfAbsent(pipeline.groupName(), group -> new HashSet<>()).add(pipeline.name());
+                }
+            }
+            return new Visible(pipelines, roles, byGroup);
+        }
+
+        private Visible updatedTo(String username, GoDashboardPipelines newer) {
+            Map<String, Set<CaseInsensitiveString>> byGroup = new HashMap<>(this.byGroup);
+            Set<String> copiedGroups = new HashSet<>();
+
+            newer.changesSince(pipelines, changed -> {
+                GoDashboardPipeline previous = pipelines.find(changed.name());
+                if (previous != null) {
+                    if (Objects.equals(previous.groupName(), changed.groupName()) && Objects.equals(previous.permissions(), changed.permissions())) {
+                        return;
+                    }
+                    groupToChange(byGroup, copiedGroups, previous.groupName()).remove(previous.name());
+                }
+                if (changed.canBeViewedBy(username)) {
+                    groupToChange(byGroup, copiedGroups, changed.groupName()).add(changed.name());
+                }
+            }, removed -> groupToChange(byGroup, copiedGroups, removed.groupName()).remove(removed.name()));
+
+            byGroup.values().removeIf(Set::isEmpty);
+            return new Visible(newer, roles, byGroup);
+        }
+
+        /* Copies the pipelines of a group the first time they change, since the ones before may still be in use. */
+        private static Set<CaseInsensitiveString> groupToChange(Map<String, Set<CaseInsensitiveString>> byGroup, Set<String> copiedGroups, String group) {
+            if (copiedGroups.add(group)) {
+                return byGroup.compute(group, (name, pipelines) -> pipelines == null ? new HashSet<>() : new HashSet<>(pipelines));
+            }
+            return byGroup.get(group);
+        }
+
+        public Set<CaseInsensitiveString> inGroup(String group) {
+            return Collections.unmodifiableSet(byGroup.getOrDefault(group, Collections.emptySet()));
+        }
+
+        public boolean contains(GoDashboardPipeline pipeline) {
+            return byGroup.getOrDefault(pipeline.groupName(), Collections.emptySet()).contains(pipeline.name());
+        }
+    }
+}
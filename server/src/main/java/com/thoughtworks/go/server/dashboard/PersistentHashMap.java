@@ -0,0 +1,416 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.dashboard;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * An immutable hash array mapped trie. Every update returns a new map which shares all but the O(log n) nodes on the
+ * path to the changed key with the map it came from, so publishing a new dashboard snapshot after each pipeline change
+ * no longer copies every pipeline.
+ */
+final class PersistentHashMap<K, V> {
+    private static final int BITS_PER_LEVEL = 5;
+    private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(new BitmapNode<>(0, new Node[0]), 0);
+
+    private final BitmapNode<K, V> root;
+    private final int size;
+
+    private PersistentHashMap(BitmapNode<K, V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    static <K, V> PersistentHashMap<K, V> from(Map<K, V> map) {
+        PersistentHashMap<K, V> result = empty();
+        for (Map.Entry<K, V> entry : map.entrySet()) {
+            result = result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    V get(Object key) {
+        return root.get(hash(key), 0, key);
+    }
+
+    PersistentHashMap<K, V> put(K key, V value) {
+        Change change = new Change();
+        Node<K, V> newRoot = root.put(hash(key), 0, key, value, change);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>((BitmapNode<K, V>) newRoot, change.sizeDelta + size);
+    }
+
+    PersistentHashMap<K, V> remove(Object key) {
+        Change change = new Change();
+        Node<K, V> newRoot = root.remove(hash(key), 0, key, change);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? empty() : new PersistentHashMap<>((BitmapNode<K, V>) newRoot, change.sizeDelta + size);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Reports the values which are not identical in both maps. Subtrees shared with the previous map are skipped without
+     * being looked at, so the cost depends on how much has changed rather than on the size of the maps.
+     */
+    void diff(PersistentHashMap<K, V> previous, Consumer<V> changed, Consumer<V> removed) {
+        diff(previous.root, root, changed, removed);
+    }
+
+    private static <K, V> void diff(Node<K, V> previous, Node<K, V> current, Consumer<V> changed, Consumer<V> removed) {
+        if (previous == current) {
+            return;
+        }
+        if (previous == null) {
+            current.forEachLeaf(leaf -> changed.accept(leaf.value));
+            return;
+        }
+        if (current == null) {
+            previous.forEachLeaf(leaf -> removed.accept(leaf.value));
+            return;
+        }
+        if (previous instanceof BitmapNode<K, V> previousBranch && current instanceof BitmapNode<K, V> currentBranch) {
+            for (int bit = 1, remaining = previousBranch.bitmap | currentBranch.bitmap; remaining != 0; bit <<= 1) {
+                if ((remaining & bit) != 0) {
+                    diff(previousBranch.child(bit), currentBranch.child(bit), changed, removed);
+                    remaining &= ~bit;
+                }
+            }
+            return;
+        }
+
+        // a leaf or a collision node has replaced a branch, or the other way round; there are only a few entries here
+        Map<Object, V> previousValues = new HashMap<>();
+        previous.forEachLeaf(leaf -> previousValues.put(leaf.key, leaf.value));
+        current.forEachLeaf(leaf -> {
+            if (previousValues.remove(leaf.key) != leaf.value) {
+                changed.accept(leaf.value);
+            }
+        });
+        previousValues.values().forEach(removed);
+    }
+
+    private static int hash(Object key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int bitFor(int hash, int shift) {
+        return 1 << ((hash >>> shift) & LEVEL_MASK);
+    }
+
+    private static class Change {
+        private int sizeDelta;
+    }
+
+    private abstract static class Node<K, V> {
+        abstract V get(int hash, int shift, Object key);
+
+        abstract Node<K, V> put(int hash, int shift, K key, V value, Change change);
+
+        /**
+         * @return the node without the key, or null when nothing is left in it
+         */
+        abstract Node<K, V> remove(int hash, int shift, Object key, Change change);
+
+        abstract void forEachLeaf(Consumer<Leaf<K, V>> consumer);
+    }
+
+    private static class BitmapNode<K, V> extends Node<K, V> {
+        private final int bitmap;
+        private final Node<K, V>[] children;
+
+        private BitmapNode(int bitmap, Node<K, V>[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <K, V> Node<K, V> branch(int shift, Node<K, V> first, int firstHash, Node<K, V> second, int secondHash) {
+            int firstBit = bitFor(firstHash, shift);
+            int secondBit = bitFor(secondHash, shift);
+            if (firstBit == secondBit) {
+                return new BitmapNode<>(firstBit, new Node[]{branch(shift + BITS_PER_LEVEL, first, firstHash, second, secondHash)});
+            }
+            Node<K, V>[] children = Integer.compareUnsigned(firstBit, secondBit) < 0 ? new Node[]{first, second} : new Node[]{second, first};
+            return new BitmapNode<>(firstBit | secondBit, children);
+        }
+
+        private Node<K, V> child(int bit) {
+            return (bitmap & bit) == 0 ? null : children[index(bit)];
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        V get(int hash, int shift, Object key) {
+            Node<K, V> child = child(bitFor(hash, shift));
+            return child == null ? null : child.get(hash, shift + BITS_PER_LEVEL, key);
+        }
+
+        @Override
+        Node<K, V> put(int hash, int shift, K key, V value, Change change) {
+            int bit = bitFor(hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                change.sizeDelta = 1;
+                Node<K, V>[] newChildren = Arrays.copyOf(children, children.length + 1);
+                System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+                newChildren[index] = new Leaf<>(hash, key, value);
+                return new BitmapNode<>(bitmap | bit, newChildren);
+            }
+
+            Node<K, V> child = children[index];
+            Node<K, V> newChild = child.put(hash, shift + BITS_PER_LEVEL, key, value, change);
+            if (newChild == child) {
+                return this;
+            }
+            Node<K, V>[] newChildren = children.clone();
+            newChildren[index] = newChild;
+            return new BitmapNode<>(bitmap, newChildren);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Node<K, V> remove(int hash, int shift, Object key, Change change) {
+            int bit = bitFor(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+
+            int index = index(bit);
+            Node<K, V> child = children[index];
+            Node<K, V> newChild = child.remove(hash, shift + BITS_PER_LEVEL, key, change);
+            if (newChild == child) {
+                return this;
+            }
+            if (newChild != null) {
+                Node<K, V>[] newChildren = children.clone();
+                newChildren[index] = newChild;
+                return new BitmapNode<>(bitmap, newChildren);
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Node<K, V>[] newChildren = new Node[children.length - 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            return new BitmapNode<>(bitmap & ~bit, newChildren);
+        }
+
+        @Override
+        void forEachLeaf(Consumer<Leaf<K, V>> consumer) {
+            for (Node<K, V> child : children) {
+                child.forEachLeaf(consumer);
+            }
+        }
+    }
+
+    private static class Leaf<K, V> extends Node<K, V> {
+        private final int hash;
+        private final K key;
+        private final V value;
+
+        private Leaf(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        private boolean matches(int hash, Object key) {
+            return this.hash == hash && this.key.equals(key);
+        }
+
+        @Override
+        V get(int hash, int shift, Object key) {
+            return matches(hash, key) ? value : null;
+        }
+
+        @Override
+        Node<K, V> put(int hash, int shift, K key, V value, Change change) {
+            if (matches(hash, key)) {
+                return value == this.value ? this : new Leaf<>(hash, key, value);
+            }
+            change.sizeDelta = 1;
+            Leaf<K, V> added = new Leaf<>(hash, key, value);
+            if (hash == this.hash) {
+                return new CollisionNode<>(hash, List.of(this, added));
+            }
+            return BitmapNode.branch(shift, this, this.hash, added, hash);
+        }
+
+        @Override
+        Node<K, V> remove(int hash, int shift, Object key, Change change) {
+            if (matches(hash, key)) {
+                change.sizeDelta = -1;
+                return null;
+            }
+            return this;
+        }
+
+        @Override
+        void forEachLeaf(Consumer<Leaf<K, V>> consumer) {
+            consumer.accept(this);
+        }
+    }
+
+    /* Holds keys whose hashes are identical in all 32 bits, so no level of the trie can tell them apart. */
+    private static class CollisionNode<K, V> extends Node<K, V> {
+        private final int hash;
+        private final List<Leaf<K, V>> leaves;
+
+        private CollisionNode(int hash, List<Leaf<K, V>> leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < leaves.size(); i++) {
+                if (leaves.get(i).key.equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        V get(int hash, int shift, Object key) {
+            if (hash != this.hash) {
+                return null;
+            }
+            int index = indexOf(key);
+            return index < 0 ? null : leaves.get(index).value;
+        }
+
+        @Override
+        Node<K, V> put(int hash, int shift, K key, V value, Change change) {
+            Leaf<K, V> leaf = new Leaf<>(hash, key, value);
+            if (hash != this.hash) {
+                change.sizeDelta = 1;
+                return BitmapNode.branch(shift, this, this.hash, leaf, hash);
+            }
+
+            List<Leaf<K, V>> newLeaves = new ArrayList<>(leaves);
+            int index = indexOf(key);
+            if (index < 0) {
+                change.sizeDelta = 1;
+                newLeaves.add(leaf);
+            } else if (leaves.get(index).value == value) {
+                return this;
+            } else {
+                newLeaves.set(index, leaf);
+            }
+            return new CollisionNode<>(hash, List.copyOf(newLeaves));
+        }
+
+        @Override
+        Node<K, V> remove(int hash, int shift, Object key, Change change) {
+            int index = hash == this.hash ? indexOf(key) : -1;
+            if (index < 0) {
+                return this;
+            }
+            change.sizeDelta = -1;
+            if (leaves.size() == 2) {
+                return leaves.get(1 - index);
+            }
+            List<Leaf<K, V>> newLeaves = new ArrayList<>(leaves);
+            newLeaves.remove(index);
+            return new CollisionNode<>(hash, List.copyOf(newLeaves));
+        }
+
+        @Override
+        void forEachLeaf(Consumer<Leaf<K, V>> consumer) {
+            leaves.forEach(consumer);
+        }
+    }
+
+    private static class ValueIterator<K, V> implements Iterator<V> {
+        private final Deque<Node<K, V>> pending = new ArrayDeque<>();
+        private Leaf<K, V> next;
+
+        private ValueIterator(Node<K, V> root) {
+            pending.push(root);
+            next = advance();
+        }
+
+        private Leaf<K, V> advance() {
+            while (!pending.isEmpty()) {
+                Node<K, V> node = pending.pop();
+                if (node instanceof Leaf<K, V> leaf) {
+                    return leaf;
+                }
+                if (node instanceof BitmapNode<K, V> branch) {
+                    for (int i = branch.children.length - 1; i >= 0; i--) {
+                        pending.push(branch.children[i]);
+                    }
+                } else if (node instanceof CollisionNode<K, V> collision) {
+                    for (int i = collision.leaves.size() - 1; i >= 0; i--) {
+                        pending.push(collision.leaves.get(i));
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public V next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            V value = next.value;
+            next = advance();
+            return value;
+        }
+    }
+}
@@ -32,27 +32,42 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 
 import java.util.*;
-import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Understands a sorted collection of PipelineMaterialModification
+ * <p>
+ * The timeline of every pipeline is kept in its own segment, with its own lock, so that loading new instances of one
+ * pipeline never blocks anyone looking at the history of another. Updates themselves are serialized, since each of them
+ * carries on from the maximum id loaded by the previous one.
  */
 @Component
 public class PipelineTimeline {
     private static final Logger LOGGER = LoggerFactory.getLogger(PipelineTimeline.class);
 
-    private final Map<CaseInsensitiveString, TreeSet<PipelineTimelineEntry>> naturalOrderPmm;
-    private final Map<CaseInsensitiveString, ArrayList<PipelineTimelineEntry>> scheduleOrderPmm;
+    private final ConcurrentMap<CaseInsensitiveString, Segment> segments = new ConcurrentHashMap<>();
     private volatile long maximumId;
     private final PipelineRepository pipelineRepository;
     private TransactionTemplate transactionTemplate;
     private TransactionSynchronizationManager transactionSynchronizationManager;
     private TimelineUpdateListener[] listeners;
-    private final ReadWriteLock naturalOrderLock = new ReentrantReadWriteLock();
-    private final ReadWriteLock scheduleOrderLock = new ReentrantReadWriteLock();
+    private final ReentrantLock updateLock = new ReentrantLock();
     private final Cloner cloner = ClonerFactory.instance();
 
+    private final LongAdder contendedReads = new LongAdder();
+    private final LongAdder contendedWrites = new LongAdder();
+    private final LongAdder contendedUpdates = new LongAdder();
+    private final LongAdder contentionWaitNanos = new LongAdder();
+    private final AtomicLong updates = new AtomicLong();
+    private volatile long lastUpdateMillis;
+
     @Autowired
     public PipelineTimeline(PipelineRepository pipelineRepository, TransactionTemplate transactionTemplate, TransactionSynchronizationManager transactionSynchronizationManager,
                             @Autowired(required = false) TimelineUpdateListener... listeners) {
@@ -60,22 +75,20 @@ public class PipelineTimeline {
         this.transactionTemplate = transactionTemplate;
         this.transactionSynchronizationManager = transactionSynchronizationManager;
         this.listeners = ArrayUtils.nullToEmpty(listeners, TimelineUpdateListener[].class);
-        naturalOrderPmm = new HashMap<>();
-        scheduleOrderPmm = new HashMap<>();
         maximumId = -1;
     }
 
     @TestOnly
     public Collection<PipelineTimelineEntry> getEntriesFor(String pipelineName) {
-        naturalOrderLock.readLock().lock();
+        Segment segment = segments.get(new CaseInsensitiveString(pipelineName));
+        if (segment == null) {
+            return Collections.unmodifiableCollection(new TreeSet<>());
+        }
+        segment.lockForRead();
         try {
-            TreeSet<PipelineTimelineEntry> tree = naturalOrderPmm.get(new CaseInsensitiveString(pipelineName));
-            if (tree == null) {
-                tree = new TreeSet<>();
-            }
-            return Collections.unmodifiableCollection(cloner.deepClone(tree));
+            return Collections.unmodifiableCollection(cloner.deepClone(segment.naturalOrder));
         } finally {
-            naturalOrderLock.readLock().unlock();
+            segment.unlockForRead();
         }
     }
 
@@ -84,17 +97,23 @@ public class PipelineTimeline {
     }
 
     public void add(PipelineTimelineEntry pipelineTimelineEntry) {
-        CaseInsensitiveString pipelineName = new CaseInsensitiveString(pipelineTimelineEntry.getPipelineName());
-        initializedNaturalOrderCollection(pipelineName).add(pipelineTimelineEntry);
-        initializedScheduleOrderCollection(pipelineName).add(pipelineTimelineEntry);
-        pipelineTimelineEntry.setInsertedBefore(naturalOrderAfter(pipelineTimelineEntry));
-        pipelineTimelineEntry.setInsertedAfter(naturalOrderBefore(pipelineTimelineEntry));
-        pipelineTimelineEntry.updateNaturalOrder();
+        Segment segment = initializedSegment(new CaseInsensitiveString(pipelineTimelineEntry.getPipelineName()));
+        segment.lockForWrite();
+        try {
+            segment.naturalOrder.add(pipelineTimelineEntry);
+            segment.scheduleOrder.add(pipelineTimelineEntry);
+            pipelineTimelineEntry.setInsertedBefore(segment.naturalOrder.higher(pipelineTimelineEntry));
+            pipelineTimelineEntry.setInsertedAfter(segment.naturalOrder.lower(pipelineTimelineEntry));
+            pipelineTimelineEntry.updateNaturalOrder();
+        } finally {
+            segment.unlockForWrite();
+        }
         updateMaximumId(pipelineTimelineEntry.getId());
     }
 
     public void update() {
-        acquireAllWriteLocks();
+        lockForUpdate();
+        long startedAt = System.currentTimeMillis();
         try {
             final long maximumIdBeforeUpdate = maximumId;
             transactionTemplate.execute(transactionStatus -> {
@@ -117,9 +136,14 @@ public class PipelineTimeline {
                     }
 
                     private void rollbackNewEntryFor(PipelineTimelineEntry entry) {
-                        CaseInsensitiveString pipelineName = new CaseInsensitiveString(entry.getPipelineName());
-                        initializedNaturalOrderCollection(pipelineName).remove(entry);
-                        initializedScheduleOrderCollection(pipelineName).remove(entry);
+                        Segment segment = initializedSegment(new CaseInsensitiveString(entry.getPipelineName()));
+                        segment.lockForWrite();
+                        try {
+                            segment.naturalOrder.remove(entry);
+                            segment.scheduleOrder.remove(entry);
+                        } finally {
+                            segment.unlockForWrite();
+                        }
                     }
 
 
@@ -128,24 +152,20 @@ public class PipelineTimeline {
                 return null;
             });
         } finally {
-            releaseAllWriteLocks();
+            lastUpdateMillis = System.currentTimeMillis() - startedAt;
+            updates.incrementAndGet();
+            updateLock.unlock();
         }
     }
 
-
-    // --------------------------------------------------------
-    // These methods should acquire and release lock in corresponding order.
-    private void acquireAllWriteLocks() {
-        naturalOrderLock.writeLock().lock();
-        scheduleOrderLock.writeLock().lock();
-    }
-
-    //Release in the reverse of the acquired order.
-    private void releaseAllWriteLocks() {
-        scheduleOrderLock.writeLock().unlock();
-        naturalOrderLock.writeLock().unlock();
+    private void lockForUpdate() {
+        if (!updateLock.tryLock()) {
+            long startedAt = System.nanoTime();
+            updateLock.lock();
+            contendedUpdates.increment();
+            contentionWaitNanos.add(System.nanoTime() - startedAt);
+        }
     }
-    // --------------------------------------------------------
 
     private void notifyListeners(List<PipelineTimelineEntry> newEntries) {
         Map<CaseInsensitiveString, PipelineTimelineEntry> pipelineToOldestEntry = new HashMap<>();
@@ -160,7 +180,7 @@ public class PipelineTimeline {
         for (TimelineUpdateListener listener : listeners) {
             for (Map.Entry<CaseInsensitiveString, PipelineTimelineEntry> entry : pipelineToOldestEntry.entrySet()) {
                 try {
-                    listener.added(entry.getValue(), naturalOrderPmm.get(entry.getKey()));
+                    listener.added(entry.getValue(), initializedSegment(entry.getKey()).naturalOrder);
                 } catch (Exception e) {
                     LOGGER.warn("Ignoring exception when notifying listener: {}", listener, e);
                 }
@@ -172,11 +192,11 @@ public class PipelineTimeline {
      * This is called on system init and is called by Spring. Hence, this is not done in a transaction. At any other time, the method update should be used
      */
     public void updateTimelineOnInit() {
-        acquireAllWriteLocks();
+        lockForUpdate();
         try {
             pipelineRepository.updatePipelineTimeline(this, new ArrayList<>());
         } finally {
-            releaseAllWriteLocks();
+            updateLock.unlock();
         }
     }
 
@@ -186,20 +206,15 @@ public class PipelineTimeline {
      * @return PMM which was before the pipeline with this id at the time of insertion of the PTE with the id or null if there was nothing before this pipeline during insertion
      */
     public PipelineTimelineEntry runBefore(long id, final CaseInsensitiveString pipelineName) {
-        naturalOrderLock.readLock().lock();
+        Segment segment = segments.get(pipelineName);
+        if (segment == null) {
+            return null;
+        }
+        segment.lockForRead();
         try {
-            TreeSet<PipelineTimelineEntry> treeForPipeline = naturalOrderPmm.get(pipelineName);
-            if (treeForPipeline == null) {
-                return null;
-            }
-            for (PipelineTimelineEntry pipelineTimelineEntry : treeForPipeline) {
-                if (id == pipelineTimelineEntry.getId()) {
-                    return pipelineTimelineEntry.insertedAfter();
-                }
-            }
-            throw new RuntimeException("Cannot find pipeline with id: " + id);
+            return segment.entryWithId(id).insertedAfter();
         } finally {
-            naturalOrderLock.readLock().unlock();
+            segment.unlockForRead();
         }
     }
 
@@ -209,20 +224,15 @@ public class PipelineTimeline {
      * @return PMM which was after the pipeline with this id at the time of insertion of the PTE with the id or null if there was nothing after this pipeline during insertion
      */
     public PipelineTimelineEntry runAfter(long id, final CaseInsensitiveString pipelineName) {
-        naturalOrderLock.readLock().lock();
+        Segment segment = segments.get(pipelineName);
+        if (segment == null) {
+            return null;
+        }
+        segment.lockForRead();
         try {
-            TreeSet<PipelineTimelineEntry> treeForPipeline = naturalOrderPmm.get(pipelineName);
-            if (treeForPipeline == null) {
-                return null;
-            }
-            for (PipelineTimelineEntry pipelineTimelineEntry : treeForPipeline) {
-                if (id == pipelineTimelineEntry.getId()) {
-                    return pipelineTimelineEntry.insertedBefore();
-                }
-            }
-            throw new RuntimeException("Cannot find pipeline with id: " + id);
+            return segment.entryWithId(id).insertedBefore();
         } finally {
-            naturalOrderLock.readLock().unlock();
+            segment.unlockForRead();
         }
     }
 
@@ -230,35 +240,17 @@ public class PipelineTimeline {
         maximumId = Math.max(id, maximumId);
     }
 
-    private TreeSet<PipelineTimelineEntry> initializedNaturalOrderCollection(final CaseInsensitiveString pipelineName) {
-        if (!naturalOrderPmm.containsKey(pipelineName)) {
-            naturalOrderPmm.put(pipelineName, new TreeSet<>());
-        }
-        return naturalOrderPmm.get(pipelineName);
-    }
-
-    private List<PipelineTimelineEntry> initializedScheduleOrderCollection(final CaseInsensitiveString pipelineName) {
-        if (!scheduleOrderPmm.containsKey(pipelineName)) {
-            scheduleOrderPmm.put(pipelineName, new ArrayList<>());
-        }
-        return scheduleOrderPmm.get(pipelineName);
-    }
-
-    private PipelineTimelineEntry naturalOrderAfter(PipelineTimelineEntry pipelineTimelineEntry) {
-        naturalOrderLock.readLock().lock();
-        try {
-            return naturalOrderPmm.get(new CaseInsensitiveString(pipelineTimelineEntry.getPipelineName())).higher(pipelineTimelineEntry);
-        } finally {
-            naturalOrderLock.readLock().unlock();
-        }
+    private Segment initializedSegment(final CaseInsensitiveString pipelineName) {
+        return segments.computeIfAbsent(pipelineName, name -> new Segment());
     }
 
     PipelineTimelineEntry naturalOrderBefore(PipelineTimelineEntry pipelineTimelineEntry) {
-        naturalOrderLock.readLock().lock();
+        Segment segment = segments.get(new CaseInsensitiveString(pipelineTimelineEntry.getPipelineName()));
+        segment.lockForRead();
         try {
-            return naturalOrderPmm.get(new CaseInsensitiveString(pipelineTimelineEntry.getPipelineName())).lower(pipelineTimelineEntry);
+            return segment.naturalOrder.lower(pipelineTimelineEntry);
         } finally {
-            naturalOrderLock.readLock().unlock();
+            segment.unlockForRead();
         }
     }
 
@@ -267,40 +259,49 @@ public class PipelineTimeline {
      */
     @TestOnly
     public void clearWhichIsEvilAndShouldNotBeUsedInRealWorld() {
-        acquireAllWriteLocks();
+        lockForUpdate();
         try {
-            naturalOrderPmm.clear();
-            scheduleOrderPmm.clear();
+            segments.clear();
         } finally {
-            releaseAllWriteLocks();
+            updateLock.unlock();
         }
     }
 
     public int instanceCount(CaseInsensitiveString pipelineName) {
-        scheduleOrderLock.readLock().lock();
+        Segment segment = segments.get(pipelineName);
+        if (segment == null) {
+            return 0;
+        }
+        segment.lockForRead();
         try {
-            List<PipelineTimelineEntry> instances = scheduleOrderPmm.get(pipelineName);
-            return instances == null ? 0 : instances.size();
+            return segment.scheduleOrder.size();
         } finally {
-            scheduleOrderLock.readLock().unlock();
+            segment.unlockForRead();
         }
     }
 
     public PipelineTimelineEntry instanceFor(CaseInsensitiveString pipelineName, int index) {
-        scheduleOrderLock.readLock().lock();
+        Segment segment = segments.get(pipelineName);
+        if (segment == null) {
+            return null;
+        }
+        segment.lockForRead();
         try {
-            List<PipelineTimelineEntry> instances = scheduleOrderPmm.get(pipelineName);
-            return instances == null ? null : instances.get(index);
+            return segment.scheduleOrder.get(index);
         } finally {
-            scheduleOrderLock.readLock().unlock();
+            segment.unlockForRead();
         }
     }
 
 
     public PipelineTimelineEntry getEntryFor(CaseInsensitiveString pipelineName, Integer pipelineCounter) {
-        scheduleOrderLock.readLock().lock();
+        Segment segment = segments.get(pipelineName);
+        if (segment == null) {
+            return null;
+        }
+        segment.lockForRead();
         try {
-            List<PipelineTimelineEntry> instances = scheduleOrderPmm.get(pipelineName);
+            List<PipelineTimelineEntry> instances = segment.scheduleOrder;
             for (int i = instances.size() - 1; i >= 0; i--) {
                 PipelineTimelineEntry instance = instances.get(i);
                 if (instance.getCounter() == pipelineCounter) {
@@ -309,8 +310,60 @@ public class PipelineTimeline {
             }
             return null;
         } finally {
-            scheduleOrderLock.readLock().unlock();
+            segment.unlockForRead();
         }
     }
 
+    public Map<String, Object> statistics() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Pipelines", segments.size());
+        json.put("Maximum id", maximumId);
+        json.put("Updates", updates.get());
+        json.put("Last update (ms)", lastUpdateMillis);
+        json.put("Contended reads", contendedReads.sum());
+        json.put("Contended writes", contendedWrites.sum());
+        json.put("Contended updates", contendedUpdates.sum());
+        json.put("Time spent waiting for locks (ms)", TimeUnit.NANOSECONDS.toMillis(contentionWaitNanos.sum()));
+        return json;
+    }
+
+    private class Segment {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final TreeSet<PipelineTimelineEntry> naturalOrder = new TreeSet<>();
+        private final List<PipelineTimelineEntry> scheduleOrder = new ArrayList<>();
+
+        private PipelineTimelineEntry entryWithId(long id) {
+            for (PipelineTimelineEntry pipelineTimelineEntry : naturalOrder) {
+                if (id == pipelineTimelineEntry.getId()) {
+                    return pipelineTimelineEntry;
+                }
+            }
+            throw new RuntimeException("Cannot find pipeline with id: " + id);
+        }
+
+        private void lockForRead() {
+            acquire(lock.readLock(), contendedReads);
+        }
+
+        private void unlockForRead() {
+            lock.readLock().unlock();
+        }
+
+        private void lockForWrite() {
+            acquire(lock.writeLock(), contendedWrites);
+        }
+
+        private void unlockForWrite() {
+            lock.writeLock().unlock();
+        }
+
+        private void acquire(Lock lock, LongAdder contended) {
+            if (!lock.tryLock()) {
+                long startedAt = System.nanoTime();
+                lock.lock();
+                contended.increment();
+                contentionWaitNanos.add(System.nanoTime() - startedAt);
+            }
+        }
+    }
 }
@@ -31,10 +31,12 @@ import com.thoughtworks.go.server.materials.MaterialUpdateService;
 import com.thoughtworks.go.server.materials.SCMMaterialSource;
 import com.thoughtworks.go.server.newsecurity.filters.InvalidateAuthenticationOnSecurityConfigChangeFilter;
 import com.thoughtworks.go.server.service.*;
+import com.thoughtworks.go.server.service.dd.FanInGraphTopologyCache;
 import com.thoughtworks.go.server.service.support.ResourceMonitoring;
 import com.thoughtworks.go.server.service.support.toggle.FeatureToggleService;
 import com.thoughtworks.go.server.service.support.toggle.Toggles;
 import com.thoughtworks.go.server.util.ServletHelper;
+import com.thoughtworks.go.server.valuestreammap.DownstreamPipelineIndex;
 import com.thoughtworks.go.service.ConfigRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -68,8 +70,11 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
     @Autowired private MaterialUpdateService materialUpdateService;
     @Autowired private InvalidateAuthenticationOnSecurityConfigChangeFilter invalidateAuthenticationOnSecurityConfigChangeFilter;
     @Autowired private PipelineLockService pipelineLockService;
+    @Autowired private FanInGraphTopologyCache fanInGraphTopologyCache;
+    @Autowired private DownstreamPipelineIndex downstreamPipelineIndex;
     @Autowired private GoDiskSpaceMonitor goDiskSpaceMonitor;
     @Autowired private ArtifactsService artifactsService;
+    @Autowired private ArtifactUploadService artifactUploadService;
     @Autowired private ConsoleService consoleService;
     @Autowired private ConfigElementImplementationRegistrar configElementImplementationRegistrar;
     @Autowired private RailsAssetsService railsAssetsService;
@@ -115,6 +120,7 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
             //artifacts
             artifactsDirHolder.initialize();
             artifactsService.initialize();
+            artifactUploadService.initialize();
 
             //console logs
             consoleService.initialize();
@@ -124,6 +130,8 @@ public class ApplicationInitializer implements ApplicationListener<ContextRefres
             invalidConfigMessageRemover.initialize();
             agentService.initialize();
             pipelineLockService.initialize();
+            fanInGraphTopologyCache.initialize();
+            downstreamPipelineIndex.initialize();
             buildAssignmentService.initialize();
             materialUpdateService.initialize();
             pipelineLabelCorrector.correctPipelineLabelCountEntries();
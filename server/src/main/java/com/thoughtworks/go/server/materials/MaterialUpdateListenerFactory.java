@@ -18,6 +18,7 @@ package com.thoughtworks.go.server.materials;
 import com.thoughtworks.go.server.cronjob.GoDiskSpaceMonitor;
 import com.thoughtworks.go.server.messaging.GoMessageChannel;
 import com.thoughtworks.go.server.messaging.GoMessageQueue;
+import com.thoughtworks.go.server.messaging.QueueWorkerPools;
 import com.thoughtworks.go.server.perf.MDUPerformanceLogger;
 import com.thoughtworks.go.server.persistence.MaterialRepository;
 import com.thoughtworks.go.server.service.GoConfigService;
@@ -49,6 +50,7 @@ public class MaterialUpdateListenerFactory {
     private final PluggableSCMMaterialUpdater pluggableSCMMaterialUpdater;
     private final MaterialExpansionService materialExpansionService;
     private final MDUPerformanceLogger mduPerformanceLogger;
+    private final QueueWorkerPools queueWorkerPools;
 
     @Autowired
     public MaterialUpdateListenerFactory(MaterialUpdateCompletedTopic topic,
@@ -68,7 +70,8 @@ public class MaterialUpdateListenerFactory {
                                          DependencyMaterialUpdateQueue dependencyMaterialQueue,
                                          MaintenanceModeService maintenanceModeService,
                                          ConfigMaterialPostUpdateQueue configMaterialPostUpdateQueue,
-                                         GoConfigService goConfigService) {
+                                         GoConfigService goConfigService,
+                                         QueueWorkerPools queueWorkerPools) {
         this.topic = topic;
         this.queue = queue;
         this.configQueue = configQueue;
@@ -87,6 +90,7 @@ public class MaterialUpdateListenerFactory {
         this.maintenanceModeService = maintenanceModeService;
         this.configMaterialPostUpdateQueue = configMaterialPostUpdateQueue;
         this.goConfigService = goConfigService;
+        this.queueWorkerPools = queueWorkerPools;
     }
 
     public void init() {
@@ -94,22 +98,18 @@ public class MaterialUpdateListenerFactory {
         int numberOfConfigListeners = systemEnvironment.getNumberOfConfigMaterialCheckListener();
         int numberOfDependencyMaterialCheckListeners = systemEnvironment.getNumberOfDependencyMaterialUpdateListeners();
 
-        for (int i = 0; i < numberOfStandardMaterialListeners; i++) {
-            createWorker(this.queue, this.topic);
-        }
-
-        for (int i = 0; i < numberOfConfigListeners; i++) {
-            createWorker(this.configQueue, this.configMaterialPostUpdateQueue);
-        }
+        createWorkers(this.queue, "material-update", numberOfStandardMaterialListeners, this.topic);
+        createWorkers(this.configQueue, "config-material-update", numberOfConfigListeners, this.configMaterialPostUpdateQueue);
+        createWorkers(this.dependencyMaterialQueue, "dependency-material-update", numberOfDependencyMaterialCheckListeners, this.topic);
+    }
 
-        for (int i = 0; i < numberOfDependencyMaterialCheckListeners; i++) {
-            createWorker(this.dependencyMaterialQueue, this.topic);
-        }
+    private void createWorkers(GoMessageQueue<MaterialUpdateMessage> queue, String name, int numberOfWorkers, GoMessageChannel<MaterialUpdateCompletedMessage> topic) {
+        queueWorkerPools.addConsumers(queue, name, numberOfWorkers, message -> message.getMaterial().getFingerprint(), () -> createWorker(topic));
     }
 
-    private void createWorker(GoMessageQueue<MaterialUpdateMessage> queue, GoMessageChannel<MaterialUpdateCompletedMessage> topic) {
+    private MaterialUpdateListener createWorker(GoMessageChannel<MaterialUpdateCompletedMessage> topic) {
         MaterialDatabaseUpdater updater = new MaterialDatabaseUpdater(materialRepository, serverHealthService, transactionTemplate, dependencyMaterialUpdater, scmMaterialUpdater,
                 packageMaterialUpdater, pluggableSCMMaterialUpdater, materialExpansionService, goConfigService);
-        queue.addListener(new MaterialUpdateListener(topic, updater, mduPerformanceLogger, diskSpaceMonitor, maintenanceModeService));
+        return new MaterialUpdateListener(topic, updater, mduPerformanceLogger, diskSpaceMonitor, maintenanceModeService);
     }
 }
@@ -56,6 +56,16 @@ public class BuildRepositoryMessageProducer implements BuildRepositoryRemote {
         return work;
     }
 
+    /* Waits up to the given time for work to be assigned to the agent, if there is none for it yet. */
+    public Work getWork(AgentRuntimeInfo runtimeInfo, long waitMillis) {
+        long startTime = System.currentTimeMillis();
+
+        Work work = workAssignments.getWork(runtimeInfo, waitMillis);
+
+        workAssignmentPerformanceLogger.retrievedWorkForAgent(runtimeInfo, work, startTime, System.currentTimeMillis());
+        return work;
+    }
+
     @Override
     public void reportCurrentStatus(AgentRuntimeInfo agentRuntimeInfo, JobIdentifier jobIdentifier, JobState jobState) {
         buildRepository.reportCurrentStatus(agentRuntimeInfo, jobIdentifier, jobState);
@@ -0,0 +1,146 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Understands handing the messages of a queue over to a pool of workers, so that they are processed in parallel while
+ * messages with the same key are still processed one at a time, in the order they were received.
+ * <p>
+ * It is added to the queue as a single listener. At most {@code capacity} received messages wait for a worker; once
+ * that many are waiting, receiving blocks until a worker frees up, leaving the rest of the messages on the queue. Each
+ * worker thread gets its own listener from the factory.
+ */
+public class KeyedWorkerPool<T extends GoMessage> implements GoMessageListener<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(KeyedWorkerPool.class);
+
+    private final String name;
+    private final Function<T, Object> keyOf;
+    private final ThreadLocal<GoMessageListener<T>> listeners;
+    private final ExecutorService workers;
+    private final Semaphore capacity;
+    private final Map<Object, Deque<Pending<T>>> waitingByKey = new HashMap<>();
+    private final AtomicLong waiting = new AtomicLong();
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    private final LatencyHistogram processingTimes = new LatencyHistogram();
+    private final int numberOfWorkers;
+
+    public KeyedWorkerPool(String name, int numberOfWorkers, int capacity, Function<T, Object> keyOf, ListenerFactory<T> listenerFactory) {
+        this(name, numberOfWorkers, capacity, keyOf, listenerFactory, newExecutor(name, numberOfWorkers));
+    }
+
+    KeyedWorkerPool(String name, int numberOfWorkers, int capacity, Function<T, Object> keyOf, ListenerFactory<T> listenerFactory, ExecutorService workers) {
+        this.name = name;
+        this.numberOfWorkers = numberOfWorkers;
+        this.keyOf = keyOf;
+        this.listeners = ThreadLocal.withInitial(listenerFactory::create);
+        this.workers = workers;
+        this.capacity = new Semaphore(Math.max(capacity, 1));
+    }
+
+    @Override
+    public void onMessage(T message) {
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        Pending<T> pending = new Pending<>(message, keyOf.apply(message));
+        waiting.incrementAndGet();
+        synchronized (waitingByKey) {
+            Deque<Pending<T>> waitingForKey = waitingByKey.get(pending.key);
+            if (waitingForKey != null) {
+                // a worker is busy with this key, and will pick this up once it is done with the ones before it
+                waitingForKey.add(pending);
+                return;
+            }
+            waitingByKey.put(pending.key, new ArrayDeque<>());
+        }
+        workers.execute(() -> process(pending));
+    }
+
+    private void process(Pending<T> pending) {
+        waiting.decrementAndGet();
+        long startedAt = System.currentTimeMillis();
+        waitTimes.record(startedAt - pending.receivedAt);
+        try {
+            listeners.get().onMessage(pending.message);
+        } catch (Exception e) {
+            LOGGER.error("Exception thrown in message handling by worker of {}", name, e);
+        } finally {
+            processingTimes.record(System.currentTimeMillis() - startedAt);
+            capacity.release();
+        }
+
+        Pending<T> next;
+        synchronized (waitingByKey) {
+            next = waitingByKey.get(pending.key).poll();
+            if (next == null) {
+                waitingByKey.remove(pending.key);
+                return;
+            }
+        }
+        // resubmitted rather than processed right away, so that one busy key can't keep a worker to itself
+        workers.execute(() -> process(next));
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Workers", numberOfWorkers);
+        json.put("Waiting for a worker", waiting.get());
+        synchronized (waitingByKey) {
+            json.put("Keys in progress", waitingByKey.size());
+        }
+        json.put("Wait time", waitTimes.asJson());
+        json.put("Processing time", processingTimes.asJson());
+        return json;
+    }
+
+    private static ExecutorService newExecutor(String name, int numberOfWorkers) {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(numberOfWorkers, 1), runnable -> {
+            Thread thread = new Thread(runnable, name + "-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static class Pending<T> {
+        private final T message;
+        private final Object key;
+        private final long receivedAt = System.currentTimeMillis();
+
+        private Pending(T message, Object key) {
+            this.message = message;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Understands how long things took, counted in buckets growing roughly tenfold from one millisecond to a minute.
+ */
+public class LatencyHistogram {
+    private static final long[] UPPER_BOUNDS_IN_MILLIS = {1, 5, 10, 50, 100, 500, 1_000, 5_000, 10_000, 60_000};
+
+    private final AtomicLongArray counts = new AtomicLongArray(UPPER_BOUNDS_IN_MILLIS.length + 1);
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long millis) {
+        int bucket = 0;
+        while (bucket < UPPER_BOUNDS_IN_MILLIS.length && millis > UPPER_BOUNDS_IN_MILLIS[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+        total.add(millis);
+        max.accumulate(millis);
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public Map<String, Object> asJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        long count = count();
+        json.put("Count", count);
+        json.put("Mean (ms)", count == 0 ? 0 : total.sum() / count);
+        json.put("Max (ms)", max.get());
+        for (int i = 0; i < UPPER_BOUNDS_IN_MILLIS.length; i++) {
+            json.put("<= " + UPPER_BOUNDS_IN_MILLIS[i] + "ms", counts.get(i));
+        }
+        json.put("> " + UPPER_BOUNDS_IN_MILLIS[UPPER_BOUNDS_IN_MILLIS.length - 1] + "ms", counts.get(UPPER_BOUNDS_IN_MILLIS.length));
+        return json;
+    }
+}
@@ -18,8 +18,16 @@ package com.thoughtworks.go.server.messaging;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static java.text.MessageFormat.format;
 
@@ -28,21 +36,127 @@ import static java.text.MessageFormat.format;
  *
  * Since actions can be added from different threads, line up all of them on to one thread,
  * for processing, and to make sure that the upstream processes are not blocked.
+ *
+ * Actions with a coalescing key replace a pending action with the same key, so that a burst of events about the same
+ * thing is acted upon once. The replacement goes to the back of the queue, as acting on it in the place of the one it
+ * replaces would put it ahead of actions added before it, about other things. When a capacity is given, the overflow
+ * policy decides what happens to actions added while that many are pending.
  */
 public class MultiplexingQueueProcessor {
     private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexingQueueProcessor.class);
     private Thread processorThread;
-    protected final BlockingQueue<Action> queue;
-    private String queueName;
+    protected final BlockingQueue<Pending> queue;
+    private final String queueName;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Map<Object, Pending> pendingByKey = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private boolean overflowing = false;
+
+    private final AtomicLong added = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final LatencyHistogram lag = new LatencyHistogram();
+    private final ConcurrentMap<String, LatencyHistogram> processingTimes = new ConcurrentHashMap<>();
 
     public MultiplexingQueueProcessor(String processorNameForLogging) {
+        this(processorNameForLogging, 0, OverflowPolicy.BLOCK);
+    }
+
+    public MultiplexingQueueProcessor(String processorNameForLogging, int capacity, OverflowPolicy overflowPolicy) {
         this.queueName = processorNameForLogging;
+        this.capacity = Math.max(capacity, 0);
+        this.overflowPolicy = overflowPolicy;
         queue = new LinkedBlockingQueue<>();
     }
 
     public void add(Action action) {
         LOGGER.debug("Adding action into {} queue for {}", queueName, action.description());
-        queue.add(action);
+        added.incrementAndGet();
+        Object key = action.coalescingKey();
+
+        lock.lock();
+        try {
+            Pending replaced = key == null ? null : pendingByKey.get(key);
+            if (replaced != null) {
+                LOGGER.debug("Replacing pending action in {} queue for {}", queueName, replaced.action.description());
+                queue.remove(replaced);
+                coalesced.incrementAndGet();
+            } else if (!makeRoom(action)) {
+                return;
+            }
+
+            // the lag of a replacement is counted from the action it replaces, which has been waiting all along
+            Pending pending = new Pending(action, key, replaced == null ? System.currentTimeMillis() : replaced.addedAt);
+            if (key != null) {
+                pendingByKey.put(key, pending);
+            }
+            queue.add(pending);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean makeRoom(Action action) {
+        if (capacity == 0 || queue.size() < capacity) {
+            return true;
+        }
+        if (!overflowing) {
+            overflowing = true;
+            LOGGER.warn("The {} queue is full, with {} pending actions. Overflow policy: {}", queueName, queue.size(), overflowPolicy);
+        }
+
+        switch (overflowPolicy) {
+            case DROP_NEWEST:
+                LOGGER.debug("Dropping action for {}, since the {} queue is full", action.description(), queueName);
+                dropped.incrementAndGet();
+                return false;
+            case DROP_OLDEST:
+                while (queue.size() >= capacity) {
+                    Pending oldest = queue.poll();
+                    if (oldest == null) {
+                        break;
+                    }
+                    forget(oldest);
+                    LOGGER.debug("Dropping action for {}, since the {} queue is full", oldest.action.description(), queueName);
+                    dropped.incrementAndGet();
+                }
+                return true;
+            default:
+                // actions added by the processor itself cannot wait for it
+                while (queue.size() >= capacity && Thread.currentThread() != processorThread) {
+                    try {
+                        notFull.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                return true;
+        }
+    }
+
+    private Action next() throws InterruptedException {
+        Pending pending = queue.take();
+        lock.lock();
+        try {
+            forget(pending);
+            if (capacity > 0 && queue.size() < capacity) {
+                overflowing = false;
+                notFull.signal();
+            }
+            lag.record(System.currentTimeMillis() - pending.addedAt);
+            return pending.action;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void forget(Pending pending) {
+        if (pending.key != null) {
+            pendingByKey.remove(pending.key, pending);
+        }
     }
 
     public void start() {
@@ -53,14 +167,19 @@ public class MultiplexingQueueProcessor {
         processorThread = new Thread(() -> {
             while (!Thread.currentThread().isInterrupted()) {
                 try {
-                    Action action = queue.take();
+                    Action action = next();
                     LOGGER.debug("Acting on item in {} queue for {}", queueName, action.description());
 
                     long startTime = System.currentTimeMillis();
-                    action.call();
-                    long endTime = System.currentTimeMillis();
-
-                    LOGGER.debug("Finished acting on item in {} queue for {}. Time taken: {} ms", queueName, action.description(), (endTime - startTime));
+                    try {
+                        action.call();
+                    } finally {
+                        long endTime = System.currentTimeMillis();
+                        processingTimesOf(action).record(endTime - startTime);
+                        LOGGER.debug("Finished acting on item in {} queue for {}. Time taken: {} ms", queueName, action.description(), (endTime - startTime));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 } catch (Exception e) {
                     LOGGER.warn(format("Failed to handle action in {0} queue", queueName), e);
                 }
@@ -71,9 +190,64 @@ public class MultiplexingQueueProcessor {
         processorThread.start();
     }
 
+    private LatencyHistogram processingTimesOf(Action action) {
+        String kind = action.kind() == null ? "other" : action.kind();
+        return processingTimes.computeIfAbsent(kind, k -> new LatencyHistogram());
+    }
+
+    public String name() {
+        return queueName;
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Pending actions", queue.size());
+        json.put("Capacity", capacity == 0 ? "Unbounded" : capacity);
+        json.put("Overflow policy", overflowPolicy.name());
+        json.put("Added", added.get());
+        json.put("Coalesced", coalesced.get());
+        json.put("Dropped", dropped.get());
+        json.put("Lag", lag.asJson());
+        Map<String, Object> processingTimesByKind = new LinkedHashMap<>();
+        processingTimes.forEach((kind, histogram) -> processingTimesByKind.put(kind, histogram.asJson()));
+        json.put("Processing time", processingTimesByKind);
+        return json;
+    }
+
+    public enum OverflowPolicy {
+        /* callers wait for the processor to catch up */
+        BLOCK,
+        /* the longest pending action is given up to make room */
+        DROP_OLDEST,
+        /* the action being added is given up */
+        DROP_NEWEST
+    }
+
     public interface Action {
         void call();
 
         String description();
+
+        /* Identifies what this action is about, for the statistics. */
+        default String kind() {
+            return "other";
+        }
+
+        /* A pending action with the same key is replaced by this one, rather than both being called. Null to never replace. */
+        default Object coalescingKey() {
+            return null;
+        }
+    }
+
+    protected static class Pending {
+        private final Action action;
+        private final Object key;
+        private final long addedAt;
+
+        private Pending(Action action, Object key, long addedAt) {
+            this.action = action;
+            this.key = key;
+            this.addedAt = addedAt;
+        }
     }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging;
+
+import com.thoughtworks.go.server.messaging.MultiplexingQueueProcessor.OverflowPolicy;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Understands creating {@link MultiplexingQueueProcessor}s with the configured capacity and overflow policy, and keeps
+ * track of them.
+ */
+@Component
+public class MultiplexingQueueProcessors {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexingQueueProcessors.class);
+
+    private final SystemEnvironment systemEnvironment;
+    private final List<MultiplexingQueueProcessor> processors = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public MultiplexingQueueProcessors(SystemEnvironment systemEnvironment) {
+        this.systemEnvironment = systemEnvironment;
+    }
+
+    public MultiplexingQueueProcessor create(String name) {
+        MultiplexingQueueProcessor processor = new MultiplexingQueueProcessor(name, systemEnvironment.getMultiplexingQueueCapacity(), overflowPolicy());
+        processors.add(processor);
+        return processor;
+    }
+
+    private OverflowPolicy overflowPolicy() {
+        String policy = systemEnvironment.getMultiplexingQueueOverflowPolicy();
+        if (policy == null) {
+            return OverflowPolicy.BLOCK;
+        }
+        try {
+            return OverflowPolicy.valueOf(policy.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Unknown overflow policy '{}' for queue processors, using {} instead.", policy, OverflowPolicy.BLOCK);
+            return OverflowPolicy.BLOCK;
+        }
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        for (MultiplexingQueueProcessor processor : processors) {
+            json.put(processor.name(), processor.statistics());
+        }
+        return json;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * Understands which queues are consumed by a {@link KeyedWorkerPool} rather than by competing listeners, and keeps
+ * track of those pools.
+ */
+@Component
+public class QueueWorkerPools {
+    private final SystemEnvironment systemEnvironment;
+    private final List<KeyedWorkerPool<?>> pools = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public QueueWorkerPools(SystemEnvironment systemEnvironment) {
+        this.systemEnvironment = systemEnvironment;
+    }
+
+    public boolean isEnabled() {
+        return systemEnvironment.isQueueWorkerPoolsEnabled();
+    }
+
+    /**
+     * Adds listeners to the queue: a worker pool keeping messages with the same key in order when pools are enabled,
+     * or as many competing listeners as there would have been workers otherwise.
+     */
+    public <T extends GoMessage> void addConsumers(GoMessageQueue<T> queue, String name, int numberOfWorkers, Function<T, Object> keyOf, ListenerFactory<T> listenerFactory) {
+        if (!isEnabled()) {
+            for (int i = 0; i < numberOfWorkers; i++) {
+                queue.addListener(listenerFactory.create());
+            }
+            return;
+        }
+        KeyedWorkerPool<T> pool = new KeyedWorkerPool<>(name, numberOfWorkers, systemEnvironment.getQueueWorkerPoolCapacity(), keyOf, listenerFactory);
+        pools.add(pool);
+        queue.addListener(pool);
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Enabled", isEnabled());
+        for (KeyedWorkerPool<?> pool : pools) {
+            json.put(pool.name(), pool.statistics());
+        }
+        return json;
+    }
+}
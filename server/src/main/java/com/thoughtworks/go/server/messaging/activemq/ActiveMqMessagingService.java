@@ -31,14 +31,11 @@ import org.apache.activemq.broker.region.Destination;
 import org.apache.activemq.broker.region.Subscription;
 import org.apache.activemq.command.ActiveMQQueue;
 import org.apache.activemq.util.BrokerSupport;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
 
 import java.util.List;
 
 import static com.thoughtworks.go.util.ExceptionUtils.bomb;
 
-@Component
 public class ActiveMqMessagingService implements MessagingService<GoMessage> {
 
     private static final String BROKER_NAME = "go-server";
@@ -51,7 +48,6 @@ public class ActiveMqMessagingService implements MessagingService<GoMessage> {
 
     public ActiveMQConnectionFactory factory;
 
-    @Autowired
     public ActiveMqMessagingService(DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) throws Exception {
         this.daemonThreadStatsCollector = daemonThreadStatsCollector;
         this.systemEnvironment = systemEnvironment;
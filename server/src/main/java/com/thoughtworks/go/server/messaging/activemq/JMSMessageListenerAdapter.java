@@ -34,7 +34,7 @@ import static com.thoughtworks.go.serverhealth.HealthStateScope.GLOBAL;
 public class JMSMessageListenerAdapter<T extends GoMessage> implements Runnable {
     private static final Logger LOG = LoggerFactory.getLogger(JMSMessageListenerAdapter.class);
 
-    private final MessageConsumer consumer;
+    private final MessageSource<T> source;
     private final GoMessageListener<T> listener;
     private final DaemonThreadStatsCollector daemonThreadStatsCollector;
     private final SystemEnvironment systemEnvironment;
@@ -42,9 +42,9 @@ public class JMSMessageListenerAdapter<T extends GoMessage> implements Runnable
 
     public Thread thread;
 
-    private JMSMessageListenerAdapter(MessageConsumer consumer, GoMessageListener<T> listener, DaemonThreadStatsCollector daemonThreadStatsCollector,
+    private JMSMessageListenerAdapter(MessageSource<T> source, GoMessageListener<T> listener, DaemonThreadStatsCollector daemonThreadStatsCollector,
                                       SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
-        this.consumer = consumer;
+        this.source = source;
         this.listener = listener;
         this.daemonThreadStatsCollector = daemonThreadStatsCollector;
         this.systemEnvironment = systemEnvironment;
@@ -67,21 +67,19 @@ public class JMSMessageListenerAdapter<T extends GoMessage> implements Runnable
     }
 
     public void stop() throws JMSException {
-        consumer.close();
+        source.close();
     }
 
     protected boolean runImpl() {
         try {
-            Message message = consumer.receive();
+            T message = source.receive();
             if (message == null) {
                 LOG.debug("Message consumer was closed.");
                 return true;
             }
 
-            ObjectMessage om = (ObjectMessage) message;
             daemonThreadStatsCollector.captureStats(thread.getId());
-            @SuppressWarnings("unchecked") T object = (T) om.getObject();
-            listener.onMessage(object);
+            listener.onMessage(message);
         } catch (JMSException e) {
             slowDownAndWarnAboutPossibleProblems(e);
         } catch (Exception e) {
@@ -107,7 +105,46 @@ public class JMSMessageListenerAdapter<T extends GoMessage> implements Runnable
     }
 
     public static <T extends GoMessage> JMSMessageListenerAdapter<T> startListening(MessageConsumer consumer, GoMessageListener<T> listener, DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
-        return new JMSMessageListenerAdapter<>(consumer, listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+        return new JMSMessageListenerAdapter<>(new ConsumerMessageSource<>(consumer), listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+    }
+
+    public static <T extends GoMessage> JMSMessageListenerAdapter<T> startListening(MessageSource<T> source, GoMessageListener<T> listener, DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
+        return new JMSMessageListenerAdapter<>(source, listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+    }
+
+    /**
+     * Understands where the messages handed over to a listener come from.
+     */
+    public interface MessageSource<T extends GoMessage> {
+        /**
+         * Blocks until the next message arrives. Returns null once the source has been closed.
+         */
+        T receive() throws JMSException;
+
+        void close() throws JMSException;
+    }
+
+    private static class ConsumerMessageSource<T extends GoMessage> implements MessageSource<T> {
+        private final MessageConsumer consumer;
+
+        private ConsumerMessageSource(MessageConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public T receive() throws JMSException {
+            Message message = consumer.receive();
+            if (message == null) {
+                return null;
+            }
+            @SuppressWarnings("unchecked") T object = (T) ((ObjectMessage) message).getObject();
+            return object;
+        }
+
+        @Override
+        public void close() throws JMSException {
+            consumer.close();
+        }
     }
 
 }
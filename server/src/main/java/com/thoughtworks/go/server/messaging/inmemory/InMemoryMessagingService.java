@@ -0,0 +1,226 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.GoMessage;
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.MessageSender;
+import com.thoughtworks.go.server.messaging.MessagingService;
+import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.SystemEnvironment;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static com.thoughtworks.go.util.ExceptionUtils.bomb;
+
+/**
+ * Understands passing messages around within the server without a broker. Messages are handed to listeners as they
+ * were posted, instead of being serialized and deserialized on the way, through bounded in-memory queues.
+ * <p>
+ * The listeners of a queue compete for its messages. Every listener of a topic gets its own queue, which receives all
+ * messages posted after the listener was added. Senders wait while a queue is full.
+ */
+public class InMemoryMessagingService implements MessagingService<GoMessage> {
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    private final DaemonThreadStatsCollector daemonThreadStatsCollector;
+    private final SystemEnvironment systemEnvironment;
+    private final ServerHealthService serverHealthService;
+    private final int capacity;
+    private final ConcurrentMap<String, Topic> topics = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Queue> queues = new ConcurrentHashMap<>();
+
+    public InMemoryMessagingService(DaemonThreadStatsCollector daemonThreadStatsCollector, SystemEnvironment systemEnvironment, ServerHealthService serverHealthService) {
+        this.daemonThreadStatsCollector = daemonThreadStatsCollector;
+        this.systemEnvironment = systemEnvironment;
+        this.serverHealthService = serverHealthService;
+        this.capacity = systemEnvironment.get(SystemEnvironment.IN_MEMORY_MESSAGING_CAPACITY);
+    }
+
+    @Override
+    public MessageSender createSender(String topic) {
+        return new Sender(() -> topicNamed(topic));
+    }
+
+    @Override
+    public JMSMessageListenerAdapter<GoMessage> addListener(String topic, GoMessageListener<GoMessage> listener) {
+        return JMSMessageListenerAdapter.startListening(topicNamed(topic).subscribe(), listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+    }
+
+    @Override
+    public MessageSender createQueueSender(String queueName) {
+        return new Sender(() -> queueNamed(queueName));
+    }
+
+    @Override
+    public JMSMessageListenerAdapter<GoMessage> addQueueListener(String queueName, GoMessageListener<GoMessage> listener) {
+        return JMSMessageListenerAdapter.startListening(new Receiver(queueNamed(queueName), false), listener, daemonThreadStatsCollector, systemEnvironment, serverHealthService);
+    }
+
+    @Override
+    public void removeQueue(String queueName) {
+        Queue queue = queues.remove(queueName);
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    @Override
+    public void stop() {
+        queues.values().forEach(Queue::close);
+        queues.clear();
+        topics.values().forEach(Topic::close);
+        topics.clear();
+    }
+
+    private Topic topicNamed(String topic) {
+        return topics.computeIfAbsent(topic, name -> new Topic());
+    }
+
+    private Queue queueNamed(String queueName) {
+        return queues.computeIfAbsent(queueName, name -> new Queue());
+    }
+
+    private interface Destination {
+        void send(GoMessage message, long timeToLive);
+    }
+
+    private static class Envelope {
+        private final GoMessage message;
+        private final long expiresAt;
+
+        private Envelope(GoMessage message, long timeToLive) {
+            this.message = message;
+            this.expiresAt = timeToLive > 0 ? System.currentTimeMillis() + timeToLive : Long.MAX_VALUE;
+        }
+
+        private boolean hasExpired() {
+            return expiresAt != Long.MAX_VALUE && System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    private class Queue implements Destination {
+        private final BlockingQueue<Envelope> envelopes = new LinkedBlockingQueue<>(capacity);
+        private volatile boolean closed = false;
+
+        @Override
+        public void send(GoMessage message, long timeToLive) {
+            Envelope envelope = new Envelope(message, timeToLive);
+            try {
+                while (!closed && !envelopes.offer(envelope, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    // full, wait for the listeners to catch up
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw bomb(e);
+            }
+        }
+
+        private GoMessage take(Receiver receiver) throws InterruptedException {
+            while (!closed && !receiver.closed) {
+                Envelope envelope = envelopes.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (envelope != null && !envelope.hasExpired()) {
+                    return envelope.message;
+                }
+            }
+            return null;
+        }
+
+        private void close() {
+            closed = true;
+            envelopes.clear();
+        }
+    }
+
+    private class Topic implements Destination {
+        private final List<Queue> subscriptions = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(GoMessage message, long timeToLive) {
+            for (Queue subscription : subscriptions) {
+                subscription.send(message, timeToLive);
+            }
+        }
+
+        private Receiver subscribe() {
+            Queue subscription = new Queue();
+            subscriptions.add(subscription);
+            return new Receiver(subscription, true) {
+                @Override
+                public void close() {
+                    super.close();
+                    subscriptions.remove(subscription);
+                }
+            };
+        }
+
+        private void close() {
+            subscriptions.forEach(Queue::close);
+            subscriptions.clear();
+        }
+    }
+
+    private static class Receiver implements JMSMessageListenerAdapter.MessageSource<GoMessage> {
+        private final Queue queue;
+        private final boolean ownsQueue;
+        private volatile boolean closed = false;
+
+        private Receiver(Queue queue, boolean ownsQueue) {
+            this.queue = queue;
+            this.ownsQueue = ownsQueue;
+        }
+
+        @Override
+        public GoMessage receive() {
+            try {
+                return queue.take(this);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if (ownsQueue) {
+                queue.close();
+            }
+        }
+    }
+
+    private static class Sender implements MessageSender {
+        private final Supplier<Destination> destination;
+
+        private Sender(Supplier<Destination> destination) {
+            this.destination = destination;
+        }
+
+        @Override
+        public void sendMessage(GoMessage message) {
+            sendMessage(message, 0);
+        }
+
+        @Override
+        public void sendMessage(GoMessage message, long timeToLive) {
+            destination.get().send(message, timeToLive);
+        }
+    }
+}
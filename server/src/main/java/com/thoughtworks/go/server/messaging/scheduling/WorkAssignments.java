@@ -21,26 +21,69 @@ import com.thoughtworks.go.remote.work.Work;
 import com.thoughtworks.go.server.messaging.GoMessageChannel;
 import com.thoughtworks.go.server.messaging.GoMessageListener;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
+import com.thoughtworks.go.server.service.BuildAssignmentService;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
 
+/**
+ * Understands handing the work assigned to agents over to them.
+ * <p>
+ * An agent may ask to wait for work. Its request is then held until work is assigned to it, or until new jobs are
+ * scheduled and it asks for work again, up to the given wait. Only a limited number of agents can wait at a time,
+ * since each of them holds on to a request thread; others get an answer straight away, as before.
+ */
 @Service
 public class WorkAssignments implements GoMessageListener<WorkAssignedMessage> {
     private GoMessageChannel<IdleAgentMessage> idleAgentsTopic;
     private ConcurrentMap<AgentIdentifier, Work> assignments;
     private static final NoWork NO_WORK = new NoWork();
+    private final SystemEnvironment systemEnvironment;
+    private final Semaphore waitingAgents;
+    private final ConcurrentMap<AgentIdentifier, Waiter> waiters = new ConcurrentHashMap<>();
 
     @Autowired
     public WorkAssignments(IdleAgentTopic idleAgentsTopic,
-                           WorkAssignedTopic assignedWorkTopic) {
+                           WorkAssignedTopic assignedWorkTopic,
+                           BuildAssignmentService buildAssignmentService,
+                           SystemEnvironment systemEnvironment) {
         this.idleAgentsTopic = idleAgentsTopic;
+        this.systemEnvironment = systemEnvironment;
+        this.waitingAgents = new Semaphore(systemEnvironment.getWorkAssignmentLongPollMaxAgents());
         assignedWorkTopic.addListener(this);
+        buildAssignmentService.addJobsScheduledListener(this::wakeUpWaitingAgents);
         this.assignments = new ConcurrentHashMap<>();
     }
 
+    public Work getWork(AgentRuntimeInfo runtimeInfo, long waitMillis) {
+        long wait = Math.min(waitMillis, systemEnvironment.getWorkAssignmentLongPollMaxWaitInMillis());
+        if (wait <= 0 || !waitingAgents.tryAcquire()) {
+            return getWork(runtimeInfo);
+        }
+
+        AgentIdentifier agent = runtimeInfo.getIdentifier();
+        Waiter waiter = new Waiter();
+        waiters.put(agent, waiter);
+        try {
+            long waitUntil = System.currentTimeMillis() + wait;
+            Work work = getWork(runtimeInfo);
+            while (work instanceof NoWork && waiter.await(waitUntil)) {
+                work = getWork(runtimeInfo);
+            }
+            return work;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return NO_WORK;
+        } finally {
+            waiters.remove(agent, waiter);
+            waitingAgents.release();
+        }
+    }
+
     public Work getWork(AgentRuntimeInfo runtimeInfo) {
         AgentIdentifier agent = runtimeInfo.getIdentifier();
         synchronized (agentMutex(agent)) {
@@ -75,6 +118,40 @@ public class WorkAssignments implements GoMessageListener<WorkAssignedMessage> {
             synchronized (agentMutex(agentIdentifier)) {
                 assignments.replace(agentIdentifier, NO_WORK, work);
             }
+            Waiter waiter = waiters.get(agentIdentifier);
+            if (waiter != null) {
+                waiter.wakeUp();
+            }
+        }
+    }
+
+    public int agentsWaitingForWork() {
+        return waiters.size();
+    }
+
+    private void wakeUpWaitingAgents() {
+        waiters.values().forEach(Waiter::wakeUp);
+    }
+
+    private static class Waiter {
+        private boolean wokenUp = false;
+
+        private synchronized void wakeUp() {
+            wokenUp = true;
+            notifyAll();
+        }
+
+        /* true when woken up, false when the time ran out */
+        private synchronized boolean await(long until) throws InterruptedException {
+            while (!wokenUp) {
+                long remaining = until - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            wokenUp = false;
+            return true;
         }
     }
 
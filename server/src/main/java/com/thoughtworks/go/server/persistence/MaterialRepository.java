@@ -23,6 +23,7 @@ import com.thoughtworks.go.domain.*;
 import com.thoughtworks.go.domain.materials.*;
 import com.thoughtworks.go.domain.materials.dependency.DependencyMaterialInstance;
 import com.thoughtworks.go.server.cache.CacheKeyGenerator;
+import com.thoughtworks.go.server.cache.CacheRegion;
 import com.thoughtworks.go.server.cache.GoCache;
 import com.thoughtworks.go.server.dao.FeedModifier;
 import com.thoughtworks.go.server.database.Database;
@@ -36,6 +37,7 @@ import com.thoughtworks.go.server.util.CollectionUtil;
 import com.thoughtworks.go.server.util.Pagination;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.ListUtils;
 import org.hibernate.*;
 import org.hibernate.criterion.*;
 import org.hibernate.type.LongType;
@@ -53,6 +55,10 @@ import org.springframework.transaction.support.TransactionSynchronizationAdapter
 import java.io.File;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static com.thoughtworks.go.server.persistence.MaterialQueries.loadModificationQuery;
@@ -67,6 +73,11 @@ import static org.hibernate.criterion.Restrictions.isNull;
 @Component
 public class MaterialRepository extends HibernateDaoSupport {
     private static final Logger LOGGER = LoggerFactory.getLogger(MaterialRepository.class.getName());
+    private static final String REVISION_SEARCH_CONDITION = "(m.revision || ' ' || COALESCE(m.username, '') || ' ' || COALESCE(m.comment, '') LIKE :search_string OR m.pipelineLabel LIKE :search_string)";
+    private static final int MAX_MATCHED_REVISIONS = 5;
+    private static final int MAX_REVISION_SEARCH_CANDIDATES = 10000;
+    private static final int REVISION_SEARCH_BATCH_SIZE = 100;
+    private static final int MAX_REVISION_SEARCH_INDEXES = 1000;
 
     private final GoCache goCache;
     private final TransactionSynchronizationManager transactionSynchronizationManager;
@@ -75,6 +86,8 @@ public class MaterialRepository extends HibernateDaoSupport {
     private final CacheKeyGenerator cacheKeyGenerator;
     private final int latestModificationsCacheLimit;
     private final MaterialExpansionService materialExpansionService;
+    private final CacheRegion<Long, RevisionSearchIndex> revisionSearchIndexes;
+    private final ExecutorService revisionSearchIndexLoader;
 
     @Autowired
     public MaterialRepository(SessionFactory sessionFactory,
@@ -92,6 +105,15 @@ public class MaterialRepository extends HibernateDaoSupport {
         this.queryExtensions = databaseStrategy.getQueryExtensions();
         setSessionFactory(sessionFactory);
         this.cacheKeyGenerator = new CacheKeyGenerator(getClass());
+        // kept apart from the rest of the cache, since loading an index again means reading every modification
+        this.revisionSearchIndexes = goCache.region("revisionSearchIndex", MAX_REVISION_SEARCH_INDEXES);
+        ThreadPoolExecutor loader = new ThreadPoolExecutor(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "revision-search-index-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        loader.allowCoreThreadTimeOut(true);
+        this.revisionSearchIndexLoader = loader;
     }
 
     @SuppressWarnings("unchecked")
@@ -760,9 +782,15 @@ public class MaterialRepository extends HibernateDaoSupport {
         }
 
         try {
-            checkAndRemoveDuplicates(materialInstance, newChanges, list);
-            for (Modification modification : list) {
-                getHibernateTemplate().saveOrUpdate(modification);
+            SystemEnvironment systemEnvironment = new SystemEnvironment();
+            int batchSize = systemEnvironment.get(SystemEnvironment.MODIFICATIONS_BATCH_SIZE);
+            checkAndRemoveDuplicates(materialInstance, newChanges, list, batchSize);
+            if (systemEnvironment.get(SystemEnvironment.MODIFICATIONS_BATCH_INSERT)) {
+                insertInBatches(list, batchSize);
+            } else {
+                for (Modification modification : list) {
+                    getHibernateTemplate().saveOrUpdate(modification);
+                }
             }
         } catch (Exception e) {
             String message = "Cannot save modification: ";
@@ -772,28 +800,56 @@ public class MaterialRepository extends HibernateDaoSupport {
         removeLatestCachedModification(materialInstance);
         removeCachedModificationCountFor(materialInstance);
         removeCachedModificationsFor(materialInstance);
+        updateRevisionSearchIndex(materialInstance, list);
+    }
+
+    private void insertInBatches(List<Modification> modifications, int batchSize) {
+        getHibernateTemplate().execute(session -> {
+            // anything pending, such as a new material instance, has to be written before it can be referred to
+            session.flush();
+            session.doWork(connection -> new ModificationBatchInserter(connection, batchSize).insert(modifications));
+            return null;
+        });
     }
 
     private void checkAndRemoveDuplicates(MaterialInstance materialInstance,
                                           List<Modification> newChanges,
-                                          List<Modification> list) {
+                                          List<Modification> list,
+                                          int batchSize) {
         if (!new SystemEnvironment().get(SystemEnvironment.CHECK_AND_REMOVE_DUPLICATE_MODIFICATIONS)) {
             return;
         }
-        DetachedCriteria criteria = DetachedCriteria.forClass(Modification.class);
-        criteria.setProjection(Projections.projectionList().add(Projections.property("revision")));
-        criteria.add(Restrictions.eq("materialInstance.id", materialInstance.getId()));
         List<String> revisions = new ArrayList<>();
         for (Modification modification : newChanges) {
             revisions.add(modification.getRevision());
         }
-        criteria.add(Restrictions.in("revision", revisions));
-        @SuppressWarnings("unchecked") List<String> matchingRevisionsFromDb = (List<String>) getHibernateTemplate().findByCriteria(criteria);
+        List<String> matchingRevisionsFromDb = new ArrayList<>();
+        for (List<String> revisionsBatch : ListUtils.partition(revisions, Math.max(batchSize, 1))) {
+            DetachedCriteria criteria = DetachedCriteria.forClass(Modification.class);
+            criteria.setProjection(Projections.projectionList().add(Projections.property("revision")));
+            criteria.add(Restrictions.eq("materialInstance.id", materialInstance.getId()));
+            criteria.add(Restrictions.in("revision", revisionsBatch));
+            @SuppressWarnings("unchecked") List<String> matching = (List<String>) getHibernateTemplate().findByCriteria(criteria);
+            matchingRevisionsFromDb.addAll(matching);
+        }
         if (!matchingRevisionsFromDb.isEmpty()) {
-            for (final String revision : matchingRevisionsFromDb) {
-                Modification modification = list.stream().filter(item -> item.getRevision().equals(revision)).findFirst().orElse(null);
-                list.remove(modification);
+            // every revision found in the db removes the first modification with that revision
+            Map<String, Integer> duplicatesToRemove = new HashMap<>();
+            for (String revision : matchingRevisionsFromDb) {
+                duplicatesToRemove.merge(revision, 1, Integer::sum);
             }
+            list.removeIf(modification -> {
+                Integer remaining = duplicatesToRemove.get(modification.getRevision());
+                if (remaining == null) {
+                    return false;
+                }
+                if (remaining == 1) {
+                    duplicatesToRemove.remove(modification.getRevision());
+                } else {
+                    duplicatesToRemove.put(modification.getRevision(), remaining - 1);
+                }
+                return true;
+            });
         }
         if (!newChanges.isEmpty() && list.isEmpty()) {
             LOGGER.debug("All modifications already exist in db [{}]", revisions);
@@ -890,24 +946,125 @@ public class MaterialRepository extends HibernateDaoSupport {
 
     @SuppressWarnings("unchecked")
     public List<MatchedRevision> findRevisionsMatching(final MaterialConfig materialConfig, final String searchString) {
+        Material material = materialConfigConverter.toMaterial(materialConfig);
+        List<Modification> modifications = null;
+        if (new SystemEnvironment().get(SystemEnvironment.REVISION_SEARCH_INDEX)) {
+            modifications = findRevisionsMatchingUsingIndex(material, searchString);
+        }
+        if (modifications == null) {
+            modifications = getHibernateTemplate().execute(session -> {
+                String sql = "SELECT m.*"
+                    + " FROM modifications AS m"
+                    + " INNER JOIN materials mat ON mat.id = m.materialId"
+                    + " WHERE mat.fingerprint = :finger_print"
+                    + " AND " + REVISION_SEARCH_CONDITION
+                    + " ORDER BY m.id DESC"
+                    + " LIMIT " + MAX_MATCHED_REVISIONS;
+                SQLQuery query = session.createSQLQuery(sql);
+                query.addEntity("m", Modification.class);
+                query.setString("finger_print", material.getFingerprint());
+                query.setString("search_string", "%" + searchString + "%");
+                return (List<Modification>) query.list();
+            });
+        }
+        final List<MatchedRevision> list = new ArrayList<>();
+        for (Modification mod : modifications) {
+            list.add(material.createMatchedRevision(mod, searchString));
+        }
+        return list;
+    }
+
+    /**
+     * Only the candidates from the index are checked against the search condition, newest first. Returns null when
+     * the index can't narrow the search down enough to be worth it, or while it is still being loaded.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Modification> findRevisionsMatchingUsingIndex(Material material, String searchString) {
+        MaterialInstance materialInstance = findMaterialInstance(material);
+        if (materialInstance == null) {
+            return new ArrayList<>();
+        }
+        RevisionSearchIndex index = revisionSearchIndexes.getOrLoad(materialInstance.getId(), () -> loadRevisionSearchIndexInBackground(materialInstance.getId()));
+        if (!index.isLoaded()) {
+            return null;
+        }
+
+        RevisionSearchIndex.Candidates candidates = index.candidates(searchString);
+        if (candidates == null || candidates.count() > MAX_REVISION_SEARCH_CANDIDATES) {
+            return null;
+        }
         return getHibernateTemplate().execute(session -> {
             String sql = "SELECT m.*"
                 + " FROM modifications AS m"
-                + " INNER JOIN materials mat ON mat.id = m.materialId"
-                + " WHERE mat.fingerprint = :finger_print"
-                + " AND (m.revision || ' ' || COALESCE(m.username, '') || ' ' || COALESCE(m.comment, '') LIKE :search_string OR m.pipelineLabel LIKE :search_string)"
-                + " ORDER BY m.id DESC"
-                + " LIMIT 5";
-            SQLQuery query = session.createSQLQuery(sql);
-            query.addEntity("m", Modification.class);
-            Material material = materialConfigConverter.toMaterial(materialConfig);
-            query.setString("finger_print", material.getFingerprint());
-            query.setString("search_string", "%" + searchString + "%");
-            final List<MatchedRevision> list = new ArrayList<>();
-            for (Modification mod : (List<Modification>) query.list()) {
-                list.add(material.createMatchedRevision(mod, searchString));
+                + " WHERE m.id IN (:ids)"
+                + " AND " + REVISION_SEARCH_CONDITION
+                + " ORDER BY m.id DESC";
+            List<Modification> matches = new ArrayList<>();
+            List<Long> ids;
+            while (matches.size() < MAX_MATCHED_REVISIONS && !(ids = candidates.next(REVISION_SEARCH_BATCH_SIZE)).isEmpty()) {
+                SQLQuery query = session.createSQLQuery(sql);
+                query.addEntity("m", Modification.class);
+                query.setParameterList("ids", ids);
+                query.setString("search_string", "%" + searchString + "%");
+                matches.addAll((List<Modification>) query.list());
+            }
+            return matches.size() > MAX_MATCHED_REVISIONS ? new ArrayList<>(matches.subList(0, MAX_MATCHED_REVISIONS)) : matches;
+        });
+    }
+
+    @TestOnly
+    boolean hasLoadedRevisionSearchIndexFor(Material material) {
+        MaterialInstance materialInstance = findMaterialInstance(material);
+        RevisionSearchIndex index = materialInstance == null ? null : revisionSearchIndexes.get(materialInstance.getId());
+        return index != null && index.isLoaded();
+    }
+
+    /* Searches use the database until the index has read every modification of the material. */
+    private RevisionSearchIndex loadRevisionSearchIndexInBackground(long materialId) {
+        RevisionSearchIndex index = new RevisionSearchIndex();
+        revisionSearchIndexLoader.execute(() -> {
+            try {
+                loadRevisionSearchIndex(materialId, index);
+                index.finishLoading();
+            } catch (Exception e) {
+                LOGGER.warn("Failed to load the revision search index of material {}, it will be loaded again on the next search", materialId, e);
+                revisionSearchIndexes.remove(materialId);
+            }
+        });
+        return index;
+    }
+
+    private void loadRevisionSearchIndex(long materialId, RevisionSearchIndex index) {
+        getHibernateTemplate().execute(session -> {
+            SQLQuery query = session.createSQLQuery("SELECT id, revision, username, comment, pipelineLabel FROM modifications WHERE materialId = :materialId ORDER BY id");
+            query.addScalar("id", LongType.INSTANCE);
+            query.addScalar("revision", StringType.INSTANCE);
+            query.addScalar("username", StringType.INSTANCE);
+            query.addScalar("comment", StringType.INSTANCE);
+            query.addScalar("pipelineLabel", StringType.INSTANCE);
+            query.setLong("materialId", materialId);
+            query.setFetchSize(1000);
+            ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                while (results.next()) {
+                    index.add(results.getLong(0), results.getString(1), results.getString(2), results.getString(3), results.getString(4));
+                }
+            } finally {
+                results.close();
+            }
+            return null;
+        });
+    }
+
+    private void updateRevisionSearchIndex(final MaterialInstance materialInstance, final List<Modification> modifications) {
+        transactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                RevisionSearchIndex index = revisionSearchIndexes.get(materialInstance.getId());
+                if (index != null) {
+                    index.added(modifications);
+                }
             }
-            return list;
         });
     }
 
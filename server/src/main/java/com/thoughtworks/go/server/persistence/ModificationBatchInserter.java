@@ -0,0 +1,132 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.persistence;
+
+import com.thoughtworks.go.domain.PersistentObject;
+import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.domain.materials.ModifiedFile;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Understands how to insert many modifications, along with their modified files, using JDBC batches rather than one
+ * statement per row. The generated ids are set on the inserted objects, the same way Hibernate would have.
+ */
+class ModificationBatchInserter {
+    private static final String INSERT_MODIFICATION = "INSERT INTO modifications " +
+            "(revision, comment, emailAddress, modifiedTime, userName, pipelineLabel, pipelineId, additionalData, materialId) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_MODIFIED_FILE = "INSERT INTO modifiedFiles " +
+            "(modificationId, fileName, folderName, action) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private final Connection connection;
+    private final int batchSize;
+
+    ModificationBatchInserter(Connection connection, int batchSize) {
+        this.connection = connection;
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    void insert(List<Modification> modifications) throws SQLException {
+        List<ModifiedFile> files = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_MODIFICATION, new String[]{"id"})) {
+            List<Modification> batch = new ArrayList<>(batchSize);
+            for (Modification modification : modifications) {
+                statement.setString(1, modification.getRevision());
+                statement.setString(2, modification.getComment());
+                statement.setString(3, modification.getEmailAddress());
+                setTimestamp(statement, 4, modification.getModifiedTime());
+                statement.setString(5, modification.getUserName());
+                statement.setString(6, modification.getPipelineLabel());
+                setLong(statement, 7, modification.getPipelineId());
+                statement.setString(8, modification.getAdditionalData());
+                statement.setLong(9, modification.getMaterialInstance().getId());
+                statement.addBatch();
+
+                batch.add(modification);
+                if (batch.size() == batchSize) {
+                    execute(statement, batch);
+                }
+            }
+            execute(statement, batch);
+        }
+
+        for (Modification modification : modifications) {
+            for (ModifiedFile file : modification.getModifiedFiles()) {
+                file.setModificationId(modification.getId());
+                files.add(file);
+            }
+        }
+        insertFiles(files);
+    }
+
+    private void insertFiles(List<ModifiedFile> files) throws SQLException {
+        if (files.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_MODIFIED_FILE, new String[]{"id"})) {
+            List<ModifiedFile> batch = new ArrayList<>(batchSize);
+            for (ModifiedFile file : files) {
+                statement.setLong(1, file.getModificationId());
+                statement.setString(2, file.getFileName());
+                statement.setString(3, file.getFolderName());
+                statement.setString(4, file.getAction() == null ? null : file.getAction().name());
+                statement.addBatch();
+
+                batch.add(file);
+                if (batch.size() == batchSize) {
+                    execute(statement, batch);
+                }
+            }
+            execute(statement, batch);
+        }
+    }
+
+    private void execute(PreparedStatement statement, List<? extends PersistentObject> batch) throws SQLException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        statement.executeBatch();
+        try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+            for (PersistentObject inserted : batch) {
+                if (!generatedKeys.next()) {
+                    throw new SQLException("Fewer generated keys were returned than rows inserted into the batch");
+                }
+                inserted.setId(generatedKeys.getLong(1));
+            }
+        }
+        batch.clear();
+    }
+
+    private static void setTimestamp(PreparedStatement statement, int index, java.util.Date date) throws SQLException {
+        if (date == null) {
+            statement.setNull(index, Types.TIMESTAMP);
+        } else {
+            statement.setTimestamp(index, new Timestamp(date.getTime()));
+        }
+    }
+
+    private static void setLong(PreparedStatement statement, int index, Long value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, value);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.persistence;
+
+import com.thoughtworks.go.domain.materials.Modification;
+
+import java.util.*;
+
+/**
+ * Understands which modifications of a material could match a revision search, without having to look at all of them.
+ * Every word of the user names, comments and pipeline labels is indexed, case-insensitively, along with the revisions
+ * themselves. A modification is a candidate if, for each word in the search string, it has a word or revision that
+ * contains it. This never misses a match, so candidates only have to be checked against the database, newest first,
+ * until enough of them are found.
+ * <p>
+ * Words and revisions are found by the trigrams they contain: only those containing the rarest trigram of a search word
+ * are checked for the whole word, so a search costs about as much as that trigram is used rather than as much as there
+ * is history. Search words shorter than a trigram are not used to narrow down the candidates.
+ */
+class RevisionSearchIndex {
+    static final int GRAM_LENGTH = 3;
+
+    private long[] ids = new long[1024];
+    private int size = 0;
+    private final Map<String, Integer> tokenIds = new HashMap<>();
+    private final List<String> tokens = new ArrayList<>();
+    private final List<Postings> positionsByToken = new ArrayList<>();
+    private final Map<String, Postings> tokensByTrigram = new HashMap<>();
+    private final List<Modification> savedWhileLoading = new ArrayList<>();
+    private boolean loaded = false;
+
+    /**
+     * Adds a modification newer than all those already in the index. While the index is being loaded, this is how the
+     * loader adds every modification of the material, oldest first.
+     */
+    synchronized void add(long id, String revision, String userName, String comment, String pipelineLabel) {
+        // modifications already in the index are ignored
+        if (size > 0 && id <= ids[size - 1]) {
+            return;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        int position = size;
+        ids[position] = id;
+        if (revision != null && !revision.isEmpty()) {
+            index(lowerCase(revision), position);
+        }
+        for (String text : new String[]{userName, comment, pipelineLabel}) {
+            for (String word : words(text)) {
+                index(word, position);
+            }
+        }
+        size++;
+    }
+
+    /**
+     * Called by the loader once it has added every modification of the material. Modifications saved while it was
+     * loading are added now, so none are missed whether or not the loader saw them.
+     */
+    synchronized void finishLoading() {
+        savedWhileLoading.sort(Comparator.comparingLong(Modification::getId));
+        for (Modification modification : savedWhileLoading) {
+            add(modification);
+        }
+        savedWhileLoading.clear();
+        loaded = true;
+    }
+
+    synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    synchronized void added(List<Modification> modifications) {
+        if (!loaded) {
+            savedWhileLoading.addAll(modifications);
+            return;
+        }
+        for (Modification modification : modifications) {
+            add(modification);
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the modifications which could match the search string, or null if it has no words long enough to narrow
+     * them down by
+     */
+    synchronized Candidates candidates(String searchString) {
+        Set<String> searchWords = new HashSet<>();
+        for (String word : words(searchString)) {
+            if (word.length() >= GRAM_LENGTH) {
+                searchWords.add(word);
+            }
+        }
+        if (searchWords.isEmpty()) {
+            return null;
+        }
+
+        BitSet candidates = null;
+        for (String searchWord : searchWords) {
+            BitSet matches = new BitSet(size);
+            Postings tokensToCheck = tokensWithRarestTrigramOf(searchWord);
+            for (int i = 0; tokensToCheck != null && i < tokensToCheck.size; i++) {
+                int token = tokensToCheck.values[i];
+                if (tokens.get(token).contains(searchWord)) {
+                    positionsByToken.get(token).addTo(matches);
+                }
+            }
+
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.and(matches);
+            }
+        }
+        // positions below size are never written to again, so the candidates can be read outside the lock
+        return new Candidates(ids, candidates);
+    }
+
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean partOfWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (partOfWord && start < 0) {
+                start = i;
+            } else if (!partOfWord && start >= 0) {
+                words.add(lowerCase(text.substring(start, i)));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private void add(Modification modification) {
+        add(modification.getId(), modification.getRevision(), modification.getUserName(), modification.getComment(), modification.getPipelineLabel());
+    }
+
+    private void index(String token, int position) {
+        Integer tokenId = tokenIds.get(token);
+        if (tokenId == null) {
+            tokenId = tokens.size();
+            tokens.add(token);
+            positionsByToken.add(new Postings());
+            tokenIds.put(token, tokenId);
+            for (int i = 0; i + GRAM_LENGTH <= token.length(); i++) {
+                tokensByTrigram.computeIfAbsent(token.substring(i, i + GRAM_LENGTH), trigram -> new Postings()).add(tokenId);
+            }
+        }
+        positionsByToken.get(tokenId).add(position);
+    }
+
+    /* Null when no word or revision has one of the trigrams, and so none can contain the search word. */
+    private Postings tokensWithRarestTrigramOf(String searchWord) {
+        Postings rarest = null;
+        for (int i = 0; i + GRAM_LENGTH <= searchWord.length(); i++) {
+            Postings tokensWithTrigram = tokensByTrigram.get(searchWord.substring(i, i + GRAM_LENGTH));
+            if (tokensWithTrigram == null) {
+                return null;
+            }
+            if (rarest == null || tokensWithTrigram.size < rarest.size) {
+                rarest = tokensWithTrigram;
+            }
+        }
+        return rarest;
+    }
+
+    private static String lowerCase(String text) {
+        return text == null ? null : text.toLowerCase(Locale.ROOT);
+    }
+
+    static class Candidates {
+        private final long[] ids;
+        private final BitSet positions;
+        private int next;
+
+        private Candidates(long[] ids, BitSet positions) {
+            this.ids = ids;
+            this.positions = positions;
+            this.next = positions.length() - 1;
+        }
+
+        int count() {
+            return positions.cardinality();
+        }
+
+        /**
+         * The ids of the next candidates, newest first.
+         */
+        List<Long> next(int max) {
+            List<Long> batch = new ArrayList<>();
+            while (batch.size() < max && next >= 0) {
+                next = positions.previousSetBit(next);
+                if (next >= 0) {
+                    batch.add(ids[next]);
+                    next--;
+                }
+            }
+            return batch;
+        }
+    }
+
+    /* Increasing positions of modifications, or ids of words and revisions. */
+    private static class Postings {
+        private int[] values = new int[2];
+        private int size = 0;
+
+        private void add(int value) {
+            // a word used more than once by the same modification, or a trigram used more than once by the same word,
+            // is only recorded once
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private void addTo(BitSet bitSet) {
+            for (int i = 0; i < size; i++) {
+                bitSet.set(values[i]);
+            }
+        }
+    }
+}
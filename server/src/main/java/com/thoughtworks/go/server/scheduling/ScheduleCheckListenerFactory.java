@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.scheduling;
 
+import com.thoughtworks.go.server.messaging.QueueWorkerPools;
 import com.thoughtworks.go.server.perf.SchedulingPerformanceLogger;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,25 +28,27 @@ public class ScheduleCheckListenerFactory {
     private final ScheduleCheckQueue queue;
     private final SystemEnvironment systemEnvironment;
     private final SchedulingPerformanceLogger schedulingPerformanceLogger;
+    private final QueueWorkerPools queueWorkerPools;
 
     @Autowired
     public ScheduleCheckListenerFactory(ScheduleCheckCompletedTopic topic,
                                         BuildCauseProducerService producerService,
                                         ScheduleCheckQueue queue,
                                         SystemEnvironment systemEnvironment,
-                                        SchedulingPerformanceLogger schedulingPerformanceLogger) {
+                                        SchedulingPerformanceLogger schedulingPerformanceLogger,
+                                        QueueWorkerPools queueWorkerPools) {
         this.topic = topic;
         this.producerService = producerService;
         this.queue = queue;
         this.systemEnvironment = systemEnvironment;
         this.schedulingPerformanceLogger = schedulingPerformanceLogger;
+        this.queueWorkerPools = queueWorkerPools;
     }
 
     public void init() {
         int numberOfListeners = systemEnvironment.getNumberOfMaterialCheckListener();
 
-        for (int i = 0; i < numberOfListeners; i++) {
-            queue.addListener(new ScheduleCheckListener(topic, producerService, schedulingPerformanceLogger));
-        }
+        queueWorkerPools.addConsumers(queue, "schedule-check", numberOfListeners, ScheduleCheckMessage::getPipelineName,
+                () -> new ScheduleCheckListener(topic, producerService, schedulingPerformanceLogger));
     }
 }
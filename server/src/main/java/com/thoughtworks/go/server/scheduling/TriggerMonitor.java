@@ -19,6 +19,8 @@ import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.config.PipelineConfig;
 import org.springframework.stereotype.Component;
 
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
@@ -32,6 +34,10 @@ public class TriggerMonitor {
         return triggeredPipelines.contains(pipelineName);
     }
 
+    public Set<CaseInsensitiveString> triggeredPipelines() {
+        return new HashSet<>(triggeredPipelines);
+    }
+
     public boolean markPipelineAsAlreadyTriggered(PipelineConfig pipelineConfig) {
         return markPipelineAsAlreadyTriggered(pipelineConfig.name());
     }
@@ -0,0 +1,155 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.Strings;
+
+import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+
+import static java.lang.String.format;
+
+/**
+ * Understands an artifact being uploaded by an agent: where it goes, the MD5s the agent sent for the files in it, and
+ * how far saving it has got.
+ */
+public class ArtifactUpload {
+    private final String filePath;
+    private final File dest;
+    private final boolean shouldUnzip;
+    private final int attempt;
+    private final long size;
+    private final Properties checksums = new Properties();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private volatile long startedAt;
+    private volatile long finishedAt;
+
+    public ArtifactUpload(String filePath, File dest, boolean shouldUnzip, int attempt, long size, byte[] checksums) throws IOException {
+        this.filePath = filePath;
+        this.dest = dest;
+        this.shouldUnzip = shouldUnzip;
+        this.attempt = attempt;
+        this.size = size;
+        if (checksums != null) {
+            this.checksums.load(new ByteArrayInputStream(checksums));
+        }
+    }
+
+    public String filePath() {
+        return filePath;
+    }
+
+    File dest() {
+        return dest;
+    }
+
+    boolean shouldUnzip() {
+        return shouldUnzip;
+    }
+
+    int attempt() {
+        return attempt;
+    }
+
+    long size() {
+        return size;
+    }
+
+    long bytesSaved() {
+        return bytesSaved.get();
+    }
+
+    void started() {
+        startedAt = System.nanoTime();
+    }
+
+    void finished() {
+        finishedAt = System.nanoTime();
+        bytesSaved.set(size);
+    }
+
+    long timeTakenInNanos() {
+        long until = finishedAt == 0 ? System.nanoTime() : finishedAt;
+        return startedAt == 0 ? 0 : until - startedAt;
+    }
+
+    /* Counts the bytes of the upload as they are read, which is as far as saving it has got. */
+    InputStream track(InputStream stream) {
+        return new FilterInputStream(stream) {
+            @Override
+            public int read() throws IOException {
+                int read = super.read();
+                if (read != -1) {
+                    bytesSaved.incrementAndGet();
+                }
+                return read;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read > 0) {
+                    bytesSaved.addAndGet(read);
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                bytesSaved.addAndGet(skipped);
+                return skipped;
+            }
+        };
+    }
+
+    /**
+     * Fails the upload when a file extracted from it does not have the MD5 the agent sent for it. Agents name each file by
+     * its path under the job's artifacts, which is the path of the upload and the name of the file inside the zip.
+     */
+    void verify(ZipEntry entry, String md5) throws IOException {
+        String entryName = Strings.CS.removeStart(entry.getName(), "/");
+        File file = filePath.isEmpty() ? new File(entryName) : new File(filePath, entryName);
+        String artifactPath = Strings.CS.removeStart(FilenameUtils.separatorsToUnix(file.getPath()), "/");
+
+        String expected = checksums.getProperty(artifactPath);
+        if (expected != null && !expected.equalsIgnoreCase(md5)) {
+            throw new IOException(format("[Checksum Verification] The MD5 of [%s] is [%s] but the agent sent [%s] for it", artifactPath, md5, expected));
+        }
+    }
+
+    Map<String, Object> statistics() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Path", filePath);
+        json.put("State", startedAt == 0 ? "Queued" : "Saving");
+        json.put("Size", size);
+        json.put("Bytes Saved", bytesSaved());
+        json.put("Percent Done", size == 0 ? 0 : bytesSaved() * 100 / size);
+        json.put("Throughput in KB/second", throughputInKilobytesPerSecond(bytesSaved(), timeTakenInNanos()));
+        return json;
+    }
+
+    static long throughputInKilobytesPerSecond(long bytes, long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        return millis == 0 ? 0 : bytes * 1000 / 1024 / millis;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Understands saving artifacts uploaded by agents away from the threads which serve requests, so that many agents
+ * uploading at the end of their builds cannot use up all of those threads.
+ * <p>
+ * An upload saved in the background is first moved into a staging directory next to the artifacts, since the upload
+ * is cleaned up along with its request, and is then appended or unzipped into place on a bounded pool. When the pool
+ * has as many uploads queued as it can take, the thread which asked saves the upload itself, as it did before.
+ */
+@Service
+public class ArtifactUploadService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactUploadService.class);
+    static final String STAGING_DIR = "uploads-in-progress";
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final ArtifactsService artifactsService;
+    private final ArtifactsDirHolder artifactsDirHolder;
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+    private final Set<ArtifactUpload> inProgress = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder saved = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    private final LongAdder savingTimeInNanos = new LongAdder();
+
+    @Autowired
+    public ArtifactUploadService(ArtifactsService artifactsService, ArtifactsDirHolder artifactsDirHolder, SystemEnvironment systemEnvironment) {
+        this.artifactsService = artifactsService;
+        this.artifactsDirHolder = artifactsDirHolder;
+        this.threads = systemEnvironment.getArtifactUploadThreads();
+        this.executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new ArrayBlockingQueue<>(systemEnvironment.getArtifactUploadQueueSize()), runnable -> {
+            Thread thread = new Thread(runnable, "artifact-upload-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /* Uploads staged before the server last stopped were never saved, and their agents have long since been told so. */
+    public void initialize() {
+        FileUtils.deleteQuietly(stagingDir());
+    }
+
+    /* Saves the upload on the calling thread. */
+    public boolean save(ArtifactUpload upload, MultipartFile multipartFile) {
+        inProgress.add(upload);
+        try (InputStream stream = multipartFile.getInputStream()) {
+            return save(upload, stream);
+        } catch (IOException e) {
+            return failed(upload, e);
+        } finally {
+            inProgress.remove(upload);
+        }
+    }
+
+    /* Stages the upload and saves it on the upload pool, giving whether it was saved to the callback once it is. */
+    public void saveInBackground(ArtifactUpload upload, MultipartFile multipartFile, Consumer<Boolean> whenSaved) {
+        File staged;
+        try {
+            staged = stage(multipartFile);
+        } catch (IOException e) {
+            whenSaved.accept(failed(upload, e));
+            return;
+        }
+
+        inProgress.add(upload);
+        executor.execute(() -> {
+            boolean wasSaved;
+            try (InputStream stream = new FileInputStream(staged)) {
+                wasSaved = save(upload, stream);
+            } catch (IOException e) {
+                wasSaved = failed(upload, e);
+            } finally {
+                inProgress.remove(upload);
+                FileUtils.deleteQuietly(staged);
+            }
+            whenSaved.accept(wasSaved);
+        });
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Threads", threads);
+        json.put("Queued", executor.getQueue().size());
+        json.put("Saved", saved.sum());
+        json.put("Failed", failed.sum());
+        json.put("Bytes Saved", bytesSaved.sum());
+        json.put("Average Throughput in KB/second", ArtifactUpload.throughputInKilobytesPerSecond(bytesSaved.sum(), savingTimeInNanos.sum()));
+        List<Map<String, Object>> uploads = new ArrayList<>();
+        for (ArtifactUpload upload : inProgress) {
+            uploads.add(upload.statistics());
+        }
+        json.put("In Progress", uploads);
+        return json;
+    }
+
+    /* Moves the upload into the staging directory: a rename when it is already on disk on the same file system. */
+    private File stage(MultipartFile multipartFile) throws IOException {
+        File stagingDir = stagingDir();
+        FileUtils.forceMkdir(stagingDir);
+        File staged = new File(stagingDir, UUID.randomUUID() + ".upload");
+        multipartFile.transferTo(staged);
+        return staged;
+    }
+
+    private File stagingDir() {
+        return new File(artifactsDirHolder.getArtifactsDir(), STAGING_DIR);
+    }
+
+    private boolean save(ArtifactUpload upload, InputStream stream) {
+        upload.started();
+        boolean wasSaved = upload.shouldUnzip()
+            ? artifactsService.saveFile(upload.dest(), upload.track(stream), true, upload.attempt(), upload::verify)
+            : artifactsService.saveFile(upload.dest(), stream, false, upload.attempt());
+        upload.finished();
+
+        if (wasSaved) {
+            saved.increment();
+            bytesSaved.add(upload.size());
+            savingTimeInNanos.add(upload.timeTakenInNanos());
+        } else {
+            failed.increment();
+        }
+        return wasSaved;
+    }
+
+    private boolean failed(ArtifactUpload upload, IOException e) {
+        LOGGER.error("[Artifacts Upload] Failed to save the upload of [{}]", upload.filePath(), e);
+        failed.increment();
+        return false;
+    }
+}
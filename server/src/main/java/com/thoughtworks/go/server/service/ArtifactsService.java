@@ -32,6 +32,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.util.zip.ZipInputStream;
 
 import static java.lang.String.format;
@@ -70,14 +71,20 @@ public class ArtifactsService implements ArtifactUrlReader {
     }
 
     public boolean saveFile(File dest, InputStream stream, boolean shouldUnzip, int attempt) {
+        return saveFile(dest, stream, shouldUnzip, attempt, null);
+    }
+
+    /* Saves the file like the above, giving each file extracted from a zip and the MD5 of its contents to the handler. */
+    public boolean saveFile(File dest, InputStream stream, boolean shouldUnzip, int attempt, ZipUtil.ZipEntryHandler zipEntryHandler) {
         String destPath = dest.getAbsolutePath();
         try {
             LOGGER.trace("Saving file [{}]", destPath);
             if (shouldUnzip) {
-                zipUtil.unzip(new ZipInputStream(new BufferedInputStream(stream)), dest);
+                ZipUtil unzipper = zipEntryHandler == null ? zipUtil : new ZipUtil(zipEntryHandler);
+                unzipper.unzip(new ZipInputStream(new BufferedInputStream(stream)), dest);
             } else {
                 try (FileOutputStream out = FileUtils.openOutputStream(dest, true)) {
-                    stream.transferTo(out);
+                    append(stream, out);
                 }
             }
             LOGGER.trace("File [{}] saved.", destPath);
@@ -97,6 +104,22 @@ public class ArtifactsService implements ArtifactUrlReader {
         }
     }
 
+    /* A file on disk is appended with channel transfers, which need not copy its contents through the heap. */
+    private static void append(InputStream stream, FileOutputStream out) throws IOException {
+        if (!(stream instanceof FileInputStream fileInputStream)) {
+            stream.transferTo(out);
+            return;
+        }
+        FileChannel source = fileInputStream.getChannel();
+        FileChannel target = out.getChannel();
+        long position = source.position();
+        long size = source.size();
+        while (position < size) {
+            position += source.transferTo(position, size - position, target);
+        }
+        source.position(position);
+    }
+
     public boolean saveOrAppendFile(File dest, InputStream stream) {
         String destPath = dest.getAbsolutePath();
         try {
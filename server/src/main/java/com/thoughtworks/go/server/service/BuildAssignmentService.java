@@ -28,6 +28,7 @@ import com.thoughtworks.go.listener.EntityConfigChangedListener;
 import com.thoughtworks.go.plugin.access.exceptions.SecretResolutionFailureException;
 import com.thoughtworks.go.remote.AgentIdentifier;
 import com.thoughtworks.go.remote.work.*;
+import com.thoughtworks.go.server.domain.JobStatusListener;
 import com.thoughtworks.go.server.exceptions.RulesViolationException;
 import com.thoughtworks.go.server.materials.StaleMaterialsOnBuildCause;
 import com.thoughtworks.go.server.messaging.JobStatusMessage;
@@ -44,12 +45,19 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static com.thoughtworks.go.util.command.EnvironmentVariableContext.GO_ENVIRONMENT_NAME;
 import static java.lang.String.format;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static java.util.stream.StreamSupport.stream;
 
 
@@ -71,7 +79,16 @@ public class BuildAssignmentService implements ConfigChangedListener {
     private TransactionTemplate transactionTemplate;
     private final ScheduledPipelineLoader scheduledPipelineLoader;
 
-    private List<JobPlan> jobPlans = new ArrayList<>();
+    private volatile ScheduledJobPlanIndex jobPlans = ScheduledJobPlanIndex.empty();
+    // agents assign work concurrently (jobs are claimed through the index), reloading the scheduled jobs is exclusive
+    private final ReadWriteLock assignmentLock = new ReentrantReadWriteLock();
+    // in event driven mode job status changes keep the scheduled jobs up to date, the database is only read to reconcile
+    private volatile boolean eventDriven = false;
+    private volatile long lastReconciledAt = 0;
+    private final AtomicLong reconciliations = new AtomicLong();
+    private final AtomicLong jobsMissedByEvents = new AtomicLong();
+    private final AtomicLong staleJobsDropped = new AtomicLong();
+    private final List<Runnable> jobsScheduledListeners = new CopyOnWriteArrayList<>();
     private final UpstreamPipelineResolver resolver;
     private final BuilderFactory builderFactory;
     private MaintenanceModeService maintenanceModeService;
@@ -110,6 +127,60 @@ public class BuildAssignmentService implements ConfigChangedListener {
     public void initialize() {
         goConfigService.register(this);
         goConfigService.register(pipelineConfigChangedListener());
+        if (systemEnvironment.isBuildAssignmentEventDriven()) {
+            jobInstanceService.registerJobStateChangeListener(scheduledJobsListener());
+            eventDriven = true;
+        }
+    }
+
+    JobStatusListener scheduledJobsListener() {
+        return job -> {
+            if (job.getState() == JobState.Scheduled) {
+                addScheduledJob(job);
+            } else {
+                // the job is no longer waiting for an agent, it has been assigned, cancelled or rescheduled
+                jobPlans.claim(job.getId());
+            }
+        };
+    }
+
+    private void addScheduledJob(JobInstance job) {
+        if (jobPlans.contains(job.getId())) {
+            return;
+        }
+        JobPlan jobPlan = jobInstanceService.loadJobPlan(job.getId());
+        if (jobPlan == null) {
+            return;
+        }
+
+        assignmentLock.writeLock().lock();
+        try {
+            if (jobPlans.contains(job.getId())) {
+                return;
+            }
+            // a burst of scheduled jobs is appended one by one, the whole index is only rebuilt when reloading
+            jobPlans.append(jobPlan);
+        } finally {
+            assignmentLock.writeLock().unlock();
+        }
+        // jobs already in the index which have been waiting too long are looked after by checkOnAssignment
+        elasticAgentPluginService.createAgentsFor(List.of(), List.of(jobPlan));
+        notifyJobsScheduled();
+    }
+
+    /* Listeners are told when jobs start waiting for an agent, after agents can be assigned to them. */
+    public void addJobsScheduledListener(Runnable listener) {
+        jobsScheduledListeners.add(listener);
+    }
+
+    private void notifyJobsScheduled() {
+        for (Runnable listener : jobsScheduledListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                LOGGER.warn("[Build Assignment] Failed to notify listener of scheduled jobs", e);
+            }
+        }
     }
 
 
@@ -119,15 +190,18 @@ public class BuildAssignmentService implements ConfigChangedListener {
             public void onEntityConfigChange(PipelineConfig pipelineConfig) {
                 LOGGER.info("[Configuration Changed] Removing deleted jobs for pipeline {}.", pipelineConfig.name());
 
-                synchronized (BuildAssignmentService.this) {
+                assignmentLock.readLock().lock();
+                try {
                     List<JobPlan> jobsToRemove;
                     if (goConfigService.hasPipelineNamed(pipelineConfig.name())) {
-                        jobsToRemove = getMismatchingJobPlansFromUpdatedPipeline(pipelineConfig, jobPlans);
+                        jobsToRemove = getMismatchingJobPlansFromUpdatedPipeline(pipelineConfig, jobPlans.unclaimed());
                     } else {
-                        jobsToRemove = getAllJobPlansFromDeletedPipeline(pipelineConfig, jobPlans);
+                        jobsToRemove = getAllJobPlansFromDeletedPipeline(pipelineConfig, jobPlans.unclaimed());
                     }
 
                     jobsToRemove.forEach(o -> removeJob(o));
+                } finally {
+                    assignmentLock.readLock().unlock();
                 }
             }
         };
@@ -172,13 +246,16 @@ public class BuildAssignmentService implements ConfigChangedListener {
             return new DeniedAgentWork(agent.getUuid());
         }
 
-        synchronized (this) {
-//          check to ensure agent is not disabled after entering the synchronized block
+        //check if agent already has assigned build, if so, reschedule it
+        // not while holding the read lock: the rescheduled job is added to the scheduled jobs under the write lock
+        scheduleService.rescheduleAbandonedBuildIfNecessary(agent.getAgentIdentifier());
+
+        assignmentLock.readLock().lock();
+        try {
+//          check to ensure agent is not disabled after acquiring the lock
             if (agent.isDisabled()) {
                 return new DeniedAgentWork(agent.getUuid());
             }
-            //check if agent already has assigned build, if so, reschedule it
-            scheduleService.rescheduleAbandonedBuildIfNecessary(agent.getAgentIdentifier());
             final JobPlan job = findMatchingJob(agent);
             if (job != null) {
                 Work buildWork = createWork(agent, job);
@@ -189,36 +266,52 @@ public class BuildAssignmentService implements ConfigChangedListener {
 
                 return buildWork;
             }
+        } finally {
+            assignmentLock.readLock().unlock();
         }
         return NO_WORK;
     }
 
     JobPlan findMatchingJob(AgentInstance agent) {
-        List<JobPlan> filteredJobPlans = environmentConfigService.filterJobsByAgent(jobPlans, agent.getUuid());
-        JobPlan match = null;
+        ScheduledJobPlanIndex jobPlans = this.jobPlans;
         if (!agent.isElastic()) {
-            match = agent.firstMatching(filteredJobPlans);
-        } else {
-            for (JobPlan jobPlan : filteredJobPlans) {
-                try {
-                    if (jobPlan.requiresElasticAgent() && elasticAgentPluginService.shouldAssignWork(agent.elasticAgentMetadata(), environmentConfigService.envForPipeline(jobPlan.getPipelineName()), jobPlan.getElasticProfile(), jobPlan.getClusterProfile(), jobPlan.getIdentifier())) {
-                        match = jobPlan;
-                        break;
-                    }
-                } catch (RulesViolationException | SecretResolutionFailureException e) {
-                    JobInstance instance = jobInstanceService.buildById(jobPlan.getJobId());
-                    JobIdentifier jobIdentifier = jobPlan.getIdentifier();
-                    String failureMessage = format("\nThis job was failed by GoCD. This job is configured to run on an elastic agent, there were errors while resolving secrets for the the associated elastic configurations.\nReasons: %s", e.getMessage());
-                    logToJobConsole(jobIdentifier, failureMessage);
-                    scheduleService.failJob(instance);
-                    jobStatusTopic.post(new JobStatusMessage(jobIdentifier, instance.getState(), agent.getUuid()));
+            return findMatchingJobForNonElasticAgent(agent, jobPlans);
+        }
+
+        List<JobPlan> filteredJobPlans = environmentConfigService.filterJobsByAgent(jobPlans.unclaimedRequiringElasticAgent(), agent.getUuid());
+        for (JobPlan jobPlan : filteredJobPlans) {
+            try {
+                if (elasticAgentPluginService.shouldAssignWork(agent.elasticAgentMetadata(), environmentConfigService.envForPipeline(jobPlan.getPipelineName()), jobPlan.getElasticProfile(), jobPlan.getClusterProfile(), jobPlan.getIdentifier())
+                        && jobPlans.claim(jobPlan)) {
+                    return jobPlan;
                 }
+            } catch (RulesViolationException | SecretResolutionFailureException e) {
+                JobInstance instance = jobInstanceService.buildById(jobPlan.getJobId());
+                JobIdentifier jobIdentifier = jobPlan.getIdentifier();
+                String failureMessage = format("\nThis job was failed by GoCD. This job is configured to run on an elastic agent, there were errors while resolving secrets for the the associated elastic configurations.\nReasons: %s", e.getMessage());
+                logToJobConsole(jobIdentifier, failureMessage);
+                scheduleService.failJob(instance);
+                jobStatusTopic.post(new JobStatusMessage(jobIdentifier, instance.getState(), agent.getUuid()));
             }
         }
-        if (match != null) {
-            jobPlans.remove(match);
+        return null;
+    }
+
+    private JobPlan findMatchingJobForNonElasticAgent(AgentInstance agent, ScheduledJobPlanIndex jobPlans) {
+        while (true) {
+            List<JobPlan> candidates = jobPlans.firstUnclaimedOfEachGroup(group -> group.isAssignedToAgent()
+                    ? group.isAssignedToAgent(agent.getUuid())
+                    : agent.getAgent().hasAllResources(group.resources()));
+            if (candidates.isEmpty()) {
+                return null;
+            }
+
+            JobPlan match = agent.firstMatching(environmentConfigService.filterJobsByAgent(candidates, agent.getUuid()));
+            if (match == null || jobPlans.claim(match)) {
+                return match;
+            }
+            // another agent claimed this job in the meantime, look at the next candidates
         }
-        return match;
     }
 
     public void onTimer() {
@@ -227,34 +320,80 @@ public class BuildAssignmentService implements ConfigChangedListener {
             return;
         }
 
+        if (eventDriven && !isReconciliationDue()) {
+            // only elastic jobs which have been waiting for an agent for too long need attention
+            List<JobPlan> current = unclaimedJobPlans();
+            elasticAgentPluginService.createAgentsFor(current, current);
+            return;
+        }
+
         reloadJobPlans();
     }
 
+    private boolean isReconciliationDue() {
+        return System.currentTimeMillis() - lastReconciledAt >= systemEnvironment.getBuildAssignmentReconciliationIntervalInMillis();
+    }
+
     private void reloadJobPlans() {
-        synchronized (this) {
-            if (jobPlans == null) {
-                jobPlans = jobInstanceService.orderedScheduledBuilds();
-                elasticAgentPluginService.createAgentsFor(jobPlans, new ArrayList<>());
-            } else {
-                List<JobPlan> old = jobPlans;
-                List<JobPlan> newPlan = jobInstanceService.orderedScheduledBuilds();
-                jobPlans = newPlan;
-                elasticAgentPluginService.createAgentsFor(old, newPlan);
+        boolean jobsAdded;
+        assignmentLock.writeLock().lock();
+        try {
+            List<JobPlan> old = jobPlans.unclaimed();
+            List<JobPlan> newPlan = jobInstanceService.orderedScheduledBuilds();
+            if (eventDriven) {
+                recordDrift(old, newPlan);
             }
+            jobPlans = new ScheduledJobPlanIndex(newPlan);
+            lastReconciledAt = System.currentTimeMillis();
+            elasticAgentPluginService.createAgentsFor(old, newPlan);
+            Set<Long> oldJobIds = old.stream().map(JobPlan::getJobId).collect(toSet());
+            jobsAdded = newPlan.stream().anyMatch(jobPlan -> !oldJobIds.contains(jobPlan.getJobId()));
+        } finally {
+            assignmentLock.writeLock().unlock();
+        }
+        if (jobsAdded) {
+            notifyJobsScheduled();
         }
     }
 
+    private void recordDrift(List<JobPlan> known, List<JobPlan> scheduled) {
+        Set<Long> knownJobIds = known.stream().map(JobPlan::getJobId).collect(toSet());
+        Set<Long> scheduledJobIds = scheduled.stream().map(JobPlan::getJobId).collect(toSet());
+        long missed = scheduledJobIds.stream().filter(jobId -> !knownJobIds.contains(jobId)).count();
+        long stale = knownJobIds.stream().filter(jobId -> !scheduledJobIds.contains(jobId)).count();
+
+        reconciliations.incrementAndGet();
+        jobsMissedByEvents.addAndGet(missed);
+        staleJobsDropped.addAndGet(stale);
+        if (missed > 0 || stale > 0) {
+            LOGGER.warn("[Build Assignment] Reconciliation found {} scheduled job(s) missed by job status events and {} job(s) no longer scheduled.", missed, stale);
+        }
+    }
+
+    public Map<String, Object> refreshStatistics() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("Mode", eventDriven ? "event driven" : "periodic reload");
+        json.put("Jobs waiting for an agent", unclaimedJobPlans().size());
+        json.put("Reconciliations", reconciliations.get());
+        json.put("Jobs missed by events", jobsMissedByEvents.get());
+        json.put("Stale jobs dropped", staleJobsDropped.get());
+        return json;
+    }
+
     @Override
     public void onConfigChange(CruiseConfig newCruiseConfig) {
         LOGGER.info("[Configuration Changed] Removing jobs for pipelines that no longer exist in configuration.");
-        synchronized (this) {
+        assignmentLock.readLock().lock();
+        try {
             List<JobPlan> jobsToRemove = new ArrayList<>();
-            for (JobPlan jobPlan : jobPlans) {
+            for (JobPlan jobPlan : jobPlans.unclaimed()) {
                 if (!newCruiseConfig.hasBuildPlan(new CaseInsensitiveString(jobPlan.getPipelineName()), new CaseInsensitiveString(jobPlan.getStageName()), jobPlan.getName(), true)) {
                     jobsToRemove.add(jobPlan);
                 }
             }
             jobsToRemove.forEach(this::removeJob);
+        } finally {
+            assignmentLock.readLock().unlock();
         }
     }
 
@@ -266,7 +405,11 @@ public class BuildAssignmentService implements ConfigChangedListener {
 
     private void removeJob(JobPlan jobPlan) {
         try {
-            jobPlans.remove(jobPlan);
+            if (!jobPlans.claim(jobPlan)) {
+                // an agent was assigned the job in the meantime, cancelling it now would take it from under that agent
+                LOGGER.info("Not removing job plan {} that no longer exists in the config, it has already been assigned", jobPlan);
+                return;
+            }
             LOGGER.info("Removing job plan {} that no longer exists in the config", jobPlan);
             JobInstance instance = jobInstanceService.buildByIdWithTransitions(jobPlan.getJobId());
             //#2846 - remove this hack
@@ -396,7 +539,16 @@ public class BuildAssignmentService implements ConfigChangedListener {
     }
 
     List<JobPlan> jobPlans() {
-        return jobPlans;
+        return unclaimedJobPlans();
+    }
+
+    private List<JobPlan> unclaimedJobPlans() {
+        assignmentLock.readLock().lock();
+        try {
+            return jobPlans.unclaimed();
+        } finally {
+            assignmentLock.readLock().unlock();
+        }
     }
 
     // This method will resolve secrets in all the pluggable scm materials if any
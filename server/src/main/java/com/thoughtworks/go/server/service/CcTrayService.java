@@ -15,24 +15,43 @@
  */
 package com.thoughtworks.go.server.service;
 
+import com.thoughtworks.go.config.PluginRoleConfig;
+import com.thoughtworks.go.config.PluginRoleUsersStore;
 import com.thoughtworks.go.domain.activity.ProjectStatus;
 import com.thoughtworks.go.domain.cctray.CcTrayCache;
+import com.thoughtworks.go.util.Pair;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.*;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
-/* Understands how to serve a request for the CcTray XML for the current user. */
+/**
+ * Understands how to serve a request for the CcTray XML for the current user.
+ * <p>
+ * The XML is rendered once for every group of viewers who can see the same projects, and served as is until the
+ * statuses in the {@link CcTrayCache} change. Which projects a user can see is only worked out again once the statuses,
+ * or the plugin roles the user is in, have changed. So a poll which finds nothing changed does not look at any status.
+ */
 @Service
 public class CcTrayService {
+    static final int MAX_VIEWERS = 10_000;
+    static final int MAX_FEEDS = 100;
+
     private CcTrayCache ccTrayCache;
     private GoConfigService goConfigService;
 
+    private final Map<String, Viewer> viewers = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Viewer> eldest) {
+            return size() > MAX_VIEWERS;
+        }
+    };
+    private volatile Feeds feeds = new Feeds(Collections.emptyList());
+
     @Autowired
     public CcTrayService(CcTrayCache ccTrayCache, GoConfigService goConfigService) {
         this.ccTrayCache = ccTrayCache;
@@ -40,32 +59,138 @@ public class CcTrayService {
     }
 
     public Appendable renderCCTrayXML(String siteUrlPrefix, String userName, Appendable appendable, Consumer<String> etagConsumer) {
+        Feed feed = feedFor(siteUrlPrefix, userName);
+        etagConsumer.accept(feed.etag);
+
+        try {
+            appendable.append(feed.xml);
+        } catch (IOException e) {
+            // ignore. `StringBuilder#append` does not throw
+        }
+
+        return appendable;
+    }
+
+    /* The ETag of the XML the user would be served, so that a conditional request can be answered without rendering it. */
+    public String etag(String siteUrlPrefix, String userName) {
+        return feedFor(siteUrlPrefix, userName).etag;
+    }
+
+    private Feed feedFor(String siteUrlPrefix, String userName) {
         boolean isSecurityEnabled = goConfigService.isSecurityEnabled();
         List<ProjectStatus> statuses = ccTrayCache.allEntriesInOrder();
 
-        String hashCodes = statuses.stream().map(ProjectStatus::hashCode).map(Object::toString).collect(Collectors.joining("/"));
-        String etag = DigestUtils.sha256Hex(siteUrlPrefix + "/" + hashCodes);
-        etagConsumer.accept(etag);
+        Feeds feeds = this.feeds;
+        if (feeds.statuses != statuses) {
+            feeds = new Feeds(statuses);
+            this.feeds = feeds;
+        }
+
+        BitSet visible = isSecurityEnabled ? visibleTo(userName, statuses) : everything(statuses);
+        return feeds.feedFor(siteUrlPrefix, visible);
+    }
 
-        try {
-            appendable.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>");
-            appendable.append("\n");
-            appendable.append("<Projects>");
-            appendable.append("\n");
-            for (ProjectStatus status : statuses) {
-                if (!isSecurityEnabled || status.canBeViewedBy(userName)) {
-                    String xmlRepresentation = status.xmlRepresentation().replaceAll(ProjectStatus.SITE_URL_PREFIX, siteUrlPrefix);
-                    if (!StringUtils.isBlank(xmlRepresentation)) {
-                        appendable.append("  ").append(xmlRepresentation).append("\n");
-                    }
+    private BitSet visibleTo(String userName, List<ProjectStatus> statuses) {
+        String key = userName.toLowerCase();
+        Set<PluginRoleConfig> roles = PluginRoleUsersStore.instance().rolesOf(userName);
+
+        Viewer known;
+        synchronized (viewers) {
+            known = viewers.get(key);
+        }
+        if (known != null && known.statuses == statuses && known.roles.equals(roles)) {
+            return known.visible;
+        }
+
+        BitSet visible = new BitSet(statuses.size());
+        for (int i = 0; i < statuses.size(); i++) {
+            if (statuses.get(i).canBeViewedBy(userName)) {
+                visible.set(i);
+            }
+        }
+        synchronized (viewers) {
+            viewers.put(key, new Viewer(statuses, roles, visible));
+        }
+        return visible;
+    }
+
+    private static BitSet everything(List<ProjectStatus> statuses) {
+        BitSet visible = new BitSet(statuses.size());
+        visible.set(0, statuses.size());
+        return visible;
+    }
+
+    /* The projects a user could see in one list of statuses. */
+    private static class Viewer {
+        private final List<ProjectStatus> statuses;
+        private final Set<PluginRoleConfig> roles;
+        private final BitSet visible;
+
+        private Viewer(List<ProjectStatus> statuses, Set<PluginRoleConfig> roles, BitSet visible) {
+            this.statuses = statuses;
+            this.roles = roles;
+            this.visible = visible;
+        }
+    }
+
+    /*
+     * The XML rendered for each group of viewers from one list of statuses, by site URL prefix and projects seen. The
+     * site URL prefix comes from the Host of the request, so only the feeds used most recently are kept.
+     */
+    private static class Feeds {
+        private final List<ProjectStatus> statuses;
+        private final Map<Pair<String, BitSet>, Feed> rendered = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Pair<String, BitSet>, Feed> eldest) {
+                return size() > MAX_FEEDS;
+            }
+        };
+
+        private Feeds(List<ProjectStatus> statuses) {
+            this.statuses = statuses;
+        }
+
+        private Feed feedFor(String siteUrlPrefix, BitSet visible) {
+            Pair<String, BitSet> key = new Pair<>(siteUrlPrefix, visible);
+            Feed feed;
+            synchronized (rendered) {
+                feed = rendered.get(key);
+            }
+            if (feed == null) {
+                feed = Feed.of(statuses, siteUrlPrefix, visible);
+                synchronized (rendered) {
+                    rendered.put(key, feed);
                 }
             }
+            return feed;
+        }
+    }
 
-            appendable.append("</Projects>");
-        } catch (IOException e) {
-            // ignore. `StringBuilder#append` does not throw
+    private static class Feed {
+        private final String xml;
+        private final String etag;
+
+        private Feed(String xml, String etag) {
+            this.xml = xml;
+            this.etag = etag;
         }
 
-        return appendable;
+        private static Feed of(List<ProjectStatus> statuses, String siteUrlPrefix, BitSet visible) {
+            StringBuilder xml = new StringBuilder();
+            xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>");
+            xml.append("\n");
+            xml.append("<Projects>");
+            xml.append("\n");
+            for (int i = visible.nextSetBit(0); i >= 0; i = visible.nextSetBit(i + 1)) {
+                String xmlRepresentation = StringUtils.replace(statuses.get(i).xmlRepresentation(), ProjectStatus.SITE_URL_PREFIX, siteUrlPrefix);
+                if (!StringUtils.isBlank(xmlRepresentation)) {
+                    xml.append("  ").append(xmlRepresentation).append("\n");
+                }
+            }
+            xml.append("</Projects>");
+
+            String rendered = xml.toString();
+            return new Feed(rendered, DigestUtils.sha256Hex(rendered));
+        }
     }
 }
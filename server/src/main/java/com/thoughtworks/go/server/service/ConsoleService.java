@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.service;
 
+import com.thoughtworks.go.domain.ConsoleByteStreamer;
 import com.thoughtworks.go.domain.ConsoleConsumer;
 import com.thoughtworks.go.domain.ConsoleStreamer;
 import com.thoughtworks.go.domain.JobIdentifier;
@@ -65,6 +66,11 @@ public class ConsoleService {
         return new ConsoleStreamer(path, startingLine);
     }
 
+    public ConsoleByteStreamer getByteStreamer(long startingLine, JobIdentifier identifier, int bufferSize) throws IllegalArtifactLocationException {
+        Path path = consoleLogFile(identifier).toPath();
+        return new ConsoleByteStreamer(path, startingLine, bufferSize);
+    }
+
     public File consoleLogArtifact(LocatableEntity jobIdentifier) throws IllegalArtifactLocationException {
         return chooser.findArtifact(jobIdentifier, getConsoleOutputFolderAndFileName());
     }
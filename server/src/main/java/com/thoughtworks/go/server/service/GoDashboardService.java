@@ -37,24 +37,27 @@ public class GoDashboardService {
     private final GoDashboardCache cache;
     private final GoDashboardCurrentStateLoader dashboardCurrentStateLoader;
     private final GoConfigService goConfigService;
+    private final GoDashboardVisibility visibility;
     private GoConfigPipelinePermissionsAuthority permissionsAuthority;
 
     @Autowired
-    public GoDashboardService(GoDashboardCache cache, GoDashboardCurrentStateLoader dashboardCurrentStateLoader, GoConfigPipelinePermissionsAuthority permissionsAuthority, GoConfigService goConfigService) {
+    public GoDashboardService(GoDashboardCache cache, GoDashboardCurrentStateLoader dashboardCurrentStateLoader, GoConfigPipelinePermissionsAuthority permissionsAuthority, GoConfigService goConfigService, GoDashboardVisibility visibility) {
         this.cache = cache;
         this.dashboardCurrentStateLoader = dashboardCurrentStateLoader;
         this.permissionsAuthority = permissionsAuthority;
         this.goConfigService = goConfigService;
+        this.visibility = visibility;
     }
 
     public List<GoDashboardEnvironment> allEnvironmentsForDashboard(DashboardFilter filter, Username user) {
         GoDashboardPipelines allPipelines = cache.allEntries();
+        GoDashboardVisibility.Visible visible = visibility.visibleTo(user.getUsername().toString(), allPipelines);
         List<GoDashboardEnvironment> environments = new ArrayList<>();
 
         final Users admins = superAdmins();
 
         goConfigService.getEnvironments().forEach(environment -> {
-            GoDashboardEnvironment env = dashboardEnvironmentFor(environment, filter, user, admins, allPipelines);
+            GoDashboardEnvironment env = dashboardEnvironmentFor(environment, filter, admins, allPipelines, visible);
 
             if (env.hasPipelines()) {
                 environments.add(env);
@@ -70,10 +73,16 @@ public class GoDashboardService {
 
     public List<GoDashboardPipelineGroup> allPipelineGroupsForDashboard(DashboardFilter filter, Username user, final boolean allowEmpty) {
         GoDashboardPipelines allPipelines = cache.allEntries();
+        GoDashboardVisibility.Visible visible = visibility.visibleTo(user.getUsername().toString(), allPipelines);
         List<GoDashboardPipelineGroup> pipelineGroups = new ArrayList<>();
 
         goConfigService.groups().accept(group -> {
-            GoDashboardPipelineGroup dashboardPipelineGroup = dashboardPipelineGroupFor(group, filter, user, allPipelines);
+            Set<CaseInsensitiveString> visibleInGroup = visible.inGroup(group.getGroup());
+            if (visibleInGroup.isEmpty() && !(allowEmpty && group.isEmpty())) {
+                // nothing in it can be shown to this user, so there is no need to look at its pipelines
+                return;
+            }
+            GoDashboardPipelineGroup dashboardPipelineGroup = dashboardPipelineGroupFor(group, filter, user, allPipelines, visibleInGroup);
             if (forceIncludeEmptyGroup(allowEmpty, dashboardPipelineGroup, user) || dashboardPipelineGroup.hasPipelines()) {
                 pipelineGroups.add(dashboardPipelineGroup);
             }
@@ -105,14 +114,14 @@ public class GoDashboardService {
         return dashboardCurrentStateLoader.hasEverLoadedCurrentState();
     }
 
-    private GoDashboardEnvironment dashboardEnvironmentFor(EnvironmentConfig environment, DashboardFilter filter, Username user, Users allowedUsers, GoDashboardPipelines allPipelines) {
+    private GoDashboardEnvironment dashboardEnvironmentFor(EnvironmentConfig environment, DashboardFilter filter, Users allowedUsers, GoDashboardPipelines allPipelines, GoDashboardVisibility.Visible visible) {
         List<CaseInsensitiveString> pipelinesInEnv = environment.getPipelineNames();
         GoDashboardEnvironment env = new GoDashboardEnvironment(environment.name().toString(), allowedUsers, !pipelinesInEnv.isEmpty());
 
         pipelinesInEnv.forEach(pipelineName -> {
             GoDashboardPipeline pipeline = allPipelines.find(pipelineName);
 
-            if (null != pipeline && pipeline.canBeViewedBy(user.getUsername().toString()) && filter.isPipelineVisible(pipelineName)) {
+            if (null != pipeline && visible.contains(pipeline) && filter.isPipelineVisible(pipelineName)) {
                 env.addPipeline(pipeline);
             }
         });
@@ -120,16 +129,15 @@ public class GoDashboardService {
         return env;
     }
 
-    private GoDashboardPipelineGroup dashboardPipelineGroupFor(PipelineConfigs pipelineGroup, DashboardFilter filter, Username user, GoDashboardPipelines allPipelines) {
-        Permissions groupPermissions = resolvePermissionsForPipelineGroup(pipelineGroup, allPipelines);
+    private GoDashboardPipelineGroup dashboardPipelineGroupFor(PipelineConfigs pipelineGroup, DashboardFilter filter, Username user, GoDashboardPipelines allPipelines, Set<CaseInsensitiveString> visibleInGroup) {
+        Permissions groupPermissions = resolvePermissionsForPipelineGroup(pipelineGroup, allPipelines, visibleInGroup);
         GoDashboardPipelineGroup goDashboardPipelineGroup = new GoDashboardPipelineGroup(pipelineGroup.getGroup(), groupPermissions, !pipelineGroup.isEmpty());
 
         if (goDashboardPipelineGroup.hasPermissions() && goDashboardPipelineGroup.canBeViewedBy(user)) {
             pipelineGroup.accept(pipelineConfig -> {
                 CaseInsensitiveString pipelineName = pipelineConfig.name();
-                GoDashboardPipeline pipeline = allPipelines.find(pipelineName);
-                if (pipeline != null && filter.isPipelineVisible(pipelineName)) {
-                    goDashboardPipelineGroup.addPipeline(pipeline);
+                if (visibleInGroup.contains(pipelineName) && filter.isPipelineVisible(pipelineName)) {
+                    goDashboardPipelineGroup.addPipeline(allPipelines.find(pipelineName));
                 }
             });
         }
@@ -149,9 +157,9 @@ public class GoDashboardService {
         return new AllowedUsers(superAdminUsers, superAdminPluginRoles);
     }
 
-    private Permissions resolvePermissionsForPipelineGroup(PipelineConfigs pipelineGroup, GoDashboardPipelines allPipelines) {
-        for (PipelineConfig pipelineConfig : pipelineGroup) {
-            GoDashboardPipeline goDashboardPipeline = allPipelines.find(pipelineConfig.getName());
+    private Permissions resolvePermissionsForPipelineGroup(PipelineConfigs pipelineGroup, GoDashboardPipelines allPipelines, Set<CaseInsensitiveString> visibleInGroup) {
+        for (CaseInsensitiveString pipelineName : visibleInGroup) {
+            GoDashboardPipeline goDashboardPipeline = allPipelines.find(pipelineName);
             if (goDashboardPipeline != null) {
                 return goDashboardPipeline.permissions();
             }
@@ -185,6 +185,10 @@ public class JobInstanceService implements JobPlanLoader, ConfigChangedListener
         return jobInstanceDao.loadPlan(actualId.getBuildId());
     }
 
+    public JobPlan loadJobPlan(long jobId) {
+        return jobInstanceDao.loadPlan(jobId);
+    }
+
     public List<JobPlan> orderedScheduledBuilds() {
         return jobInstanceDao.orderedScheduledBuilds();
     }
@@ -117,6 +117,10 @@ public class PipelinePauseService {
         return pipelinePauseInfo == null ? PipelinePauseInfo.notPaused() : pipelinePauseInfo;
     }
 
+    public List<String> pausedPipelineNames() {
+        return pipelineSqlMapDao.pausedPipelineNames();
+    }
+
     public boolean isPaused(String pipelineName) {
         return pipelinePauseInfo(pipelineName).isPaused();
     }
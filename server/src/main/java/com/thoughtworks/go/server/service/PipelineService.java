@@ -29,6 +29,7 @@ import com.thoughtworks.go.server.domain.PipelineConfigDependencyGraph;
 import com.thoughtworks.go.server.domain.PipelineTimeline;
 import com.thoughtworks.go.server.persistence.MaterialRepository;
 import com.thoughtworks.go.server.service.dd.FanInGraph;
+import com.thoughtworks.go.server.service.dd.FanInGraphTopologyCache;
 import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.apache.commons.lang3.StringUtils;
@@ -52,10 +53,12 @@ public class PipelineService implements UpstreamPipelineResolver {
     private final MaterialRepository materialRepository;
     private final SystemEnvironment systemEnvironment;
     private final MaterialConfigConverter materialConfigConverter;
+    private final FanInGraphTopologyCache fanInGraphTopologyCache;
 
     @Autowired
     public PipelineService(PipelineSqlMapDao pipelineDao, StageService stageService, PipelineLockService pipelineLockService, PipelineTimeline pipelineTimeline, MaterialRepository materialRepository,
-                           TransactionTemplate transactionTemplate, SystemEnvironment systemEnvironment, MaterialConfigConverter materialConfigConverter) {
+                           TransactionTemplate transactionTemplate, SystemEnvironment systemEnvironment, MaterialConfigConverter materialConfigConverter,
+                           FanInGraphTopologyCache fanInGraphTopologyCache) {
         this.pipelineDao = pipelineDao;
         this.stageService = stageService;
         this.pipelineLockService = pipelineLockService;
@@ -64,6 +67,7 @@ public class PipelineService implements UpstreamPipelineResolver {
         this.transactionTemplate = transactionTemplate;
         this.systemEnvironment = systemEnvironment;
         this.materialConfigConverter = materialConfigConverter;
+        this.fanInGraphTopologyCache = fanInGraphTopologyCache;
     }
 
     public Pipeline fullPipelineById(long pipelineId) {
@@ -206,7 +210,7 @@ public class PipelineService implements UpstreamPipelineResolver {
     /* DIAMOND BEGIN */
 
     public MaterialRevisions getRevisionsBasedOnDependencies(MaterialRevisions actualRevisions, CruiseConfig cruiseConfig, CaseInsensitiveString pipelineName) {
-        FanInGraph fanInGraph = new FanInGraph(cruiseConfig, pipelineName, materialRepository, pipelineDao, systemEnvironment, materialConfigConverter);
+        FanInGraph fanInGraph = new FanInGraph(fanInGraphTopologyCache.topologyFor(cruiseConfig, pipelineName), materialRepository, pipelineDao, systemEnvironment, materialConfigConverter);
         final MaterialRevisions computedRevisions = fanInGraph.computeRevisions(actualRevisions, pipelineTimeline);
         fillUpNonOverridableRevisions(actualRevisions, computedRevisions);
         return restoreOriginalMaterialConfigAndMaterialOrderUsingFingerprint(actualRevisions, computedRevisions);
@@ -0,0 +1,208 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.domain.JobPlan;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Understands the scheduled jobs waiting for an agent, grouped by the pipeline they belong to and the agents they can
+ * run on. Jobs are claimed atomically, so concurrent agents never receive the same job.
+ * <p>
+ * Jobs can be appended while the index is in use, but not while anything other than {@link #claim(long)} and
+ * {@link #contains(long)} is reading it.
+ */
+class ScheduledJobPlanIndex {
+    private final List<Entry> entries = new ArrayList<>();
+    private final List<Group> groups = new ArrayList<>();
+    private final Map<GroupKey, Group> groupsByKey = new HashMap<>();
+    private final Map<JobPlan, Entry> entriesByPlan = new IdentityHashMap<>();
+    private final Map<Long, Entry> entriesByJobId = new ConcurrentHashMap<>();
+
+    ScheduledJobPlanIndex(List<JobPlan> orderedJobPlans) {
+        orderedJobPlans.forEach(this::append);
+    }
+
+    /**
+     * Adds a job scheduled after all the jobs already in the index.
+     */
+    void append(JobPlan jobPlan) {
+        Entry entry = new Entry(jobPlan, entries.size());
+        entries.add(entry);
+        entriesByPlan.put(jobPlan, entry);
+        entriesByJobId.putIfAbsent(jobPlan.getJobId(), entry);
+        groupsByKey.computeIfAbsent(new GroupKey(jobPlan), key -> {
+            Group group = new Group(key);
+            groups.add(group);
+            return group;
+        }).add(entry);
+    }
+
+    static ScheduledJobPlanIndex empty() {
+        return new ScheduledJobPlanIndex(Collections.emptyList());
+    }
+
+    /**
+     * The oldest unclaimed job of every group accepted by the filter, in scheduled order. Since all jobs of a group
+     * match exactly the same agents, the first job an agent can run is always one of these.
+     */
+    List<JobPlan> firstUnclaimedOfEachGroup(Predicate<Group> filter) {
+        List<Entry> heads = new ArrayList<>();
+        for (Group group : groups) {
+            if (!group.requiresElasticAgent() && filter.test(group)) {
+                Entry head = group.firstUnclaimed();
+                if (head != null) {
+                    heads.add(head);
+                }
+            }
+        }
+        heads.sort(Comparator.comparingInt(entry -> entry.position));
+        return heads.stream().map(entry -> entry.jobPlan).toList();
+    }
+
+    List<JobPlan> unclaimedRequiringElasticAgent() {
+        List<JobPlan> jobPlans = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.jobPlan.requiresElasticAgent() && !entry.isClaimed()) {
+                jobPlans.add(entry.jobPlan);
+            }
+        }
+        return jobPlans;
+    }
+
+    List<JobPlan> unclaimed() {
+        List<JobPlan> jobPlans = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (!entry.isClaimed()) {
+                jobPlans.add(entry.jobPlan);
+            }
+        }
+        return jobPlans;
+    }
+
+    boolean contains(long jobId) {
+        return entriesByJobId.containsKey(jobId);
+    }
+
+    /**
+     * Reserves the job for the caller. Returns false only when someone else has already claimed it.
+     */
+    boolean claim(JobPlan jobPlan) {
+        Entry entry = entriesByPlan.get(jobPlan);
+        return entry == null || entry.claim();
+    }
+
+    boolean claim(long jobId) {
+        Entry entry = entriesByJobId.get(jobId);
+        return entry != null && entry.claim();
+    }
+
+    static class Group {
+        private final GroupKey key;
+        private final List<Entry> entries = new ArrayList<>();
+        private volatile int firstUnclaimed = 0;
+
+        private Group(GroupKey key) {
+            this.key = key;
+        }
+
+        private void add(Entry entry) {
+            entries.add(entry);
+        }
+
+        private Entry firstUnclaimed() {
+            // claims are never released, so the cursor only ever has to move forward
+            for (int i = firstUnclaimed; i < entries.size(); i++) {
+                Entry entry = entries.get(i);
+                if (!entry.isClaimed()) {
+                    firstUnclaimed = i;
+                    return entry;
+                }
+            }
+            firstUnclaimed = entries.size();
+            return null;
+        }
+
+        boolean requiresElasticAgent() {
+            return key.requiresElasticAgent;
+        }
+
+        boolean isAssignedToAgent() {
+            return key.agentUuid != null;
+        }
+
+        boolean isAssignedToAgent(String agentUuid) {
+            return agentUuid.equals(key.agentUuid);
+        }
+
+        List<String> resources() {
+            return key.resources;
+        }
+    }
+
+    private static class GroupKey {
+        private final String pipelineName;
+        private final List<String> resources;
+        private final String agentUuid;
+        private final boolean requiresElasticAgent;
+
+        private GroupKey(JobPlan jobPlan) {
+            this.pipelineName = jobPlan.getPipelineName();
+            this.resources = jobPlan.getResources().toResourceConfigs().resourceNames();
+            this.agentUuid = jobPlan.getAgentUuid();
+            this.requiresElasticAgent = jobPlan.requiresElasticAgent();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            GroupKey that = (GroupKey) o;
+            return requiresElasticAgent == that.requiresElasticAgent &&
+                    Objects.equals(pipelineName, that.pipelineName) &&
+                    Objects.equals(resources, that.resources) &&
+                    Objects.equals(agentUuid, that.agentUuid);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(pipelineName, resources, agentUuid, requiresElasticAgent);
+        }
+    }
+
+    private static class Entry {
+        private final JobPlan jobPlan;
+        private final int position;
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+
+        private Entry(JobPlan jobPlan, int position) {
+            this.jobPlan = jobPlan;
+            this.position = position;
+        }
+
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        private boolean isClaimed() {
+            return claimed.get();
+        }
+    }
+}
@@ -32,6 +32,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class SchedulingCheckerService {
@@ -109,6 +110,17 @@ public class SchedulingCheckerService {
         return result.canContinue();
     }
 
+    /* The pipelines which fail the about to be triggered check, for checking many pipelines without asking one by one. */
+    public Set<CaseInsensitiveString> pipelinesAboutToBeTriggered() {
+        Set<CaseInsensitiveString> pipelines = triggerMonitor.triggeredPipelines();
+        pipelineScheduleQueue.toBeScheduled().forEach((pipelineName, buildCause) -> {
+            if (buildCause.isForced()) {
+                pipelines.add(pipelineName);
+            }
+        });
+        return pipelines;
+    }
+
     public boolean canAutoTriggerConsumer(PipelineConfig pipelineConfig) {
         OperationResult result = new ServerHealthStateOperationResult();
         String pipelineName = CaseInsensitiveString.str(pipelineConfig.name());
@@ -36,8 +36,10 @@ import com.thoughtworks.go.server.presentation.models.ValueStreamMapPresentation
 import com.thoughtworks.go.server.service.result.HttpLocalizedOperationResult;
 import com.thoughtworks.go.server.service.result.LocalizedOperationResult;
 import com.thoughtworks.go.server.valuestreammap.DownstreamInstancePopulator;
+import com.thoughtworks.go.server.valuestreammap.DownstreamPipelineIndex;
 import com.thoughtworks.go.server.valuestreammap.RunStagesPopulator;
 import com.thoughtworks.go.server.valuestreammap.UnrunStagesPopulator;
+import com.thoughtworks.go.server.valuestreammap.ValueStreamMapLayoutCache;
 import com.thoughtworks.go.serverhealth.HealthStateScope;
 import com.thoughtworks.go.serverhealth.HealthStateType;
 import org.slf4j.Logger;
@@ -46,9 +48,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ValueStreamMapService {
@@ -60,11 +63,14 @@ public class ValueStreamMapService {
     private final RunStagesPopulator runStagesPopulator;
     private final UnrunStagesPopulator unrunStagePopulator;
     private final SecurityService securityService;
+    private final DownstreamPipelineIndex downstreamPipelineIndex;
+    private final ValueStreamMapLayoutCache valueStreamMapLayoutCache;
     private static final Logger LOGGER = LoggerFactory.getLogger(ValueStreamMapService.class);
 
     @Autowired
     public ValueStreamMapService(PipelineService pipelineService, MaterialRepository materialRepository, GoConfigService goConfigService, DownstreamInstancePopulator downstreamInstancePopulator,
-                                 RunStagesPopulator runStagesPopulator, UnrunStagesPopulator unrunStagePopulator, SecurityService securityService) {
+                                 RunStagesPopulator runStagesPopulator, UnrunStagesPopulator unrunStagePopulator, SecurityService securityService,
+                                 DownstreamPipelineIndex downstreamPipelineIndex, ValueStreamMapLayoutCache valueStreamMapLayoutCache) {
         this.pipelineService = pipelineService;
         this.materialRepository = materialRepository;
         this.goConfigService = goConfigService;
@@ -72,6 +78,8 @@ public class ValueStreamMapService {
         this.runStagesPopulator = runStagesPopulator;
         this.unrunStagePopulator = unrunStagePopulator;
         this.securityService = securityService;
+        this.downstreamPipelineIndex = downstreamPipelineIndex;
+        this.valueStreamMapLayoutCache = valueStreamMapLayoutCache;
     }
 
     public ValueStreamMapPresentationModel getValueStreamMap(CaseInsensitiveString pipelineName, int counter, Username username, LocalizedOperationResult result) {
@@ -84,7 +92,7 @@ public class ValueStreamMapService {
             if (valueStreamMap == null) {
                 return null;
             }
-            return valueStreamMap.presentationModel();
+            return valueStreamMap.presentationModel(valueStreamMapLayoutCache);
         } catch (Exception e) {
             result.internalServerError("Value Stream Map of pipeline '" + pipelineName + "' with counter '" + counter + "' can not be rendered. Please check the server log for details.");
             LOGGER.error("[Value Stream Map] Pipeline {} with counter {} could not be rendered.", pipelineName, counter, e);
@@ -104,9 +112,9 @@ public class ValueStreamMapService {
         }
         String label = pipelineService.findPipelineByNameAndCounter(pipelineName.toString(), counter).getLabel();
         ValueStreamMap valueStreamMap = new ValueStreamMap(pipelineName, new PipelineRevision(pipelineName.toString(), counter, label));
-        Map<CaseInsensitiveString, List<PipelineConfig>> pipelineToDownstreamMap = cruiseConfig.generatePipelineVsDownstreamMap();
+        DownstreamPipelineIndex.Index downstreamIndex = downstreamPipelineIndex.indexFor(cruiseConfig);
 
-        traverseDownstream(pipelineName, pipelineToDownstreamMap, valueStreamMap, new ArrayList<>());
+        traverseDownstream(pipelineName, downstreamIndex.downstreamOf(pipelineName), downstreamIndex, valueStreamMap, new HashSet<>());
         traverseUpstream(pipelineName, buildCauseForPipeline, valueStreamMap, new ArrayList<>());
 
         if (valueStreamMap.hasCycle()) {
@@ -171,7 +179,7 @@ public class ValueStreamMapService {
                 return null;
             }
 
-            return buildValueStreamMap(material, materialInstance, modification, downstreamPipelines, username).presentationModel();
+            return buildValueStreamMap(material, materialInstance, modification, downstreamPipelines, username).presentationModel(valueStreamMapLayoutCache);
         } catch (Exception e) {
             result.internalServerError("Value Stream Map of material with fingerprint '" + materialFingerprint + "' with revision '" + revision + "' can not be rendered. Please check the server log for details.");
             LOGGER.error("[Value Stream Map] Material {} with revision {} could not be rendered.", materialFingerprint, revision, e);
@@ -182,9 +190,10 @@ public class ValueStreamMapService {
     private ValueStreamMap buildValueStreamMap(Material material, MaterialInstance materialInstance, Modification modification, List<PipelineConfig> downstreamPipelines, Username username) {
         CruiseConfig cruiseConfig = goConfigService.currentCruiseConfig();
         ValueStreamMap valueStreamMap = new ValueStreamMap(material, materialInstance, modification);
-        Map<CaseInsensitiveString, List<PipelineConfig>> pipelineToDownstreamMap = cruiseConfig.generatePipelineVsDownstreamMap();
+        DownstreamPipelineIndex.Index downstreamIndex = downstreamPipelineIndex.indexFor(cruiseConfig);
+        List<CaseInsensitiveString> downstreamPipelineNames = downstreamPipelines.stream().map(PipelineConfig::name).toList();
 
-        traverseDownstream(new CaseInsensitiveString(material.getFingerprint()), downstreamPipelines, pipelineToDownstreamMap, valueStreamMap, new ArrayList<>());
+        traverseDownstream(new CaseInsensitiveString(material.getFingerprint()), downstreamPipelineNames, downstreamIndex, valueStreamMap, new HashSet<>());
 
         addInstanceInformationToTheGraph(valueStreamMap);
         removeRevisionsBasedOnPermissionAndCurrentConfig(valueStreamMap, username);
@@ -237,20 +246,15 @@ public class ValueStreamMapService {
         }
     }
 
-    private void traverseDownstream(CaseInsensitiveString upstreamPipelineName, Map<CaseInsensitiveString, List<PipelineConfig>> pipelineToDownstreamMap, ValueStreamMap graph, List<PipelineConfig> visitedNodes) {
-        List<PipelineConfig> downstreamPipelines = pipelineToDownstreamMap.get(upstreamPipelineName);
-        traverseDownstream(upstreamPipelineName, downstreamPipelines, pipelineToDownstreamMap, graph, visitedNodes);
-    }
-
-    private void traverseDownstream(CaseInsensitiveString materialId, List<PipelineConfig> downstreamPipelines, Map<CaseInsensitiveString, List<PipelineConfig>> pipelineToDownstreamMap, ValueStreamMap graph, List<PipelineConfig> visitedNodes) {
-        for (PipelineConfig downstreamPipeline : downstreamPipelines) {
-            graph.addDownstreamNode(new PipelineDependencyNode(downstreamPipeline.name(),
-                    downstreamPipeline.name().toString()), materialId);
+    private void traverseDownstream(CaseInsensitiveString materialId, List<CaseInsensitiveString> downstreamPipelines, DownstreamPipelineIndex.Index downstreamIndex, ValueStreamMap graph, Set<CaseInsensitiveString> visitedNodes) {
+        for (CaseInsensitiveString downstreamPipeline : downstreamPipelines) {
+            graph.addDownstreamNode(new PipelineDependencyNode(downstreamPipeline,
+                    downstreamPipeline.toString()), materialId);
             if (visitedNodes.contains(downstreamPipeline)) {
                 continue;
             }
             visitedNodes.add(downstreamPipeline);
-            traverseDownstream(downstreamPipeline.name(), pipelineToDownstreamMap, graph, visitedNodes);
+            traverseDownstream(downstreamPipeline, downstreamIndex.downstreamOf(downstreamPipeline), downstreamIndex, graph, visitedNodes);
         }
     }
 
@@ -132,28 +132,32 @@ public class DependencyFanInNode extends FanInNode {
     }
 
     private Pair<StageIdentifier, List<FaninScmMaterial>> getRevisionNthFor(int n, FanInGraphContext context) {
-        List<FaninScmMaterial> scmMaterials = new ArrayList<>();
-        PipelineTimeline pipelineTimeline = context.pipelineTimeline;
-        Queue<PipelineTimelineEntry.Revision> revisionQueue = new ConcurrentLinkedQueue<>();
         DependencyMaterialConfig dependencyMaterial = (DependencyMaterialConfig) materialConfig;
-        PipelineTimelineEntry entry = pipelineTimeline.instanceFor(dependencyMaterial.getPipelineName(), totalInstanceCount - n);
-
-        Set<CaseInsensitiveString> visitedNodes = new HashSet<>();
+        PipelineTimelineEntry entry = context.pipelineTimeline.instanceFor(dependencyMaterial.getPipelineName(), totalInstanceCount - n);
 
         StageIdentifier dependentStageIdentifier = dependentStageIdentifier(context, entry, CaseInsensitiveString.str(dependencyMaterial.getStageName()));
-        if (!StageIdentifier.NULL.equals(dependentStageIdentifier)) {
-            addToRevisionQueue(entry, revisionQueue, scmMaterials, context, visitedNodes);
-        } else {
+        if (StageIdentifier.NULL.equals(dependentStageIdentifier)) {
             return null;
         }
+        List<FaninScmMaterial> scmMaterials = context.scmMaterialsOfInstances.computeIfAbsent(entry.getId(), id -> scmMaterialsOf(entry, context));
+        return new Pair<>(dependentStageIdentifier, scmMaterials);
+    }
+
+    /* The SCM revisions which went into a pipeline instance, either directly or through the instances upstream of it. */
+    private List<FaninScmMaterial> scmMaterialsOf(PipelineTimelineEntry entry, FanInGraphContext context) {
+        List<FaninScmMaterial> scmMaterials = new ArrayList<>();
+        PipelineTimeline pipelineTimeline = context.pipelineTimeline;
+        Queue<PipelineTimelineEntry.Revision> revisionQueue = new ConcurrentLinkedQueue<>();
+        Set<CaseInsensitiveString> visitedNodes = new HashSet<>();
+
+        addToRevisionQueue(entry, revisionQueue, scmMaterials, context, visitedNodes);
         while (!revisionQueue.isEmpty()) {
             PipelineTimelineEntry.Revision revision = revisionQueue.poll();
             DependencyMaterialRevision dmr = DependencyMaterialRevision.create(revision.revision, null);
             PipelineTimelineEntry pte = pipelineTimeline.getEntryFor(new CaseInsensitiveString(dmr.getPipelineName()), dmr.getPipelineCounter());
             addToRevisionQueue(pte, revisionQueue, scmMaterials, context, visitedNodes);
         }
-
-        return new Pair<>(dependentStageIdentifier, scmMaterials);
+        return Collections.unmodifiableList(scmMaterials);
     }
 
     private boolean validateAllScmRevisionsAreSameWithinAFingerprint(Pair<StageIdentifier, List<FaninScmMaterial>> pIdScmPair) {
@@ -200,7 +204,7 @@ public class DependencyFanInNode extends FanInNode {
     }
 
     private StageIdentifier dependentStageIdentifier(FanInGraphContext context, PipelineTimelineEntry entry, final String stageName) {
-        return context.pipelineDao.latestPassedStageIdentifier(entry.getId(), stageName);
+        return context.latestPassedStages.computeIfAbsent(new Pair<>(entry.getId(), stageName), key -> context.pipelineDao.latestPassedStageIdentifier(entry.getId(), stageName));
     }
 
     private void addToRevisionQueue(PipelineTimelineEntry entry, Queue<PipelineTimelineEntry.Revision> revisionQueue, List<FaninScmMaterial> scmMaterials,
@@ -17,7 +17,6 @@ package com.thoughtworks.go.server.service.dd;
 
 import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.config.CruiseConfig;
-import com.thoughtworks.go.config.PipelineConfig;
 import com.thoughtworks.go.config.materials.MaterialConfigs;
 import com.thoughtworks.go.config.materials.ScmMaterialConfig;
 import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
@@ -49,107 +48,50 @@ public class FanInGraph {
     private static final int REVISION_BUFFER_SIZE = 5;
 
     private final PipelineDao pipelineDao;
-    private final CruiseConfig cruiseConfig;
     private final MaterialRepository materialRepository;
     private final MaterialConfigConverter materialConfigConverter;
 
-    private final Map<String, FanInNode> nodes = new HashMap<>();
-    private final Map<String, MaterialConfig> fingerprintScmMaterialMap = new HashMap<>();
-    private final Map<String, DependencyMaterialConfig> fingerprintDepMaterialMap = new HashMap<>();
-    private final Map<DependencyMaterialConfig, Set<String>> dependencyMaterialFingerprintMap = new HashMap<>();
-
+    private final FanInGraphTopology topology;
     private final DependencyFanInNode root;
     private final CaseInsensitiveString pipelineName;
     private final SystemEnvironment systemEnvironment;
 
     public FanInGraph(CruiseConfig cruiseConfig, CaseInsensitiveString root, MaterialRepository materialRepository, PipelineDao pipelineDao, SystemEnvironment systemEnvironment,
                       MaterialConfigConverter materialConfigConverter) {
-        this.cruiseConfig = cruiseConfig;
+        this(FanInGraphTopology.of(cruiseConfig, root), materialRepository, pipelineDao, systemEnvironment, materialConfigConverter);
+    }
+
+    public FanInGraph(FanInGraphTopology topology, MaterialRepository materialRepository, PipelineDao pipelineDao, SystemEnvironment systemEnvironment,
+                      MaterialConfigConverter materialConfigConverter) {
+        this.topology = topology;
         this.materialRepository = materialRepository;
         this.pipelineDao = pipelineDao;
-        this.pipelineName = root;
+        this.pipelineName = topology.pipelineName();
         this.systemEnvironment = systemEnvironment;
         this.materialConfigConverter = materialConfigConverter;
 
-        PipelineConfig target = cruiseConfig.pipelineConfigByName(root);
-        this.root = (DependencyFanInNode) FanInNodeFactory.create(new DependencyMaterialConfig(target.name(), target.get(0).name()));
-
-        buildGraph(target);
-    }
-
-    private void buildGraph(PipelineConfig target) {
-        nodes.put(this.root.materialConfig.getFingerprint(), this.root);
-        final Set<String> scmMaterials = new HashSet<>();
-        buildRestOfTheGraph(this.root, target, scmMaterials, new HashSet<>());
-        dependencyMaterialFingerprintMap.put((DependencyMaterialConfig) this.root.materialConfig, scmMaterials);
-    }
-
-    private void buildRestOfTheGraph(DependencyFanInNode root, PipelineConfig target, Set<String> scmMaterialSet, Set<DependencyMaterialConfig> visitedNodes) {
-        for (MaterialConfig material : target.materialConfigs()) {
-            FanInNode node = createNode(material);
-            root.children.add(node);
-            node.parents.add(root);
-            if (node instanceof DependencyFanInNode) {
-                DependencyMaterialConfig dependencyMaterial = (DependencyMaterialConfig) material;
-                fingerprintDepMaterialMap.put(dependencyMaterial.getFingerprint(), dependencyMaterial);
-                handleDependencyMaterial(scmMaterialSet, dependencyMaterial, (DependencyFanInNode) node, visitedNodes);
-            } else {
-                handleScmMaterial(scmMaterialSet, material);
+        this.root = (DependencyFanInNode) FanInNodeFactory.create(topology.rootMaterial());
+        for (MaterialConfig material : topology.rootChildren()) {
+            FanInNode node = FanInNodeFactory.create(material);
+            if (root.children.add(node)) {
+                node.parents.add(root);
             }
         }
     }
 
-    private void handleScmMaterial(Set<String> scmMaterialSet, MaterialConfig material) {
-        final String fingerprint = material.getFingerprint();
-        scmMaterialSet.add(fingerprint);
-        fingerprintScmMaterialMap.put(fingerprint, material);
-    }
-
-    private void handleDependencyMaterial(Set<String> scmMaterialSet, DependencyMaterialConfig depMaterial, DependencyFanInNode node, Set<DependencyMaterialConfig> visitedNodes) {
-        if (visitedNodes.contains(depMaterial)) {
-            scmMaterialSet.addAll(dependencyMaterialFingerprintMap.get(depMaterial));
-            return;
-        }
-        visitedNodes.add(depMaterial);
-
-        final Set<String> scmMaterialFingerprintSet = new HashSet<>();
-        buildRestOfTheGraph(node, cruiseConfig.pipelineConfigByName(depMaterial.getPipelineName()), scmMaterialFingerprintSet, visitedNodes);
-        dependencyMaterialFingerprintMap.put(depMaterial, scmMaterialFingerprintSet);
-        scmMaterialSet.addAll(scmMaterialFingerprintSet);
-    }
-
-    private FanInNode createNode(MaterialConfig material) {
-        FanInNode node = nodes.get(material.getFingerprint());
-        if (node == null) {
-            node = FanInNodeFactory.create(material);
-            nodes.put(material.getFingerprint(), node);
-        }
-        return node;
-    }
-
     @TestOnly
     List<ScmMaterialConfig> getScmMaterials() {
         List<ScmMaterialConfig> scmMaterials = new ArrayList<>();
-        for (FanInNode node : nodes.values()) {
-            if (node.materialConfig instanceof ScmMaterialConfig) {
-                scmMaterials.add((ScmMaterialConfig) node.materialConfig);
+        for (MaterialConfig materialConfig : topology.fingerprintScmMaterialMap().values()) {
+            if (materialConfig instanceof ScmMaterialConfig) {
+                scmMaterials.add((ScmMaterialConfig) materialConfig);
             }
         }
         return scmMaterials;
     }
 
     public Map<DependencyMaterialConfig, Set<MaterialConfig>> getPipelineScmDepMap() {
-        Map<DependencyMaterialConfig, Set<MaterialConfig>> dependencyMaterialListMap = new HashMap<>();
-
-        for (Map.Entry<DependencyMaterialConfig, Set<String>> materialSetEntry : dependencyMaterialFingerprintMap.entrySet()) {
-            Set<MaterialConfig> scmMaterials = new HashSet<>();
-            for (String fingerprint : materialSetEntry.getValue()) {
-                scmMaterials.add(fingerprintScmMaterialMap.get(fingerprint));
-            }
-            dependencyMaterialListMap.put(materialSetEntry.getKey(), scmMaterials);
-        }
-
-        return dependencyMaterialListMap;
+        return new HashMap<>(topology.pipelineScmDepMap());
     }
 
     public MaterialRevisions computeRevisions(MaterialRevisions actualRevisions, PipelineTimeline pipelineTimeline) {
@@ -193,6 +135,10 @@ public class FanInGraph {
     private List<MaterialRevision> createFinalRevisionsForScmChildren(PipelineTimelineEntry latestRootNodeInstance, List<RootFanInNode> scmChildren, List<DependencyFanInNode> depChildren) {
         Set<FaninScmMaterial> scmMaterialsFromDepChildren = scmMaterialsOfDepChildren(depChildren);
         List<MaterialRevision> finalRevisions = new ArrayList<>();
+        PipelineInstanceModel pipeline = null;
+        if (latestRootNodeInstance != null && !scmChildren.isEmpty()) {
+            pipeline = pipelineDao.findPipelineHistoryByNameAndCounter(latestRootNodeInstance.getPipelineName(), latestRootNodeInstance.getCounter());
+        }
 
         for (RootFanInNode child : scmChildren) {
             child.setScmRevision(scmMaterialsFromDepChildren);
@@ -200,8 +146,7 @@ public class FanInGraph {
             MaterialConfig materialConfig = child.materialConfig;
             Material material = materialConfigConverter.toMaterial(materialConfig);
             MaterialRevision revision = new MaterialRevision(material);
-            if (latestRootNodeInstance != null) {
-                PipelineInstanceModel pipeline = pipelineDao.findPipelineHistoryByNameAndCounter(latestRootNodeInstance.getPipelineName(), latestRootNodeInstance.getCounter());
+            if (pipeline != null) {
                 for (MaterialRevision materialRevision : pipeline.getCurrentRevisions()) {
                     if (materialRevision.getMaterial().getFingerprint().equals(child.materialConfig.getFingerprint())) {
                         List<Modification> modificationsSince = materialRepository.findModificationsSinceAndUptil(material, materialRevision, child.scmRevision);
@@ -341,9 +286,9 @@ public class FanInGraph {
         FanInGraphContext context = new FanInGraphContext();
         context.revBatchCount = REVISION_BUFFER_SIZE;
         context.pipelineTimeline = pipelineTimeline;
-        context.fingerprintScmMaterialMap = fingerprintScmMaterialMap;
-        context.pipelineScmDepMap = getPipelineScmDepMap();
-        context.fingerprintDepMaterialMap = fingerprintDepMaterialMap;
+        context.fingerprintScmMaterialMap = topology.fingerprintScmMaterialMap();
+        context.pipelineScmDepMap = topology.pipelineScmDepMap();
+        context.fingerprintDepMaterialMap = topology.fingerprintDepMaterialMap();
         context.pipelineDao = pipelineDao;
         context.maxBackTrackLimit = systemEnvironment.get(SystemEnvironment.RESOLVE_FANIN_MAX_BACK_TRACK_LIMIT);
         return context;
@@ -16,10 +16,14 @@
 package com.thoughtworks.go.server.service.dd;
 
 import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.domain.StageIdentifier;
 import com.thoughtworks.go.domain.materials.MaterialConfig;
 import com.thoughtworks.go.server.dao.PipelineDao;
 import com.thoughtworks.go.server.domain.PipelineTimeline;
+import com.thoughtworks.go.util.Pair;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -31,4 +35,8 @@ public class FanInGraphContext {
     public Map<String, DependencyMaterialConfig> fingerprintDepMaterialMap;
     public PipelineDao pipelineDao;
     public int maxBackTrackLimit;
+
+    /* Looked up once for each pipeline instance while resolving, however often backtracking comes back to it. */
+    final Map<Pair<Long, String>, StageIdentifier> latestPassedStages = new HashMap<>();
+    final Map<Long, List<FaninScmMaterial>> scmMaterialsOfInstances = new HashMap<>();
 }
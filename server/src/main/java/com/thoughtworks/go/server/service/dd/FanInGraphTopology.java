@@ -0,0 +1,130 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service.dd;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.CruiseConfig;
+import com.thoughtworks.go.config.PipelineConfig;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.domain.materials.MaterialConfig;
+
+import java.util.*;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Understands the shape of the fan-in graph of a pipeline, as worked out from the config: its materials, the upstream
+ * pipelines it depends on, and the SCM materials which reach it through each of them.
+ * <p>
+ * Unlike the nodes of a {@link FanInGraph}, which keep track of the revisions being tried while resolving fan-in, this
+ * does not change once made, so the same one can be used to resolve fan-in for as long as the config stays the same.
+ */
+public class FanInGraphTopology {
+    private final String md5;
+    private final CaseInsensitiveString pipelineName;
+    private final DependencyMaterialConfig rootMaterial;
+    private final List<MaterialConfig> rootChildren;
+    private final Set<CaseInsensitiveString> pipelines = new HashSet<>();
+    private final Map<String, MaterialConfig> fingerprintScmMaterialMap = new HashMap<>();
+    private final Map<String, DependencyMaterialConfig> fingerprintDepMaterialMap = new HashMap<>();
+    private final Map<DependencyMaterialConfig, Set<String>> dependencyMaterialFingerprintMap = new HashMap<>();
+    private final Map<DependencyMaterialConfig, Set<MaterialConfig>> pipelineScmDepMap = new HashMap<>();
+
+    private FanInGraphTopology(CruiseConfig cruiseConfig, CaseInsensitiveString pipelineName) {
+        this.md5 = cruiseConfig.getMd5();
+        this.pipelineName = pipelineName;
+
+        PipelineConfig target = cruiseConfig.pipelineConfigByName(pipelineName);
+        this.rootMaterial = new DependencyMaterialConfig(target.name(), target.get(0).name());
+        this.rootChildren = List.copyOf(target.materialConfigs());
+        pipelines.add(target.name());
+
+        final Set<String> scmMaterials = new HashSet<>();
+        buildRestOfTheGraph(cruiseConfig, target, scmMaterials, new HashSet<>());
+        dependencyMaterialFingerprintMap.put(rootMaterial, scmMaterials);
+
+        for (Map.Entry<DependencyMaterialConfig, Set<String>> materialSetEntry : dependencyMaterialFingerprintMap.entrySet()) {
+            Set<MaterialConfig> scmMaterialsOfDependency = new HashSet<>();
+            for (String fingerprint : materialSetEntry.getValue()) {
+                scmMaterialsOfDependency.add(fingerprintScmMaterialMap.get(fingerprint));
+            }
+            pipelineScmDepMap.put(materialSetEntry.getKey(), Collections.unmodifiableSet(scmMaterialsOfDependency));
+        }
+    }
+
+    public static FanInGraphTopology of(CruiseConfig cruiseConfig, CaseInsensitiveString pipelineName) {
+        return new FanInGraphTopology(cruiseConfig, pipelineName);
+    }
+
+    private void buildRestOfTheGraph(CruiseConfig cruiseConfig, PipelineConfig target, Set<String> scmMaterialSet, Set<DependencyMaterialConfig> visitedNodes) {
+        for (MaterialConfig material : target.materialConfigs()) {
+            if (material instanceof DependencyMaterialConfig dependencyMaterial) {
+                fingerprintDepMaterialMap.put(dependencyMaterial.getFingerprint(), dependencyMaterial);
+                pipelines.add(dependencyMaterial.getPipelineName());
+                handleDependencyMaterial(cruiseConfig, scmMaterialSet, dependencyMaterial, visitedNodes);
+            } else {
+                scmMaterialSet.add(material.getFingerprint());
+                fingerprintScmMaterialMap.put(material.getFingerprint(), material);
+            }
+        }
+    }
+
+    private void handleDependencyMaterial(CruiseConfig cruiseConfig, Set<String> scmMaterialSet, DependencyMaterialConfig depMaterial, Set<DependencyMaterialConfig> visitedNodes) {
+        if (visitedNodes.contains(depMaterial)) {
+            scmMaterialSet.addAll(dependencyMaterialFingerprintMap.get(depMaterial));
+            return;
+        }
+        visitedNodes.add(depMaterial);
+
+        final Set<String> scmMaterialFingerprintSet = new HashSet<>();
+        buildRestOfTheGraph(cruiseConfig, cruiseConfig.pipelineConfigByName(depMaterial.getPipelineName()), scmMaterialFingerprintSet, visitedNodes);
+        dependencyMaterialFingerprintMap.put(depMaterial, scmMaterialFingerprintSet);
+        scmMaterialSet.addAll(scmMaterialFingerprintSet);
+    }
+
+    String md5() {
+        return md5;
+    }
+
+    CaseInsensitiveString pipelineName() {
+        return pipelineName;
+    }
+
+    DependencyMaterialConfig rootMaterial() {
+        return rootMaterial;
+    }
+
+    List<MaterialConfig> rootChildren() {
+        return rootChildren;
+    }
+
+    Map<String, MaterialConfig> fingerprintScmMaterialMap() {
+        return unmodifiableMap(fingerprintScmMaterialMap);
+    }
+
+    Map<String, DependencyMaterialConfig> fingerprintDepMaterialMap() {
+        return unmodifiableMap(fingerprintDepMaterialMap);
+    }
+
+    Map<DependencyMaterialConfig, Set<MaterialConfig>> pipelineScmDepMap() {
+        return unmodifiableMap(pipelineScmDepMap);
+    }
+
+    /* Whether the pipeline is this one or any of those upstream of it, so that a change to it may change this. */
+    boolean involves(CaseInsensitiveString pipeline) {
+        return pipelines.contains(pipeline);
+    }
+}
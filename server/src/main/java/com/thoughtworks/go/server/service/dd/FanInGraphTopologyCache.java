@@ -0,0 +1,117 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service.dd;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.CruiseConfig;
+import com.thoughtworks.go.config.PipelineConfig;
+import com.thoughtworks.go.config.PipelineTemplateConfig;
+import com.thoughtworks.go.listener.ConfigChangedListener;
+import com.thoughtworks.go.listener.EntityConfigChangedListener;
+import com.thoughtworks.go.server.initializers.Initializer;
+import com.thoughtworks.go.server.service.GoConfigService;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Understands keeping the fan-in graph topology of each pipeline, so that it is not worked out from the config again
+ * every time fan-in is resolved for the pipeline.
+ * <p>
+ * A topology is only used with a config of the same md5 it was worked out from. Since pipelines from config repositories
+ * can change without the md5 changing, topologies are also forgotten when the config or a pipeline in them changes, and
+ * are only kept when worked out from the config which is current.
+ */
+@Component
+public class FanInGraphTopologyCache implements ConfigChangedListener, Initializer {
+    private final GoConfigService goConfigService;
+    private final Map<CaseInsensitiveString, FanInGraphTopology> topologies = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public FanInGraphTopologyCache(GoConfigService goConfigService) {
+        this.goConfigService = goConfigService;
+    }
+
+    @Override
+    public void initialize() {
+        goConfigService.register(this);
+        goConfigService.register(new EntityConfigChangedListener<PipelineConfig>() {
+            @Override
+            public void onEntityConfigChange(PipelineConfig pipelineConfig) {
+                forget(pipelineConfig.name());
+            }
+        });
+        goConfigService.register(new EntityConfigChangedListener<PipelineTemplateConfig>() {
+            @Override
+            public void onEntityConfigChange(PipelineTemplateConfig pipelineTemplateConfig) {
+                forgetAll();
+            }
+        });
+    }
+
+    @Override
+    public void startDaemon() {
+    }
+
+    @Override
+    public void onConfigChange(CruiseConfig newCruiseConfig) {
+        forgetAll();
+    }
+
+    public FanInGraphTopology topologyFor(CruiseConfig cruiseConfig, CaseInsensitiveString pipelineName) {
+        String md5 = cruiseConfig.getMd5();
+        if (StringUtils.isBlank(md5)) {
+            return FanInGraphTopology.of(cruiseConfig, pipelineName);
+        }
+
+        FanInGraphTopology known = topologies.get(pipelineName);
+        if (known != null && md5.equals(known.md5())) {
+            return known;
+        }
+
+        long invalidationsBefore = invalidations.get();
+        // a pipeline from a config repository may have changed since the caller took its config, without changing the md5
+        boolean fromCurrentConfig = cruiseConfig == goConfigService.currentCruiseConfig();
+        FanInGraphTopology topology = FanInGraphTopology.of(cruiseConfig, pipelineName);
+        // the config may have changed while this was being worked out, in which case it is not kept
+        synchronized (topologies) {
+            if (fromCurrentConfig && invalidations.get() == invalidationsBefore) {
+                topologies.put(pipelineName, topology);
+            }
+        }
+        return topology;
+    }
+
+    /* Forgets the topologies of the pipeline and of everything downstream of it, since it may have become part of them. */
+    private void forget(CaseInsensitiveString pipelineName) {
+        synchronized (topologies) {
+            invalidations.incrementAndGet();
+            topologies.values().removeIf(topology -> topology.involves(pipelineName));
+        }
+    }
+
+    private void forgetAll() {
+        synchronized (topologies) {
+            invalidations.incrementAndGet();
+            topologies.clear();
+        }
+    }
+}
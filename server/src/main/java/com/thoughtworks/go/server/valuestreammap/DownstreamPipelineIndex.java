@@ -0,0 +1,201 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.valuestreammap;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.CruiseConfig;
+import com.thoughtworks.go.config.PipelineConfig;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.domain.materials.MaterialConfig;
+import com.thoughtworks.go.listener.ConfigChangedListener;
+import com.thoughtworks.go.listener.EntityConfigChangedListener;
+import com.thoughtworks.go.server.initializers.Initializer;
+import com.thoughtworks.go.server.service.GoConfigService;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Understands which pipelines depend directly on each pipeline, so that walking downstream of a pipeline does not have to
+ * go through the materials of every pipeline in the config again.
+ * <p>
+ * The index is worked out from the config the first time it is needed, and is then brought up-to-date as pipelines
+ * change, by looking at the changed pipeline alone. It is only used with a config of the same md5 it was last brought
+ * up-to-date with, and is worked out from scratch again after any other change to the config.
+ */
+@Component
+public class DownstreamPipelineIndex implements ConfigChangedListener, Initializer {
+    private final GoConfigService goConfigService;
+    private volatile Index index = Index.NONE;
+    private long changes;
+
+    @Autowired
+    public DownstreamPipelineIndex(GoConfigService goConfigService) {
+        this.goConfigService = goConfigService;
+    }
+
+    @Override
+    public void initialize() {
+        goConfigService.register(this);
+        goConfigService.register(new EntityConfigChangedListener<PipelineConfig>() {
+            @Override
+            public void onEntityConfigChange(PipelineConfig pipelineConfig) {
+                pipelineChanged(pipelineConfig.name());
+            }
+        });
+    }
+
+    @Override
+    public void startDaemon() {
+    }
+
+    @Override
+    public synchronized void onConfigChange(CruiseConfig newCruiseConfig) {
+        changes++;
+        index = Index.NONE;
+    }
+
+    public Index indexFor(CruiseConfig cruiseConfig) {
+        String md5 = cruiseConfig.getMd5();
+        Index known = this.index;
+        if (StringUtils.isNotBlank(md5) && md5.equals(known.md5)) {
+            return known;
+        }
+
+        long changesBefore;
+        synchronized (this) {
+            changesBefore = changes;
+        }
+        Index index = Index.of(cruiseConfig);
+        synchronized (this) {
+            // the config may have changed while this was being worked out, in which case it is not kept
+            if (StringUtils.isNotBlank(md5) && changes == changesBefore) {
+                this.index = index;
+            }
+        }
+        return index;
+    }
+
+    private synchronized void pipelineChanged(CaseInsensitiveString pipelineName) {
+        changes++;
+        if (index != Index.NONE) {
+            index = index.updatedWith(pipelineName, goConfigService.currentCruiseConfig());
+        }
+    }
+
+    /* The pipelines directly downstream of each pipeline in one config. Never changed once made. */
+    public static class Index {
+        private static final Index NONE = new Index(null, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
+
+        private final String md5;
+        private final Map<CaseInsensitiveString, List<CaseInsensitiveString>> downstreamOf;
+        private final Map<CaseInsensitiveString, List<CaseInsensitiveString>> upstreamOf;
+        // where each pipeline is in the config, since the pipelines downstream of a pipeline are kept in config order
+        private final Map<CaseInsensitiveString, Integer> positions;
+
+        private Index(String md5, Map<CaseInsensitiveString, List<CaseInsensitiveString>> downstreamOf, Map<CaseInsensitiveString, List<CaseInsensitiveString>> upstreamOf,
+                      Map<CaseInsensitiveString, Integer> positions) {
+            this.md5 = md5;
+            this.downstreamOf = downstreamOf;
+            this.upstreamOf = upstreamOf;
+            this.positions = positions;
+        }
+
+        static Index of(CruiseConfig cruiseConfig) {
+            Map<CaseInsensitiveString, List<CaseInsensitiveString>> downstreamOf = new HashMap<>();
+            Map<CaseInsensitiveString, List<CaseInsensitiveString>> upstreamOf = new HashMap<>();
+            Map<CaseInsensitiveString, Integer> positions = new HashMap<>();
+            for (PipelineConfig pipelineConfig : cruiseConfig.getAllPipelineConfigs()) {
+                positions.put(pipelineConfig.name(), positions.size());
+                List<CaseInsensitiveString> upstreamPipelines = upstreamPipelinesOf(pipelineConfig);
+                for (CaseInsensitiveString upstreamPipeline : upstreamPipelines) {
+                    downstreamOf.computeIfAbsent(upstreamPipeline, name -> new ArrayList<>()).add(pipelineConfig.name());
+                }
+                upstreamOf.put(pipelineConfig.name(), upstreamPipelines);
+            }
+            return new Index(cruiseConfig.getMd5(), downstreamOf, upstreamOf, positions);
+        }
+
+        /*
+         * Copies only the lists the pipeline is in, since the ones before may still be in use. The pipeline is put back
+         * where it is in the config, so that the lists are in the same order as when the index is worked out from scratch.
+         */
+        private Index updatedWith(CaseInsensitiveString pipelineName, CruiseConfig cruiseConfig) {
+            Map<CaseInsensitiveString, List<CaseInsensitiveString>> downstreamOf = new HashMap<>(this.downstreamOf);
+            Map<CaseInsensitiveString, List<CaseInsensitiveString>> upstreamOf = new HashMap<>(this.upstreamOf);
+
+            for (CaseInsensitiveString upstreamPipeline : upstreamOf.getOrDefault(pipelineName, Collections.emptyList())) {
+                List<CaseInsensitiveString> downstreamPipelines = new ArrayList<>(downstreamOf.getOrDefault(upstreamPipeline, Collections.emptyList()));
+                downstreamPipelines.removeIf(pipelineName::equals);
+                downstreamOf.put(upstreamPipeline, downstreamPipelines);
+            }
+            upstreamOf.remove(pipelineName);
+
+            Map<CaseInsensitiveString, Integer> positions = this.positions;
+            if (cruiseConfig.hasPipelineNamed(pipelineName)) {
+                if (!positions.containsKey(pipelineName)) {
+                    // a new pipeline can be anywhere in the config, moving the pipelines after it along
+                    positions = positionsIn(cruiseConfig);
+                }
+                PipelineConfig pipelineConfig = cruiseConfig.pipelineConfigByName(pipelineName);
+                List<CaseInsensitiveString> upstreamPipelines = upstreamPipelinesOf(pipelineConfig);
+                for (CaseInsensitiveString upstreamPipeline : upstreamPipelines) {
+                    List<CaseInsensitiveString> downstreamPipelines = new ArrayList<>(downstreamOf.getOrDefault(upstreamPipeline, Collections.emptyList()));
+                    insertInConfigOrder(downstreamPipelines, pipelineConfig.name(), positions);
+                    downstreamOf.put(upstreamPipeline, downstreamPipelines);
+                }
+                upstreamOf.put(pipelineConfig.name(), upstreamPipelines);
+            } else if (positions.containsKey(pipelineName)) {
+                positions = new HashMap<>(positions);
+                positions.remove(pipelineName);
+            }
+            return new Index(cruiseConfig.getMd5(), downstreamOf, upstreamOf, positions);
+        }
+
+        private static Map<CaseInsensitiveString, Integer> positionsIn(CruiseConfig cruiseConfig) {
+            Map<CaseInsensitiveString, Integer> positions = new HashMap<>();
+            for (PipelineConfig pipelineConfig : cruiseConfig.getAllPipelineConfigs()) {
+                positions.put(pipelineConfig.name(), positions.size());
+            }
+            return positions;
+        }
+
+        private static void insertInConfigOrder(List<CaseInsensitiveString> pipelines, CaseInsensitiveString pipelineName, Map<CaseInsensitiveString, Integer> positions) {
+            int position = positions.get(pipelineName);
+            int insertAt = pipelines.size();
+            while (insertAt > 0 && positions.getOrDefault(pipelines.get(insertAt - 1), Integer.MAX_VALUE) > position) {
+                insertAt--;
+            }
+            pipelines.add(insertAt, pipelineName);
+        }
+
+        private static List<CaseInsensitiveString> upstreamPipelinesOf(PipelineConfig pipelineConfig) {
+            List<CaseInsensitiveString> upstreamPipelines = new ArrayList<>();
+            for (MaterialConfig materialConfig : pipelineConfig.materialConfigs()) {
+                if (materialConfig instanceof DependencyMaterialConfig dependencyMaterialConfig) {
+                    upstreamPipelines.add(dependencyMaterialConfig.getPipelineName());
+                }
+            }
+            return upstreamPipelines;
+        }
+
+        public List<CaseInsensitiveString> downstreamOf(CaseInsensitiveString pipelineName) {
+            return Collections.unmodifiableList(downstreamOf.getOrDefault(pipelineName, Collections.emptyList()));
+        }
+    }
+}
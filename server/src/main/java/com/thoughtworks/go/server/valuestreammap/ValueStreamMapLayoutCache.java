@@ -0,0 +1,116 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.valuestreammap;
+
+import com.thoughtworks.go.domain.valuestreammap.DummyNode;
+import com.thoughtworks.go.domain.valuestreammap.Node;
+import com.thoughtworks.go.domain.valuestreammap.NodeLevelMap;
+import com.thoughtworks.go.domain.valuestreammap.ValueStreamMap;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Understands remembering how value stream maps were laid out, so that a map of the same shape as one laid out before
+ * gets the same order of nodes at each level, without working out how to minimize the crossings between them again.
+ * <p>
+ * The shape of a map is its nodes and the edges between them, in the order they were added, which is all that laying it
+ * out depends on. The maps of instances of a pipeline usually have the same shape for as long as the config and the
+ * upstream of the pipeline stay the same, so only the revisions in them need to be worked out for every request.
+ */
+@Component
+public class ValueStreamMapLayoutCache {
+    static final int MAX_LAYOUTS = 1_000;
+
+    private final LevelAssignment levelAssignment = new LevelAssignment();
+    private final DummyNodeCreation dummyNodeCreation = new DummyNodeCreation();
+    private final CrossingMinimization crossingMinimization = new CrossingMinimization();
+
+    private final Map<String, Map<String, Integer>> depthsOfShapes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<String, Integer>> eldest) {
+            return size() > MAX_LAYOUTS;
+        }
+    };
+
+    public NodeLevelMap layOut(ValueStreamMap valueStreamMap) {
+        String shape = shapeOf(valueStreamMap);
+
+        NodeLevelMap nodeLevelMap = levelAssignment.apply(valueStreamMap);
+        dummyNodeCreation.apply(valueStreamMap, nodeLevelMap);
+
+        Map<String, Integer> knownDepths;
+        synchronized (depthsOfShapes) {
+            knownDepths = depthsOfShapes.get(shape);
+        }
+        if (knownDepths != null) {
+            for (List<Node> nodesAtLevel : nodeLevelMap.nodesAtEachLevel()) {
+                for (Node node : nodesAtLevel) {
+                    node.setDepth(knownDepths.get(positionOf(node)));
+                }
+                Collections.sort(nodesAtLevel);
+            }
+            return nodeLevelMap;
+        }
+
+        crossingMinimization.apply(nodeLevelMap);
+
+        Map<String, Integer> depths = new HashMap<>();
+        for (List<Node> nodesAtLevel : nodeLevelMap.nodesAtEachLevel()) {
+            for (Node node : nodesAtLevel) {
+                depths.put(positionOf(node), node.getDepth());
+            }
+        }
+        synchronized (depthsOfShapes) {
+            depthsOfShapes.put(shape, depths);
+        }
+        return nodeLevelMap;
+    }
+
+    private String shapeOf(ValueStreamMap valueStreamMap) {
+        Node root = valueStreamMap.getCurrentPipeline() != null ? valueStreamMap.getCurrentPipeline() : valueStreamMap.getCurrentMaterial();
+        StringBuilder shape = new StringBuilder(root.getId().toString()).append('\n');
+        for (Node node : valueStreamMap.allNodes()) {
+            shape.append(node.getId()).append(" <");
+            for (Node parent : node.getParents()) {
+                shape.append(' ').append(parent.getId());
+            }
+            shape.append(" >");
+            for (Node child : node.getChildren()) {
+                shape.append(' ').append(child.getId());
+            }
+            shape.append('\n');
+        }
+        return DigestUtils.sha256Hex(shape.toString());
+    }
+
+    /* Dummy nodes get new ids every time, so they are known by the nodes at either end of their edge and their level. */
+    private String positionOf(Node node) {
+        if (!(node instanceof DummyNode)) {
+            return node.getId().toString();
+        }
+        Node from = node;
+        while (from instanceof DummyNode) {
+            from = from.getParents().get(0);
+        }
+        Node to = node;
+        while (to instanceof DummyNode) {
+            to = to.getChildren().get(0);
+        }
+        return from.getId() + " > " + to.getId() + " @ " + node.getLevel();
+    }
+}
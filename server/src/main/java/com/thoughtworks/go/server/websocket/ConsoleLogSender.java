@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.websocket;
 
+import com.thoughtworks.go.domain.ConsoleByteStreamer;
 import com.thoughtworks.go.domain.ConsoleConsumer;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
@@ -32,6 +33,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.zip.GZIPOutputStream;
 
 @Component
@@ -43,16 +45,24 @@ public class ConsoleLogSender {
     private static final int BUF_SIZE = 1024 * 1024; // 1MB
     private static final int FILL_INTERVAL = 500;
     private final Charset charset;
+    private final boolean streamBytes;
+    private final boolean shareTails;
 
     private ConsoleService consoleService;
 
     private JobInstanceDao jobInstanceDao;
 
+    private ConsoleLogTailer consoleLogTailer;
+
     @Autowired
-    ConsoleLogSender(ConsoleService consoleService, JobInstanceDao jobInstanceDao, SystemEnvironment systemEnvironment) {
+    ConsoleLogSender(ConsoleService consoleService, JobInstanceDao jobInstanceDao, ConsoleLogTailer consoleLogTailer, SystemEnvironment systemEnvironment) {
         this.consoleService = consoleService;
         this.jobInstanceDao = jobInstanceDao;
+        this.consoleLogTailer = consoleLogTailer;
         this.charset = systemEnvironment.consoleLogCharset();
+        // raw bytes can only be cut at line breaks if the charset encodes them the same way as ASCII does
+        this.streamBytes = systemEnvironment.isConsoleLogByteStreamingEnabled() && Arrays.equals("\n".getBytes(charset), new byte[]{'\n'});
+        this.shareTails = streamBytes && systemEnvironment.isConsoleLogSharedTailingEnabled();
     }
 
     public void process(final SocketEndpoint webSocket, JobIdentifier jobIdentifier, long start) throws Exception {
@@ -76,6 +86,24 @@ public class ConsoleLogSender {
             return;
         }
 
+        // running builds are tailed once for all the sockets watching them, which are closed when the build completes
+        if (isRunningBuild && shareTails) {
+            consoleLogTailer.subscribe(webSocket, jobIdentifier, start);
+            return;
+        }
+
+        try {
+            if (streamBytes) {
+                sendLogBytes(webSocket, jobIdentifier, start, isRunningBuild);
+            } else {
+                sendLogLines(webSocket, jobIdentifier, start, isRunningBuild);
+            }
+        } finally {
+            webSocket.close();
+        }
+    }
+
+    private void sendLogLines(SocketEndpoint webSocket, JobIdentifier jobIdentifier, long start, boolean isRunningBuild) throws Exception {
         try (ConsoleConsumer streamer = consoleService.getStreamer(start, jobIdentifier)) {
             do {
                 start += sendLogs(webSocket, streamer, jobIdentifier);
@@ -100,9 +128,43 @@ public class ConsoleLogSender {
             }
 
             LOGGER.debug("Sent {} log lines for {} from all sources", start, jobIdentifier);
+        }
+    }
+
+    // Sends the file as it is, a range of complete lines at a time; the client does the line splitting.
+    private void sendLogBytes(SocketEndpoint webSocket, JobIdentifier jobIdentifier, long start, boolean isRunningBuild) throws Exception {
+        ConsoleByteStreamer streamer = consoleService.getByteStreamer(start, jobIdentifier, BUF_SIZE);
+        try {
+            do {
+                streamer.stream(chunk -> sendChunk(webSocket, chunk), false);
+
+                // allow buffers to fill to avoid sending 1 line at a time for running builds
+                if (isRunningBuild) {
+                    Thread.sleep(FILL_INTERVAL);
+                }
+            } while (webSocket.isOpen() && !detectCompleted(jobIdentifier));
+
+            //send the remaining logs if any, from wherever the console log has been moved to on completion
+            if (detectCompleted(jobIdentifier)) {
+                streamer = streamer.continueFrom(consoleService.consoleLogFile(jobIdentifier).toPath());
+                streamer.stream(chunk -> sendChunk(webSocket, chunk), true);
+            }
+
+            LOGGER.debug("Sent {} bytes of console log for {} from all sources", streamer.totalBytesConsumed(), jobIdentifier);
         } finally {
-            webSocket.close();
+            streamer.close();
+        }
+    }
+
+    private void sendChunk(SocketEndpoint webSocket, ByteBuffer chunk) throws IOException {
+        webSocket.send(payloadOf(chunk));
+    }
+
+    static ByteBuffer payloadOf(ByteBuffer chunk) {
+        if (chunk.remaining() < 512) {
+            return chunk;
         }
+        return ByteBuffer.wrap(gzip(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining()));
     }
 
     private boolean doesLogExists(JobIdentifier jobIdentifier) {
@@ -146,12 +208,16 @@ public class ConsoleLogSender {
         if (input.length < 512) {
             return input;
         }
+        return gzip(input, 0, input.length);
+    }
+
+    private static byte[] gzip(byte[] input, int offset, int length) {
         // To avoid having to re-allocate the internal byte array, allocate an initial buffer assuming a safe 10:1 compression ratio
-        final ByteArrayOutputStream gzipBytes = new ByteArrayOutputStream(input.length / 10);
+        final ByteArrayOutputStream gzipBytes = new ByteArrayOutputStream(length / 10);
         try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipBytes, 1024 * 8)) {
-            gzipOutputStream.write(input);
+            gzipOutputStream.write(input, offset, length);
         } catch (IOException e) {
-            LOGGER.error("Could not gzip {}", input);
+            LOGGER.error("Could not gzip {} bytes of console log", length);
         }
         return gzipBytes.toByteArray();
     }
@@ -22,6 +22,7 @@ import org.apache.http.client.utils.URLEncodedUtils;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.StatusCode;
 import org.eclipse.jetty.websocket.api.UpgradeRequest;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
@@ -101,6 +102,11 @@ public class ConsoleLogSocket implements SocketEndpoint {
         session.getRemote().sendBytes(data);
     }
 
+    @Override
+    public void send(ByteBuffer data, WriteCallback callback) {
+        session.getRemote().sendBytes(data, callback);
+    }
+
     @Override
     public void ping() throws IOException {
         session.getRemote().sendString(PING);
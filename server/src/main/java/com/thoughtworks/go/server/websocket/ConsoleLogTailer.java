@@ -0,0 +1,477 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.domain.ConsoleByteStreamer;
+import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.domain.exception.IllegalArtifactLocationException;
+import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.messaging.GoMessageListener;
+import com.thoughtworks.go.server.messaging.JobStatusMessage;
+import com.thoughtworks.go.server.messaging.JobStatusTopic;
+import com.thoughtworks.go.server.service.ConsoleService;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Tails the console logs of running jobs on behalf of all the sockets watching them. A log is read once each time it
+ * changes, however many sockets are watching it, and the new lines are fanned out to every one of them. Completion of
+ * the job is learnt from the {@link JobStatusTopic}, upon which the rest of the log is sent and the sockets are closed.
+ * <p>
+ * Nothing here waits on a client: sends are queued on the sockets, and a client which lets too much pile up is
+ * disconnected. A new socket is sent the log up to where the others have got by itself, before it joins them.
+ */
+@Component
+public class ConsoleLogTailer implements GoMessageListener<JobStatusMessage> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleLogTailer.class);
+
+    private static final int BUF_SIZE = 1024 * 1024; // 1MB
+    private static final int THREADS = 4;
+    // allow logs to fill up a bit, to avoid sending 1 line at a time
+    private static final long FILL_INTERVAL = 500;
+    // picks up completions that are not posted on the topic (such as cancellations), and any changes the watcher missed
+    private static final long CHECK_INTERVAL = 10_000;
+    // a client with this much still to be written to it is not keeping up with the log, and is disconnected
+    private static final long MAX_UNSENT_BYTES = 8L * BUF_SIZE;
+
+    private final ConsoleService consoleService;
+    private final JobInstanceDao jobInstanceDao;
+    private final ScheduledExecutorService executor;
+    private final WatchService watchService;
+    private final ConcurrentMap<Long, JobTail> tails = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Path, JobTail> tailsByFile = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ConsoleLogTailer(ConsoleService consoleService, JobInstanceDao jobInstanceDao, JobStatusTopic jobStatusTopic) {
+        this(consoleService, jobInstanceDao, newExecutor(), newWatchService());
+        jobStatusTopic.addListener(this);
+        executor.scheduleWithFixedDelay(this::checkAll, CHECK_INTERVAL, CHECK_INTERVAL, MILLISECONDS);
+        if (watchService != null) {
+            Thread watcher = new Thread(this::watchForChanges, "console-log-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+    }
+
+    ConsoleLogTailer(ConsoleService consoleService, JobInstanceDao jobInstanceDao, ScheduledExecutorService executor, WatchService watchService) {
+        this.consoleService = consoleService;
+        this.jobInstanceDao = jobInstanceDao;
+        this.executor = executor;
+        this.watchService = watchService;
+    }
+
+    /**
+     * Starts sending the console log of a running job to the socket, from the given line onwards. The socket is closed
+     * once the job has completed and all of its log has been sent.
+     */
+    public void subscribe(SocketEndpoint socket, JobIdentifier jobIdentifier, long startingLine) throws IllegalArtifactLocationException {
+        Path file = consoleService.consoleLogFile(jobIdentifier).toPath().toAbsolutePath().normalize();
+        Subscriber subscriber = new Subscriber(socket, consoleService.getByteStreamer(startingLine, jobIdentifier, BUF_SIZE));
+
+        while (true) {
+            JobTail tail = tails.computeIfAbsent(jobIdentifier.getBuildId(), buildId -> startTailing(jobIdentifier, file));
+            // a tail which has just finished has already been removed, so the next attempt starts a new one
+            if (tail.add(subscriber)) {
+                executor.execute(() -> tail.catchUp(subscriber));
+                tail.requestRound(0);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(JobStatusMessage message) {
+        if (message.getJobState().isCompleted()) {
+            JobTail tail = tails.get(message.getJobIdentifier().getBuildId());
+            if (tail != null) {
+                tail.complete();
+            }
+        }
+    }
+
+    boolean isTailing(JobIdentifier jobIdentifier) {
+        return tails.containsKey(jobIdentifier.getBuildId());
+    }
+
+    void refresh(JobIdentifier jobIdentifier) {
+        JobTail tail = tails.get(jobIdentifier.getBuildId());
+        if (tail != null) {
+            tail.round();
+        }
+    }
+
+    private JobTail startTailing(JobIdentifier jobIdentifier, Path file) {
+        JobTail tail = new JobTail(jobIdentifier, file, !watch(file));
+        tailsByFile.put(file, tail);
+        return tail;
+    }
+
+    private boolean watch(Path file) {
+        if (watchService == null) {
+            return false;
+        }
+        try {
+            // registering a directory more than once just returns the key it is already registered with
+            file.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Could not watch {} for changes, it will be polled instead", file, e);
+            return false;
+        }
+    }
+
+    private void watchForChanges() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    tails.values().forEach(tail -> tail.requestRound(FILL_INTERVAL));
+                } else {
+                    JobTail tail = tailsByFile.get(directory.resolve((Path) event.context()));
+                    if (tail != null) {
+                        tail.requestRound(FILL_INTERVAL);
+                    }
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private void checkAll() {
+        for (JobTail tail : tails.values()) {
+            try {
+                if (jobInstanceDao.isJobCompleted(tail.jobIdentifier)) {
+                    tail.complete();
+                } else {
+                    tail.requestRound(0);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Could not check whether {} has completed", tail.jobIdentifier, e);
+            }
+        }
+    }
+
+    private static ScheduledExecutorService newExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newScheduledThreadPool(THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "console-log-tailer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static WatchService newWatchService() {
+        try {
+            return FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("Console logs cannot be watched for changes, they will be polled instead", e);
+            return null;
+        }
+    }
+
+    private class JobTail {
+        private final JobIdentifier jobIdentifier;
+        private final Path file;
+        private final boolean polling;
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private final AtomicBoolean roundScheduled = new AtomicBoolean(false);
+        private volatile boolean completed = false;
+        private volatile boolean finished = false;
+        private boolean checkedCompletion = false;
+        private ConsoleByteStreamer streamer;
+
+        private JobTail(JobIdentifier jobIdentifier, Path file, boolean polling) {
+            this.jobIdentifier = jobIdentifier;
+            this.file = file;
+            this.polling = polling;
+        }
+
+        private synchronized boolean add(Subscriber subscriber) {
+            if (finished) {
+                return false;
+            }
+            subscribers.add(subscriber);
+            return true;
+        }
+
+        private void complete() {
+            completed = true;
+            requestRound(0);
+        }
+
+        private void requestRound(long delay) {
+            if (roundScheduled.compareAndSet(false, true)) {
+                executor.schedule(this::round, delay, MILLISECONDS);
+            }
+        }
+
+        private synchronized void round() {
+            roundScheduled.set(false);
+            if (finished) {
+                return;
+            }
+
+            try {
+                if (!checkedCompletion) {
+                    // the job could have completed before this tail started listening for it
+                    checkedCompletion = true;
+                    completed = completed || jobInstanceDao.isJobCompleted(jobIdentifier);
+                }
+                boolean lastRound = completed;
+
+                subscribers.removeIf(Subscriber::isGone);
+                if (subscribers.isEmpty()) {
+                    finish();
+                    return;
+                }
+
+                if (streamer != null) {
+                    if (lastRound) {
+                        streamer = streamer.continueFrom(finalFile());
+                    }
+                    streamer.stream(this::fanOut, lastRound);
+                }
+
+                subscribers.removeIf(Subscriber::isGone);
+                if (lastRound || subscribers.isEmpty()) {
+                    finish();
+                } else if (polling) {
+                    requestRound(FILL_INTERVAL);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Failed to tail the console log of {}", jobIdentifier, e);
+                finish();
+            }
+        }
+
+        private void fanOut(ByteBuffer chunk) {
+            long chunkStart = streamer.position();
+            ByteBuffer payload = null;
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.caughtUp) {
+                    continue;
+                }
+                // subscribers which have just caught up can be ahead of the shared position, but only at a line break
+                long alreadySent = subscriber.position - chunkStart;
+                if (alreadySent <= 0) {
+                    if (payload == null) {
+                        payload = payloadOf(chunk);
+                    }
+                    subscriber.send(payload.duplicate());
+                } else if (alreadySent < chunk.remaining()) {
+                    subscriber.send(payloadOf(chunk.duplicate().position(chunk.position() + (int) alreadySent)));
+                }
+                subscriber.position = Math.max(subscriber.position, chunkStart + chunk.remaining());
+            }
+        }
+
+        /*
+         * Sends a new subscriber the log up to where the others have got, a batch at a time and outside the round, so
+         * neither a long log nor a slow client holds up anyone else. Once caught up, the subscriber joins the round.
+         */
+        private void catchUp(Subscriber subscriber) {
+            try {
+                if (subscriber.isGone() || (finished && !completed)) {
+                    subscriber.stop();
+                    subscriber.closeCatchUp();
+                    return;
+                }
+                if (subscriber.isBackedUp()) {
+                    executor.schedule(() -> catchUp(subscriber), FILL_INTERVAL, MILLISECONDS);
+                    return;
+                }
+
+                boolean lastRound = completed;
+                if (lastRound) {
+                    subscriber.continueFrom(finalFile());
+                }
+                ConsoleByteStreamer catchUp = subscriber.catchUp;
+                if (catchUp.stream(chunk -> subscriber.send(payloadOf(chunk)), lastRound, BUF_SIZE) >= BUF_SIZE) {
+                    executor.execute(() -> catchUp(subscriber));
+                } else if (lastRound) {
+                    subscriber.stop();
+                    subscriber.closeCatchUp();
+                } else if (!catchUp.isAtStartingLine()) {
+                    executor.schedule(() -> catchUp(subscriber), FILL_INTERVAL, MILLISECONDS);
+                } else if (!join(subscriber)) {
+                    executor.execute(() -> catchUp(subscriber));
+                }
+            } catch (Exception e) {
+                LOGGER.error("Failed to send the console log of {} to {}", jobIdentifier, subscriber.socket.key(), e);
+                subscriber.stop();
+                subscriber.closeCatchUp();
+            }
+        }
+
+        /* The log has been read up to its end, so unless a round has read on since, it is as far as the shared streamer. */
+        private synchronized boolean join(Subscriber subscriber) {
+            ConsoleByteStreamer catchUp = subscriber.catchUp;
+            if (finished || (streamer != null && catchUp.position() < streamer.position())) {
+                return false;
+            }
+
+            subscriber.position = catchUp.position();
+            subscriber.catchUp = null;
+            subscriber.caughtUp = true;
+            if (streamer == null) {
+                streamer = catchUp;
+            } else {
+                catchUp.close();
+            }
+            return true;
+        }
+
+        /* The console log is moved to the artifacts of the job once it completes. */
+        private Path finalFile() {
+            return consoleService.consoleLogFile(jobIdentifier).toPath();
+        }
+
+        private void finish() {
+            finished = true;
+            tails.remove(jobIdentifier.getBuildId(), this);
+            tailsByFile.remove(file, this);
+            if (streamer != null) {
+                streamer.close();
+            }
+            for (Subscriber subscriber : subscribers) {
+                // those still catching up with a completed job send themselves the rest of its log, then stop
+                if (subscriber.caughtUp || !completed) {
+                    subscriber.stop();
+                }
+            }
+            subscribers.clear();
+        }
+    }
+
+    /* Sends are written after the buffer behind a chunk has been reused, so a payload must never share it. */
+    private static ByteBuffer payloadOf(ByteBuffer chunk) {
+        ByteBuffer payload = ConsoleLogSender.payloadOf(chunk);
+        if (payload != chunk) {
+            return payload;
+        }
+        ByteBuffer copy = ByteBuffer.allocate(chunk.remaining());
+        copy.put(chunk.duplicate());
+        copy.flip();
+        return copy;
+    }
+
+    private static class Subscriber {
+        private final SocketEndpoint socket;
+        private final AtomicLong unsent = new AtomicLong();
+        private final AtomicBoolean stopped = new AtomicBoolean(false);
+        private volatile boolean failed = false;
+        // only used by the subscriber's catch-up, until it hands over to the tail's rounds
+        private ConsoleByteStreamer catchUp;
+        private boolean onFinalFile = false;
+        private volatile boolean caughtUp = false;
+        // only used by the tail's rounds, once caught up
+        private long position;
+
+        private Subscriber(SocketEndpoint socket, ConsoleByteStreamer catchUp) {
+            this.socket = socket;
+            this.catchUp = catchUp;
+        }
+
+        private void continueFrom(Path file) {
+            if (!onFinalFile) {
+                onFinalFile = true;
+                catchUp = catchUp.continueFrom(file);
+            }
+        }
+
+        /* Queues the payload on the socket, disconnecting a client which has fallen too far behind to be worth waiting for. */
+        private void send(ByteBuffer payload) {
+            if (failed) {
+                return;
+            }
+            int size = payload.remaining();
+            if (unsent.addAndGet(size) > MAX_UNSENT_BYTES) {
+                LOGGER.warn("{} has fallen more than {} bytes behind the console log, disconnecting it", socket.key(), MAX_UNSENT_BYTES);
+                failed = true;
+                return;
+            }
+            try {
+                socket.send(payload, new WriteCallback() {
+                    @Override
+                    public void writeFailed(Throwable x) {
+                        LOGGER.debug("Failed to send console log to {}, dropping it", socket.key(), x);
+                        failed = true;
+                    }
+
+                    @Override
+                    public void writeSuccess() {
+                        unsent.addAndGet(-size);
+                    }
+                });
+            } catch (Exception e) {
+                LOGGER.debug("Failed to send console log to {}, dropping it", socket.key(), e);
+                failed = true;
+            }
+        }
+
+        /* A client still catching up is given a chance to take what it has been sent before more is read for it. */
+        private boolean isBackedUp() {
+            return unsent.get() >= BUF_SIZE;
+        }
+
+        private boolean isGone() {
+            if (failed || stopped.get() || !socket.isOpen()) {
+                stop();
+                return true;
+            }
+            return false;
+        }
+
+        private void stop() {
+            if (stopped.compareAndSet(false, true)) {
+                socket.close();
+            }
+        }
+
+        private void closeCatchUp() {
+            if (catchUp != null) {
+                catchUp.close();
+                catchUp = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.server.dashboard.GoDashboardCache;
+import com.thoughtworks.go.server.dashboard.GoDashboardCacheListener;
+import com.thoughtworks.go.server.dashboard.GoDashboardPipeline;
+import com.thoughtworks.go.server.dashboard.GoDashboardPipelines;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Understands pushing dashboard changes to connected browsers, instead of them polling for the whole dashboard.
+ * <p>
+ * Every message carries the counter of the {@link GoDashboardPipelines} it was computed from. A client reconnecting
+ * with <code>?since=&lt;counter&gt;</code> gets only what changed after that, or a full snapshot if the removals it
+ * would have missed are no longer retained. Each changed pipeline is serialized once, however many sockets receive it.
+ * <p>
+ * A pipeline which a user can no longer view, because it was removed or its permissions changed, is sent to them as
+ * removed, but only if they were shown it: each socket remembers the pipelines it has been sent.
+ * <p>
+ * All the work happens on a single thread, so broadcasts are never interleaved and the cache thread is not held up.
+ */
+@Component
+public class DashboardDeltaBroadcaster implements GoDashboardCacheListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DashboardDeltaBroadcaster.class);
+    private static final Gson GSON = new Gson();
+    static final int MAX_RETAINED_REMOVALS = 1000;
+
+    private final Executor executor;
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicReference<GoDashboardPipelines> latest = new AtomicReference<>();
+    private final AtomicBoolean broadcastPending = new AtomicBoolean(false);
+
+    // only touched from the executor thread
+    private final Map<CaseInsensitiveString, SerializedPipeline> serialized = new HashMap<>();
+    private final Deque<Removal> removals = new ArrayDeque<>();
+    private GoDashboardPipelines lastBroadcast;
+    private long oldestResumableCounter = Long.MAX_VALUE;
+
+    @Autowired
+    public DashboardDeltaBroadcaster(GoDashboardCache goDashboardCache) {
+        this(goDashboardCache, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-delta-broadcaster");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    DashboardDeltaBroadcaster(GoDashboardCache goDashboardCache, Executor executor) {
+        this.executor = executor;
+        goDashboardCache.addListener(this);
+    }
+
+    @Override
+    public void cacheChanged(GoDashboardPipelines allEntries) {
+        latest.set(allEntries);
+        if (broadcastPending.compareAndSet(false, true)) {
+            executor.execute(this::broadcast);
+        }
+    }
+
+    public void subscribe(DashboardSocket socket, long since) {
+        executor.execute(() -> {
+            if (!socket.isOpen()) {
+                return;
+            }
+            Subscriber subscriber = new Subscriber(socket);
+            socket.send(catchUpMessage(subscriber, since));
+            subscribers.put(socket.key(), subscriber);
+        });
+    }
+
+    public void unsubscribe(DashboardSocket socket) {
+        subscribers.remove(socket.key());
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private void broadcast() {
+        broadcastPending.set(false);
+        GoDashboardPipelines current = latest.get();
+        if (current == null || current == lastBroadcast) {
+            return;
+        }
+
+        List<GoDashboardPipeline> changed = new ArrayList<>();
+        List<GoDashboardPipeline> removed = new ArrayList<>();
+        if (lastBroadcast == null) {
+            changed.addAll(current.getPipelines());
+        } else {
+            current.changesSince(lastBroadcast, changed::add, removed::add);
+        }
+
+        long counter = current.lastUpdatedTimeStamp();
+        if (lastBroadcast == null) {
+            oldestResumableCounter = counter;
+        }
+        for (GoDashboardPipeline pipeline : removed) {
+            serialized.remove(pipeline.name());
+            retainRemoval(new Removal(pipeline, counter));
+        }
+        for (GoDashboardPipeline pipeline : changed) {
+            GoDashboardPipeline previous = lastBroadcast == null ? null : lastBroadcast.find(pipeline.name());
+            if (previous != null && !Objects.equals(previous.permissions(), pipeline.permissions())) {
+                // whoever could view the previous version and cannot view this one has to be caught up with its removal
+                retainRemoval(new Removal(previous, counter));
+            }
+        }
+        lastBroadcast = current;
+
+        for (Subscriber subscriber : subscribers.values()) {
+            String username = subscriber.username();
+            List<GoDashboardPipeline> visibleChanges = new ArrayList<>();
+            List<GoDashboardPipeline> noLongerVisible = new ArrayList<>();
+            for (GoDashboardPipeline pipeline : changed) {
+                if (pipeline.canBeViewedBy(username)) {
+                    visibleChanges.add(pipeline);
+                    subscriber.shown.add(pipeline.name());
+                } else if (subscriber.shown.remove(pipeline.name())) {
+                    noLongerVisible.add(pipeline);
+                }
+            }
+            for (GoDashboardPipeline pipeline : removed) {
+                if (subscriber.shown.remove(pipeline.name())) {
+                    noLongerVisible.add(pipeline);
+                }
+            }
+            if (!visibleChanges.isEmpty() || !noLongerVisible.isEmpty()) {
+                subscriber.socket.send(message("delta", counter, visibleChanges, noLongerVisible, subscriber));
+            }
+        }
+        LOGGER.debug("[Dashboard Updates] Sent {} changed and {} removed pipelines at {} to {} subscribers.", changed.size(), removed.size(), counter, subscribers.size());
+    }
+
+    /* Whatever the subscriber is sent, it is then shown every pipeline it can view in the last broadcast. */
+    private String catchUpMessage(Subscriber subscriber, long since) {
+        if (lastBroadcast == null) {
+            return message("snapshot", 0, List.of(), List.of(), subscriber);
+        }
+
+        String username = subscriber.username();
+        List<GoDashboardPipeline> visible = new ArrayList<>();
+        for (GoDashboardPipeline pipeline : lastBroadcast.getPipelines()) {
+            if (pipeline.canBeViewedBy(username)) {
+                visible.add(pipeline);
+                subscriber.shown.add(pipeline.name());
+            }
+        }
+
+        long counter = lastBroadcast.lastUpdatedTimeStamp();
+        if (since < oldestResumableCounter) {
+            return message("snapshot", counter, visible, List.of(), subscriber);
+        }
+
+        List<GoDashboardPipeline> changed = visible.stream().filter(pipeline -> pipeline.getLastUpdatedTimeStamp() > since).toList();
+        Map<CaseInsensitiveString, GoDashboardPipeline> removed = new LinkedHashMap<>();
+        for (Removal removal : removals) {
+            if (removal.counter > since && removal.pipeline.canBeViewedBy(username) && !subscriber.shown.contains(removal.pipeline.name())) {
+                removed.put(removal.pipeline.name(), removal.pipeline);
+            }
+        }
+        return message("delta", counter, changed, new ArrayList<>(removed.values()), subscriber);
+    }
+
+    private String message(String type, long counter, List<GoDashboardPipeline> pipelines, List<GoDashboardPipeline> removed, Subscriber subscriber) {
+        String username = subscriber.username();
+        JsonObject permissions = new JsonObject();
+        StringJoiner pipelinesJson = new StringJoiner(",", "[", "]");
+        for (GoDashboardPipeline pipeline : pipelines) {
+            pipelinesJson.add(json(pipeline));
+            permissions.add(pipeline.name().toString(), DashboardPipelineJson.permissions(pipeline, username));
+        }
+
+        return "{\"type\":" + GSON.toJson(type) +
+                ",\"counter\":" + counter +
+                ",\"pipelines\":" + pipelinesJson +
+                ",\"permissions\":" + GSON.toJson(permissions) +
+                ",\"removed\":" + GSON.toJson(removed.stream().map(pipeline -> pipeline.name().toString()).toList()) +
+                "}";
+    }
+
+    private String json(GoDashboardPipeline pipeline) {
+        SerializedPipeline cached = serialized.get(pipeline.name());
+        if (cached == null || cached.pipeline != pipeline) {
+            cached = new SerializedPipeline(pipeline, GSON.toJson(DashboardPipelineJson.pipeline(pipeline)));
+            serialized.put(pipeline.name(), cached);
+        }
+        return cached.json;
+    }
+
+    private void retainRemoval(Removal removal) {
+        removals.addLast(removal);
+        if (removals.size() > MAX_RETAINED_REMOVALS) {
+            // a client which has not seen this removal can no longer be caught up with a delta
+            oldestResumableCounter = Math.max(oldestResumableCounter, removals.removeFirst().counter);
+        }
+    }
+
+    private static class Subscriber {
+        private final DashboardSocket socket;
+        // only touched from the executor thread
+        private final Set<CaseInsensitiveString> shown = new HashSet<>();
+
+        private Subscriber(DashboardSocket socket) {
+            this.socket = socket;
+        }
+
+        private String username() {
+            return socket.username().getUsername().toString();
+        }
+    }
+
+    private static class SerializedPipeline {
+        private final GoDashboardPipeline pipeline;
+        private final String json;
+
+        private SerializedPipeline(GoDashboardPipeline pipeline, String json) {
+            this.pipeline = pipeline;
+            this.json = json;
+        }
+    }
+
+    private static class Removal {
+        private final GoDashboardPipeline pipeline;
+        private final long counter;
+
+        private Removal(GoDashboardPipeline pipeline, long counter) {
+            this.pipeline = pipeline;
+            this.counter = counter;
+        }
+    }
+}
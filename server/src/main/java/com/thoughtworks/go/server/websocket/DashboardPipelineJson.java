@@ -0,0 +1,125 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.thoughtworks.go.domain.PipelinePauseInfo;
+import com.thoughtworks.go.domain.StageResult;
+import com.thoughtworks.go.presentation.pipelinehistory.EmptyPipelineInstanceModel;
+import com.thoughtworks.go.presentation.pipelinehistory.PipelineInstanceModel;
+import com.thoughtworks.go.presentation.pipelinehistory.StageInstanceModel;
+import com.thoughtworks.go.server.dashboard.GoDashboardPipeline;
+
+import java.util.Date;
+
+/**
+ * Understands the wire format of a pipeline in the dashboard stream. The pipeline itself is written without anything
+ * specific to a user, so it can be serialized once and sent to every subscriber; permissions are written separately.
+ */
+final class DashboardPipelineJson {
+    private DashboardPipelineJson() {
+    }
+
+    static JsonObject pipeline(GoDashboardPipeline pipeline) {
+        PipelinePauseInfo pauseInfo = pipeline.model().getPausedInfo();
+        JsonObject pauseJson = new JsonObject();
+        pauseJson.addProperty("paused", pauseInfo.isPaused());
+        pauseJson.addProperty("paused_by", pauseInfo.getPauseBy());
+        pauseJson.addProperty("pause_reason", pauseInfo.getPauseCause());
+        pauseJson.addProperty("paused_at", millis(pauseInfo.getPausedAt()));
+
+        JsonObject templateJson = new JsonObject();
+        templateJson.addProperty("is_using_template", pipeline.isUsingTemplate());
+        templateJson.addProperty("template_name", pipeline.getTemplateName());
+
+        JsonArray instances = new JsonArray();
+        for (PipelineInstanceModel instance : pipeline.model().getActivePipelineInstances()) {
+            if (!(instance instanceof EmptyPipelineInstanceModel)) {
+                instances.add(instance(pipeline, instance));
+            }
+        }
+
+        PipelineInstanceModel latest = pipeline.model().getLatestPipelineInstance();
+        JsonObject json = new JsonObject();
+        json.addProperty("name", pipeline.name().toString());
+        json.addProperty("group", pipeline.groupName());
+        json.addProperty("last_updated_timestamp", pipeline.getLastUpdatedTimeStamp());
+        json.addProperty("locked", latest != null && latest.isCurrentlyLocked());
+        json.add("pause_info", pauseJson);
+        json.add("template_info", templateJson);
+        json.addProperty("from_config_repo", !pipeline.isLocal());
+        json.add("instances", instances);
+        return json;
+    }
+
+    static JsonObject permissions(GoDashboardPipeline pipeline, String username) {
+        PipelineInstanceModel latest = pipeline.model().getLatestPipelineInstance();
+        JsonArray operableStages = new JsonArray();
+        if (latest != null) {
+            for (StageInstanceModel stage : latest.getStageHistory()) {
+                if (pipeline.isStageOperator(stage.getName(), username)) {
+                    operableStages.add(stage.getName());
+                }
+            }
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("can_operate", pipeline.isPipelineOperator(username));
+        json.addProperty("can_administer", pipeline.canBeAdministeredBy(username));
+        json.addProperty("can_unlock", pipeline.canBeOperatedBy(username));
+        json.addProperty("can_pause", pipeline.canBeOperatedBy(username));
+        json.add("operable_stages", operableStages);
+        return json;
+    }
+
+    private static JsonObject instance(GoDashboardPipeline pipeline, PipelineInstanceModel instance) {
+        JsonArray stages = new JsonArray();
+        for (StageInstanceModel stage : instance.getStageHistory()) {
+            stages.add(stage(pipeline, stage));
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("label", instance.getLabel());
+        json.addProperty("counter", instance.getCounter());
+        json.addProperty("triggered_by", instance.getApprovedByForDisplay());
+        json.addProperty("scheduled_at", millis(instance.getScheduledDate()));
+        json.add("stages", stages);
+        return json;
+    }
+
+    private static JsonObject stage(GoDashboardPipeline pipeline, StageInstanceModel stage) {
+        JsonObject json = new JsonObject();
+        json.addProperty("name", stage.getName());
+        json.addProperty("counter", stage.getCounter());
+        json.addProperty("status", stage.getState().name());
+        json.addProperty("allow_only_on_success_of_previous_stage", pipeline.isAllowOnlyOnSuccessOfPreviousStage(stage.getName()));
+        json.addProperty("approval_type", stage.getApprovalTypeDescription());
+        json.addProperty("approved_by", stage.getApprovedBy());
+        json.addProperty("scheduled_at", millis(stage.getScheduledDate()));
+        if (stage.getState().stageResult() == StageResult.Cancelled) {
+            json.addProperty("cancelled_by", stage.getCancelledBy() == null ? "GoCD" : stage.getCancelledBy());
+        }
+        if (stage.getPreviousStage() != null) {
+            json.add("previous_stage", stage(pipeline, stage.getPreviousStage()));
+        }
+        return json;
+    }
+
+    private static Long millis(Date date) {
+        return date == null ? null : date.getTime();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.server.domain.Username;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.UpgradeRequest;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketError;
+import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+@WebSocket
+public class DashboardSocket implements SocketEndpoint {
+    private static final String PING = "{\"type\":\"ping\"}";
+    private static final Logger LOGGER = LoggerFactory.getLogger(DashboardSocket.class);
+
+    private final DashboardDeltaBroadcaster broadcaster;
+    private final SocketHealthService socketHealthService;
+    private final Username username;
+    private final String key;
+    private Session session;
+
+    DashboardSocket(DashboardDeltaBroadcaster broadcaster, SocketHealthService socketHealthService, Username username) {
+        this.broadcaster = broadcaster;
+        this.socketHealthService = socketHealthService;
+        this.username = username;
+        this.key = String.format("dashboard:%s:%d", username.getUsername(), hashCode());
+    }
+
+    @OnWebSocketConnect
+    public void onConnect(Session session) {
+        this.session = session;
+        socketHealthService.register(this);
+        broadcaster.subscribe(this, parseSince(session.getUpgradeRequest()));
+    }
+
+    @OnWebSocketError
+    public void onError(Throwable error) {
+        LOGGER.error("{} closing session because an error was thrown", key, error);
+        try {
+            close(StatusCode.SERVER_ERROR, error.getMessage());
+        } finally {
+            disconnected();
+        }
+    }
+
+    @OnWebSocketClose
+    public void onClose(int status, String reason) {
+        disconnected();
+    }
+
+    /**
+     * Queues the message without waiting for the client, so one slow browser does not hold up the others.
+     */
+    public void send(String message) {
+        session.getRemote().sendString(message, new WriteCallback() {
+            @Override
+            public void writeFailed(Throwable x) {
+                LOGGER.debug("{} failed to send dashboard update, closing.", key, x);
+                close();
+            }
+        });
+    }
+
+    @Override
+    public void send(ByteBuffer data) throws IOException {
+        session.getRemote().sendBytes(data);
+    }
+
+    @Override
+    public void send(ByteBuffer data, WriteCallback callback) {
+        session.getRemote().sendBytes(data, callback);
+    }
+
+    @Override
+    public void ping() throws IOException {
+        session.getRemote().sendString(PING);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return session != null && session.isOpen();
+    }
+
+    @Override
+    public void close() {
+        close(StatusCode.NORMAL, null);
+    }
+
+    @Override
+    public void close(int code, String reason) {
+        session.close(code, reason);
+    }
+
+    @Override
+    public String key() {
+        return key;
+    }
+
+    public Username username() {
+        return username;
+    }
+
+    private void disconnected() {
+        broadcaster.unsubscribe(this);
+        socketHealthService.deregister(this);
+    }
+
+    private long parseSince(UpgradeRequest request) {
+        Optional<NameValuePair> since = URLEncodedUtils.parse(request.getRequestURI(), StandardCharsets.UTF_8).
+                stream().
+                filter(pair -> "since".equals(pair.getName())).findFirst();
+
+        try {
+            return since.isPresent() ? Long.parseLong(since.get().getValue()) : 0L;
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
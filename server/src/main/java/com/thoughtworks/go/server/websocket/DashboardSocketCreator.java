@@ -0,0 +1,43 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.server.domain.Username;
+import org.eclipse.jetty.websocket.server.JettyServerUpgradeRequest;
+import org.eclipse.jetty.websocket.server.JettyServerUpgradeResponse;
+import org.eclipse.jetty.websocket.server.JettyWebSocketCreator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class DashboardSocketCreator implements JettyWebSocketCreator {
+    static final String USERNAME_ATTRIBUTE = DashboardSocketCreator.class.getName() + ".username";
+
+    private final DashboardDeltaBroadcaster broadcaster;
+    private final SocketHealthService socketHealthService;
+
+    @Autowired
+    public DashboardSocketCreator(DashboardDeltaBroadcaster broadcaster, SocketHealthService socketHealthService) {
+        this.broadcaster = broadcaster;
+        this.socketHealthService = socketHealthService;
+    }
+
+    @Override
+    public Object createWebSocket(JettyServerUpgradeRequest req, JettyServerUpgradeResponse resp) {
+        Username username = (Username) req.getHttpServletRequest().getAttribute(USERNAME_ATTRIBUTE);
+        return new DashboardSocket(broadcaster, socketHealthService, username);
+    }
+}
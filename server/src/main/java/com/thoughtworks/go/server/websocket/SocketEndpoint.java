@@ -15,12 +15,20 @@
  */
 package com.thoughtworks.go.server.websocket;
 
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
 public interface SocketEndpoint {
     void send(ByteBuffer data) throws IOException;
 
+    /**
+     * Queues the data without waiting for the client, telling the callback once it has been written. The data must not
+     * be changed until then.
+     */
+    void send(ByteBuffer data, WriteCallback callback);
+
     void ping() throws IOException;
 
     boolean isOpen();
@@ -27,7 +27,9 @@ import com.thoughtworks.go.helper.StageMother;
 import com.thoughtworks.go.listener.ConfigChangedListener;
 import com.thoughtworks.go.listener.EntityConfigChangedListener;
 import com.thoughtworks.go.listener.SecurityConfigChangeListener;
+import com.thoughtworks.go.server.messaging.MultiplexingQueueProcessors;
 import com.thoughtworks.go.server.service.GoConfigService;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -39,15 +41,17 @@ import static org.mockito.Mockito.*;
 
 public class CcTrayActivityListenerTest {
     private GoConfigService goConfigService;
+    private MultiplexingQueueProcessors multiplexingQueueProcessors;
 
     @BeforeEach
     public void setUp() {
         goConfigService = mock(GoConfigService.class);
+        multiplexingQueueProcessors = new MultiplexingQueueProcessors(new SystemEnvironment());
     }
 
     @Test
     public void shouldRegisterSelfForConfigChangeHandlingOnInitialization() {
-        CcTrayActivityListener listener = new CcTrayActivityListener(goConfigService, null, null, null);
+        CcTrayActivityListener listener = new CcTrayActivityListener(goConfigService, null, null, null, multiplexingQueueProcessors);
 
         listener.initialize();
 
@@ -58,7 +62,7 @@ public class CcTrayActivityListenerTest {
     public void onInitializationAndStartOfDaemon_ShouldRegisterAListener_WhichInvokesJobChangeHandler_WhenJobStatusChanges() throws Exception {
         JobInstance aJob = JobInstanceMother.cancelled("job1");
         CcTrayJobStatusChangeHandler handler = mock(CcTrayJobStatusChangeHandler.class);
-        CcTrayActivityListener listener = new CcTrayActivityListener(goConfigService, handler, null, null);
+        CcTrayActivityListener listener = new CcTrayActivityListener(goConfigService, handler, null, null, multiplexingQueueProcessors);
 
         listener.initialize();
         listener.startDaemon();
@@ -72,7 +76,7 @@ public class CcTrayActivityListenerTest {
     public void onInitializationAndStartOfDaemon_ShouldRegisterAListener_WhichInvokesStageChangeHandler_WhenStageStatusChanges() throws Exception {
         Stage aStage = StageMother.custom("stage1");
         CcTrayStageStatusChangeHandler handler = mock(CcTrayStageStatusChangeHandler.class);
-        CcTrayActivityListener listener = new CcTrayActivityListener(goConfigService, null, handler, null);
+        CcTrayActivityListener listener = new CcTrayActivityListener(goConfigService, null, handler, null, multiplexingQueueProcessors);
 
         listener.initialize();
         listener.startDaemon();
@@ -86,7 +90,7 @@ public class CcTrayActivityListenerTest {
     public void onInitializationAndStartOfDaemon_ShouldRegisterAListener_WhichInvokesConfigChangeHandler_WhenConfigChanges() throws Exception {
         CruiseConfig aConfig = GoConfigMother.defaultCruiseConfig();
         CcTrayConfigChangeHandler handler = mock(CcTrayConfigChangeHandler.class);
-        CcTrayActivityListener listener = new CcTrayActivityListener(goConfigService, null, null, handler);
+        CcTrayActivityListener listener = new CcTrayActivityListener(goConfigService, null, null, handler, multiplexingQueueProcessors);
 
         listener.initialize();
         listener.startDaemon();
@@ -106,7 +110,7 @@ public class CcTrayActivityListenerTest {
         ArgumentCaptor<ConfigChangedListener> captor = ArgumentCaptor.forClass(ConfigChangedListener.class);
         doNothing().when(goConfigService).register(captor.capture());
 
-        CcTrayActivityListener listener = new CcTrayActivityListener(goConfigService, mock(CcTrayJobStatusChangeHandler.class),  mock(CcTrayStageStatusChangeHandler.class), ccTrayConfigChangeHandler);
+        CcTrayActivityListener listener = new CcTrayActivityListener(goConfigService, mock(CcTrayJobStatusChangeHandler.class),  mock(CcTrayStageStatusChangeHandler.class), ccTrayConfigChangeHandler, multiplexingQueueProcessors);
         listener.initialize();
         listener.startDaemon();
 
@@ -129,7 +133,7 @@ public class CcTrayActivityListenerTest {
         doNothing().when(goConfigService).register(captor.capture());
         when(goConfigService.currentCruiseConfig()).thenReturn(cruiseConfig);
 
-        CcTrayActivityListener listener = new CcTrayActivityListener(goConfigService, mock(CcTrayJobStatusChangeHandler.class), mock(CcTrayStageStatusChangeHandler.class), ccTrayConfigChangeHandler);
+        CcTrayActivityListener listener = new CcTrayActivityListener(goConfigService, mock(CcTrayJobStatusChangeHandler.class), mock(CcTrayStageStatusChangeHandler.class), ccTrayConfigChangeHandler, multiplexingQueueProcessors);
 
         listener.initialize();
         listener.startDaemon();
@@ -0,0 +1,202 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.cache;
+
+import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CacheRegionTest {
+    private static CacheManager cacheManager;
+    private TransactionSynchronizationManager transactionSynchronizationManager;
+    private GoCache goCache;
+
+    @BeforeAll
+    public static void beforeClass() {
+        cacheManager = CacheManager.newInstance(new Configuration().name(CacheRegionTest.class.getName()));
+    }
+
+    @BeforeEach
+    public void setUp() {
+        Cache cache = new Cache(new CacheConfiguration(getClass().getName(), 2).memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU));
+        cacheManager.addCache(cache);
+        transactionSynchronizationManager = mock(TransactionSynchronizationManager.class);
+        goCache = new GoCache(cache, transactionSynchronizationManager);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        goCache.destroy();
+    }
+
+    @AfterAll
+    public static void afterClass() {
+        cacheManager.shutdown();
+    }
+
+    @Test
+    public void shouldLoadAValueOnceAndServeItFromTheRegionAfterThat() {
+        CacheRegion<String, String> region = goCache.region("pauseState", 10);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(region.getOrLoad("up42", () -> "paused-" + loads.incrementAndGet())).isEqualTo("paused-1");
+        assertThat(region.getOrLoad("up42", () -> "paused-" + loads.incrementAndGet())).isEqualTo("paused-1");
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(region.statistics()).containsEntry("Hits", 1L).containsEntry("Miss", 1L).containsEntry("Loads", 1L);
+        assertThat(goCache.<String, String>region("pauseState", 10)).isSameAs(region);
+    }
+
+    @Test
+    public void shouldNotBeEvictedToMakeRoomForOtherEntriesInTheCache() {
+        CacheRegion<String, String> region = goCache.region("pauseState", 10);
+        region.put("up42", "paused");
+
+        for (int i = 0; i < 10; i++) {
+            goCache.put("history" + i, "history");
+            goCache.region("history", 2).put(i, "history");
+        }
+
+        assertThat(region.get("up42")).isEqualTo("paused");
+        assertThat(goCache.region("history", 2).size()).isEqualTo(2);
+        assertThat(goCache.region("history", 2).statistics()).containsEntry("Eviction", 8L);
+    }
+
+    @Test
+    public void shouldLetOnlyOneThreadLoadAMissingValueWhileTheOthersWaitForIt() throws Exception {
+        CacheRegion<String, String> region = goCache.region("pauseState", 10);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch finishLoading = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(() -> region.getOrLoad("up42", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(finishLoading);
+                return "paused";
+            }));
+            loading.await();
+            Future<String> second = executor.submit(() -> region.getOrLoad("up42", () -> "loaded-again-" + loads.incrementAndGet()));
+            Future<String> third = executor.submit(() -> region.getOrLoad("up42", () -> "loaded-again-" + loads.incrementAndGet()));
+            finishLoading.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("paused");
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("paused");
+            assertThat(third.get(5, TimeUnit.SECONDS)).isEqualTo("paused");
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldNotStoreAValueWhichWasRemovedWhileItWasBeingLoaded() {
+        CacheRegion<String, String> region = goCache.region("pauseState", 10);
+
+        assertThat(region.getOrLoad("up42", () -> {
+            region.remove("up42");
+            return "stale";
+        })).isEqualTo("stale");
+
+        assertThat(region.getOrLoad("up42", () -> "fresh")).isEqualTo("fresh");
+    }
+
+    @Test
+    public void shouldNotStoreAnythingWhileATransactionIsActive() {
+        CacheRegion<String, String> region = goCache.region("pauseState", 10);
+        when(transactionSynchronizationManager.isActualTransactionActive()).thenReturn(true);
+
+        assertThat(region.getOrLoad("up42", () -> "paused")).isEqualTo("paused");
+        assertThat(region.size()).isZero();
+    }
+
+    @Test
+    public void shouldGiveTheFailureOfALoadToTheCallerAndLoadAgainNextTime() {
+        CacheRegion<String, String> region = goCache.region("pauseState", 10);
+
+        assertThatThrownBy(() -> region.getOrLoad("up42", () -> {
+            throw new IllegalStateException("database is down");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("database is down");
+
+        assertThat(region.getOrLoad("up42", () -> "paused")).isEqualTo("paused");
+        assertThat(region.statistics()).containsEntry("Load Failures", 1L).containsEntry("Loads", 1L);
+    }
+
+    @Test
+    public void shouldBeClearedAlongWithTheRestOfTheCache() {
+        CacheRegion<String, String> region = goCache.region("pauseState", 10);
+        region.put("up42", "paused");
+
+        goCache.clear();
+
+        assertThat(region.get("up42")).isNull();
+    }
+
+    @Test
+    public void shouldMakeChangesOfOneKeyOneAtATimeWithoutHoldingUpOtherKeys() throws Exception {
+        CacheRegion<String, String> region = goCache.region("pauseState", 10);
+        region.put("up42", "paused");
+        CountDownLatch changing = new CountDownLatch(1);
+        CountDownLatch finishChanging = new CountDownLatch(1);
+        AtomicInteger concurrentChangesOfUp42 = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> first = executor.submit(() -> region.update("up42", () -> {
+                concurrentChangesOfUp42.incrementAndGet();
+                changing.countDown();
+                await(finishChanging);
+                concurrentChangesOfUp42.decrementAndGet();
+            }));
+            changing.await();
+            Future<Integer> second = executor.submit(() -> {
+                AtomicInteger seen = new AtomicInteger();
+                region.update("up42", () -> seen.set(concurrentChangesOfUp42.get()));
+                return seen.get();
+            });
+            executor.submit(() -> region.update("down42", () -> {
+            })).get(5, TimeUnit.SECONDS);
+            assertThat(second.isDone()).isFalse();
+
+            finishChanging.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            assertThat(second.get(5, TimeUnit.SECONDS)).isZero();
+            assertThat(region.get("up42")).isNull();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
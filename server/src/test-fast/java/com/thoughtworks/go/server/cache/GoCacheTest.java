@@ -30,6 +30,8 @@ import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
 import org.junit.jupiter.api.*;
 
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.thoughtworks.go.util.LogFixture.logFixtureFor;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -263,4 +265,59 @@ public class GoCacheTest {
     private void waitForCacheElementsToExpire() throws InterruptedException {
         Thread.sleep(2000);
     }
+
+    @Test
+    public void shouldLoadAMissingValueOnceAndCacheIt() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(goCache.<String>getOrLoad("foo", () -> "bar-" + loads.incrementAndGet())).isEqualTo("bar-1");
+        assertThat(goCache.<String>getOrLoad("foo", () -> "bar-" + loads.incrementAndGet())).isEqualTo("bar-1");
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(goCache.<String>get("foo")).isEqualTo("bar-1");
+    }
+
+    @Test
+    public void shouldNotCacheAValueWhoseKeyWasRemovedWhileItWasBeingLoaded() {
+        assertThat(goCache.<String>getOrLoad("foo", () -> {
+            goCache.remove("foo");
+            return "stale";
+        })).isEqualTo("stale");
+        assertThat(goCache.<String>get("foo")).isNull();
+
+        assertThat(goCache.getOrLoad("parent", "child", () -> {
+            goCache.remove("parent");
+            return "stale";
+        })).isEqualTo("stale");
+        assertThat(goCache.get("parent", "child")).isNull();
+    }
+
+    @Test
+    public void shouldLetOnlyOneThreadLoadAMissingValueWhileTheOthersWaitForIt() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch finishLoading = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> goCache.<String>getOrLoad("foo", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                try {
+                    finishLoading.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return "bar";
+            }));
+            loading.await();
+            Future<String> second = executor.submit(() -> goCache.<String>getOrLoad("foo", () -> "loaded-again-" + loads.incrementAndGet()));
+            finishLoading.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("bar");
+            assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("bar");
+            assertThat(loads.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -18,6 +18,8 @@ package com.thoughtworks.go.server.controller;
 import com.thoughtworks.go.domain.JobIdentifier;
 import com.thoughtworks.go.server.cache.ZipArtifactCache;
 import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.service.ArtifactUploadService;
+import com.thoughtworks.go.server.service.ArtifactsDirHolder;
 import com.thoughtworks.go.server.service.ArtifactsService;
 import com.thoughtworks.go.server.service.ConsoleActivityMonitor;
 import com.thoughtworks.go.server.service.ConsoleService;
@@ -27,23 +29,33 @@ import com.thoughtworks.go.server.web.ResponseCodeView;
 import com.thoughtworks.go.util.SystemEnvironment;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.mock.web.MockMultipartHttpServletRequest;
 import org.springframework.web.multipart.MultipartHttpServletRequest;
 import org.springframework.web.servlet.ModelAndView;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 import static com.thoughtworks.go.util.GoConstants.*;
+import static javax.servlet.http.HttpServletResponse.SC_CREATED;
 import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
 import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 import static org.mockito.Mockito.*;
 
 public class ArtifactsControllerTest {
+    @TempDir
+    Path artifactsDir;
 
     private ArtifactsController artifactsController;
 
@@ -51,6 +63,7 @@ public class ArtifactsControllerTest {
     private ConsoleActivityMonitor consoleActivityMonitor;
     private RestfulService restfulService;
     private ArtifactsService artifactService;
+    private ArtifactUploadService artifactUploadService;
     private ConsoleService consoleService;
     private SystemEnvironment systemEnvironment;
     private JobInstanceDao jobInstanceDao;
@@ -64,7 +77,10 @@ public class ArtifactsControllerTest {
         consoleService = mock(ConsoleService.class);
         jobInstanceDao = mock(JobInstanceDao.class);
         systemEnvironment = mock(SystemEnvironment.class);
-        artifactsController = new ArtifactsController(artifactService, restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment);
+        ArtifactsDirHolder artifactsDirHolder = mock(ArtifactsDirHolder.class);
+        when(artifactsDirHolder.getArtifactsDir()).thenReturn(artifactsDir.toFile());
+        artifactUploadService = new ArtifactUploadService(artifactService, artifactsDirHolder, new SystemEnvironment());
+        artifactsController = new ArtifactsController(artifactService, artifactUploadService, restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment);
 
         request = new MockHttpServletRequest();
     }
@@ -83,6 +99,29 @@ public class ArtifactsControllerTest {
         verify(consoleActivityMonitor).consoleUpdatedFor(jobIdentifier);
     }
 
+    @Test
+    public void shouldInflateGzippedConsoleLogPut() throws Exception {
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write("Testing:".getBytes());
+        }
+        request.setContent(gzipped.toByteArray());
+        request.addHeader("Content-Encoding", "gzip");
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline", 10, "label-10", "stage", "2", "build", 103L);
+        when(restfulService.findJob("pipeline", "10", "stage", "2", "build", 103L)).thenReturn(jobIdentifier);
+        File artifactFile = new File("junk");
+        when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(artifactFile);
+        String[] received = new String[1];
+        when(consoleService.updateConsoleLog(eq(artifactFile), any(InputStream.class))).thenAnswer(invocation -> {
+            received[0] = new String(invocation.<InputStream>getArgument(1).readAllBytes());
+            return true;
+        });
+
+        artifactsController.putArtifact("pipeline", "10", "stage", "2", "build", 103L, "cruise-output/console.log", "agent-id", request);
+
+        assertThat(received[0]).isEqualTo("Testing:");
+    }
+
     @Test
     public void testConsoleOutShouldReturnErrorWhenJobHasBeenCompletedAndLogsNotFound() {
         JobIdentifier jobIdentifier = new JobIdentifier("pipeline", 10, "label-10", "stage", "2", "build", 103L);
@@ -105,13 +144,14 @@ public class ArtifactsControllerTest {
         when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122L)).thenReturn(jobIdentifier);
         when(artifactService.findArtifact(any(JobIdentifier.class), eq("some-path"))).thenReturn(artifactFile);
         when(artifactService.saveFile(any(File.class), any(InputStream.class), eq(false), eq(1))).thenReturn(true);
+        when(artifactService.getArtifactLocation(any(String.class))).thenReturn(new File("checksum"));
         when(artifactService.saveOrAppendFile(any(File.class), any(InputStream.class))).thenReturn(false);
 
         MockMultipartHttpServletRequest mockMultipartHttpServletRequest = new MockMultipartHttpServletRequest();
         mockMultipartHttpServletRequest.addFile(new MockMultipartFile(REGULAR_MULTIPART_FILENAME, "content".getBytes()));
         mockMultipartHttpServletRequest.addFile(new MockMultipartFile(CHECKSUM_MULTIPART_FILENAME, "checksum-content".getBytes()));
 
-        ModelAndView modelAndView = artifactsController.postArtifact("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "some-path", 1, mockMultipartHttpServletRequest);
+        ModelAndView modelAndView = artifactsController.postArtifact("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "some-path", 1, mockMultipartHttpServletRequest, new MockHttpServletResponse());
 
 
         ResponseCodeView view = (ResponseCodeView) modelAndView.getView();
@@ -119,12 +159,33 @@ public class ArtifactsControllerTest {
         assertThat(view.getContent()).isEqualTo("Error saving checksum file for the artifact at path 'some-path'");
     }
 
+    @Test
+    public void shouldSaveAnUploadInTheBackgroundAndRespondThroughTheAsyncContext() throws Exception {
+        JobIdentifier jobIdentifier = new JobIdentifier("pipeline-1", 1, "1", "stage-1", "2", "job-1", 122L);
+        when(restfulService.findJob("pipeline-1", "1", "stage-1", "2", "job-1", 122L)).thenReturn(jobIdentifier);
+        when(artifactService.findArtifact(any(JobIdentifier.class), eq("some-path"))).thenReturn(new File(artifactsDir.toFile(), "some-path"));
+        when(artifactService.saveFile(any(File.class), any(InputStream.class), eq(false), eq(1))).thenReturn(true);
+
+        MockMultipartHttpServletRequest mockMultipartHttpServletRequest = new MockMultipartHttpServletRequest();
+        mockMultipartHttpServletRequest.setAsyncSupported(true);
+        mockMultipartHttpServletRequest.addFile(new MockMultipartFile(REGULAR_MULTIPART_FILENAME, "content".getBytes()));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ModelAndView modelAndView = artifactsController.postArtifact("pipeline-1", "1", "stage-1", "2", "job-1", 122L, "some-path", 1, mockMultipartHttpServletRequest, response);
+
+        assertThat(modelAndView).isNull();
+        await().timeout(5, TimeUnit.SECONDS).until(() -> !mockMultipartHttpServletRequest.isAsyncStarted());
+        assertThat(mockMultipartHttpServletRequest.getAsyncContext().getResponse()).isSameAs(response);
+        assertThat(response.getStatus()).isEqualTo(SC_CREATED);
+        assertThat(response.getContentAsString()).isEqualTo("File some-path was created successfully");
+    }
+
     @Test
     void shouldFailToPostAndPutWhenStageCounterIsNotAPositiveInteger() throws Exception {
-        ModelAndView modelAndView = artifactsController.postArtifact("pipeline-1", "1", "stage-1", "NOT_AN_INTEGER", "job-1", 122L, "some-path", 1, null);
+        ModelAndView modelAndView = artifactsController.postArtifact("pipeline-1", "1", "stage-1", "NOT_AN_INTEGER", "job-1", 122L, "some-path", 1, null, null);
         assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode()).isEqualTo(SC_NOT_FOUND);
 
-        modelAndView = artifactsController.postArtifact("pipeline-1", "1", "stage-1", "-123", "job-1", 122L, "some-path", 1, null);
+        modelAndView = artifactsController.postArtifact("pipeline-1", "1", "stage-1", "-123", "job-1", 122L, "some-path", 1, null, null);
         assertThat(((ResponseCodeView) modelAndView.getView()).getStatusCode()).isEqualTo(SC_NOT_FOUND);
 
         modelAndView = artifactsController.putArtifact("pipeline-1", "1", "stage-1", "NOT_AN_INTEGER", "job-1", 122L, "some-path", "1", null);
@@ -149,7 +210,7 @@ public class ArtifactsControllerTest {
     @Test
     public void shouldFunnelAll_GET_calls() throws Exception {
         final ModelAndView returnVal = new ModelAndView();
-        ArtifactsController controller = new ArtifactsController(artifactService, restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment) {
+        ArtifactsController controller = new ArtifactsController(artifactService, artifactUploadService, restfulService, mock(ZipArtifactCache.class), jobInstanceDao, consoleActivityMonitor, consoleService, systemEnvironment) {
             @Override
             ModelAndView getArtifact(String filePath, ArtifactFolderViewFactory folderViewFactory, String pipelineName, String counterOrLabel, String stageName, String stageCounter,
                                      String buildName, String sha) {
@@ -167,7 +228,7 @@ public class ArtifactsControllerTest {
         MultipartHttpServletRequest multipartHttpServletRequest = new MockMultipartHttpServletRequest();
 
         when(systemEnvironment.isApiSafeModeEnabled()).thenReturn(true);
-        ModelAndView modelAndView = artifactsController.postArtifact("pipeline", "invalid-label", "stage", "stage-counter", "job-name", 3L, "file-path", 3, multipartHttpServletRequest);
+        ModelAndView modelAndView = artifactsController.postArtifact("pipeline", "invalid-label", "stage", "stage-counter", "job-name", 3L, "file-path", 3, multipartHttpServletRequest, new MockHttpServletResponse());
         ResponseCodeView codeView = (ResponseCodeView) modelAndView.getView();
 
         assertThat(codeView.getStatusCode()).isEqualTo(HttpServletResponse.SC_BAD_REQUEST);
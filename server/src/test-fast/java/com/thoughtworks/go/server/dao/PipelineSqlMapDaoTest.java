@@ -26,7 +26,9 @@ import com.thoughtworks.go.presentation.pipelinehistory.*;
 import com.thoughtworks.go.server.cache.GoCache;
 import com.thoughtworks.go.server.database.Database;
 import com.thoughtworks.go.server.persistence.MaterialRepository;
+import com.thoughtworks.go.server.service.StubGoCache;
 import com.thoughtworks.go.server.transaction.SqlMapClientTemplate;
+import com.thoughtworks.go.server.transaction.TestTransactionSynchronizationManager;
 import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TimeProvider;
 import org.assertj.core.api.Assertions;
@@ -54,7 +56,7 @@ class PipelineSqlMapDaoTest {
 
     @BeforeEach
     void setUp() {
-        goCache = mock(GoCache.class);
+        goCache = new StubGoCache(new TestTransactionSynchronizationManager());
         sqlMapClientTemplate = mock(SqlMapClientTemplate.class);
         materialRepository = mock(MaterialRepository.class);
         configFileDao = mock(GoConfigDao.class);
@@ -68,14 +70,14 @@ class PipelineSqlMapDaoTest {
         String pipelineName = "wholetthedogsout";
         int pipelineCounter = 42;
         PipelineInstanceModel expected = mock(PipelineInstanceModel.class);
-        when(goCache.get(anyString())).thenReturn(expected);
+        goCache.put(pipelineSqlMapDao.cacheKeyForPipelineHistoryByNameAndCounter(pipelineName, pipelineCounter), expected);
         when(expected.getBuildCause()).thenReturn(mock(BuildCause.class));
         when(expected.getApprovedBy()).thenReturn("some-user");
 
         PipelineInstanceModel reFetch = pipelineSqlMapDao.findPipelineHistoryByNameAndCounter(pipelineName, pipelineCounter); //returned from cache
 
         assertThat(reFetch).isEqualTo(expected);
-        verify(goCache).get(anyString());
+        verify(sqlMapClientTemplate, never()).queryForObject(eq("getPipelineHistoryByNameAndCounter"), any());
     }
 
     @Test
@@ -91,12 +93,12 @@ class PipelineSqlMapDaoTest {
         when(materialRepository.findMaterialRevisionsForPipeline(expected.getId())).thenReturn(null);
 
         PipelineInstanceModel primed = pipelineSqlMapDao.findPipelineHistoryByNameAndCounter(pipelineName, pipelineCounter);//prime cache
+        PipelineInstanceModel reFetch = pipelineSqlMapDao.findPipelineHistoryByNameAndCounter(pipelineName, pipelineCounter);
 
         assertThat(primed).isEqualTo(expected);
-
+        assertThat(reFetch).isEqualTo(expected);
+        assertThat((Object) goCache.get(pipelineSqlMapDao.cacheKeyForPipelineHistoryByNameAndCounter(pipelineName, pipelineCounter))).isEqualTo(expected);
         verify(sqlMapClientTemplate, times(1)).queryForObject("getPipelineHistoryByNameAndCounter", map);
-        verify(goCache, times(1)).put(anyString(), eq(expected));
-        verify(goCache, times(2)).get(anyString());
     }
 
     @Test
@@ -109,11 +111,12 @@ class PipelineSqlMapDaoTest {
         Pipeline expected = mock(Pipeline.class);
         when(sqlMapClientTemplate.queryForObject("findPipelineByNameAndCounter", arguments("name", pipelineName).and("counter", pipelineCounter).asMap())).thenReturn(expected);
         when(expected.getId()).thenReturn(102413L);
+        goCache.put("com.thoughtworks.go.server.dao.PipelineSqlMapDao.$pipelineHistory.$102413", mock(PipelineInstanceModel.class));
 
         pipelineSqlMapDao.updateComment(pipelineName, pipelineCounter, comment);
 
         verify(sqlMapClientTemplate, times(1)).update("updatePipelineComment", args);
-        verify(goCache, times(1)).remove("com.thoughtworks.go.server.dao.PipelineSqlMapDao.$pipelineHistory.$102413");
+        assertThat(goCache.getKeys()).doesNotContain("com.thoughtworks.go.server.dao.PipelineSqlMapDao.$pipelineHistory.$102413");
     }
 
     @Test
@@ -218,15 +221,6 @@ class PipelineSqlMapDaoTest {
         }
     }
 
-    @Nested
-    class CacheKeyForPauseState {
-        @Test
-        void shouldGenerateCacheKey() {
-            Assertions.assertThat(pipelineSqlMapDao.cacheKeyForPauseState("foo"))
-                    .isEqualTo("com.thoughtworks.go.server.dao.PipelineSqlMapDao.$cacheKeyForPauseState.$foo");
-        }
-    }
-
     @Nested
     class cacheKeyForLatestPassedStage {
         @Test
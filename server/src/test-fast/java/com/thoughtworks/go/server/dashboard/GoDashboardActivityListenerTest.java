@@ -27,10 +27,12 @@ import com.thoughtworks.go.server.domain.PipelineLockStatusChangeListener;
 import com.thoughtworks.go.server.domain.PipelinePauseChangeListener;
 import com.thoughtworks.go.server.domain.StageStatusListener;
 import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.server.messaging.MultiplexingQueueProcessors;
 import com.thoughtworks.go.server.service.GoConfigService;
 import com.thoughtworks.go.server.service.PipelineLockService;
 import com.thoughtworks.go.server.service.PipelinePauseService;
 import com.thoughtworks.go.server.service.StageService;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -49,12 +51,13 @@ public class GoDashboardActivityListenerTest {
     private PipelinePauseService pipelinePauseService;
     @Mock
     private PipelineLockService pipelineLockService;
+    private final MultiplexingQueueProcessors multiplexingQueueProcessors = new MultiplexingQueueProcessors(new SystemEnvironment());
 
 
     @Test
     public void shouldRegisterSelfForConfigChangeHandlingOnInitialization() {
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, null, null);
+                null, null, null, null, null, multiplexingQueueProcessors);
 
         listener.initialize();
 
@@ -70,7 +73,7 @@ public class GoDashboardActivityListenerTest {
         doNothing().when(stageService).addStageStatusListener(captor.capture());
 
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                handler, null, null, null, null);
+                handler, null, null, null, null, multiplexingQueueProcessors);
 
         listener.initialize();
         listener.startDaemon();
@@ -88,7 +91,7 @@ public class GoDashboardActivityListenerTest {
         CruiseConfig aConfig = GoConfigMother.defaultCruiseConfig();
         GoDashboardConfigChangeHandler handler = mock(GoDashboardConfigChangeHandler.class);
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, handler, null, null, null);
+                null, handler, null, null, null, multiplexingQueueProcessors);
 
         listener.initialize();
         listener.startDaemon();
@@ -109,7 +112,7 @@ public class GoDashboardActivityListenerTest {
         doNothing().when(goConfigService).register(captor.capture());
 
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, handler, null, null, null);
+                null, handler, null, null, null, multiplexingQueueProcessors);
         listener.initialize();
         listener.startDaemon();
 
@@ -129,7 +132,7 @@ public class GoDashboardActivityListenerTest {
         when(goConfigService.currentCruiseConfig()).thenReturn(aConfig);
 
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, handler, null, null, null);
+                null, handler, null, null, null, multiplexingQueueProcessors);
 
         listener.initialize();
         listener.startDaemon();
@@ -150,7 +153,7 @@ public class GoDashboardActivityListenerTest {
         doNothing().when(goConfigService).register(captor.capture());
 
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, null, handler);
+                null, null, null, null, handler, multiplexingQueueProcessors);
         listener.initialize();
         listener.startDaemon();
 
@@ -172,7 +175,7 @@ public class GoDashboardActivityListenerTest {
         doNothing().when(goConfigService).register(captor.capture());
 
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, handler, null, null, null);
+                null, handler, null, null, null, multiplexingQueueProcessors);
         listener.initialize();
         listener.startDaemon();
 
@@ -185,7 +188,7 @@ public class GoDashboardActivityListenerTest {
     @Test
     public void shouldRegisterSelfForPipelineStatusChangeHandlingOnInitialization() {
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, null, null);
+                null, null, null, null, null, multiplexingQueueProcessors);
 
         listener.initialize();
 
@@ -196,7 +199,7 @@ public class GoDashboardActivityListenerTest {
     public void shouldInvokePipelinePauseStatusChangeHandlerWhenPipelinePauseEventOccurs() throws Exception {
         GoDashboardPipelinePauseStatusChangeHandler handler = mock(GoDashboardPipelinePauseStatusChangeHandler.class);
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, handler, null, null);
+                null, null, handler, null, null, multiplexingQueueProcessors);
 
         PipelinePauseChangeListener.Event pauseEvent = PipelinePauseChangeListener.Event.pause("pipeline1", Username.valueOf("user1"));
 
@@ -212,7 +215,7 @@ public class GoDashboardActivityListenerTest {
     @Test
     public void shouldRegisterSelfForPipelineLockStatusChangeHandlingOnInitialization() {
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, null, null);
+                null, null, null, null, null, multiplexingQueueProcessors);
 
         listener.initialize();
 
@@ -223,7 +226,7 @@ public class GoDashboardActivityListenerTest {
     public void shouldInvokePipelineLockStatusChangeHandlerWhenPipelineLockEventOccurs() throws Exception {
         GoDashboardPipelineLockStatusChangeHandler handler = mock(GoDashboardPipelineLockStatusChangeHandler.class);
         GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
-                null, null, null, handler, null);
+                null, null, null, handler, null, multiplexingQueueProcessors);
 
         PipelineLockStatusChangeListener.Event lockEvent = PipelineLockStatusChangeListener.Event.lock("pipeline1");
 
@@ -236,6 +239,28 @@ public class GoDashboardActivityListenerTest {
         verify(handler).call(lockEvent);
     }
 
+    @Test
+    public void shouldOnlyActOnTheLatestPendingChangeOfAPipeline() throws Exception {
+        GoDashboardPipelinePauseStatusChangeHandler pauseHandler = mock(GoDashboardPipelinePauseStatusChangeHandler.class);
+        GoDashboardPipelineLockStatusChangeHandler lockHandler = mock(GoDashboardPipelineLockStatusChangeHandler.class);
+        GoDashboardActivityListener listener = new GoDashboardActivityListener(goConfigService, stageService, pipelinePauseService, pipelineLockService,
+                null, null, pauseHandler, lockHandler, null, multiplexingQueueProcessors);
+
+        PipelinePauseChangeListener.Event pauseEvent = PipelinePauseChangeListener.Event.pause("pipeline1", Username.valueOf("user1"));
+        PipelinePauseChangeListener.Event pauseEventOfAnotherPipeline = PipelinePauseChangeListener.Event.pause("pipeline2", Username.valueOf("user1"));
+        PipelineLockStatusChangeListener.Event lockEvent = PipelineLockStatusChangeListener.Event.lock("PIPELINE1");
+
+        listener.pauseStatusChanged(pauseEvent);
+        listener.pauseStatusChanged(pauseEventOfAnotherPipeline);
+        listener.lockStatusChanged(lockEvent);
+        listener.startDaemon();
+        waitForProcessingToHappen();
+
+        verify(pauseHandler, never()).call(pauseEvent);
+        verify(pauseHandler).call(pauseEventOfAnotherPipeline);
+        verify(lockHandler).call(lockEvent);
+    }
+
     private void waitForProcessingToHappen() throws InterruptedException {
         Thread.sleep(1000); /* Prevent potential race, of queue not being processed. Being a little lazy. :( */
     }
@@ -24,7 +24,7 @@ import java.util.List;
 import static com.thoughtworks.go.server.dashboard.GoDashboardPipelineMother.pipeline;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertNull;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.*;
 
 public class GoDashboardCacheTest {
     private GoDashboardCache cache;
@@ -84,6 +84,22 @@ public class GoDashboardCacheTest {
         assertThat(cache.allEntries().find(cis("pipeline5"))).isSameAs(pipeline5);
     }
 
+    @Test
+    public void shouldTellListenersAboutEveryChangeToTheCache() {
+        GoDashboardCacheListener listener = mock(GoDashboardCacheListener.class);
+        cache.addListener(listener);
+
+        cache.put(pipeline("pipeline1"));
+        verify(listener).cacheChanged(cache.allEntries());
+
+        cache.remove(cis("pipeline1"));
+        verify(listener).cacheChanged(cache.allEntries());
+        assertThat(cache.allEntries().find(cis("pipeline1"))).isNull();
+
+        cache.remove(cis("pipeline1"));
+        verify(listener, times(2)).cacheChanged(any());
+    }
+
     private CaseInsensitiveString cis(String value) {
         return new CaseInsensitiveString(value);
     }
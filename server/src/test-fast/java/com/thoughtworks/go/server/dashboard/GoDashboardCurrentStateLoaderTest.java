@@ -24,6 +24,8 @@ import com.thoughtworks.go.config.security.permissions.EveryonePermission;
 import com.thoughtworks.go.config.security.permissions.NoOnePermission;
 import com.thoughtworks.go.config.security.users.Everyone;
 import com.thoughtworks.go.config.security.users.NoOne;
+import com.thoughtworks.go.domain.JobResult;
+import com.thoughtworks.go.domain.JobState;
 import com.thoughtworks.go.domain.PipelinePauseInfo;
 import com.thoughtworks.go.domain.buildcause.BuildCause;
 import com.thoughtworks.go.helper.GoConfigMother;
@@ -36,6 +38,7 @@ import com.thoughtworks.go.server.service.PipelinePauseService;
 import com.thoughtworks.go.server.service.PipelineUnlockApiService;
 import com.thoughtworks.go.server.service.SchedulingCheckerService;
 import com.thoughtworks.go.util.Clock;
+import com.thoughtworks.go.util.SystemEnvironment;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -77,7 +80,7 @@ public class GoDashboardCurrentStateLoaderTest {
     @BeforeEach
     public void setUp() {
         loader = new GoDashboardCurrentStateLoader(pipelineSqlMapDao, triggerMonitor, pipelinePauseService,
-                pipelineLockService, pipelineUnlockApiService, schedulingCheckerService, permissionsAuthority, new TimeStampBasedCounter(mock(Clock.class)));
+                pipelineLockService, pipelineUnlockApiService, schedulingCheckerService, permissionsAuthority, new TimeStampBasedCounter(mock(Clock.class)), new SystemEnvironment());
 
         goConfigMother = new GoConfigMother();
         config = GoConfigMother.defaultCruiseConfig();
@@ -438,6 +441,105 @@ public class GoDashboardCurrentStateLoaderTest {
         assertThat(goDashboardPipelines.get(0).name()).isEqualTo(pipeline3.name());
     }
 
+    @Test
+    public void shouldLoadPauseAndLockStatesOfAllPipelinesAtOnceWhenLoadingInBulk() {
+        GoDashboardCurrentStateLoader bulkLoader = bulkLoader();
+        PipelineConfig p1Config = goConfigMother.addPipelineWithGroup(config, "group1", "pipeline1", "stage1", "job1");
+        PipelineConfig p2Config = goConfigMother.addPipelineWithGroup(config, "group2", "pipeline2", "stage2", "job2");
+        p2Config.lockExplicitly();
+        PipelineConfig p3Config = goConfigMother.addPipelineWithGroup(config, "group3", "pipeline3", "stage3", "job3");
+        PipelinePauseInfo pipeline1PauseInfo = PipelinePauseInfo.paused("Reason 1", "user1");
+
+        when(pipelineSqlMapDao.loadHistoryForDashboard(List.of("pipeline1", "pipeline2", "pipeline3"))).thenReturn(createPipelineInstanceModels(pim(p1Config), pim(p2Config), pim(p3Config)));
+        when(pipelinePauseService.pausedPipelineNames()).thenReturn(List.of("PIPELINE1"));
+        when(pipelinePauseService.pipelinePauseInfo("pipeline1")).thenReturn(pipeline1PauseInfo);
+        when(pipelineLockService.lockedPipelines()).thenReturn(List.of("pipeline2"));
+        when(pipelineUnlockApiService.isUnlockable("pipeline2")).thenReturn(true);
+        when(schedulingCheckerService.canSchedule(any())).thenReturn(true);
+
+        List<GoDashboardPipeline> models = bulkLoader.allPipelines(config);
+
+        assertThat(models).hasSize(3);
+        PipelineModel modelForPipeline1 = modelFor(models, "pipeline1");
+        assertThat(modelForPipeline1.getPausedInfo()).isEqualTo(pipeline1PauseInfo);
+        assertThat(modelForPipeline1.canForce()).isFalse();
+
+        PipelineModel modelForPipeline2 = modelFor(models, "pipeline2");
+        assertThat(modelForPipeline2.getPausedInfo().isPaused()).isFalse();
+        assertThat(modelForPipeline2.getLatestPipelineInstance().isCurrentlyLocked()).isTrue();
+        assertThat(modelForPipeline2.getLatestPipelineInstance().canUnlock()).isTrue();
+        assertThat(modelForPipeline2.canForce()).isFalse();
+
+        PipelineModel modelForPipeline3 = modelFor(models, "pipeline3");
+        assertThat(modelForPipeline3.getPausedInfo().isPaused()).isFalse();
+        assertThat(modelForPipeline3.getLatestPipelineInstance().isCurrentlyLocked()).isFalse();
+        assertThat(modelForPipeline3.canForce()).isTrue();
+
+        verify(pipelineLockService, never()).isLocked(anyString());
+        verify(pipelinePauseService, never()).pipelinePauseInfo("pipeline3");
+        verify(pipelineUnlockApiService, never()).isUnlockable("pipeline3");
+        verify(schedulingCheckerService, never()).pipelineCanBeTriggeredManually(any());
+    }
+
+    @Test
+    public void shouldWorkOutWhetherPipelinesCanBeTriggeredFromWhatIsLoadedUpFrontWhenLoadingInBulk() {
+        PipelineConfig building = goConfigMother.addPipelineWithGroup(config, "group1", "building", "stage1", "job1");
+        PipelineConfig triggered = goConfigMother.addPipelineWithGroup(config, "group1", "triggered", "stage1", "job1");
+        PipelineConfig idle = goConfigMother.addPipelineWithGroup(config, "group1", "idle", "stage1", "job1");
+        PipelineInstanceModel buildingInstance = pim(building);
+        buildingInstance.getStageHistory().get(0).setBuildHistory(JobHistory.withJob("job1", JobState.Building, JobResult.Unknown, new Date()));
+
+        when(pipelineSqlMapDao.loadHistoryForDashboard(List.of("building", "triggered", "idle"))).thenReturn(createPipelineInstanceModels(buildingInstance, pim(triggered), pim(idle)));
+        when(schedulingCheckerService.pipelinesAboutToBeTriggered()).thenReturn(Set.of(new CaseInsensitiveString("TRIGGERED")));
+        when(schedulingCheckerService.canSchedule(any())).thenReturn(true);
+
+        List<GoDashboardPipeline> models = bulkLoader().allPipelines(config);
+
+        assertThat(modelFor(models, "building").canForce()).isFalse();
+        assertThat(modelFor(models, "triggered").canForce()).isFalse();
+        assertThat(modelFor(models, "idle").canForce()).isTrue();
+        verify(schedulingCheckerService, never()).pipelineCanBeTriggeredManually(any());
+    }
+
+    @Test
+    public void shouldNotAllowAnyPipelineToBeTriggeredWhenTheServerCannotScheduleWhenLoadingInBulk() {
+        PipelineConfig idle = goConfigMother.addPipelineWithGroup(config, "group1", "idle", "stage1", "job1");
+        when(pipelineSqlMapDao.loadHistoryForDashboard(List.of("idle"))).thenReturn(createPipelineInstanceModels(pim(idle)));
+        when(schedulingCheckerService.canSchedule(any())).thenReturn(false);
+
+        assertThat(modelFor(bulkLoader().allPipelines(config), "idle").canForce()).isFalse();
+    }
+
+    @Test
+    public void shouldBuildPipelinesInTheSameOrderWhenLoadingInBulk() {
+        List<PipelineInstanceModel> history = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            history.add(pim(goConfigMother.addPipelineWithGroup(config, "group" + (i % 7), "pipeline" + i, "stage", "job")));
+        }
+        when(pipelineSqlMapDao.loadHistoryForDashboard(anyList())).thenReturn(createPipelineInstanceModels(history));
+
+        List<GoDashboardPipeline> loadedOneByOne = loader.allPipelines(config);
+        List<GoDashboardPipeline> loadedInBulk = bulkLoader().allPipelines(config);
+
+        assertThat(loadedInBulk).extracting(GoDashboardPipeline::name)
+                .containsExactlyElementsOf(loadedOneByOne.stream().map(GoDashboardPipeline::name).toList());
+        for (GoDashboardPipeline pipeline : loadedInBulk) {
+            assertThat(pipeline.model().getActivePipelineInstances()).extracting(PipelineInstanceModel::getName).containsExactly(pipeline.name().toString());
+        }
+    }
+
+    private PipelineModel modelFor(List<GoDashboardPipeline> models, String pipelineName) {
+        return models.stream().filter(model -> model.name().equals(new CaseInsensitiveString(pipelineName))).findFirst().orElseThrow().model();
+    }
+
+    private GoDashboardCurrentStateLoader bulkLoader() {
+        SystemEnvironment systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.isDashboardBulkLoadEnabled()).thenReturn(true);
+        when(systemEnvironment.getDashboardLoaderParallelism()).thenReturn(4);
+        return new GoDashboardCurrentStateLoader(pipelineSqlMapDao, triggerMonitor, pipelinePauseService,
+                pipelineLockService, pipelineUnlockApiService, schedulingCheckerService, permissionsAuthority, new TimeStampBasedCounter(mock(Clock.class)), systemEnvironment);
+    }
+
     private void assertModel(GoDashboardPipeline pipeline, String group, PipelineInstanceModel... pims) {
         assertThat(pipeline.groupName()).isEqualTo(group);
         assertThat(pipeline.model().getName()).isEqualTo(pims[0].getName());
@@ -0,0 +1,101 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.dashboard;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.PluginRoleConfig;
+import com.thoughtworks.go.config.PluginRoleUsersStore;
+import com.thoughtworks.go.config.security.Permissions;
+import com.thoughtworks.go.config.security.permissions.NoOnePermission;
+import com.thoughtworks.go.config.security.users.AllowedUsers;
+import com.thoughtworks.go.config.security.users.NoOne;
+import com.thoughtworks.go.util.SystemTimeClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static com.thoughtworks.go.server.dashboard.GoDashboardPipelineMother.pipeline;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GoDashboardVisibilityTest {
+    private GoDashboardCache cache;
+    private GoDashboardVisibility visibility;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new GoDashboardCache(new TimeStampBasedCounter(new SystemTimeClock()));
+        visibility = new GoDashboardVisibility();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        PluginRoleUsersStore.instance().clearAll();
+    }
+
+    @Test
+    public void shouldKnowThePipelinesAUserCanSeeByTheirGroup() {
+        cache.put(pipeline("p1", "group1", viewableBy("user1")));
+        cache.put(pipeline("p2", "group1", viewableBy("user2")));
+        cache.put(pipeline("p3", "group2", viewableBy("user1", "user2")));
+
+        GoDashboardVisibility.Visible visible = visibility.visibleTo("USER1", cache.allEntries());
+
+        assertThat(visible.inGroup("group1")).containsExactly(cis("p1"));
+        assertThat(visible.inGroup("group2")).containsExactly(cis("p3"));
+        assertThat(visible.inGroup("group3")).isEmpty();
+        assertThat(visible.contains(cache.allEntries().find(cis("p2")))).isFalse();
+    }
+
+    @Test
+    public void shouldKeepUpWithPipelinesWhichChangeInTheCacheSinceTheUserLastAsked() {
+        cache.put(pipeline("p1", "group1", viewableBy("user1")));
+        cache.put(pipeline("p2", "group1", viewableBy("user1")));
+        cache.put(pipeline("p3", "group1", viewableBy("user2")));
+        GoDashboardVisibility.Visible before = visibility.visibleTo("user1", cache.allEntries());
+
+        cache.put(pipeline("p1", "group2", viewableBy("user1")));
+        cache.remove(cis("p2"));
+        cache.put(pipeline("p3", "group1", viewableBy("user1", "user2")));
+        cache.put(pipeline("p4", "group2", viewableBy("user2")));
+        GoDashboardVisibility.Visible after = visibility.visibleTo("user1", cache.allEntries());
+
+        assertThat(after.inGroup("group1")).containsExactly(cis("p3"));
+        assertThat(after.inGroup("group2")).containsExactly(cis("p1"));
+        assertThat(before.inGroup("group1")).containsExactlyInAnyOrder(cis("p1"), cis("p2"));
+        assertThat(visibility.visibleTo("user1", cache.allEntries())).isSameAs(after);
+    }
+
+    @Test
+    public void shouldWorkOutWhatAUserCanSeeAgainWhenThePluginRolesTheyAreInChange() {
+        PluginRoleConfig role = new PluginRoleConfig("blackbird", "ldap");
+        cache.put(pipeline("p1", "group1", new Permissions(new AllowedUsers(Set.of(), Set.of(role)), NoOne.INSTANCE, NoOne.INSTANCE, NoOnePermission.INSTANCE)));
+        assertThat(visibility.visibleTo("bob", cache.allEntries()).inGroup("group1")).isEmpty();
+
+        PluginRoleUsersStore.instance().assignRole("bob", role);
+
+        assertThat(visibility.visibleTo("bob", cache.allEntries()).inGroup("group1")).containsExactly(cis("p1"));
+    }
+
+    private static Permissions viewableBy(String... users) {
+        return new Permissions(new AllowedUsers(Set.of(users), Set.of()), NoOne.INSTANCE, NoOne.INSTANCE, NoOnePermission.INSTANCE);
+    }
+
+    private static CaseInsensitiveString cis(String name) {
+        return new CaseInsensitiveString(name);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.dashboard;
+
+import com.thoughtworks.go.util.PerfTimer;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Publishes a snapshot of a dashboard sized map after each of a large number of single pipeline updates, once by
+ * copying a HashMap as the dashboard cache used to and once with a persistent hash trie, and reports how long each
+ * took. Also reports how long it takes to find what changed between two snapshots.
+ */
+@Disabled("For adhoc running only")
+public class PersistentHashMapPerformanceTest {
+    private static final int NUMBER_OF_PIPELINES = 50_000;
+    private static final int NUMBER_OF_UPDATES = 10_000;
+
+    @Test
+    public void performanceTestForCopyingAHashMapOnEachUpdate() {
+        Map<String, Integer> snapshot = new HashMap<>(pipelines());
+        Random random = new Random(42);
+
+        PerfTimer timer = PerfTimer.start("HashMap: " + NUMBER_OF_UPDATES + " updates of " + NUMBER_OF_PIPELINES + " pipelines");
+        for (int i = 0; i < NUMBER_OF_UPDATES; i++) {
+            Map<String, Integer> copy = new HashMap<>(snapshot);
+            copy.put(pipelineName(random.nextInt(NUMBER_OF_PIPELINES)), i);
+            snapshot = copy;
+        }
+        timer.stop();
+
+        assertThat(snapshot).hasSize(NUMBER_OF_PIPELINES);
+    }
+
+    @Test
+    public void performanceTestForPersistentHashMap() {
+        PersistentHashMap<String, Integer> snapshot = PersistentHashMap.from(pipelines());
+        Random random = new Random(42);
+
+        PerfTimer timer = PerfTimer.start("PersistentHashMap: " + NUMBER_OF_UPDATES + " updates of " + NUMBER_OF_PIPELINES + " pipelines");
+        for (int i = 0; i < NUMBER_OF_UPDATES; i++) {
+            snapshot = snapshot.put(pipelineName(random.nextInt(NUMBER_OF_PIPELINES)), i);
+        }
+        timer.stop();
+
+        assertThat(snapshot.size()).isEqualTo(NUMBER_OF_PIPELINES);
+    }
+
+    @Test
+    public void performanceTestForDiffingPersistentHashMaps() {
+        PersistentHashMap<String, Integer> previous = PersistentHashMap.from(pipelines());
+        PersistentHashMap<String, Integer> current = previous.put(pipelineName(0), -1).remove(pipelineName(1));
+        AtomicInteger changes = new AtomicInteger();
+
+        PerfTimer timer = PerfTimer.start("PersistentHashMap: " + NUMBER_OF_UPDATES + " diffs of " + NUMBER_OF_PIPELINES + " pipelines");
+        for (int i = 0; i < NUMBER_OF_UPDATES; i++) {
+            current.diff(previous, changed -> changes.incrementAndGet(), removed -> changes.incrementAndGet());
+        }
+        timer.stop();
+
+        assertThat(changes.get()).isEqualTo(2 * NUMBER_OF_UPDATES);
+    }
+
+    private static Map<String, Integer> pipelines() {
+        Map<String, Integer> pipelines = new HashMap<>();
+        for (int i = 0; i < NUMBER_OF_PIPELINES; i++) {
+            pipelines.put(pipelineName(i), i);
+        }
+        return pipelines;
+    }
+
+    private static String pipelineName(int i) {
+        return "pipeline-" + i;
+    }
+}
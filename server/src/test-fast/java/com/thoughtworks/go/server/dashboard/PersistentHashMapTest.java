@@ -0,0 +1,121 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.dashboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersistentHashMapTest {
+
+    @Test
+    void shouldLeaveTheOriginalMapUntouchedWhenUpdating() {
+        PersistentHashMap<String, String> original = PersistentHashMap.<String, String>empty().put("up42", "first");
+
+        PersistentHashMap<String, String> updated = original.put("up42", "second").put("down42", "third");
+        PersistentHashMap<String, String> removed = updated.remove("up42");
+
+        assertThat(original.get("up42")).isEqualTo("first");
+        assertThat(original.size()).isEqualTo(1);
+        assertThat(updated.get("up42")).isEqualTo("second");
+        assertThat(updated.size()).isEqualTo(2);
+        assertThat(removed.get("up42")).isNull();
+        assertThat(removed.values()).containsExactly("third");
+    }
+
+    @Test
+    void shouldReturnTheSameMapWhenNothingChanges() {
+        String value = "value";
+        PersistentHashMap<String, String> map = PersistentHashMap.<String, String>empty().put("up42", value);
+
+        assertThat(map.put("up42", value)).isSameAs(map);
+        assertThat(map.remove("unknown")).isSameAs(map);
+    }
+
+    @Test
+    void shouldBehaveLikeAHashMapEvenWhenHashesCollide() {
+        Random random = new Random(42);
+        Map<Key, Integer> expected = new HashMap<>();
+        PersistentHashMap<Key, Integer> actual = PersistentHashMap.empty();
+
+        for (int i = 0; i < 20_000; i++) {
+            // four keys share each hash, so that some of them collide in all 32 bits
+            int id = random.nextInt(2000);
+            Key key = new Key(id, (id % 500) * 0x9E3779B9);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                actual = actual.remove(key);
+            } else {
+                expected.put(key, i);
+                actual = actual.put(key, i);
+            }
+        }
+
+        assertThat(actual.size()).isEqualTo(expected.size());
+        assertThat(actual.values()).containsExactlyInAnyOrderElementsOf(expected.values());
+        for (Map.Entry<Key, Integer> entry : expected.entrySet()) {
+            assertThat(actual.get(entry.getKey())).isEqualTo(entry.getValue());
+        }
+        for (Key key : new ArrayList<>(expected.keySet())) {
+            actual = actual.remove(key);
+        }
+        assertThat(actual.isEmpty()).isTrue();
+        assertThat(actual.values()).isEmpty();
+    }
+
+    @Test
+    void shouldReportOnlyTheValuesWhichChangedBetweenTwoVersions() {
+        PersistentHashMap<String, String> previous = PersistentHashMap.empty();
+        for (int i = 0; i < 1000; i++) {
+            previous = previous.put("pipeline" + i, "instance" + i);
+        }
+
+        PersistentHashMap<String, String> current = previous
+                .put("pipeline1", "new instance")
+                .put("pipeline1000", "instance1000")
+                .remove("pipeline2")
+                .put("pipeline3", previous.get("pipeline3"));
+
+        List<String> changed = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        current.diff(previous, changed::add, removed::add);
+
+        assertThat(changed).containsExactlyInAnyOrder("new instance", "instance1000");
+        assertThat(removed).containsExactly("instance2");
+    }
+
+    private static class Key {
+        private final int id;
+        private final int hash;
+
+        private Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && key.id == id && key.hash == hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -32,6 +32,9 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -259,6 +262,52 @@ public class PipelineTimelineTest {
         assertThat(timeline.instanceFor(new CaseInsensitiveString("pipeline"), 1)).isEqualTo(second);
     }
 
+    @Test
+    public void updateShouldNotBlockReadersOfOtherPipelines() throws Exception {
+        PipelineTimelineEntry anotherPipeline1 = PipelineTimelineEntryMother.modification("another", 5, materials, List.of(now, now.plusMinutes(1), now.plusMinutes(2), now.plusMinutes(3)), 1, "123");
+        PipelineTimelineEntry anotherPipeline2 = PipelineTimelineEntryMother.modification("another", 6, materials, List.of(now, now.plusMinutes(2), now.plusMinutes(3), now.plusMinutes(4)), 2, "123");
+        stubTransactionSynchronization();
+        setupTransactionTemplateStub(TransactionSynchronization.STATUS_COMMITTED, true);
+        final PipelineTimeline timeline = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager);
+        timeline.add(anotherPipeline1);
+        timeline.add(anotherPipeline2);
+
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            final List<PipelineTimelineEntry> seenDuringUpdate = new ArrayList<>();
+            doAnswer(invocationOnMock -> {
+                timeline.add(first);
+                seenDuringUpdate.add(reader.submit(() -> timeline.runBefore(anotherPipeline2.getId(), new CaseInsensitiveString("another"))).get(10, TimeUnit.SECONDS));
+                seenDuringUpdate.add(reader.submit(() -> timeline.runBefore(first.getId(), new CaseInsensitiveString("pipeline"))).get(10, TimeUnit.SECONDS));
+                return null;
+            }).when(pipelineRepository).updatePipelineTimeline(eq(timeline), anyList());
+
+            timeline.update();
+
+            assertThat(seenDuringUpdate).containsExactly(anotherPipeline1, null);
+        } finally {
+            reader.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldReportStatistics() {
+        stubTransactionSynchronization();
+        setupTransactionTemplateStub(TransactionSynchronization.STATUS_COMMITTED, true);
+        PipelineTimeline timeline = new PipelineTimeline(pipelineRepository, transactionTemplate, transactionSynchronizationManager);
+        stubPipelineRepository(timeline, true, first, second);
+
+        timeline.update();
+
+        assertThat(timeline.statistics())
+                .containsEntry("Pipelines", 1)
+                .containsEntry("Maximum id", 2L)
+                .containsEntry("Updates", 1L)
+                .containsEntry("Contended reads", 0L)
+                .containsEntry("Contended writes", 0L)
+                .containsEntry("Contended updates", 0L);
+    }
+
     @SuppressWarnings("unchecked")
     private void stubPipelineRepository(final PipelineTimeline timeline, boolean restub, final PipelineTimelineEntry... entries) {
         repositoryEntries = entries;
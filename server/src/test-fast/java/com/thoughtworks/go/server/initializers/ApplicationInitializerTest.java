@@ -31,9 +31,11 @@ import com.thoughtworks.go.server.materials.MaterialUpdateService;
 import com.thoughtworks.go.server.materials.SCMMaterialSource;
 import com.thoughtworks.go.server.newsecurity.filters.InvalidateAuthenticationOnSecurityConfigChangeFilter;
 import com.thoughtworks.go.server.service.*;
+import com.thoughtworks.go.server.service.dd.FanInGraphTopologyCache;
 import com.thoughtworks.go.server.service.support.ResourceMonitoring;
 import com.thoughtworks.go.server.service.support.toggle.FeatureToggleService;
 import com.thoughtworks.go.server.service.support.toggle.Toggles;
+import com.thoughtworks.go.server.valuestreammap.DownstreamPipelineIndex;
 import com.thoughtworks.go.service.ConfigRepository;
 import com.thoughtworks.go.util.ReflectionUtil;
 import org.junit.jupiter.api.BeforeEach;
@@ -98,12 +100,18 @@ public class ApplicationInitializerTest {
     @Mock
     private PipelineLockService pipelineLockService;
     @Mock
+    private FanInGraphTopologyCache fanInGraphTopologyCache;
+    @Mock
+    private DownstreamPipelineIndex downstreamPipelineIndex;
+    @Mock
     private GoDiskSpaceMonitor goDiskSpaceMonitor;
     @Mock
     private BackupService backupService;
     @Mock
     private ArtifactsService artifactsService;
     @Mock
+    private ArtifactUploadService artifactUploadService;
+    @Mock
     private RailsAssetsService railsAssetsService;
     @Mock
     private FeatureToggleService featureToggleService;
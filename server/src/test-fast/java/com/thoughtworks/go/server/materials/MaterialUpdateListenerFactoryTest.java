@@ -16,6 +16,8 @@
 package com.thoughtworks.go.server.materials;
 
 import com.thoughtworks.go.server.cronjob.GoDiskSpaceMonitor;
+import com.thoughtworks.go.server.messaging.KeyedWorkerPool;
+import com.thoughtworks.go.server.messaging.QueueWorkerPools;
 import com.thoughtworks.go.server.perf.MDUPerformanceLogger;
 import com.thoughtworks.go.server.persistence.MaterialRepository;
 import com.thoughtworks.go.server.service.GoConfigService;
@@ -64,7 +66,7 @@ public class MaterialUpdateListenerFactoryTest {
                 materialRepository, systemEnvironment, healthService, diskSpaceMonitor,
                 transactionTemplate, dependencyMaterialUpdater, scmMaterialUpdater,
                 packageMaterialUpdater, pluggableSCMMaterialUpdater, materialExpansionService, mduPerformanceLogger,
-                dependencyMaterialQueue, maintenanceModeService, configMaterialPostUpdateQueue, goConfigService);
+                dependencyMaterialQueue, maintenanceModeService, configMaterialPostUpdateQueue, goConfigService, new QueueWorkerPools(systemEnvironment));
         factory.init();
 
         verify(queue, times(NUMBER_OF_CONSUMERS)).addListener(any());
@@ -78,7 +80,7 @@ public class MaterialUpdateListenerFactoryTest {
                 materialRepository, systemEnvironment, healthService, diskSpaceMonitor,
                 transactionTemplate, dependencyMaterialUpdater, scmMaterialUpdater,
                 packageMaterialUpdater, pluggableSCMMaterialUpdater, materialExpansionService, mduPerformanceLogger,
-                dependencyMaterialQueue, maintenanceModeService, configMaterialPostUpdateQueue, goConfigService);
+                dependencyMaterialQueue, maintenanceModeService, configMaterialPostUpdateQueue, goConfigService, new QueueWorkerPools(systemEnvironment));
         factory.init();
 
         verify(configQueue, times(NUMBER_OF_CONFIG_CONSUMERS)).addListener(any());
@@ -94,9 +96,26 @@ public class MaterialUpdateListenerFactoryTest {
                 materialRepository, systemEnvironment, healthService, diskSpaceMonitor,
                 transactionTemplate, dependencyMaterialUpdater, scmMaterialUpdater,
                 packageMaterialUpdater, pluggableSCMMaterialUpdater, materialExpansionService, mduPerformanceLogger,
-                dependencyMaterialQueue, maintenanceModeService, configMaterialPostUpdateQueue, goConfigService);
+                dependencyMaterialQueue, maintenanceModeService, configMaterialPostUpdateQueue, goConfigService, new QueueWorkerPools(systemEnvironment));
         factory.init();
 
         verify(dependencyMaterialQueue, times(noOfDependencyMaterialCheckListeners)).addListener(any());
     }
+
+    @Test
+    public void shouldCreateASingleWorkerPoolListenerForEachQueueWhenWorkerPoolsAreEnabled() {
+        when(systemEnvironment.isQueueWorkerPoolsEnabled()).thenReturn(true);
+        when(systemEnvironment.getNumberOfMaterialCheckListener()).thenReturn(NUMBER_OF_CONSUMERS);
+
+        MaterialUpdateListenerFactory factory = new MaterialUpdateListenerFactory(topic, queue, configQueue,
+                materialRepository, systemEnvironment, healthService, diskSpaceMonitor,
+                transactionTemplate, dependencyMaterialUpdater, scmMaterialUpdater,
+                packageMaterialUpdater, pluggableSCMMaterialUpdater, materialExpansionService, mduPerformanceLogger,
+                dependencyMaterialQueue, maintenanceModeService, configMaterialPostUpdateQueue, goConfigService, new QueueWorkerPools(systemEnvironment));
+        factory.init();
+
+        verify(queue).addListener(any(KeyedWorkerPool.class));
+        verify(configQueue).addListener(any(KeyedWorkerPool.class));
+        verify(dependencyMaterialQueue).addListener(any(KeyedWorkerPool.class));
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class KeyedWorkerPoolTest {
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldProcessMessagesWithTheSameKeyOneAtATimeInTheOrderTheyWereReceived() {
+        Map<String, List<String>> processedByKey = new ConcurrentHashMap<>();
+        Map<String, AtomicInteger> inProgressByKey = new ConcurrentHashMap<>();
+        AtomicInteger overlaps = new AtomicInteger();
+        KeyedWorkerPool<GoTextMessage> pool = new KeyedWorkerPool<>("test", 4, 100, this::keyOf, () -> message -> {
+            String key = keyOf(message);
+            if (inProgressByKey.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+            sleep(1);
+            processedByKey.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(message.getText());
+            inProgressByKey.get(key).decrementAndGet();
+        }, executor);
+
+        for (int i = 0; i < 20; i++) {
+            for (String key : List.of("a", "b", "c")) {
+                pool.onMessage(new GoTextMessage(key + ":" + i));
+            }
+        }
+
+        await()
+            .timeout(10, TimeUnit.SECONDS)
+            .untilAsserted(() -> assertThat(processedByKey.values()).allSatisfy(processed -> assertThat(processed).hasSize(20)).hasSize(3));
+        assertThat(overlaps.get()).isZero();
+        for (String key : List.of("a", "b", "c")) {
+            for (int i = 0; i < 20; i++) {
+                assertThat(processedByKey.get(key).get(i)).isEqualTo(key + ":" + i);
+            }
+        }
+    }
+
+    @Test
+    public void shouldProcessMessagesWithDifferentKeysInParallel() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        KeyedWorkerPool<GoTextMessage> pool = new KeyedWorkerPool<>("test", 2, 100, this::keyOf, () -> message -> {
+            bothStarted.countDown();
+            await().timeout(5, TimeUnit.SECONDS).until(() -> bothStarted.getCount() == 0);
+        }, executor);
+
+        pool.onMessage(new GoTextMessage("a:1"));
+        pool.onMessage(new GoTextMessage("b:1"));
+
+        assertThat(bothStarted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void shouldCarryOnProcessingAfterAListenerThrowsAnException() {
+        List<String> processed = new CopyOnWriteArrayList<>();
+        KeyedWorkerPool<GoTextMessage> pool = new KeyedWorkerPool<>("test", 2, 100, this::keyOf, () -> message -> {
+            processed.add(message.getText());
+            throw new RuntimeException("boom");
+        }, executor);
+
+        pool.onMessage(new GoTextMessage("a:1"));
+        pool.onMessage(new GoTextMessage("a:2"));
+
+        await()
+            .timeout(5, TimeUnit.SECONDS)
+            .untilAsserted(() -> assertThat(processed).containsExactly("a:1", "a:2"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldReportWaitingAndProcessingTimes() {
+        KeyedWorkerPool<GoTextMessage> pool = new KeyedWorkerPool<>("test", 2, 100, this::keyOf, () -> message -> {
+        }, executor);
+
+        pool.onMessage(new GoTextMessage("a:1"));
+        pool.onMessage(new GoTextMessage("b:1"));
+
+        await()
+            .timeout(5, TimeUnit.SECONDS)
+            .untilAsserted(() -> assertThat(((Map<String, Object>) pool.statistics().get("Processing time")).get("Count")).isEqualTo(2L));
+        Map<String, Object> statistics = pool.statistics();
+        assertThat(statistics.get("Workers")).isEqualTo(2);
+        assertThat(statistics.get("Waiting for a worker")).isEqualTo(0L);
+        assertThat(((Map<String, Object>) statistics.get("Wait time")).get("Count")).isEqualTo(2L);
+    }
+
+    private String keyOf(GoTextMessage message) {
+        return message.getText().split(":")[0];
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
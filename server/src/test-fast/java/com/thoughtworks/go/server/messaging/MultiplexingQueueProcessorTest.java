@@ -23,6 +23,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.mockito.InOrder;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import static com.thoughtworks.go.util.LogFixture.logFixtureFor;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -121,6 +125,97 @@ public class MultiplexingQueueProcessorTest {
         inOrder.verify(action3).call();
     }
 
+    @Test
+    public void shouldReplaceAPendingActionWithTheSameCoalescingKeyAtTheBackOfTheQueue() throws Exception {
+        List<String> called = new ArrayList<>();
+        queueProcessor.add(new RecordingAction(called, "first p1", "p1"));
+        queueProcessor.add(new RecordingAction(called, "p2", "p2"));
+        queueProcessor.add(new RecordingAction(called, "second p1", "p1"));
+        queueProcessor.add(new RecordingAction(called, "unkeyed", null));
+        queueProcessor.add(new RecordingAction(called, "another unkeyed", null));
+
+        queueProcessor.start();
+        waitForProcessingToHappen();
+
+        synchronized (called) {
+            assertThat(called).containsExactly("p2", "second p1", "unkeyed", "another unkeyed");
+        }
+        assertThat(queueProcessor.statistics())
+                .containsEntry("Added", 5L)
+                .containsEntry("Coalesced", 1L);
+    }
+
+    @Test
+    public void shouldNotActOnAReplacementBeforeActionsWithOtherKeysAddedBeforeIt() throws Exception {
+        List<String> called = new ArrayList<>();
+        queueProcessor.add(new RecordingAction(called, "whole config c1", "all pipelines"));
+        queueProcessor.add(new RecordingAction(called, "pipeline p2", "p2"));
+        queueProcessor.add(new RecordingAction(called, "whole config c3", "all pipelines"));
+
+        queueProcessor.start();
+        waitForProcessingToHappen();
+
+        synchronized (called) {
+            assertThat(called).containsExactly("pipeline p2", "whole config c3");
+        }
+        assertThat(queueProcessor.statistics()).containsEntry("Coalesced", 1L);
+    }
+
+    @Test
+    public void shouldDropTheNewestActionsWhenFullAndToldTo() throws Exception {
+        queueProcessor = new MultiplexingQueueProcessor("queue1", 2, MultiplexingQueueProcessor.OverflowPolicy.DROP_NEWEST);
+        List<String> called = new ArrayList<>();
+        queueProcessor.add(new RecordingAction(called, "a", null));
+        queueProcessor.add(new RecordingAction(called, "b", null));
+        queueProcessor.add(new RecordingAction(called, "c", null));
+        queueProcessor.add(new RecordingAction(called, "b again", "b"));
+
+        queueProcessor.start();
+        waitForProcessingToHappen();
+
+        synchronized (called) {
+            assertThat(called).containsExactly("a", "b");
+        }
+        assertThat(queueProcessor.statistics()).containsEntry("Dropped", 2L);
+    }
+
+    @Test
+    public void shouldDropTheOldestActionsWhenFullAndToldTo() throws Exception {
+        queueProcessor = new MultiplexingQueueProcessor("queue1", 2, MultiplexingQueueProcessor.OverflowPolicy.DROP_OLDEST);
+        List<String> called = new ArrayList<>();
+        queueProcessor.add(new RecordingAction(called, "a", "a"));
+        queueProcessor.add(new RecordingAction(called, "b", null));
+        queueProcessor.add(new RecordingAction(called, "c", null));
+        queueProcessor.add(new RecordingAction(called, "a again", "a"));
+
+        queueProcessor.start();
+        waitForProcessingToHappen();
+
+        synchronized (called) {
+            assertThat(called).containsExactly("c", "a again");
+        }
+        assertThat(queueProcessor.statistics()).containsEntry("Dropped", 2L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldReportLagAndProcessingTimeByKindOfAction() throws Exception {
+        queueProcessor.add(new RecordingAction(new ArrayList<>(), "a", null));
+        queueProcessor.add(new RecordingAction(new ArrayList<>(), "b", null));
+
+        queueProcessor.start();
+        waitForProcessingToHappen();
+
+        Map<String, Object> statistics = queueProcessor.statistics();
+        assertThat(statistics)
+                .containsEntry("Pending actions", 0)
+                .containsEntry("Capacity", "Unbounded")
+                .containsEntry("Overflow policy", "BLOCK");
+        assertThat((Map<String, Object>) statistics.get("Lag")).containsEntry("Count", 2L);
+        Map<String, Object> processingTimes = (Map<String, Object>) statistics.get("Processing time");
+        assertThat((Map<String, Object>) processingTimes.get("recording")).containsEntry("Count", 2L);
+    }
+
     private Thread setupNewThreadToAddActionIn(final ThreadNameAccumulator threadNameAccumulator) {
         return new Thread(() -> {
             threadNameAccumulator.threadOfQueueAdd = Thread.currentThread().getName();
@@ -151,4 +246,38 @@ public class MultiplexingQueueProcessorTest {
         String threadOfCall;
         String threadOfQueueAdd;
     }
+
+    private static class RecordingAction implements Action {
+        private final List<String> called;
+        private final String name;
+        private final Object key;
+
+        private RecordingAction(List<String> called, String name, Object key) {
+            this.called = called;
+            this.name = name;
+            this.key = key;
+        }
+
+        @Override
+        public void call() {
+            synchronized (called) {
+                called.add(name);
+            }
+        }
+
+        @Override
+        public String description() {
+            return name;
+        }
+
+        @Override
+        public String kind() {
+            return "recording";
+        }
+
+        @Override
+        public Object coalescingKey() {
+            return key;
+        }
+    }
 }
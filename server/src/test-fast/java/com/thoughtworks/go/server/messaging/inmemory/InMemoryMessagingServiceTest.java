@@ -0,0 +1,203 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging.inmemory;
+
+import com.thoughtworks.go.server.messaging.*;
+import com.thoughtworks.go.server.messaging.activemq.JMSMessageListenerAdapter;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+
+public class InMemoryMessagingServiceTest {
+    private InMemoryMessagingService messaging;
+
+    @BeforeEach
+    public void setUp() {
+        messaging = new InMemoryMessagingService(new DaemonThreadStatsCollector(), new SystemEnvironment(), mock(ServerHealthService.class));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        messaging.stop();
+    }
+
+    @Test
+    public void shouldDeliverEveryTopicMessageToEveryListenerWithoutCopyingIt() {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic-name") {
+        };
+        FastListener first = new FastListener();
+        FastListener second = new FastListener();
+        topic.addListener(first);
+        topic.addListener(second);
+
+        GoTextMessage message = new GoTextMessage("Hello World!");
+        topic.post(message);
+
+        await()
+            .pollDelay(10, TimeUnit.MILLISECONDS)
+            .timeout(1, TimeUnit.SECONDS)
+            .untilAsserted(() -> {
+                assertThat(first.receivedMessages).containsExactly(message);
+                assertThat(second.receivedMessages).containsExactly(message);
+            });
+        assertThat(first.receivedMessages.get(0)).isSameAs(message);
+    }
+
+    @Test
+    public void shouldSupportCompetingConsumers() {
+        HangingListener hanging = new HangingListener();
+        FastListener fast = new FastListener();
+
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue-name") {
+        };
+        queue.addListener(hanging);
+        queue.addListener(fast);
+
+        for (int i = 1; i <= 5; i++) {
+            queue.post(new GoTextMessage("Hello World" + i));
+        }
+
+        await()
+            .pollDelay(10, TimeUnit.MILLISECONDS)
+            .timeout(1, TimeUnit.SECONDS)
+            .untilAsserted(() -> assertThat(fast.receivedMessages.size()).isEqualTo(4));
+
+        hanging.finish();
+    }
+
+    @Test
+    public void shouldStillReceiveMessagesIfAnExceptionIsThrown() {
+        ExceptionListener exceptionListener = new ExceptionListener();
+
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue-name") {
+        };
+        queue.addListener(exceptionListener);
+
+        for (int i = 1; i <= 5; i++) {
+            queue.post(new GoTextMessage("Hello World" + i));
+        }
+
+        await()
+            .pollDelay(10, TimeUnit.MILLISECONDS)
+            .timeout(1, TimeUnit.SECONDS)
+            .untilAsserted(() -> assertThat(exceptionListener.receivedMessages.size()).isEqualTo(5));
+    }
+
+    @Test
+    public void shouldDropMessagesWhichExpiredBeforeTheyWereReceived() throws InterruptedException {
+        HangingListener hanging = new HangingListener();
+        FastListener fast = new FastListener();
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue-name") {
+        };
+        queue.addListener(hanging);
+        queue.post(new GoTextMessage("keeps the only listener busy"));
+        await()
+            .timeout(1, TimeUnit.SECONDS)
+            .until(() -> hanging.started.getCount() == 0);
+
+        queue.post(new GoTextMessage("expires"), 1);
+        queue.post(new GoTextMessage("lives on"));
+        Thread.sleep(50);
+        queue.addListener(fast);
+
+        await()
+            .pollDelay(10, TimeUnit.MILLISECONDS)
+            .timeout(1, TimeUnit.SECONDS)
+            .untilAsserted(() -> assertThat(fast.receivedMessages).extracting(GoTextMessage::getText).containsExactly("lives on"));
+
+        hanging.finish();
+    }
+
+    @Test
+    public void shouldStopListeningOnceTheQueueIsRemoved() {
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "queue-name") {
+        };
+        JMSMessageListenerAdapter<GoTextMessage> listenerAdapter = queue.addListener(new FastListener());
+
+        queue.stop();
+
+        await()
+            .timeout(5, TimeUnit.SECONDS)
+            .untilAsserted(() -> assertThat(listenerAdapter.thread.isAlive()).isFalse());
+    }
+
+    @Test
+    public void shouldNotDeliverTopicMessagesToListenersWhichStopped() throws Exception {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "topic-name") {
+        };
+        FastListener stopped = new FastListener();
+        FastListener listening = new FastListener();
+        topic.addListener(stopped).stop();
+        topic.addListener(listening);
+
+        topic.post(new GoTextMessage("Hello World!"));
+
+        await()
+            .pollDelay(10, TimeUnit.MILLISECONDS)
+            .timeout(1, TimeUnit.SECONDS)
+            .untilAsserted(() -> assertThat(listening.receivedMessages.size()).isEqualTo(1));
+        assertThat(stopped.receivedMessages).isEmpty();
+    }
+
+    private static class HangingListener implements GoMessageListener<GoTextMessage> {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch finish = new CountDownLatch(1);
+
+        @Override
+        public void onMessage(GoTextMessage message) {
+            started.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException ignore) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        public void finish() {
+            finish.countDown();
+        }
+    }
+
+    private static class FastListener implements GoMessageListener<GoTextMessage> {
+        public List<GoTextMessage> receivedMessages = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onMessage(GoTextMessage message) {
+            receivedMessages.add(message);
+        }
+    }
+
+    private static class ExceptionListener extends FastListener {
+        @Override
+        public void onMessage(GoTextMessage message) {
+            super.onMessage(message);
+
+            throw new RuntimeException(message.getText());
+        }
+    }
+}
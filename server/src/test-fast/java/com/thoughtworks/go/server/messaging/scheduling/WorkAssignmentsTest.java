@@ -20,10 +20,16 @@ import com.thoughtworks.go.remote.AgentIdentifier;
 import com.thoughtworks.go.remote.work.NoWork;
 import com.thoughtworks.go.remote.work.Work;
 import com.thoughtworks.go.server.service.AgentRuntimeInfo;
+import com.thoughtworks.go.server.service.BuildAssignmentService;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.work.FakeWork;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.CompletableFuture;
 
 import static com.thoughtworks.go.util.SystemUtil.currentWorkingDirectory;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -39,12 +45,18 @@ public class WorkAssignmentsTest {
     private IdleAgentTopic idleAgentsTopic;
     private AgentIdentifier agentIdentifier;
     private WorkAssignedTopic assignedWorkTopic;
+    private BuildAssignmentService buildAssignmentService;
+    private SystemEnvironment systemEnvironment;
 
     @BeforeEach
     public void setup() {
         idleAgentsTopic = mock(IdleAgentTopic.class, "idle_topic");
         assignedWorkTopic = mock(WorkAssignedTopic.class, "assigned_work_topic");
-        assignments = new WorkAssignments(idleAgentsTopic, assignedWorkTopic);
+        buildAssignmentService = mock(BuildAssignmentService.class);
+        systemEnvironment = mock(SystemEnvironment.class);
+        when(systemEnvironment.getWorkAssignmentLongPollMaxAgents()).thenReturn(1);
+        when(systemEnvironment.getWorkAssignmentLongPollMaxWaitInMillis()).thenReturn(30_000L);
+        assignments = new WorkAssignments(idleAgentsTopic, assignedWorkTopic, buildAssignmentService, systemEnvironment);
         agentIdentifier = new AgentIdentifier("localhost", "127.0.0.1", "uuid");
         agent = new AgentRuntimeInfo(agentIdentifier, AgentRuntimeStatus.Idle, currentWorkingDirectory(), "cookie");
     }
@@ -100,4 +112,49 @@ public class WorkAssignmentsTest {
         assertThat(assignments.getWork(agent)).isEqualTo(NO_WORK);
         verify(idleAgentsTopic, times(2)).post(new IdleAgentMessage(agent));
     }
+
+    @Test
+    @Timeout(10)
+    public void shouldHandOverWorkAssignedWhileTheAgentIsWaitingForIt() throws Exception {
+        CompletableFuture<Work> work = CompletableFuture.supplyAsync(() -> assignments.getWork(agent, 30_000));
+        verify(idleAgentsTopic, timeout(5000)).post(new IdleAgentMessage(agent));
+
+        assignments.onMessage(new WorkAssignedMessage(agentIdentifier, REAL_WORK));
+
+        assertThat(work.get()).isEqualTo(REAL_WORK);
+        assertThat(assignments.agentsWaitingForWork()).isEqualTo(0);
+    }
+
+    @Test
+    @Timeout(10)
+    public void shouldAskForWorkAgainWhenJobsAreScheduledWhileTheAgentIsWaiting() throws Exception {
+        ArgumentCaptor<Runnable> jobsScheduled = ArgumentCaptor.forClass(Runnable.class);
+        verify(buildAssignmentService).addJobsScheduledListener(jobsScheduled.capture());
+
+        CompletableFuture<Work> work = CompletableFuture.supplyAsync(() -> assignments.getWork(agent, 30_000));
+        verify(idleAgentsTopic, timeout(5000)).post(new IdleAgentMessage(agent));
+        assignments.onMessage(new WorkAssignedMessage(agentIdentifier, NO_WORK));
+
+        jobsScheduled.getValue().run();
+        verify(idleAgentsTopic, timeout(5000).times(2)).post(new IdleAgentMessage(agent));
+        assignments.onMessage(new WorkAssignedMessage(agentIdentifier, REAL_WORK));
+
+        assertThat(work.get()).isEqualTo(REAL_WORK);
+    }
+
+    @Test
+    public void shouldStopWaitingForWorkWhenTheTimeRunsOut() {
+        assertThat(assignments.getWork(agent, 100)).isEqualTo(NO_WORK);
+        assertThat(assignments.agentsWaitingForWork()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotWaitForWorkWhenTooManyAgentsAreWaiting() {
+        when(systemEnvironment.getWorkAssignmentLongPollMaxAgents()).thenReturn(0);
+        assignments = new WorkAssignments(idleAgentsTopic, mock(WorkAssignedTopic.class), buildAssignmentService, systemEnvironment);
+
+        long startedAt = System.currentTimeMillis();
+        assertThat(assignments.getWork(agent, 30_000)).isEqualTo(NO_WORK);
+        assertThat(System.currentTimeMillis() - startedAt).isLessThan(5_000);
+    }
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.persistence;
+
+import com.thoughtworks.go.domain.materials.Modification;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevisionSearchIndexTest {
+    private RevisionSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new RevisionSearchIndex();
+        index.add(1, "40c95a3c41f54b5fb3107982cf2acd08783f102a", "pavan", "Fixed the build", null);
+        index.add(2, "c30c471137f31a4bf735f653f888e799f6deec04", "turn_her", null, null);
+        index.add(3, "pipeline-name/1/stage-name/3", null, null, "my-random-label-123");
+        index.finishLoading();
+    }
+
+    @Test
+    void shouldFindCandidatesByPartOfAnyWordIgnoringCase() {
+        assertThat(index.candidates("PAV").next(10)).containsExactly(1L);
+        assertThat(index.candidates("uild").next(10)).containsExactly(1L);
+        assertThat(index.candidates("random-label").next(10)).containsExactly(3L);
+        assertThat(index.candidates("something-else").next(10)).isEmpty();
+    }
+
+    @Test
+    void shouldFindCandidatesByPartOfTheRevision() {
+        assertThat(index.candidates("c04").next(10)).containsExactly(2L);
+        assertThat(index.candidates("name/1").next(10)).containsExactly(3L);
+    }
+
+    @Test
+    void shouldOnlyReturnCandidatesHavingEveryWordOfTheSearchString() {
+        assertThat(index.candidates("pavan fix").next(10)).containsExactly(1L);
+        assertThat(index.candidates("pavan turn").next(10)).isEmpty();
+    }
+
+    @Test
+    void shouldReturnCandidatesNewestFirstInBatches() {
+        RevisionSearchIndex index = new RevisionSearchIndex();
+        index.add(1, "a1", "pavan", "Fixed the build", null);
+        index.add(2, "b2", "lisa", "Fixed the tests", null);
+        index.add(3, "c3", "bob", "Fixed the docs", null);
+        index.finishLoading();
+
+        RevisionSearchIndex.Candidates candidates = index.candidates("fix");
+
+        assertThat(candidates.count()).isEqualTo(3);
+        assertThat(candidates.next(2)).containsExactly(3L, 2L);
+        assertThat(candidates.next(2)).containsExactly(1L);
+        assertThat(candidates.next(2)).isEmpty();
+    }
+
+    @Test
+    void shouldOnlyNarrowDownByWordsAtLeastAsLongAsATrigram() {
+        assertThat(index.candidates("pa")).isNull();
+        assertThat(index.candidates("pa 1")).isNull();
+        assertThat(index.candidates("pa build").next(10)).containsExactly(1L);
+    }
+
+    @Test
+    void shouldFindCandidatesByPartOfAWordUsedByManyModifications() {
+        RevisionSearchIndex index = new RevisionSearchIndex();
+        for (int id = 1; id <= 100; id++) {
+            index.add(id, "abc" + id, "pavan", "Comment number " + id, null);
+        }
+        index.finishLoading();
+
+        assertThat(index.candidates("avan").count()).isEqualTo(100);
+        assertThat(index.candidates("avan 42").count()).isEqualTo(100);
+        assertThat(index.candidates("c42").next(10)).containsExactly(42L);
+        assertThat(index.candidates("comment xyz").count()).isZero();
+    }
+
+    @Test
+    void shouldNotNarrowDownSearchStringsWithoutAnyWords() {
+        assertThat(index.candidates("")).isNull();
+        assertThat(index.candidates(" %_ ")).isNull();
+    }
+
+    @Test
+    void shouldAddModificationsSavedAfterItWasLoadedOnlyOnce() {
+        Modification modification = new Modification("lisa", "Added search", "lisa@example.com", new Date(), "e5f6a7b8");
+        modification.setId(4);
+
+        index.added(List.of(modification));
+        index.added(List.of(modification));
+
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.candidates("lisa search").next(10)).containsExactly(4L);
+    }
+
+    @Test
+    void shouldAddModificationsSavedWhileItWasLoadingOnceItHasLoaded() {
+        RevisionSearchIndex loading = new RevisionSearchIndex();
+        Modification savedWhileLoading = new Modification("lisa", "Added search", "lisa@example.com", new Date(), "e5f6a7b8");
+        savedWhileLoading.setId(3);
+        Modification alsoLoaded = new Modification("bob", "Fixed search", "bob@example.com", new Date(), "a1b2c3d4");
+        alsoLoaded.setId(2);
+
+        loading.add(1, "40c95a3c41f54b5fb3107982cf2acd08783f102a", "pavan", "Fixed the build", null);
+        loading.added(List.of(savedWhileLoading, alsoLoaded));
+        loading.add(2, "a1b2c3d4", "bob", "Fixed search", null);
+        assertThat(loading.isLoaded()).isFalse();
+        assertThat(loading.size()).isEqualTo(2);
+
+        loading.finishLoading();
+
+        assertThat(loading.isLoaded()).isTrue();
+        assertThat(loading.size()).isEqualTo(3);
+        assertThat(loading.candidates("search").next(10)).containsExactly(3L, 2L);
+    }
+
+    @Test
+    void shouldSplitTextIntoLowerCaseWords() {
+        assertThat(RevisionSearchIndex.words("Fixed #42: NPE in turn_her")).containsExactly("fixed", "42", "npe", "in", "turn", "her");
+        assertThat(RevisionSearchIndex.words(null)).isEmpty();
+    }
+}
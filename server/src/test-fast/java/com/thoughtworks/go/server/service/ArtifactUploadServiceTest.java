@@ -0,0 +1,98 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.server.dao.StageDao;
+import com.thoughtworks.go.util.SystemEnvironment;
+import com.thoughtworks.go.util.ZipUtil;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.thoughtworks.go.util.GoConstants.ZIP_MULTIPART_FILENAME;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ArtifactUploadServiceTest {
+    @TempDir
+    Path artifactsDir;
+
+    private ArtifactUploadService artifactUploadService;
+    private File dest;
+
+    @BeforeEach
+    void setUp() {
+        ArtifactsDirHolder artifactsDirHolder = mock(ArtifactsDirHolder.class);
+        when(artifactsDirHolder.getArtifactsDir()).thenReturn(artifactsDir.toFile());
+        ArtifactsService artifactsService = new ArtifactsService(mock(JobResolverService.class), mock(StageDao.class), artifactsDirHolder, new ZipUtil());
+        artifactUploadService = new ArtifactUploadService(artifactsService, artifactsDirHolder, new SystemEnvironment());
+        dest = artifactsDir.resolve("pipelines/up42/1/stage/1/job/dist").toFile();
+    }
+
+    @Test
+    void shouldStageAnUploadAndUnzipItOnThePoolBeforeCallingBack() throws Exception {
+        byte[] zip = zipOf("app.jar", "contents");
+        ArtifactUpload upload = new ArtifactUpload("dist", dest, true, 1, zip.length, checksums("dist/app.jar=" + DigestUtils.md5Hex("contents")));
+        CompletableFuture<Boolean> saved = new CompletableFuture<>();
+
+        artifactUploadService.saveInBackground(upload, new MockMultipartFile(ZIP_MULTIPART_FILENAME, zip), saved::complete);
+
+        assertThat(saved.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(Files.readString(new File(dest, "app.jar").toPath(), UTF_8)).isEqualTo("contents");
+        assertThat(new File(artifactsDir.toFile(), ArtifactUploadService.STAGING_DIR).list()).isEmpty();
+        assertThat(artifactUploadService.statistics())
+            .containsEntry("Saved", 1L)
+            .containsEntry("Failed", 0L)
+            .containsEntry("Bytes Saved", (long) zip.length);
+    }
+
+    @Test
+    void shouldFailAnUploadWithAFileWhichDoesNotHaveTheMd5TheAgentSentForIt() throws Exception {
+        byte[] zip = zipOf("app.jar", "corrupted");
+        ArtifactUpload upload = new ArtifactUpload("dist", dest, true, 1, zip.length, checksums("dist/app.jar=" + DigestUtils.md5Hex("contents")));
+
+        assertThat(artifactUploadService.save(upload, new MockMultipartFile(ZIP_MULTIPART_FILENAME, zip))).isFalse();
+        assertThat(artifactUploadService.statistics()).containsEntry("Saved", 0L).containsEntry("Failed", 1L);
+    }
+
+    private static byte[] zipOf(String name, String contents) throws IOException {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            out.putNextEntry(new ZipEntry(name));
+            out.write(contents.getBytes(UTF_8));
+            out.closeEntry();
+        }
+        return zip.toByteArray();
+    }
+
+    private static byte[] checksums(String line) {
+        return (line + "\n").getBytes(UTF_8);
+    }
+}
@@ -39,6 +39,7 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
@@ -98,6 +99,21 @@ public class ArtifactsServiceTest {
         verify(zipUtil).unzip(any(ZipInputStream.class), eq(destFile.getParentFile()));
     }
 
+    @Test
+    void shouldAppendAFileOnDiskToTheDestination() throws IOException {
+        File upload = tempDir.resolve("upload").toFile();
+        Files.writeString(upload.toPath(), "uploaded", UTF_8);
+        File destFile = new File(fakeRoot, "dist/app.log");
+        FileUtils.writeStringToFile(destFile, "existing,", UTF_8);
+
+        ArtifactsService artifactsService = new ArtifactsService(resolverService, stageService, artifactsDirHolder, zipUtil);
+        try (InputStream stream = new FileInputStream(upload)) {
+            assertThat(artifactsService.saveFile(destFile, stream, false, 1)).isTrue();
+        }
+
+        assertThat(Files.readString(destFile.toPath(), UTF_8)).isEqualTo("existing,uploaded");
+    }
+
     @Test
     void shouldNotSaveArtifactWhenItsAZipContainingDirectoryTraversalPath() throws IOException {
         final File logsDir = new File("logs");
@@ -32,7 +32,9 @@ import com.thoughtworks.go.helper.*;
 import com.thoughtworks.go.plugin.access.exceptions.SecretResolutionFailureException;
 import com.thoughtworks.go.remote.work.BuildAssignment;
 import com.thoughtworks.go.remote.work.BuildWork;
+import com.thoughtworks.go.remote.work.Work;
 import com.thoughtworks.go.server.domain.ElasticAgentMetadata;
+import com.thoughtworks.go.server.domain.JobStatusListener;
 import com.thoughtworks.go.server.exceptions.RulesViolationException;
 import com.thoughtworks.go.server.messaging.JobStatusMessage;
 import com.thoughtworks.go.server.messaging.JobStatusTopic;
@@ -44,12 +46,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentMatchers;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
 import java.util.*;
 
 import static com.thoughtworks.go.helper.MaterialsMother.packageMaterial;
@@ -59,6 +61,7 @@ import static com.thoughtworks.go.server.service.BuildAssignmentService.GO_PIPEL
 import static com.thoughtworks.go.util.command.EnvironmentVariableContext.GO_ENVIRONMENT_NAME;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -125,7 +128,7 @@ class BuildAssignmentServiceTest {
         profiles.put(elasticProfile2.getId(), elasticProfile2);
         schedulingContext = new DefaultSchedulingContext("me", new Agents(elasticAgent), profiles);
         lenient().when(jobInstanceService.orderedScheduledBuilds()).thenReturn(jobPlans);
-        lenient().when(environmentConfigService.filterJobsByAgent(ArgumentMatchers.eq(jobPlans), any(String.class))).thenReturn(jobPlans);
+        lenient().when(environmentConfigService.filterJobsByAgent(anyList(), any(String.class))).thenAnswer(invocation -> invocation.getArgument(0));
         lenient().when(environmentConfigService.envForPipeline(any(String.class))).thenReturn("");
         lenient().when(maintenanceModeService.isMaintenanceMode()).thenReturn(false);
     }
@@ -223,24 +226,20 @@ class BuildAssignmentServiceTest {
         JobPlan jobPlan2 = getJobPlan(pipeline.getName(), pipeline.get(1).name(), pipeline.get(1).getJobs().first());
         JobPlan jobPlan3 = getJobPlan(irrelevantPipeline.getName(), irrelevantPipeline.get(0).name(), irrelevantPipeline.get(0).getJobs().first());
 
-        //need to get hold of original jobPlans in the tests
-        jobPlans = buildAssignmentService.jobPlans();
-
         jobPlans.add(jobPlan1);
         jobPlans.add(jobPlan2);
         jobPlans.add(jobPlan3);
+        buildAssignmentService.onTimer();
 
         //delete a stage
         pipeline.remove(1);
 
-        assertThat(jobPlans.size()).isEqualTo(3);
+        assertThat(buildAssignmentService.jobPlans().size()).isEqualTo(3);
 
         when(goConfigService.hasPipelineNamed(pipeline.getName())).thenReturn(true);
         buildAssignmentService.pipelineConfigChangedListener().onEntityConfigChange(pipeline);
 
-        assertThat(jobPlans.size()).isEqualTo(2);
-        assertThat(jobPlans.get(0)).isEqualTo(jobPlan1);
-        assertThat(jobPlans.get(1)).isEqualTo(jobPlan3);
+        assertThat(buildAssignmentService.jobPlans()).containsExactly(jobPlan1, jobPlan3);
     }
 
     @Test
@@ -259,18 +258,15 @@ class BuildAssignmentServiceTest {
         JobPlan jobPlan2 = getJobPlan(pipeline.getName(), pipeline.get(1).name(), pipeline.get(1).getJobs().first());
         JobPlan jobPlan3 = getJobPlan(irrelevantPipeline.getName(), irrelevantPipeline.get(0).name(), irrelevantPipeline.get(0).getJobs().first());
 
-        //need to get hold of original jobPlans in the tests
-        jobPlans = buildAssignmentService.jobPlans();
-
         jobPlans.add(jobPlan1);
         jobPlans.add(jobPlan2);
         jobPlans.add(jobPlan3);
+        buildAssignmentService.onTimer();
 
         when(goConfigService.hasPipelineNamed(pipeline.getName())).thenReturn(false);
         buildAssignmentService.pipelineConfigChangedListener().onEntityConfigChange(pipeline);
 
-        assertThat(jobPlans.size()).isEqualTo(1);
-        assertThat(jobPlans.get(0)).isEqualTo(jobPlan3);
+        assertThat(buildAssignmentService.jobPlans()).containsExactly(jobPlan3);
     }
 
     @Nested
@@ -570,6 +566,132 @@ class BuildAssignmentServiceTest {
         inOrder.verify(jobStatusTopic).post(new JobStatusMessage(jobPlan.getIdentifier(), JobState.Scheduled, elasticAgentInstance.getUuid()));
     }
 
+    @Nested
+    class EventDrivenRefresh {
+        private JobStatusListener listener;
+
+        @BeforeEach
+        void setUp() {
+            when(systemEnvironment.isBuildAssignmentEventDriven()).thenReturn(true);
+            lenient().when(systemEnvironment.getBuildAssignmentReconciliationIntervalInMillis()).thenReturn(60_000L);
+            buildAssignmentService.initialize();
+            listener = buildAssignmentService.scheduledJobsListener();
+            verify(jobInstanceService).registerJobStateChangeListener(any(JobStatusListener.class));
+        }
+
+        @Test
+        void shouldAddNewlyScheduledJobsWithoutReloadingAllScheduledJobs() {
+            JobPlan jobPlan = jobPlanWithId(10L);
+            JobInstance scheduledJob = JobInstanceMother.scheduled("job");
+            scheduledJob.setId(10L);
+            when(jobInstanceService.loadJobPlan(10L)).thenReturn(jobPlan);
+
+            listener.jobStatusChanged(scheduledJob);
+
+            assertThat(buildAssignmentService.jobPlans()).containsExactly(jobPlan);
+            verify(jobInstanceService, never()).orderedScheduledBuilds();
+            verify(elasticAgentPluginService).createAgentsFor(List.of(), List.of(jobPlan));
+        }
+
+        @Test
+        void shouldTellListenersWhenNewlyScheduledJobsAreAdded() {
+            Runnable jobsScheduledListener = mock(Runnable.class);
+            buildAssignmentService.addJobsScheduledListener(jobsScheduledListener);
+            JobInstance scheduledJob = JobInstanceMother.scheduled("job");
+            scheduledJob.setId(10L);
+            when(jobInstanceService.loadJobPlan(10L)).thenReturn(jobPlanWithId(10L));
+
+            listener.jobStatusChanged(scheduledJob);
+
+            verify(jobsScheduledListener).run();
+        }
+
+        @Test
+        void shouldDropJobsWhichAreNoLongerScheduled() {
+            JobPlan jobPlan = jobPlanWithId(10L);
+            jobPlans.add(jobPlan);
+            buildAssignmentService.onTimer();
+
+            JobInstance cancelledJob = JobInstanceMother.cancelled("job");
+            cancelledJob.setId(10L);
+            listener.jobStatusChanged(cancelledJob);
+
+            assertThat(buildAssignmentService.jobPlans()).isEmpty();
+        }
+
+        @Test
+        void shouldNotCancelAJobRemovedFromTheConfigWhichWasAssignedWhileItWasBeingRemoved() {
+            JobPlan jobPlan = jobPlanWithId(10L);
+            jobPlans.add(jobPlan);
+            buildAssignmentService.onTimer();
+
+            CruiseConfig newCruiseConfig = mock(CruiseConfig.class);
+            when(newCruiseConfig.hasBuildPlan(any(), any(), anyString(), anyBoolean())).thenAnswer(invocation -> {
+                JobInstance assignedJob = JobInstanceMother.assigned("job");
+                assignedJob.setId(10L);
+                listener.jobStatusChanged(assignedJob);
+                return false;
+            });
+
+            buildAssignmentService.onConfigChange(newCruiseConfig);
+
+            verify(scheduleService, never()).cancelJob(any(JobInstance.class));
+        }
+
+        @Test
+        void shouldAddTheRescheduledAbandonedBuildOfAnAgentAskingForWork() {
+            JobPlan jobPlan = jobPlanWithId(10L, new Resources("firefox"));
+            JobInstance rescheduledJob = JobInstanceMother.scheduled("job");
+            rescheduledJob.setId(10L);
+            when(jobInstanceService.loadJobPlan(10L)).thenReturn(jobPlan);
+            doAnswer(invocation -> {
+                listener.jobStatusChanged(rescheduledJob);
+                return null;
+            }).when(scheduleService).rescheduleAbandonedBuildIfNecessary(regularAgentInstance.getAgentIdentifier());
+
+            Work work = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> buildAssignmentService.assignWorkToAgent(regularAgentInstance));
+
+            assertThat(work).isSameAs(BuildAssignmentService.NO_WORK);
+            assertThat(buildAssignmentService.jobPlans()).containsExactly(jobPlan);
+        }
+
+        @Test
+        void shouldOnlyReloadAllScheduledJobsWhenReconciliationIsDue() {
+            buildAssignmentService.onTimer();
+            buildAssignmentService.onTimer();
+
+            verify(jobInstanceService, times(1)).orderedScheduledBuilds();
+        }
+
+        @Test
+        void shouldCountDriftFoundDuringReconciliation() {
+            JobPlan knownJob = jobPlanWithId(10L);
+            JobPlan missedJob = jobPlanWithId(11L);
+            jobPlans.add(knownJob);
+            buildAssignmentService.onTimer();
+
+            jobPlans.clear();
+            jobPlans.add(missedJob);
+            when(systemEnvironment.getBuildAssignmentReconciliationIntervalInMillis()).thenReturn(0L);
+            buildAssignmentService.onTimer();
+
+            assertThat(buildAssignmentService.jobPlans()).containsExactly(missedJob);
+            assertThat(buildAssignmentService.refreshStatistics())
+                    .containsEntry("Reconciliations", 2L)
+                    .containsEntry("Jobs missed by events", 2L)
+                    .containsEntry("Stale jobs dropped", 1L);
+        }
+
+        private JobPlan jobPlanWithId(long jobId) {
+            return jobPlanWithId(jobId, new Resources());
+        }
+
+        private JobPlan jobPlanWithId(long jobId, Resources resources) {
+            JobIdentifier identifier = new JobIdentifier("up42", 1, "1", "stage", "1", "job", jobId);
+            return new DefaultJobPlan(resources, new ArrayList<>(), jobId, identifier, null, new EnvironmentVariables(), new EnvironmentVariables(), null, null);
+        }
+    }
+
     private JobPlan getJobPlan(CaseInsensitiveString pipelineName, CaseInsensitiveString stageName, JobConfig job) {
         JobPlan jobPlan = new InstanceFactory().createJobPlan(job, schedulingContext);
 
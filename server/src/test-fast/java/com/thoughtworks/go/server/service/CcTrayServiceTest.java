@@ -35,7 +35,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import static com.thoughtworks.go.server.newsecurity.SessionUtilsHelper.loginAs;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 @ExtendWith(ClearSingleton.class)
@@ -156,6 +156,50 @@ public class CcTrayServiceTest {
         assertThat(originalXML).isNotEqualTo(newXML);
     }
 
+    @Test
+    public void shouldNotLookAtTheStatusesAgainUntilTheyChange() {
+        Users viewers = mock(Users.class);
+        when(viewers.contains("user1")).thenReturn(true);
+        when(goConfigService.isSecurityEnabled()).thenReturn(true);
+        when(ccTrayCache.allEntriesInOrder()).thenReturn(List.of(statusFor("proj1").updateViewers(viewers)));
+
+        AtomicReference<String> originalEtag = new AtomicReference<>();
+        String originalXML = ccTrayService.renderCCTrayXML("prefix1", "user1", new StringBuilder(), originalEtag::set).toString();
+
+        AtomicReference<String> newEtag = new AtomicReference<>();
+        String newXML = ccTrayService.renderCCTrayXML("prefix1", "user1", new StringBuilder(), newEtag::set).toString();
+
+        assertThat(ccTrayService.etag("prefix1", "user1")).isEqualTo(originalEtag.get()).isEqualTo(newEtag.get());
+        assertThat(newXML).isEqualTo(originalXML);
+        assertCcTrayXmlFor(newXML, "prefix1", "proj1");
+        verify(viewers, times(1)).contains("user1");
+    }
+
+    @Test
+    public void shouldGiveTheSameEtagToUsersWhoCanSeeTheSameProjects() {
+        when(goConfigService.isSecurityEnabled()).thenReturn(true);
+        when(ccTrayCache.allEntriesInOrder()).thenReturn(List.of(statusFor("proj1", "user1", "user2"), statusFor("proj2", "user3")));
+
+        assertThat(ccTrayService.etag("prefix1", "user1")).isEqualTo(ccTrayService.etag("prefix1", "user2"));
+        assertThat(ccTrayService.etag("prefix1", "user1")).isNotEqualTo(ccTrayService.etag("prefix1", "user3"));
+    }
+
+    @Test
+    public void shouldOnlyKeepTheFeedsRenderedForTheMostRecentlyUsedSiteUrlPrefixes() {
+        ProjectStatus status = spy(statusFor("proj1"));
+        when(goConfigService.isSecurityEnabled()).thenReturn(false);
+        when(ccTrayCache.allEntriesInOrder()).thenReturn(List.of(status));
+
+        for (int i = 0; i <= CcTrayService.MAX_FEEDS; i++) {
+            ccTrayService.etag("prefix" + i, "user1");
+        }
+        ccTrayService.etag("prefix" + CcTrayService.MAX_FEEDS, "user1");
+        verify(status, times(CcTrayService.MAX_FEEDS + 1)).xmlRepresentation();
+
+        ccTrayService.etag("prefix0", "user1");
+        verify(status, times(CcTrayService.MAX_FEEDS + 2)).xmlRepresentation();
+    }
+
     private ProjectStatus statusFor(String projectName, String... allowedUsers) {
         ProjectStatus status = new ProjectStatus(projectName, "activity1", "build-status-1", "build-label-1", Dates.parseRFC822("Sun, 23 May 2010 10:00:00 +0200"), "web-url");
         status.updateViewers(viewers(allowedUsers));
@@ -67,7 +67,7 @@ public class GoDashboardServiceTest {
         config = GoConfigMother.defaultCruiseConfig();
         Toggles.initializeWith(featureToggleService);
         lenient().when(cache.allEntries()).thenReturn(this.pipelines);
-        service = new GoDashboardService(cache, dashboardCurrentStateLoader, permissionsAuthority, goConfigService);
+        service = new GoDashboardService(cache, dashboardCurrentStateLoader, permissionsAuthority, goConfigService, new GoDashboardVisibility());
 
         GoConfigMother.addUserAsSuperAdmin(config, "superduper");
         configMother.addRoleAsSuperAdmin(config, "supers");
@@ -336,8 +336,9 @@ public class GoDashboardServiceTest {
     }
 
     private void addPipelinesToCache(GoDashboardPipeline... pipelines) {
+        lenient().when(this.pipelines.getPipelines()).thenReturn(List.of(pipelines));
         for (GoDashboardPipeline pipeline : pipelines) {
-            when(this.pipelines.find(pipeline.name())).thenReturn(pipeline);
+            lenient().when(this.pipelines.find(pipeline.name())).thenReturn(pipeline);
         }
     }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service;
+
+import com.thoughtworks.go.config.elastic.ElasticProfile;
+import com.thoughtworks.go.domain.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScheduledJobPlanIndexTest {
+
+    @Test
+    void shouldReturnOldestUnclaimedJobOfEachGroupInScheduledOrder() {
+        JobPlan firstOfUp42 = job("up42", "linux", null);
+        JobPlan firstOfDown42 = job("down42", "linux", null);
+        JobPlan secondOfUp42 = job("up42", "linux", null);
+        JobPlan windowsJobOfUp42 = job("up42", "windows", null);
+
+        ScheduledJobPlanIndex index = new ScheduledJobPlanIndex(List.of(firstOfUp42, firstOfDown42, secondOfUp42, windowsJobOfUp42));
+
+        assertThat(index.firstUnclaimedOfEachGroup(group -> true)).containsExactly(firstOfUp42, firstOfDown42, windowsJobOfUp42);
+
+        assertThat(index.claim(firstOfUp42)).isTrue();
+        assertThat(index.firstUnclaimedOfEachGroup(group -> true)).containsExactly(firstOfDown42, secondOfUp42, windowsJobOfUp42);
+    }
+
+    @Test
+    void shouldOnlyConsiderGroupsAcceptedByTheFilter() {
+        JobPlan linuxJob = job("up42", "linux", null);
+        JobPlan windowsJob = job("up42", "windows", null);
+        JobPlan jobAssignedToAgent = job("up42", "", "agent-uuid");
+
+        ScheduledJobPlanIndex index = new ScheduledJobPlanIndex(List.of(linuxJob, windowsJob, jobAssignedToAgent));
+
+        assertThat(index.firstUnclaimedOfEachGroup(group -> group.resources().contains("windows"))).containsExactly(windowsJob);
+        assertThat(index.firstUnclaimedOfEachGroup(group -> group.isAssignedToAgent() && group.isAssignedToAgent("agent-uuid"))).containsExactly(jobAssignedToAgent);
+    }
+
+    @Test
+    void shouldKeepJobsRequiringElasticAgentsOutOfTheGroups() {
+        JobPlan regularJob = job("up42", "", null);
+        JobPlan elasticJob = job("up42", "", null);
+        elasticJob.setElasticProfile(new ElasticProfile("docker", "prod-cluster"));
+
+        ScheduledJobPlanIndex index = new ScheduledJobPlanIndex(List.of(elasticJob, regularJob));
+
+        assertThat(index.firstUnclaimedOfEachGroup(group -> true)).containsExactly(regularJob);
+        assertThat(index.unclaimedRequiringElasticAgent()).containsExactly(elasticJob);
+    }
+
+    @Test
+    void shouldAllowAJobToBeClaimedOnlyOnce() {
+        JobPlan jobPlan = job("up42", "", null);
+        JobPlan anotherJobPlan = job("up42", "", null);
+
+        ScheduledJobPlanIndex index = new ScheduledJobPlanIndex(List.of(jobPlan, anotherJobPlan));
+
+        assertThat(index.claim(jobPlan)).isTrue();
+        assertThat(index.claim(jobPlan)).isFalse();
+        assertThat(index.unclaimed()).containsExactly(anotherJobPlan);
+    }
+
+    @Test
+    void shouldAppendJobsAfterTheOnesAlreadyInTheIndex() {
+        JobPlan firstOfUp42 = job("up42", "linux", null);
+        JobPlan firstOfDown42 = job("down42", "linux", null);
+        ScheduledJobPlanIndex index = new ScheduledJobPlanIndex(List.of(firstOfUp42, firstOfDown42));
+        assertThat(index.claim(firstOfUp42)).isTrue();
+        assertThat(index.firstUnclaimedOfEachGroup(group -> true)).containsExactly(firstOfDown42);
+
+        JobPlan secondOfUp42 = job("up42", "linux", null);
+        JobPlan windowsJobOfUp42 = job("up42", "windows", null);
+        index.append(secondOfUp42);
+        index.append(windowsJobOfUp42);
+
+        assertThat(index.firstUnclaimedOfEachGroup(group -> true)).containsExactly(firstOfDown42, secondOfUp42, windowsJobOfUp42);
+        assertThat(index.unclaimed()).containsExactly(firstOfDown42, secondOfUp42, windowsJobOfUp42);
+        assertThat(index.contains(secondOfUp42.getJobId())).isTrue();
+    }
+
+    private JobPlan job(String pipelineName, String resources, String agentUuid) {
+        JobIdentifier identifier = new JobIdentifier(pipelineName, 1, "1", "stage", "1", "job", 100L);
+        return new DefaultJobPlan(new Resources(resources), new ArrayList<>(), 100L, identifier, agentUuid, new EnvironmentVariables(), new EnvironmentVariables(), null, null);
+    }
+}
@@ -19,6 +19,7 @@ import com.thoughtworks.go.config.Approval;
 import com.thoughtworks.go.config.CaseInsensitiveString;
 import com.thoughtworks.go.config.StageConfig;
 import com.thoughtworks.go.domain.*;
+import com.thoughtworks.go.domain.buildcause.BuildCause;
 import com.thoughtworks.go.helper.PipelineConfigMother;
 import com.thoughtworks.go.server.cronjob.GoDiskSpaceMonitor;
 import com.thoughtworks.go.server.scheduling.TriggerMonitor;
@@ -37,6 +38,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -285,6 +288,21 @@ public class SchedulingCheckerServiceUnitTest {
         }
     }
 
+    @Test
+    public void shouldListPipelinesWhichAreTriggeredOrHaveAForcedBuildCauseWaitingAsAboutToBeTriggered() {
+        TriggerMonitor triggerMonitor = new TriggerMonitor();
+        triggerMonitor.markPipelineAsAlreadyTriggered(new CaseInsensitiveString("triggered"));
+        PipelineScheduleQueue pipelineScheduleQueue = mock(PipelineScheduleQueue.class);
+        when(pipelineScheduleQueue.toBeScheduled()).thenReturn(Map.of(
+                new CaseInsensitiveString("forced"), BuildCause.createManualForced(),
+                new CaseInsensitiveString("modified"), BuildCause.createWithEmptyModifications()));
+        SchedulingCheckerService service = new SchedulingCheckerService(goConfigService, mock(StageService.class), mock(SecurityService.class),
+                mock(PipelineLockService.class), triggerMonitor, pipelineScheduleQueue, mock(PipelinePauseService.class), mock(PipelineService.class),
+                new OutOfDiskSpaceChecker(mock(GoDiskSpaceMonitor.class)));
+
+        assertEquals(Set.of(new CaseInsensitiveString("triggered"), new CaseInsensitiveString("forced")), service.pipelinesAboutToBeTriggered());
+    }
+
     private void assertFor(List<SchedulingChecker> checkerList, Class<?> typeOfScheduleChecker) {
         List<SchedulingChecker> containerForAllCheckers = new ArrayList<>();
         flatten(checkerList, containerForAllCheckers);
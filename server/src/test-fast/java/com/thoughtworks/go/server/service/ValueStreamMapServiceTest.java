@@ -38,8 +38,10 @@ import com.thoughtworks.go.server.presentation.models.ValueStreamMapPresentation
 import com.thoughtworks.go.server.service.result.HttpLocalizedOperationResult;
 import com.thoughtworks.go.server.service.result.LocalizedOperationResult;
 import com.thoughtworks.go.server.valuestreammap.DownstreamInstancePopulator;
+import com.thoughtworks.go.server.valuestreammap.DownstreamPipelineIndex;
 import com.thoughtworks.go.server.valuestreammap.RunStagesPopulator;
 import com.thoughtworks.go.server.valuestreammap.UnrunStagesPopulator;
+import com.thoughtworks.go.server.valuestreammap.ValueStreamMapLayoutCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -91,7 +93,8 @@ public class ValueStreamMapServiceTest {
 
         setupViewPermissionForGroups("g1");
 
-        valueStreamMapService = new ValueStreamMapService(pipelineService, materialRepository, goConfigService, downstreaminstancepopulator, runStagesPopulator, unrunStagesPopulator, securityService);
+        valueStreamMapService = new ValueStreamMapService(pipelineService, materialRepository, goConfigService, downstreaminstancepopulator, runStagesPopulator, unrunStagesPopulator, securityService,
+            new DownstreamPipelineIndex(goConfigService), new ValueStreamMapLayoutCache());
         result = new HttpLocalizedOperationResult();
 
         when(goConfigService.findPipelineByName(any())).thenReturn(PipelineConfigMother.pipelineConfig("found-pipeline"));
@@ -0,0 +1,109 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.service.dd;
+
+import com.thoughtworks.go.config.BasicCruiseConfig;
+import com.thoughtworks.go.config.BasicPipelineConfigs;
+import com.thoughtworks.go.config.CruiseConfig;
+import com.thoughtworks.go.config.PipelineConfig;
+import com.thoughtworks.go.config.materials.MaterialConfigs;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.helper.PipelineConfigMother;
+import com.thoughtworks.go.listener.ConfigChangedListener;
+import com.thoughtworks.go.listener.EntityConfigChangedListener;
+import com.thoughtworks.go.server.service.GoConfigService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static com.thoughtworks.go.helper.MaterialConfigsMother.git;
+import static com.thoughtworks.go.helper.MaterialConfigsMother.hg;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class FanInGraphTopologyCacheTest {
+    private GoConfigService goConfigService;
+    private FanInGraphTopologyCache cache;
+    private PipelineConfig p1;
+    private PipelineConfig p2;
+    private PipelineConfig p3;
+    private PipelineConfig unrelated;
+
+    @BeforeEach
+    public void setUp() {
+        goConfigService = mock(GoConfigService.class);
+        cache = new FanInGraphTopologyCache(goConfigService);
+
+        p1 = PipelineConfigMother.pipelineConfig("p1", new MaterialConfigs(git("giturl", "dest")));
+        p2 = PipelineConfigMother.pipelineConfig("p2", new MaterialConfigs(new DependencyMaterialConfig(p1.name(), p1.get(0).name())));
+        p3 = PipelineConfigMother.pipelineConfig("p3", new MaterialConfigs(new DependencyMaterialConfig(p1.name(), p1.get(0).name()),
+            new DependencyMaterialConfig(p2.name(), p2.get(0).name())));
+        unrelated = PipelineConfigMother.pipelineConfig("unrelated", new MaterialConfigs(hg("hgurl", "dest")));
+    }
+
+    @Test
+    public void shouldKeepTheTopologyOfAPipelineForAsLongAsTheConfigMd5StaysTheSame() {
+        FanInGraphTopology topology = cache.topologyFor(config("md5-1"), p3.name());
+
+        assertThat(cache.topologyFor(config("md5-1"), p3.name())).isSameAs(topology);
+        assertThat(cache.topologyFor(config("md5-2"), p3.name())).isNotSameAs(topology);
+        assertThat(topology.pipelineScmDepMap()).hasSize(3);
+    }
+
+    @Test
+    public void shouldNotKeepTopologiesOfConfigsWithoutAnMd5() {
+        assertThat(cache.topologyFor(config(null), p3.name())).isNotSameAs(cache.topologyFor(config(null), p3.name()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldForgetTheTopologiesOfPipelinesDownstreamOfAChangedPipeline() {
+        cache.initialize();
+        ArgumentCaptor<ConfigChangedListener> listeners = ArgumentCaptor.forClass(ConfigChangedListener.class);
+        verify(goConfigService, times(3)).register(listeners.capture());
+        EntityConfigChangedListener<PipelineConfig> pipelineChanged = (EntityConfigChangedListener<PipelineConfig>) listeners.getAllValues().get(1);
+
+        FanInGraphTopology ofP3 = cache.topologyFor(config("md5-1"), p3.name());
+        FanInGraphTopology ofUnrelated = cache.topologyFor(config("md5-1"), unrelated.name());
+
+        pipelineChanged.onEntityConfigChange(p1);
+
+        assertThat(cache.topologyFor(config("md5-1"), p3.name())).isNotSameAs(ofP3);
+        assertThat(cache.topologyFor(config("md5-1"), unrelated.name())).isSameAs(ofUnrelated);
+
+        listeners.getAllValues().get(0).onConfigChange(config("md5-1"));
+
+        assertThat(cache.topologyFor(config("md5-1"), unrelated.name())).isNotSameAs(ofUnrelated);
+    }
+
+    @Test
+    public void shouldNotKeepTheTopologyWorkedOutFromAConfigWhichIsNoLongerCurrent() {
+        CruiseConfig stale = config("md5-1");
+        config("md5-1");
+
+        FanInGraphTopology fromStale = cache.topologyFor(stale, p3.name());
+
+        assertThat(cache.topologyFor(stale, p3.name())).isNotSameAs(fromStale);
+    }
+
+    /* The config made last is the current one. */
+    private CruiseConfig config(String md5) {
+        CruiseConfig cruiseConfig = spy(new BasicCruiseConfig(new BasicPipelineConfigs(p1, p2, p3, unrelated)));
+        doReturn(md5).when(cruiseConfig).getMd5();
+        when(goConfigService.currentCruiseConfig()).thenReturn(cruiseConfig);
+        return cruiseConfig;
+    }
+}
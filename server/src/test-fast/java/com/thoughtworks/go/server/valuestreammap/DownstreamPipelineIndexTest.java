@@ -0,0 +1,148 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.valuestreammap;
+
+import com.thoughtworks.go.config.BasicCruiseConfig;
+import com.thoughtworks.go.config.BasicPipelineConfigs;
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.CruiseConfig;
+import com.thoughtworks.go.config.PipelineConfig;
+import com.thoughtworks.go.config.materials.MaterialConfigs;
+import com.thoughtworks.go.config.materials.dependency.DependencyMaterialConfig;
+import com.thoughtworks.go.helper.PipelineConfigMother;
+import com.thoughtworks.go.listener.ConfigChangedListener;
+import com.thoughtworks.go.listener.EntityConfigChangedListener;
+import com.thoughtworks.go.server.service.GoConfigService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static com.thoughtworks.go.helper.MaterialConfigsMother.git;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class DownstreamPipelineIndexTest {
+    private GoConfigService goConfigService;
+    private DownstreamPipelineIndex downstreamPipelineIndex;
+    private PipelineConfig p1;
+    private PipelineConfig p2;
+    private PipelineConfig p3;
+
+    @BeforeEach
+    public void setUp() {
+        goConfigService = mock(GoConfigService.class);
+        downstreamPipelineIndex = new DownstreamPipelineIndex(goConfigService);
+
+        p1 = PipelineConfigMother.pipelineConfig("p1", new MaterialConfigs(git("giturl", "dest")));
+        p2 = PipelineConfigMother.pipelineConfig("p2", new MaterialConfigs(dependencyOn(p1)));
+        p3 = PipelineConfigMother.pipelineConfig("p3", new MaterialConfigs(dependencyOn(p1), dependencyOn(p2)));
+    }
+
+    @Test
+    public void shouldKeepTheIndexForAsLongAsTheConfigMd5StaysTheSame() {
+        DownstreamPipelineIndex.Index index = downstreamPipelineIndex.indexFor(config("md5-1", p1, p2, p3));
+
+        assertThat(index.downstreamOf(p1.name())).containsExactly(p2.name(), p3.name());
+        assertThat(index.downstreamOf(p2.name())).containsExactly(p3.name());
+        assertThat(index.downstreamOf(p3.name())).isEmpty();
+        assertThat(downstreamPipelineIndex.indexFor(config("md5-1", p1, p2, p3))).isSameAs(index);
+        assertThat(downstreamPipelineIndex.indexFor(config("md5-2", p1, p2, p3))).isNotSameAs(index);
+        assertThat(downstreamPipelineIndex.indexFor(config(null, p1, p2, p3))).isNotSameAs(downstreamPipelineIndex.indexFor(config(null, p1, p2, p3)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldBringTheIndexUpToDateWithAChangedPipelineWithoutLookingAtTheOthers() {
+        EntityConfigChangedListener<PipelineConfig> pipelineChanged = (EntityConfigChangedListener<PipelineConfig>) registeredListeners().get(1);
+        DownstreamPipelineIndex.Index before = downstreamPipelineIndex.indexFor(config("md5-1", p1, p2, p3));
+
+        PipelineConfig changedP3 = PipelineConfigMother.pipelineConfig("p3", new MaterialConfigs(dependencyOn(p2)));
+        CruiseConfig changedConfig = config("md5-2", p1, p2, changedP3);
+        when(goConfigService.currentCruiseConfig()).thenReturn(changedConfig);
+        pipelineChanged.onEntityConfigChange(changedP3);
+
+        DownstreamPipelineIndex.Index after = downstreamPipelineIndex.indexFor(changedConfig);
+        assertThat(after.downstreamOf(p1.name())).containsExactly(p2.name());
+        assertThat(after.downstreamOf(p2.name())).containsExactly(p3.name());
+        assertThat(before.downstreamOf(p1.name())).containsExactly(p2.name(), p3.name());
+        verify(changedConfig, never()).getAllPipelineConfigs();
+
+        CruiseConfig withoutP3 = config("md5-3", p1, p2);
+        when(goConfigService.currentCruiseConfig()).thenReturn(withoutP3);
+        pipelineChanged.onEntityConfigChange(changedP3);
+
+        assertThat(downstreamPipelineIndex.indexFor(withoutP3).downstreamOf(p2.name())).isEmpty();
+        verify(withoutP3, never()).getAllPipelineConfigs();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldKeepThePipelinesDownstreamOfAPipelineInConfigOrderAsPipelinesChange() {
+        EntityConfigChangedListener<PipelineConfig> pipelineChanged = (EntityConfigChangedListener<PipelineConfig>) registeredListeners().get(1);
+        PipelineConfig p4 = PipelineConfigMother.pipelineConfig("p4", new MaterialConfigs(dependencyOn(p1)));
+        downstreamPipelineIndex.indexFor(config("md5-1", p1, p2, p3, p4));
+
+        PipelineConfig changedP2 = PipelineConfigMother.pipelineConfig("p2", new MaterialConfigs(dependencyOn(p1), git("other-giturl", "other-dest")));
+        CruiseConfig changedConfig = config("md5-2", p1, changedP2, p3, p4);
+        when(goConfigService.currentCruiseConfig()).thenReturn(changedConfig);
+        pipelineChanged.onEntityConfigChange(changedP2);
+
+        List<CaseInsensitiveString> downstreamOfP1 = downstreamPipelineIndex.indexFor(changedConfig).downstreamOf(p1.name());
+        verify(changedConfig, never()).getAllPipelineConfigs();
+        assertThat(downstreamOfP1)
+            .containsExactly(p2.name(), p3.name(), p4.name())
+            .isEqualTo(DownstreamPipelineIndex.Index.of(changedConfig).downstreamOf(p1.name()));
+
+        PipelineConfig added = PipelineConfigMother.pipelineConfig("added", new MaterialConfigs(dependencyOn(p1)));
+        CruiseConfig withAdded = config("md5-3", p1, changedP2, added, p3, p4);
+        when(goConfigService.currentCruiseConfig()).thenReturn(withAdded);
+        pipelineChanged.onEntityConfigChange(added);
+
+        assertThat(downstreamPipelineIndex.indexFor(withAdded).downstreamOf(p1.name()))
+            .containsExactly(p2.name(), added.name(), p3.name(), p4.name())
+            .isEqualTo(DownstreamPipelineIndex.Index.of(withAdded).downstreamOf(p1.name()));
+    }
+
+    @Test
+    public void shouldWorkOutTheIndexAgainAfterTheConfigChanges() {
+        ConfigChangedListener configChanged = registeredListeners().get(0);
+        CruiseConfig cruiseConfig = config("md5-1", p1, p2, p3);
+        DownstreamPipelineIndex.Index index = downstreamPipelineIndex.indexFor(cruiseConfig);
+
+        configChanged.onConfigChange(cruiseConfig);
+
+        assertThat(downstreamPipelineIndex.indexFor(cruiseConfig)).isNotSameAs(index);
+    }
+
+    private List<ConfigChangedListener> registeredListeners() {
+        downstreamPipelineIndex.initialize();
+        ArgumentCaptor<ConfigChangedListener> listeners = ArgumentCaptor.forClass(ConfigChangedListener.class);
+        verify(goConfigService, times(2)).register(listeners.capture());
+        return listeners.getAllValues();
+    }
+
+    private static DependencyMaterialConfig dependencyOn(PipelineConfig upstream) {
+        return new DependencyMaterialConfig(upstream.name(), upstream.get(0).name());
+    }
+
+    private static CruiseConfig config(String md5, PipelineConfig... pipelines) {
+        CruiseConfig cruiseConfig = spy(new BasicCruiseConfig(new BasicPipelineConfigs(pipelines)));
+        doReturn(md5).when(cruiseConfig).getMd5();
+        return cruiseConfig;
+    }
+}
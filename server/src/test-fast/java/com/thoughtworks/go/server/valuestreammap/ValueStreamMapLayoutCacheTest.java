@@ -0,0 +1,103 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.valuestreammap;
+
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.domain.MaterialRevision;
+import com.thoughtworks.go.domain.valuestreammap.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ValueStreamMapLayoutCacheTest {
+    private final CaseInsensitiveString p1 = new CaseInsensitiveString("P1");
+    private final CaseInsensitiveString p2 = new CaseInsensitiveString("P2");
+    private final CaseInsensitiveString p3 = new CaseInsensitiveString("P3");
+    private final CaseInsensitiveString d1 = new CaseInsensitiveString("d1");
+    private final CaseInsensitiveString d2 = new CaseInsensitiveString("d2");
+    private final CaseInsensitiveString g1 = new CaseInsensitiveString("g1");
+    private final CaseInsensitiveString g2 = new CaseInsensitiveString("g2");
+    private ValueStreamMapLayoutCache layouts;
+
+    @BeforeEach
+    public void setup() {
+        layouts = new ValueStreamMapLayoutCache();
+    }
+
+    @Test
+    public void shouldLayOutAMapOfTheSameShapeAsOneLaidOutBeforeTheSameWay() {
+        /*
+            g1 --> P1--->P3 ---> d1 ---> d2
+               \/      /   \            ^
+               /\    /      +--- x -----+
+            g2    P2
+         */
+        List<List<String>> laidOutFirst = layoutOf(layouts.layOut(graph(true)));
+        ValueStreamMap graph = graph(true);
+        List<List<String>> laidOutAgain = layoutOf(layouts.layOut(graph));
+
+        assertThat(laidOutAgain).isEqualTo(laidOutFirst).isEqualTo(layoutOf(laidOutWithoutCache(graph(true))));
+        assertThat(laidOutAgain.get(1)).containsExactly("P2:1", "P1:2");
+        assertThat(laidOutAgain.get(3)).containsExactly("d1:1", "dummy:2");
+        assertThat(graph.findNode(d2).getParents()).hasSize(2);
+    }
+
+    @Test
+    public void shouldNotLayOutAMapOfAnotherShapeTheWayAnotherMapWasLaidOut() {
+        layouts.layOut(graph(true));
+
+        assertThat(layoutOf(layouts.layOut(graph(false)))).isEqualTo(layoutOf(laidOutWithoutCache(graph(false))));
+    }
+
+    private ValueStreamMap graph(boolean withP2) {
+        ValueStreamMap graph = new ValueStreamMap(p3, null);
+        graph.addUpstreamNode(new PipelineDependencyNode(p1, p1.toString()), null, p3);
+        graph.addUpstreamMaterialNode(new SCMDependencyNode(g1.toString(), g1.toString(), "git"), null, p1, new MaterialRevision(null));
+        graph.addUpstreamMaterialNode(new SCMDependencyNode(g2.toString(), g2.toString(), "git"), null, p1, new MaterialRevision(null));
+        if (withP2) {
+            graph.addUpstreamNode(new PipelineDependencyNode(p2, p2.toString()), null, p3);
+            graph.addUpstreamMaterialNode(new SCMDependencyNode(g1.toString(), g1.toString(), "git"), null, p2, new MaterialRevision(null));
+        }
+        graph.addDownstreamNode(new PipelineDependencyNode(d1, d1.toString()), p3);
+        graph.addDownstreamNode(new PipelineDependencyNode(d2, d2.toString()), d1);
+        graph.addDownstreamNode(new PipelineDependencyNode(d2, d2.toString()), p3);
+        return graph;
+    }
+
+    private NodeLevelMap laidOutWithoutCache(ValueStreamMap graph) {
+        NodeLevelMap nodeLevelMap = new LevelAssignment().apply(graph);
+        new DummyNodeCreation().apply(graph, nodeLevelMap);
+        new CrossingMinimization().apply(nodeLevelMap);
+        return nodeLevelMap;
+    }
+
+    private List<List<String>> layoutOf(NodeLevelMap nodeLevelMap) {
+        List<List<String>> layout = new ArrayList<>();
+        for (List<Node> nodesAtLevel : nodeLevelMap.nodesAtEachLevel()) {
+            List<String> nodes = new ArrayList<>();
+            for (Node node : nodesAtLevel) {
+                String id = node.getType() == DependencyNodeType.DUMMY ? "dummy" : node.getId().toString();
+                nodes.add(id + ":" + node.getDepth());
+            }
+            layout.add(nodes);
+        }
+        return layout;
+    }
+}
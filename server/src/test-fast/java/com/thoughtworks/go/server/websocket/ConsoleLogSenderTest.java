@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.server.websocket;
 
+import com.thoughtworks.go.domain.ConsoleByteStreamer;
 import com.thoughtworks.go.domain.ConsoleConsumer;
 import com.thoughtworks.go.domain.ConsoleStreamer;
 import com.thoughtworks.go.domain.JobIdentifier;
@@ -32,6 +33,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.zip.GZIPInputStream;
 
@@ -46,17 +49,19 @@ public class ConsoleLogSenderTest {
     private JobIdentifier jobIdentifier;
     private JobInstanceDao jobInstanceDao;
     private SystemEnvironment systemEnvironment;
+    private ConsoleLogTailer consoleLogTailer;
 
 
     @BeforeEach
     public void setUp() {
         consoleService = mock(ConsoleService.class);
         jobInstanceDao = mock(JobInstanceDao.class);
+        consoleLogTailer = mock(ConsoleLogTailer.class);
         socket = mock(SocketEndpoint.class);
         when(socket.isOpen()).thenReturn(true);
         systemEnvironment = mock(SystemEnvironment.class);
         when(systemEnvironment.consoleLogCharset()).thenReturn(UTF_8);
-        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, systemEnvironment);
+        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, consoleLogTailer, systemEnvironment);
         jobIdentifier = mock(JobIdentifier.class);
     }
 
@@ -159,6 +164,58 @@ public class ConsoleLogSenderTest {
         verify(socket).close();
     }
 
+    @Test
+    public void shouldSendConsoleLogAsRawBytesWhenByteStreamingIsEnabled() throws Exception {
+        when(systemEnvironment.isConsoleLogByteStreamingEnabled()).thenReturn(true);
+        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, consoleLogTailer, systemEnvironment);
+        File console = makeConsoleFile("first\nsecond\nthird");
+        List<String> sent = new ArrayList<>();
+        // the buffer behind a chunk is reused, so its contents have to be captured as it is sent
+        doAnswer(invocation -> sent.add(UTF_8.decode(invocation.<ByteBuffer>getArgument(0).duplicate()).toString())).when(socket).send(any());
+
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(true);
+        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
+        when(consoleService.getByteStreamer(eq(1L), eq(jobIdentifier), anyInt())).thenReturn(new ConsoleByteStreamer(console.toPath(), 1L, 1024));
+
+        consoleLogSender.process(socket, jobIdentifier, 1L);
+
+        assertThat(sent).containsExactly("second\n", "third\n");
+        verify(consoleService, never()).getStreamer(anyLong(), any());
+        verify(socket).close();
+    }
+
+    @Test
+    public void shouldGzipLargeRawByteChunks() throws Exception {
+        when(systemEnvironment.isConsoleLogByteStreamingEnabled()).thenReturn(true);
+        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, consoleLogTailer, systemEnvironment);
+        String expected = RandomStringUtils.insecure().nextAlphanumeric(1024) + "\n";
+        File console = makeConsoleFile(expected);
+
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(true);
+        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
+        when(consoleService.getByteStreamer(eq(0L), eq(jobIdentifier), anyInt())).thenReturn(new ConsoleByteStreamer(console.toPath(), 0L, 4096));
+
+        consoleLogSender.process(socket, jobIdentifier, 0L);
+
+        verify(socket).send(ByteBuffer.wrap(consoleLogSender.maybeGzipIfLargeEnough(expected.getBytes(UTF_8))));
+    }
+
+    @Test
+    public void shouldHandRunningBuildsOverToTheSharedTailer() throws Exception {
+        when(systemEnvironment.isConsoleLogByteStreamingEnabled()).thenReturn(true);
+        when(systemEnvironment.isConsoleLogSharedTailingEnabled()).thenReturn(true);
+        consoleLogSender = new ConsoleLogSender(consoleService, jobInstanceDao, consoleLogTailer, systemEnvironment);
+
+        when(jobInstanceDao.isJobCompleted(jobIdentifier)).thenReturn(false);
+        when(consoleService.doesLogExist(jobIdentifier)).thenReturn(true);
+
+        consoleLogSender.process(socket, jobIdentifier, 5L);
+
+        verify(consoleLogTailer).subscribe(socket, jobIdentifier, 5L);
+        verify(socket, never()).close();
+        verifyNoMoreInteractions(consoleLogTailer);
+    }
+
     @Test
     public void shouldNotGzipContentsLessThan512Bytes() {
         byte[] bytes = RandomStringUtils.insecure().nextAlphanumeric(511).getBytes(UTF_8);
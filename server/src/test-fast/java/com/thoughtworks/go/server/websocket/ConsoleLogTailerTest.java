@@ -0,0 +1,184 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.thoughtworks.go.domain.ConsoleByteStreamer;
+import com.thoughtworks.go.domain.JobIdentifier;
+import com.thoughtworks.go.domain.JobState;
+import com.thoughtworks.go.server.dao.JobInstanceDao;
+import com.thoughtworks.go.server.messaging.JobStatusMessage;
+import com.thoughtworks.go.server.service.ConsoleService;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ConsoleLogTailerTest {
+    private final JobIdentifier jobIdentifier = new JobIdentifier("up42", 1, "1", "stage", "1", "job", 100L);
+    private ConsoleService consoleService;
+    private JobInstanceDao jobInstanceDao;
+    private ConsoleLogTailer tailer;
+    private Path console;
+
+    @BeforeEach
+    void setUp(@TempDir Path tempDir) throws Exception {
+        console = tempDir.resolve("console.log");
+        Files.writeString(console, "first\nsecond\n");
+
+        consoleService = mock(ConsoleService.class);
+        jobInstanceDao = mock(JobInstanceDao.class);
+        when(consoleService.consoleLogFile(jobIdentifier)).thenReturn(console.toFile());
+        when(consoleService.getByteStreamer(anyLong(), eq(jobIdentifier), anyInt())).thenAnswer(invocation -> new ConsoleByteStreamer(console, invocation.getArgument(0), 1024));
+
+        // catch-ups run straight away, while rounds are only run when a test refreshes the tail
+        ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(executor).execute(any());
+        tailer = new ConsoleLogTailer(consoleService, jobInstanceDao, executor, null);
+    }
+
+    @Test
+    void shouldReadNewLinesOnceAndSendThemToAllSubscribers() throws Exception {
+        SocketEndpoint fromStart = openSocket();
+        SocketEndpoint fromSecondLine = openSocket();
+        List<String> sentFromStart = recordSent(fromStart);
+        List<String> sentFromSecondLine = recordSent(fromSecondLine);
+
+        tailer.subscribe(fromStart, jobIdentifier, 0L);
+        tailer.subscribe(fromSecondLine, jobIdentifier, 1L);
+        tailer.refresh(jobIdentifier);
+
+        Files.writeString(console, "third\n", StandardOpenOption.APPEND);
+        tailer.refresh(jobIdentifier);
+
+        assertThat(sentFromStart).containsExactly("first\nsecond\n", "third\n");
+        assertThat(sentFromSecondLine).containsExactly("second\n", "third\n");
+        // each subscriber reads its own backlog, after which the shared streamer is the only one reading the log
+        verify(consoleService, times(2)).getByteStreamer(anyLong(), eq(jobIdentifier), anyInt());
+    }
+
+    @Test
+    void shouldSendTheRestOfTheLogAndCloseSocketsWhenJobCompletes() throws Exception {
+        SocketEndpoint socket = openSocket();
+        List<String> sent = recordSent(socket);
+
+        tailer.subscribe(socket, jobIdentifier, 0L);
+        tailer.refresh(jobIdentifier);
+
+        Files.writeString(console, "third", StandardOpenOption.APPEND);
+        tailer.onMessage(new JobStatusMessage(jobIdentifier, JobState.Completed, "agent-uuid"));
+        tailer.refresh(jobIdentifier);
+
+        assertThat(sent).containsExactly("first\nsecond\n", "third\n");
+        verify(socket).close();
+        assertThat(tailer.isTailing(jobIdentifier)).isFalse();
+    }
+
+    @Test
+    void shouldIgnoreStatusChangesOtherThanCompletion() throws Exception {
+        tailer.subscribe(openSocket(), jobIdentifier, 0L);
+        tailer.refresh(jobIdentifier);
+
+        tailer.onMessage(new JobStatusMessage(jobIdentifier, JobState.Building, "agent-uuid"));
+        tailer.refresh(jobIdentifier);
+
+        assertThat(tailer.isTailing(jobIdentifier)).isTrue();
+    }
+
+    @Test
+    void shouldStopTailingOnceAllSubscribersHaveGone() throws Exception {
+        SocketEndpoint socket = openSocket();
+        tailer.subscribe(socket, jobIdentifier, 0L);
+        tailer.refresh(jobIdentifier);
+
+        when(socket.isOpen()).thenReturn(false);
+        tailer.refresh(jobIdentifier);
+
+        assertThat(tailer.isTailing(jobIdentifier)).isFalse();
+    }
+
+    @Test
+    void shouldDisconnectASubscriberWhichFallsTooFarBehindWithoutHoldingUpTheOthers() throws Exception {
+        SocketEndpoint fast = openSocket();
+        SocketEndpoint slow = openSocket();
+        List<String> sentToFast = recordSent(fast);
+
+        tailer.subscribe(fast, jobIdentifier, 0L);
+        tailer.subscribe(slow, jobIdentifier, 0L);
+        // nothing is ever written to the slow client, so all that it is sent piles up
+        Files.write(console, randomLines(100_000), StandardOpenOption.APPEND);
+        tailer.refresh(jobIdentifier);
+
+        verify(slow).close();
+        verify(fast, never()).close();
+        assertThat(sentToFast).hasSizeGreaterThan(9_000);
+        assertThat(tailer.isTailing(jobIdentifier)).isTrue();
+    }
+
+    @Test
+    void shouldWaitForASubscriberToTakeWhatItHasBeenSentBeforeReadingMoreOfItsBacklog() throws Exception {
+        Files.write(console, randomLines(50_000), StandardOpenOption.APPEND);
+        SocketEndpoint socket = openSocket();
+
+        tailer.subscribe(socket, jobIdentifier, 0L);
+
+        // the test streamer reads a kilobyte at a time, so the whole backlog would be over 5000 sends
+        verify(socket, atLeastOnce()).send(any(), any());
+        verify(socket, atMost(4000)).send(any(), any());
+        verify(socket, never()).close();
+    }
+
+    private SocketEndpoint openSocket() {
+        SocketEndpoint socket = mock(SocketEndpoint.class);
+        when(socket.isOpen()).thenReturn(true);
+        return socket;
+    }
+
+    private List<String> recordSent(SocketEndpoint socket) throws Exception {
+        List<String> sent = new ArrayList<>();
+        doAnswer(invocation -> {
+            sent.add(UTF_8.decode(invocation.<ByteBuffer>getArgument(0).duplicate()).toString());
+            invocation.<WriteCallback>getArgument(1).writeSuccess();
+            return null;
+        }).when(socket).send(any(), any());
+        return sent;
+    }
+
+    // payloads are compressed, so the lines are random for as much to be sent as is read
+    private static byte[] randomLines(int count) {
+        Random random = new Random(42);
+        byte[] bytes = new byte[count * 100];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = i % 100 == 99 ? (byte) '\n' : (byte) (' ' + random.nextInt(0xE0));
+        }
+        return bytes;
+    }
+}
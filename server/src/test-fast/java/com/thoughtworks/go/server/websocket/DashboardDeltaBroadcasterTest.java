@@ -0,0 +1,240 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.websocket;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.thoughtworks.go.config.CaseInsensitiveString;
+import com.thoughtworks.go.config.security.Permissions;
+import com.thoughtworks.go.config.security.permissions.EveryonePermission;
+import com.thoughtworks.go.config.security.users.AllowedUsers;
+import com.thoughtworks.go.config.security.users.Everyone;
+import com.thoughtworks.go.helper.PipelineConfigMother;
+import com.thoughtworks.go.presentation.pipelinehistory.PipelineModel;
+import com.thoughtworks.go.server.dashboard.GoDashboardCache;
+import com.thoughtworks.go.server.dashboard.GoDashboardPipeline;
+import com.thoughtworks.go.server.dashboard.TimeStampBasedCounter;
+import com.thoughtworks.go.server.domain.Username;
+import com.thoughtworks.go.util.SystemTimeClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static com.thoughtworks.go.domain.PipelinePauseInfo.notPaused;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class DashboardDeltaBroadcasterTest {
+    private TimeStampBasedCounter counter;
+    private GoDashboardCache cache;
+    private DashboardDeltaBroadcaster broadcaster;
+    private DashboardSocket socket;
+
+    @BeforeEach
+    void setUp() {
+        counter = new TimeStampBasedCounter(new SystemTimeClock());
+        cache = new GoDashboardCache(counter);
+        broadcaster = new DashboardDeltaBroadcaster(cache, Runnable::run);
+        socket = socketFor("bob");
+    }
+
+    @Test
+    void shouldSendASnapshotOfPipelinesTheUserCanViewToANewSubscriber() {
+        cache.put(pipeline("up42", everyone()));
+        cache.put(pipeline("secret", onlyFor("alice")));
+
+        broadcaster.subscribe(socket, 0);
+
+        JsonObject message = onlyMessageSentTo(socket);
+        assertThat(message.get("type").getAsString()).isEqualTo("snapshot");
+        assertThat(message.get("counter").getAsLong()).isEqualTo(cache.allEntries().lastUpdatedTimeStamp());
+        assertThat(pipelineNames(message)).containsExactly("up42");
+        assertThat(message.getAsJsonObject("permissions").getAsJsonObject("up42").get("can_operate").getAsBoolean()).isTrue();
+    }
+
+    @Test
+    void shouldSendOnlyWhatChangedToSubscribers() {
+        cache.put(pipeline("up42", everyone()));
+        cache.put(pipeline("down42", everyone()));
+        broadcaster.subscribe(socket, 0);
+        clearInvocations(socket);
+
+        cache.put(pipeline("up42", everyone()));
+        JsonObject update = onlyMessageSentTo(socket);
+        assertThat(update.get("type").getAsString()).isEqualTo("delta");
+        assertThat(pipelineNames(update)).containsExactly("up42");
+        assertThat(update.getAsJsonArray("removed")).isEmpty();
+        clearInvocations(socket);
+
+        cache.remove(new CaseInsensitiveString("down42"));
+        JsonObject removal = onlyMessageSentTo(socket);
+        assertThat(pipelineNames(removal)).isEmpty();
+        assertThat(removal.getAsJsonArray("removed").get(0).getAsString()).isEqualTo("down42");
+    }
+
+    @Test
+    void shouldNotSendAnythingToSubscribersWhoCannotViewTheChangedPipeline() {
+        cache.put(pipeline("secret", onlyFor("alice")));
+        broadcaster.subscribe(socket, 0);
+        clearInvocations(socket);
+
+        cache.put(pipeline("secret", onlyFor("alice")));
+
+        verify(socket, never()).send(anyString());
+    }
+
+    @Test
+    void shouldRemoveAPipelineFromSubscribersWhoCanNoLongerViewIt() {
+        cache.put(pipeline("up42", everyone()));
+        broadcaster.subscribe(socket, 0);
+        clearInvocations(socket);
+
+        cache.put(pipeline("up42", onlyFor("alice")));
+        JsonObject message = onlyMessageSentTo(socket);
+        assertThat(pipelineNames(message)).isEmpty();
+        assertThat(message.getAsJsonArray("removed").get(0).getAsString()).isEqualTo("up42");
+        clearInvocations(socket);
+
+        cache.put(pipeline("up42", onlyFor("alice")));
+        cache.remove(new CaseInsensitiveString("up42"));
+        verify(socket, never()).send(anyString());
+    }
+
+    @Test
+    void shouldNotSendTheRemovalOfAPipelineTheSubscriberWasNeverShown() {
+        cache.put(pipeline("secret", onlyFor("alice")));
+        broadcaster.subscribe(socket, 0);
+        clearInvocations(socket);
+
+        cache.remove(new CaseInsensitiveString("secret"));
+
+        verify(socket, never()).send(anyString());
+    }
+
+    @Test
+    void shouldCatchUpAReconnectingSubscriberWithPipelinesTheyCanNoLongerView() {
+        cache.put(pipeline("up42", everyone()));
+        cache.put(pipeline("secret", onlyFor("alice")));
+        long lastSeen = cache.allEntries().lastUpdatedTimeStamp();
+
+        cache.put(pipeline("up42", onlyFor("alice")));
+        cache.put(pipeline("secret", onlyFor("carol")));
+        broadcaster.subscribe(socket, lastSeen);
+
+        JsonObject message = onlyMessageSentTo(socket);
+        assertThat(message.get("type").getAsString()).isEqualTo("delta");
+        assertThat(pipelineNames(message)).isEmpty();
+        assertThat(message.getAsJsonArray("removed")).hasSize(1);
+        assertThat(message.getAsJsonArray("removed").get(0).getAsString()).isEqualTo("up42");
+    }
+
+    @Test
+    void shouldSerializeAChangedPipelineOnceForAllSubscribers() {
+        DashboardSocket anotherSocket = socketFor("alice");
+        broadcaster.subscribe(socket, 0);
+        broadcaster.subscribe(anotherSocket, 0);
+        clearInvocations(socket, anotherSocket);
+
+        cache.put(pipeline("up42", everyone()));
+
+        JsonObject sentToBob = onlyMessageSentTo(socket);
+        JsonObject sentToAlice = onlyMessageSentTo(anotherSocket);
+        assertThat(sentToBob.getAsJsonArray("pipelines")).isEqualTo(sentToAlice.getAsJsonArray("pipelines"));
+    }
+
+    @Test
+    void shouldCatchUpAReconnectingSubscriberFromTheCounterItLastSaw() {
+        cache.put(pipeline("up42", everyone()));
+        cache.put(pipeline("down42", everyone()));
+        cache.put(pipeline("unchanged", everyone()));
+        long lastSeen = cache.allEntries().lastUpdatedTimeStamp();
+
+        cache.put(pipeline("up42", everyone()));
+        cache.remove(new CaseInsensitiveString("down42"));
+        broadcaster.subscribe(socket, lastSeen);
+
+        JsonObject message = onlyMessageSentTo(socket);
+        assertThat(message.get("type").getAsString()).isEqualTo("delta");
+        assertThat(pipelineNames(message)).containsExactly("up42");
+        assertThat(message.getAsJsonArray("removed").get(0).getAsString()).isEqualTo("down42");
+    }
+
+    @Test
+    void shouldSendASnapshotWhenRemovalsTheSubscriberMissedAreNoLongerRetained() {
+        cache.put(pipeline("up42", everyone()));
+        long lastSeen = cache.allEntries().lastUpdatedTimeStamp();
+
+        for (int i = 0; i <= DashboardDeltaBroadcaster.MAX_RETAINED_REMOVALS; i++) {
+            cache.put(pipeline("short-lived", everyone()));
+            cache.remove(new CaseInsensitiveString("short-lived"));
+        }
+        broadcaster.subscribe(socket, lastSeen);
+
+        JsonObject message = onlyMessageSentTo(socket);
+        assertThat(message.get("type").getAsString()).isEqualTo("snapshot");
+        assertThat(pipelineNames(message)).containsExactly("up42");
+    }
+
+    @Test
+    void shouldStopSendingToUnsubscribedSockets() {
+        broadcaster.subscribe(socket, 0);
+        broadcaster.unsubscribe(socket);
+        clearInvocations(socket);
+
+        cache.put(pipeline("up42", everyone()));
+
+        verify(socket, never()).send(anyString());
+        assertThat(broadcaster.subscriberCount()).isZero();
+    }
+
+    private DashboardSocket socketFor(String username) {
+        DashboardSocket socket = mock(DashboardSocket.class);
+        lenient().when(socket.isOpen()).thenReturn(true);
+        lenient().when(socket.key()).thenReturn("socket-for-" + username);
+        lenient().when(socket.username()).thenReturn(new Username(username));
+        return socket;
+    }
+
+    private JsonObject onlyMessageSentTo(DashboardSocket socket) {
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(socket).send(message.capture());
+        return JsonParser.parseString(message.getValue()).getAsJsonObject();
+    }
+
+    private List<String> pipelineNames(JsonObject message) {
+        List<String> names = new ArrayList<>();
+        message.getAsJsonArray("pipelines").forEach(pipeline -> names.add(pipeline.getAsJsonObject().get("name").getAsString()));
+        return names;
+    }
+
+    private GoDashboardPipeline pipeline(String name, Permissions permissions) {
+        return new GoDashboardPipeline(new PipelineModel(name, false, false, notPaused()), permissions, "group1", counter, PipelineConfigMother.pipelineConfig(name));
+    }
+
+    private Permissions everyone() {
+        return new Permissions(Everyone.INSTANCE, Everyone.INSTANCE, Everyone.INSTANCE, EveryonePermission.INSTANCE);
+    }
+
+    private Permissions onlyFor(String username) {
+        AllowedUsers users = new AllowedUsers(Set.of(username), Collections.emptySet());
+        return new Permissions(users, users, users, EveryonePermission.INSTANCE);
+    }
+}
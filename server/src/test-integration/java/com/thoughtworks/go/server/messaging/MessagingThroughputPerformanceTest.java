@@ -0,0 +1,85 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.messaging;
+
+import com.thoughtworks.go.server.messaging.activemq.ActiveMqMessagingService;
+import com.thoughtworks.go.server.messaging.inmemory.InMemoryMessagingService;
+import com.thoughtworks.go.server.service.support.DaemonThreadStatsCollector;
+import com.thoughtworks.go.serverhealth.ServerHealthService;
+import com.thoughtworks.go.util.PerfTimer;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Posts a large number of messages through a topic and a queue, with the embedded ActiveMQ broker and with in-memory
+ * messaging, and reports how long it took for all of them to be received.
+ */
+@Disabled("For adhoc running only")
+public class MessagingThroughputPerformanceTest {
+    private static final int NUMBER_OF_MESSAGES = 200_000;
+    private static final int NUMBER_OF_QUEUE_LISTENERS = 4;
+
+    @Test
+    public void performanceTestForActiveMq() throws Exception {
+        MessagingService<GoMessage> messaging = new ActiveMqMessagingService(new DaemonThreadStatsCollector(), new SystemEnvironment(), new ServerHealthService());
+        try {
+            measure("ActiveMQ", messaging);
+        } finally {
+            messaging.stop();
+        }
+    }
+
+    @Test
+    public void performanceTestForInMemoryMessaging() throws Exception {
+        MessagingService<GoMessage> messaging = new InMemoryMessagingService(new DaemonThreadStatsCollector(), new SystemEnvironment(), new ServerHealthService());
+        try {
+            measure("In-memory", messaging);
+        } finally {
+            messaging.stop();
+        }
+    }
+
+    private void measure(String name, MessagingService<GoMessage> messaging) throws InterruptedException {
+        GoMessageTopic<GoTextMessage> topic = new GoMessageTopic<>(messaging, "throughput-topic") {
+        };
+        CountDownLatch receivedFromTopic = new CountDownLatch(NUMBER_OF_MESSAGES);
+        topic.addListener(message -> receivedFromTopic.countDown());
+        post(name + ": " + NUMBER_OF_MESSAGES + " messages through a topic", topic, receivedFromTopic);
+
+        GoMessageQueue<GoTextMessage> queue = new GoMessageQueue<>(messaging, "throughput-queue") {
+        };
+        CountDownLatch receivedFromQueue = new CountDownLatch(NUMBER_OF_MESSAGES);
+        for (int i = 0; i < NUMBER_OF_QUEUE_LISTENERS; i++) {
+            queue.addListener(message -> receivedFromQueue.countDown());
+        }
+        post(name + ": " + NUMBER_OF_MESSAGES + " messages through a queue with " + NUMBER_OF_QUEUE_LISTENERS + " listeners", queue, receivedFromQueue);
+    }
+
+    private void post(String description, GoMessageChannel<GoTextMessage> channel, CountDownLatch received) throws InterruptedException {
+        PerfTimer timer = PerfTimer.start(description);
+        for (int i = 0; i < NUMBER_OF_MESSAGES; i++) {
+            channel.post(new GoTextMessage("message " + i));
+        }
+        assertThat(received.await(5, TimeUnit.MINUTES)).isTrue();
+        timer.stop();
+    }
+}
@@ -63,6 +63,7 @@ import com.thoughtworks.go.server.transaction.TransactionTemplate;
 import com.thoughtworks.go.server.util.Pagination;
 import com.thoughtworks.go.util.Dates;
 import com.thoughtworks.go.util.SerializationTester;
+import com.thoughtworks.go.util.SystemEnvironment;
 import com.thoughtworks.go.util.TestUtils;
 import com.thoughtworks.go.util.TimeProvider;
 import com.thoughtworks.go.util.json.JsonHelper;
@@ -79,22 +80,28 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import uk.org.webcompere.systemstubs.jupiter.SystemStub;
+import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
+import uk.org.webcompere.systemstubs.properties.SystemProperties;
 
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import static com.thoughtworks.go.helper.ModificationsMother.EMAIL_ADDRESS;
 import static com.thoughtworks.go.helper.ModificationsMother.MOD_USER;
 import static com.thoughtworks.go.util.GoConstants.DEFAULT_APPROVED_BY;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
+@ExtendWith(SystemStubsExtension.class)
 @ContextConfiguration(locations = {
         "classpath:/applicationContext-global.xml",
         "classpath:/applicationContext-dataLocalAccess.xml",
@@ -126,6 +133,9 @@ public class MaterialRepositoryIntegrationTest {
     @Autowired
     private Database databaseStrategy;
 
+    @SystemStub
+    private SystemProperties systemProperties;
+
     private HibernateTemplate originalTemplate;
     private final String md5 = "md5-test";
 
@@ -940,6 +950,57 @@ public class MaterialRepositoryIntegrationTest {
         assertThat(revisions.size()).isEqualTo(0);
     }
 
+    @Test
+    public void shouldFindRevisionsSavedAfterTheSearchIndexWasLoaded() {
+        ScmMaterial material = material();
+        repo.saveOrUpdate(material.createMaterialInstance());
+        saveOneScmModification("40c95a3c41f54b5fb3107982cf2acd08783f102a", material, "pavan", "meet_you_in_hell.txt", "comment");
+
+        assertThat(repo.findRevisionsMatching(material.config(), "turn").size()).isEqualTo(0);
+        awaitRevisionSearchIndexOf(material);
+
+        MaterialRevision second = saveOneScmModification("c30c471137f31a4bf735f653f888e799f6deec04", material, "turn_her", "of_course_he_will_be_there_first.txt", "comment");
+
+        List<MatchedRevision> revisions = repo.findRevisionsMatching(material.config(), "turn");
+        assertThat(revisions.size()).isEqualTo(1);
+        assertMatchedRevision(revisions.get(0), second.getLatestShortRevision(), second.getLatestRevisionString(), "turn_her", second.getDateOfLatestModification(), "comment");
+    }
+
+    @Test
+    public void shouldFindOnlyTheLatestFiveMatchingRevisionsUsingTheSearchIndex() {
+        ScmMaterial material = material();
+        repo.saveOrUpdate(material.createMaterialInstance());
+        for (int i = 0; i < 7; i++) {
+            saveOneScmModification("revision-" + i, material, "pavan", "file-" + i + ".txt", "comment " + i);
+        }
+        repo.findRevisionsMatching(material.config(), "pavan comm");
+        awaitRevisionSearchIndexOf(material);
+
+        List<MatchedRevision> revisions = repo.findRevisionsMatching(material.config(), "pavan comm");
+        assertThat(revisions.stream().map(MatchedRevision::getLongRevision).toList())
+                .containsExactly("revision-6", "revision-5", "revision-4", "revision-3", "revision-2");
+    }
+
+    @Test
+    public void shouldSearchTheDatabaseWhileTheSearchIndexIsBeingLoaded() {
+        ScmMaterial material = material();
+        repo.saveOrUpdate(material.createMaterialInstance());
+        MaterialRevision revision = saveOneScmModification("40c95a3c41f54b5fb3107982cf2acd08783f102a", material, "pavan", "meet_you_in_hell.txt", "comment");
+
+        List<MatchedRevision> revisions = repo.findRevisionsMatching(material.config(), "pavan");
+        assertThat(revisions.size()).isEqualTo(1);
+        assertThat(revisions.get(0).getLongRevision()).isEqualTo(revision.getLatestRevisionString());
+
+        awaitRevisionSearchIndexOf(material);
+        revisions = repo.findRevisionsMatching(material.config(), "pavan");
+        assertThat(revisions.size()).isEqualTo(1);
+        assertThat(revisions.get(0).getLongRevision()).isEqualTo(revision.getLatestRevisionString());
+    }
+
+    private void awaitRevisionSearchIndexOf(Material material) {
+        await().atMost(10, TimeUnit.SECONDS).until(() -> repo.hasLoadedRevisionSearchIndexFor(material));
+    }
+
     @Test
     public void shouldFindLatestRevision() {
         ScmMaterial material = material();
@@ -1223,6 +1284,34 @@ public class MaterialRepositoryIntegrationTest {
         }
     }
 
+    @Test
+    public void shouldInsertModificationsAndTheirFilesInBatches() {
+        systemProperties.set(SystemEnvironment.MODIFICATIONS_BATCH_INSERT.propertyName(), "true");
+        systemProperties.set(SystemEnvironment.MODIFICATIONS_BATCH_SIZE.propertyName(), "2");
+        GitMaterial material = new GitMaterial(UUID.randomUUID().toString(), "branch");
+        final MaterialInstance materialInstance = repo.findOrCreateFrom(material);
+        final List<Modification> modifications = getModifications(5);
+        modifications.get(0).createModifiedFile("file1", "folder1", ModifiedAction.added);
+        modifications.get(0).createModifiedFile("file2", "folder2", ModifiedAction.deleted);
+        transactionTemplate.execute(status -> {
+            repo.saveModifications(materialInstance, modifications);
+            return null;
+        });
+
+        assertThat(modifications).allMatch(Modification::hasId);
+        assertThat(repo.getTotalModificationsFor(materialInstance)).isEqualTo(5L);
+        Modification withFiles = repo.findModificationWithRevision(material, "r0");
+        assertThat(withFiles.getId()).isEqualTo(modifications.get(0).getId());
+        assertThat(withFiles.getModifiedFiles()).extracting(ModifiedFile::getFileName).containsExactly("file1", "file2");
+
+        final List<Modification> modificationsContainingDuplicates = getModifications(6);
+        transactionTemplate.execute(status -> {
+            repo.saveModifications(materialInstance, modificationsContainingDuplicates);
+            return null;
+        });
+        assertThat(repo.getTotalModificationsFor(materialInstance)).isEqualTo(6L);
+    }
+
     @Test
     public void shouldNotSaveAndClearCacheWhenThereAreNoNewModifications() {
         final MaterialInstance materialInstance = repo.findOrCreateFrom(new GitMaterial(UUID.randomUUID().toString(), "branch"));
@@ -0,0 +1,116 @@
+/*
+ * Copyright Thoughtworks, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thoughtworks.go.server.persistence;
+
+import com.thoughtworks.go.config.materials.git.GitMaterial;
+import com.thoughtworks.go.domain.MaterialInstance;
+import com.thoughtworks.go.domain.materials.Modification;
+import com.thoughtworks.go.domain.materials.ModifiedAction;
+import com.thoughtworks.go.server.cache.GoCache;
+import com.thoughtworks.go.server.dao.DatabaseAccessHelper;
+import com.thoughtworks.go.server.transaction.TransactionTemplate;
+import com.thoughtworks.go.util.PerfTimer;
+import com.thoughtworks.go.util.SystemEnvironment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import uk.org.webcompere.systemstubs.jupiter.SystemStub;
+import uk.org.webcompere.systemstubs.jupiter.SystemStubsExtension;
+import uk.org.webcompere.systemstubs.properties.SystemProperties;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Imports a large history into the database the tests are configured to run against (H2 by default, or any other
+ * supported database such as PostgreSQL), one statement per modification and in JDBC batches.
+ */
+@Disabled("For adhoc running only")
+@ExtendWith(SpringExtension.class)
+@ExtendWith(SystemStubsExtension.class)
+@ContextConfiguration(locations = {
+        "classpath:/applicationContext-global.xml",
+        "classpath:/applicationContext-dataLocalAccess.xml",
+        "classpath:/testPropertyConfigurer.xml",
+        "classpath:/spring-all-servlet.xml",
+})
+public class MaterialRepositoryPerformanceTest {
+    private static final int NUMBER_OF_MODIFICATIONS = 500_000;
+
+    @SystemStub
+    private SystemProperties systemProperties;
+
+    @Autowired
+    private MaterialRepository repo;
+    @Autowired
+    private GoCache goCache;
+    @Autowired
+    private DatabaseAccessHelper dbHelper;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dbHelper.onSetUp();
+        goCache.clear();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        goCache.clear();
+        dbHelper.onTearDown();
+    }
+
+    @Test
+    public void performanceTestForSavingModificationsOneByOne() {
+        systemProperties.set(SystemEnvironment.MODIFICATIONS_BATCH_INSERT.propertyName(), "false");
+        importModifications("Saving " + NUMBER_OF_MODIFICATIONS + " modifications one by one");
+    }
+
+    @Test
+    public void performanceTestForSavingModificationsInBatches() {
+        systemProperties.set(SystemEnvironment.MODIFICATIONS_BATCH_INSERT.propertyName(), "true");
+        importModifications("Saving " + NUMBER_OF_MODIFICATIONS + " modifications in batches");
+    }
+
+    private void importModifications(String description) {
+        final MaterialInstance materialInstance = repo.findOrCreateFrom(new GitMaterial(UUID.randomUUID().toString(), "branch"));
+        final List<Modification> modifications = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_MODIFICATIONS; i++) {
+            Modification modification = new Modification("user", "comment " + i, "email", new Date(), UUID.randomUUID().toString());
+            modification.createModifiedFile("file" + i, "folder", ModifiedAction.modified);
+            modifications.add(modification);
+        }
+
+        PerfTimer timer = PerfTimer.start(description);
+        transactionTemplate.execute(status -> {
+            repo.saveModifications(materialInstance, modifications);
+            return null;
+        });
+        timer.stop();
+
+        assertThat(repo.getTotalModificationsFor(materialInstance)).isEqualTo((long) NUMBER_OF_MODIFICATIONS);
+    }
+}
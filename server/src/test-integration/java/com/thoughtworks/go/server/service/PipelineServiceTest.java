@@ -40,6 +40,7 @@ import com.thoughtworks.go.server.domain.StageStatusListener;
 import com.thoughtworks.go.server.messaging.JobResultTopic;
 import com.thoughtworks.go.server.messaging.StageStatusTopic;
 import com.thoughtworks.go.server.persistence.MaterialRepository;
+import com.thoughtworks.go.server.service.dd.FanInGraphTopologyCache;
 import com.thoughtworks.go.server.transaction.TestTransactionSynchronizationManager;
 import com.thoughtworks.go.server.transaction.TestTransactionTemplate;
 import com.thoughtworks.go.server.transaction.TransactionSynchronizationManager;
@@ -96,7 +97,7 @@ public class PipelineServiceTest {
         TestTransactionSynchronizationManager mockTransactionSynchronizationManager = new TestTransactionSynchronizationManager();
         TransactionTemplate mockTransactionTemplate = new TestTransactionTemplate(mockTransactionSynchronizationManager);
         service = new PipelineService(pipelineDao, mock(StageService.class), mock(PipelineLockService.class), pipelineTimeline, materialRepository, mockTransactionTemplate, systemEnvironment,
-                materialConfigConverter);
+                materialConfigConverter, new FanInGraphTopologyCache(mock(GoConfigService.class)));
         first = oneModifiedFile("1");
         third = oneModifiedFile("3");
         second = oneModifiedFile("2");
@@ -157,7 +158,7 @@ public class PipelineServiceTest {
 
         stageService.addStageStatusListener(stageStatusListener);
 
-        service = new PipelineService(pipelineDao, stageService, mock(PipelineLockService.class), pipelineTimeline, materialRepository, actualTransactionTemplate, systemEnvironment, materialConfigConverter);
+        service = new PipelineService(pipelineDao, stageService, mock(PipelineLockService.class), pipelineTimeline, materialRepository, actualTransactionTemplate, systemEnvironment, materialConfigConverter, new FanInGraphTopologyCache(mock(GoConfigService.class)));
         Pipeline pipeline = PipelineMother.pipeline("cruise", savedStage);
         when(pipelineDao.save(pipeline)).thenReturn(pipeline);
         when(materialRepository.findMaterialRevisionsForPipeline(9L)).thenReturn(MaterialRevisions.EMPTY);
@@ -15,6 +15,7 @@
  */
 package com.thoughtworks.go.api.base;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -27,10 +28,13 @@ import org.slf4j.LoggerFactory;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.TimeZone;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
@@ -45,34 +49,61 @@ public class JsonOutputWriter {
             .enable(JsonGenerator.Feature.STRICT_DUPLICATE_DETECTION);
 
     protected final Writer writer;
+    private final OutputStream outputStream;
     private final RequestContext requestContext;
     private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
 
     public JsonOutputWriter(Writer writer, RequestContext requestContext) {
         this.writer = writer;
+        this.outputStream = null;
         this.requestContext = requestContext;
     }
 
-    public JsonOutputWriter forTopLevelObject(Consumer<OutputWriter> consumer) {
-        bufferWriterAndFlushWhenDone(writer, bufferedWriter -> {
-            try (JsonOutputWriterUsingJackson jacksonOutputWriter = new JsonOutputWriterUsingJackson(bufferedWriter, requestContext)) {
-                jacksonOutputWriter.forTopLevelObject(consumer);
-            }
-        });
+    /**
+     * Writes the JSON as UTF-8 straight to the stream, through the buffers Jackson recycles between generators, so that
+     * a large response is sent as it is generated rather than being held in a buffer of its own first.
+     */
+    public JsonOutputWriter(OutputStream outputStream, RequestContext requestContext) {
+        this.writer = null;
+        this.outputStream = outputStream;
+        this.requestContext = requestContext;
+    }
 
+    public JsonOutputWriter forTopLevelObject(Consumer<OutputWriter> consumer) {
+        generate(jacksonOutputWriter -> jacksonOutputWriter.forTopLevelObject(consumer));
         return this;
     }
 
     public JsonOutputWriter forTopLevelArray(Consumer<OutputListWriter> consumer) {
-        bufferWriterAndFlushWhenDone(writer, bufferedWriter -> {
-            try (JsonOutputWriterUsingJackson jacksonOutputWriter = new JsonOutputWriterUsingJackson(bufferedWriter, requestContext)) {
-                jacksonOutputWriter.forTopLevelArray(consumer);
-            }
-        });
-
+        generate(jacksonOutputWriter -> jacksonOutputWriter.forTopLevelArray(consumer));
         return this;
     }
 
+    private void generate(Consumer<JsonOutputWriterUsingJackson> consumer) {
+        if (outputStream != null) {
+            streamAndFlushWhenDone(outputStream, consumer);
+        } else {
+            bufferWriterAndFlushWhenDone(writer, bufferedWriter -> {
+                try (JsonOutputWriterUsingJackson jacksonOutputWriter = new JsonOutputWriterUsingJackson(generatorFor(bufferedWriter), requestContext)) {
+                    consumer.accept(jacksonOutputWriter);
+                }
+            });
+        }
+    }
+
+    private void streamAndFlushWhenDone(OutputStream outputStream, Consumer<JsonOutputWriterUsingJackson> consumer) {
+        try {
+            try (JsonOutputWriterUsingJackson jacksonOutputWriter = new JsonOutputWriterUsingJackson(JSON_FACTORY.createGenerator(outputStream, JsonEncoding.UTF8), requestContext)) {
+                consumer.accept(jacksonOutputWriter);
+            } finally {
+                outputStream.flush();
+            }
+        } catch (Exception e) {
+            log.error("There was an error generating JSON", e);
+            throw new RuntimeException(e);
+        }
+    }
+
     private void bufferWriterAndFlushWhenDone(Writer writer, Consumer<BufferedWriter> consumer) {
         BufferedWriter bufferedWriter = (writer instanceof BufferedWriter) ? (BufferedWriter) writer : new BufferedWriter(writer, 32 * 1024);
         try {
@@ -87,20 +118,24 @@ public class JsonOutputWriter {
         }
     }
 
+    private static JsonGenerator generatorFor(Writer writer) {
+        try {
+            return JSON_FACTORY.createGenerator(writer);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @SuppressWarnings("resource")
     private static class JsonOutputWriterUsingJackson implements OutputWriter {
 
         private final RequestContext requestContext;
         private final JsonGenerator jacksonWriter;
 
-        private JsonOutputWriterUsingJackson(Writer writer, RequestContext requestContext) {
+        private JsonOutputWriterUsingJackson(JsonGenerator jacksonWriter, RequestContext requestContext) {
             this.requestContext = requestContext;
-            try {
-                jacksonWriter = JSON_FACTORY.createGenerator(writer);
-                jacksonWriter.useDefaultPrettyPrinter();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+            this.jacksonWriter = jacksonWriter;
+            this.jacksonWriter.useDefaultPrettyPrinter();
         }
 
         @Override
@@ -389,6 +424,15 @@ public class JsonOutputWriter {
                 });
                 return this;
             }
+
+            @Override
+            public <T> JsonOutputListWriter addChildren(Iterator<T> cursor, BiConsumer<OutputWriter, T> consumer) {
+                while (cursor.hasNext()) {
+                    T item = cursor.next();
+                    addChild(childWriter -> consumer.accept(childWriter, item));
+                }
+                return this;
+            }
         }
 
 
@@ -15,10 +15,15 @@
  */
 package com.thoughtworks.go.api.base;
 
+import java.util.Iterator;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 public interface OutputListWriter {
     OutputListWriter value(String value);
 
     OutputListWriter addChild(Consumer<OutputWriter> consumer);
+
+    /* Adds an object for each item as the cursor gives it, so that the items never need to be in memory all at once. */
+    <T> OutputListWriter addChildren(Iterator<T> cursor, BiConsumer<OutputWriter, T> consumer);
 }